@@ -3,21 +3,33 @@ package com.example.morphine.client;
 import com.example.grpc.*;
 import com.example.morphine.dto.ChannelDTO;
 import com.example.morphine.dto.ChannelPreviewDTO;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
  * Wrapper Spring pour appeler le service gRPC ChannelService.
+ * Les appels passent par le stub asynchrone avec deadline, hedging et circuit breaker (voir ResilientGrpcCaller).
  */
 @Service
 public class ChannelServiceClient {
 
-    private final ChannelServiceGrpc.ChannelServiceBlockingStub stub;
+    private final ChannelServiceGrpc.ChannelServiceFutureStub stub;
+    private final ResilientGrpcCaller caller;
+    private final Counter degradedPreviews;
 
-    public ChannelServiceClient(ChannelServiceGrpc.ChannelServiceBlockingStub stub) {
+    public ChannelServiceClient(ChannelServiceGrpc.ChannelServiceFutureStub stub, ResilientGrpcCaller caller,
+                                MeterRegistry meterRegistry) {
         this.stub = stub;
+        this.caller = caller;
+        this.degradedPreviews = Counter.builder("channel.previews.degraded")
+                .description("Lookups d'apercus de chaines en echec, blogs servis sans chaine")
+                .register(meterRegistry);
     }
 
     public ChannelDTO getChannelByUserId(String userId) {
@@ -25,7 +37,7 @@ public class ChannelServiceClient {
                 .setUserId(userId)
                 .build();
 
-        ChannelResponse response = stub.getChannelByUserId(request);
+        ChannelResponse response = caller.call(true, deadline -> stub.withDeadline(deadline).getChannelByUserId(request));
         return new ChannelDTO(
                 response.getChannelId(),
                 response.getName(),
@@ -34,12 +46,25 @@ public class ChannelServiceClient {
         );
     }
 
+    /**
+     * Les aperçus ne servent qu'à enrichir les listes de blogs : si channel-service est indisponible
+     * (ou le circuit ouvert), on renvoie une liste vide et les blogs sont servis sans chaîne.
+     * Chaque repli est journalise et compte dans channel.previews.degraded ; les autres erreurs remontent.
+     */
     public List<ChannelPreviewDTO> getChannelPreviewsByIds(List<String> channelIds) {
         ChannelIdList request = ChannelIdList.newBuilder()
                 .addAllIds(channelIds)
                 .build();
 
-        ChannelPreviewList response = stub.getChannelPreviewsByIds(request);
+        ChannelPreviewList response;
+        try {
+            response = caller.call(true, deadline -> stub.withDeadline(deadline).getChannelPreviewsByIds(request));
+        } catch (StatusRuntimeException e) {
+            degradedPreviews.increment();
+            System.err.println("Channel preview lookup for " + channelIds.size() + " channels failed, serving blogs without channels: "
+                    + e.getStatus().getCode() + " " + e.getStatus().getDescription());
+            return Collections.emptyList();
+        }
         return response.getPreviewsList()
                 .stream()
                 .map(preview -> new ChannelPreviewDTO(
@@ -0,0 +1,92 @@
+package com.example.morphine.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Consecutive-failure circuit breaker
+ * - CLOSED: calls go through; after failureThreshold failures in a row the breaker opens
+ * - OPEN: calls are rejected until openMillis have passed
+ * - HALF_OPEN: a single probe call goes through; its outcome closes or re-opens the breaker
+ * The state and the time it was opened change together in one compare-and-set, so a late failure that
+ * loses the race to open the breaker never moves the OPEN window.
+ * Copied in stream-service (com.stream.stream_service.utils); keep the two copies identical.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    // Immutable, swapped as a whole
+    private record Status(State state, long openedAt) {
+    }
+
+    private static final Status CLOSED = new Status(State.CLOSED, 0L);
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+
+    private final AtomicReference<Status> status = new AtomicReference<>(CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this(name, failureThreshold, openMillis, System::nanoTime);
+    }
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis, LongSupplier clock) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMillis * 1_000_000L;
+        this.clock = clock;
+    }
+
+    /**
+     * Ask permission for a call
+     * @return true if the call may proceed; the caller must then report onSuccess or onFailure
+     */
+    public boolean tryAcquire() {
+        Status current = status.get();
+        if (current.state() == State.CLOSED) {
+            return true;
+        }
+        if (current.state() == State.OPEN && clock.getAsLong() - current.openedAt() >= openNanos) {
+            // Only the caller that wins the transition probes
+            return status.compareAndSet(current, new Status(State.HALF_OPEN, current.openedAt()));
+        }
+        return false;
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        status.set(CLOSED);
+    }
+
+    public void onFailure() {
+        Status current = status.get();
+        if (current.state() == State.HALF_OPEN) {
+            open(current);
+        } else if (current.state() == State.CLOSED && consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open(current);
+        }
+    }
+
+    public State getState() {
+        return status.get().state();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void open(Status from) {
+        if (status.compareAndSet(from, new Status(State.OPEN, clock.getAsLong()))) {
+            System.err.println("Circuit breaker " + name + " opened");
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.morphine.client;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Percentile over the most recent latency samples
+ * Samples go into a fixed ring; the percentile is recomputed every few samples instead of on each read.
+ * Copied in stream-service (com.stream.stream_service.utils); keep the two copies identical.
+ */
+public class LatencyTracker {
+
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private final AtomicLongArray samples;
+    private final AtomicInteger recorded = new AtomicInteger();
+    private final double percentile;
+    private final int minSamples;
+    private volatile long cachedNanos = -1;
+
+    /**
+     * @param capacity Number of recent samples kept (power of two)
+     * @param percentile Percentile to track, e.g. 0.95
+     * @param minSamples Samples needed before a value is reported
+     */
+    public LatencyTracker(int capacity, double percentile, int minSamples) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        this.samples = new AtomicLongArray(capacity);
+        this.percentile = percentile;
+        this.minSamples = Math.min(minSamples, capacity);
+    }
+
+    public void record(long nanos) {
+        int index = recorded.getAndIncrement();
+        samples.set(index & (samples.length() - 1), nanos);
+        int count = index + 1;
+        if (count == minSamples || count % RECOMPUTE_EVERY == 0) {
+            recompute(Math.min(count, samples.length()));
+        }
+    }
+
+    /**
+     * @return Tracked percentile in nanoseconds, or -1 until enough samples were recorded
+     */
+    public long getPercentileNanos() {
+        return cachedNanos;
+    }
+
+    private void recompute(int size) {
+        long[] copy = new long[size];
+        for (int i = 0; i < size; i++) {
+            copy[i] = samples.get(i);
+        }
+        Arrays.sort(copy);
+        cachedNanos = copy[Math.min(size - 1, (int) Math.ceil(percentile * size) - 1)];
+    }
+}
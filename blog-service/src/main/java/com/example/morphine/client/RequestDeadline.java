@@ -0,0 +1,31 @@
+package com.example.morphine.client;
+
+import io.grpc.Deadline;
+
+/**
+ * Deadline of the HTTP request being handled on the current thread
+ * Set by RequestDeadlineFilter so that downstream gRPC calls never outlive the request that needs them.
+ * Copied in stream-service (com.stream.stream_service.utils); keep the two copies identical.
+ */
+public final class RequestDeadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    /**
+     * @return Deadline of the current request, or null outside of a request (e.g. startup or background tasks)
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    public static void set(Deadline deadline) {
+        CURRENT.set(deadline);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.morphine.client;
+
+import io.grpc.Deadline;
+import io.micrometer.context.ThreadLocalAccessor;
+
+/**
+ * Carries the request deadline to the thread that runs a GraphQL resolver
+ * With virtual threads enabled, Spring GraphQL invokes blocking resolvers on an executor instead of the
+ * request thread; it restores the ThreadLocals registered through context-propagation around each call.
+ * Registered in META-INF/services/io.micrometer.context.ThreadLocalAccessor.
+ */
+public class RequestDeadlineThreadLocalAccessor implements ThreadLocalAccessor<Deadline> {
+
+    public static final String KEY = RequestDeadline.class.getName();
+
+    @Override
+    public Object key() {
+        return KEY;
+    }
+
+    @Override
+    public Deadline getValue() {
+        return RequestDeadline.current();
+    }
+
+    @Override
+    public void setValue(Deadline value) {
+        RequestDeadline.set(value);
+    }
+
+    @Override
+    public void setValue() {
+        RequestDeadline.clear();
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.morphine.client;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs unary calls on a future stub with a deadline, hedging and a circuit breaker
+ * - Deadline: the per-RPC timeout, shortened to the deadline of the current HTTP request if there is one
+ * - Hedging: for idempotent calls, a second attempt is sent when the first has not answered after the
+ *   tracked latency percentile (or right away if the first fails with a retryable status); first answer wins
+ * - Circuit breaker: after repeated UNAVAILABLE/DEADLINE_EXCEEDED/... failures calls fail fast with UNAVAILABLE,
+ *   so callers take their degraded path without waiting on a sick server
+ * All of this is opt-in (channel.grpc.resilience.enabled). Disabled, each call is one attempt without deadline,
+ * hedge or breaker, waited for like the blocking stub did.
+ * Copy of stream-service's ResilientGrpcCaller (see there for why the resilience classes are not shared);
+ * keep the two identical.
+ */
+public class ResilientGrpcCaller {
+
+    private static final Set<Status.Code> FAILURE_CODES = Set.of(
+            Status.Code.UNAVAILABLE,
+            Status.Code.DEADLINE_EXCEEDED,
+            Status.Code.RESOURCE_EXHAUSTED,
+            Status.Code.INTERNAL,
+            Status.Code.UNKNOWN
+    );
+
+    private static final Set<Status.Code> RETRYABLE_CODES = Set.of(
+            Status.Code.UNAVAILABLE,
+            Status.Code.RESOURCE_EXHAUSTED
+    );
+
+    private final boolean enabled;
+    private final long timeoutMs;
+    private final boolean hedging;
+    private final long minHedgeDelayMs;
+    private final CircuitBreaker breaker;
+    private final LatencyTracker latencies;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param enabled Whether calls get a deadline, hedging and the circuit breaker
+     * @param timeoutMs Default per-RPC deadline
+     * @param hedging Whether idempotent calls may be hedged
+     * @param hedgePercentile Latency percentile after which a hedge is sent, e.g. 0.95
+     * @param minHedgeDelayMs Lower bound of the hedge delay
+     * @param breaker Circuit breaker shared by all calls to the same server
+     * @param scheduler Timer for hedge attempts
+     */
+    public ResilientGrpcCaller(boolean enabled, long timeoutMs, boolean hedging, double hedgePercentile, long minHedgeDelayMs,
+                               CircuitBreaker breaker, ScheduledExecutorService scheduler) {
+        this.enabled = enabled;
+        this.timeoutMs = timeoutMs;
+        this.hedging = hedging;
+        this.minHedgeDelayMs = minHedgeDelayMs;
+        this.breaker = breaker;
+        this.latencies = new LatencyTracker(256, hedgePercentile, 20);
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Run a unary call and wait for its result
+     * @param idempotent Whether the call may be sent more than once
+     * @param attempt Starts one attempt with the given deadline (e.g. stub.withDeadline(d).someRpc(request))
+     * @return The first successful response
+     * @throws StatusRuntimeException on failure, with UNAVAILABLE when the circuit is open
+     */
+    public <T> T call(boolean idempotent, Function<Deadline, ListenableFuture<T>> attempt) {
+        if (!enabled) {
+            // A null deadline leaves the stub without one
+            return awaitPlain(attempt.apply(null));
+        }
+        Deadline deadline = Deadline.after(timeoutMs, TimeUnit.MILLISECONDS);
+        Deadline requestDeadline = RequestDeadline.current();
+        if (requestDeadline != null) {
+            deadline = deadline.minimum(requestDeadline);
+        }
+        if (deadline.isExpired()) {
+            throw Status.DEADLINE_EXCEEDED.withDescription("Request deadline already expired").asRuntimeException();
+        }
+        if (!breaker.tryAcquire()) {
+            throw Status.UNAVAILABLE.withDescription("Circuit " + breaker.getName() + " is open").asRuntimeException();
+        }
+
+        Call<T> call = new Call<>(deadline, attempt, idempotent && hedging);
+        try {
+            T result = call.await();
+            breaker.onSuccess();
+            return result;
+        } catch (StatusRuntimeException e) {
+            if (FAILURE_CODES.contains(e.getStatus().getCode())) {
+                breaker.onFailure();
+            } else {
+                // The server answered; the call failed for its own reasons
+                breaker.onSuccess();
+            }
+            throw e;
+        } finally {
+            call.cancel();
+        }
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return breaker.getState();
+    }
+
+    private static <T> T awaitPlain(ListenableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw Status.fromThrowable(e.getCause()).asRuntimeException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw Status.CANCELLED.withDescription("Interrupted").withCause(e).asRuntimeException();
+        }
+    }
+
+    private long hedgeDelayNanos() {
+        long percentile = latencies.getPercentileNanos();
+        long fallback = TimeUnit.MILLISECONDS.toNanos(timeoutMs) / 2;
+        return Math.max(TimeUnit.MILLISECONDS.toNanos(minHedgeDelayMs), percentile < 0 ? fallback : percentile);
+    }
+
+    /**
+     * One logical call made of up to two attempts
+     */
+    private final class Call<T> {
+        private final Deadline deadline;
+        private final Function<Deadline, ListenableFuture<T>> attempt;
+        private final boolean hedged;
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final List<ListenableFuture<T>> attempts = new CopyOnWriteArrayList<>();
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicBoolean hedgeSent = new AtomicBoolean();
+        private volatile ScheduledFuture<?> hedgeTimer;
+
+        private Call(Deadline deadline, Function<Deadline, ListenableFuture<T>> attempt, boolean hedged) {
+            this.deadline = deadline;
+            this.attempt = attempt;
+            this.hedged = hedged;
+        }
+
+        private T await() {
+            start();
+            if (hedged) {
+                long delay = hedgeDelayNanos();
+                if (delay < deadline.timeRemaining(TimeUnit.NANOSECONDS)) {
+                    hedgeTimer = scheduler.schedule(this::hedge, delay, TimeUnit.NANOSECONDS);
+                }
+            }
+            try {
+                // The attempts carry the deadline themselves; the extra margin only guards against a lost callback
+                return result.get(deadline.timeRemaining(TimeUnit.NANOSECONDS) + TimeUnit.MILLISECONDS.toNanos(50),
+                        TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                throw Status.fromThrowable(e.getCause()).asRuntimeException();
+            } catch (TimeoutException e) {
+                throw Status.DEADLINE_EXCEEDED.withDescription("No response before deadline").asRuntimeException();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Status.CANCELLED.withDescription("Interrupted").withCause(e).asRuntimeException();
+            }
+        }
+
+        private void hedge() {
+            if (!result.isDone() && !deadline.isExpired() && hedgeSent.compareAndSet(false, true)) {
+                start();
+            }
+        }
+
+        private void start() {
+            outstanding.incrementAndGet();
+            long startedAt = System.nanoTime();
+            ListenableFuture<T> future;
+            try {
+                future = attempt.apply(deadline);
+            } catch (RuntimeException e) {
+                onAttemptFailed(e);
+                return;
+            }
+            attempts.add(future);
+            Futures.addCallback(future, new FutureCallback<>() {
+                @Override
+                public void onSuccess(T value) {
+                    latencies.record(System.nanoTime() - startedAt);
+                    result.complete(value);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    onAttemptFailed(t);
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        private void onAttemptFailed(Throwable t) {
+            Status.Code code = Status.fromThrowable(t).getCode();
+            if (hedged && RETRYABLE_CODES.contains(code) && !deadline.isExpired() && hedgeSent.compareAndSet(false, true)) {
+                // Hedge right away instead of waiting for the timer
+                outstanding.decrementAndGet();
+                start();
+                return;
+            }
+            if (outstanding.decrementAndGet() == 0 || !RETRYABLE_CODES.contains(code)) {
+                result.completeExceptionally(t);
+            }
+        }
+
+        private void cancel() {
+            ScheduledFuture<?> timer = hedgeTimer;
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            // Cancelling a gRPC future cancels the call on the wire
+            attempts.forEach(future -> future.cancel(true));
+        }
+    }
+}
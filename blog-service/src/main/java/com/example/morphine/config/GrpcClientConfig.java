@@ -1,13 +1,20 @@
 package com.example.morphine.config;
 
+import com.example.morphine.client.CircuitBreaker;
+import com.example.morphine.client.ResilientGrpcCaller;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.micrometer.core.instrument.binder.grpc.ObservationGrpcClientInterceptor;
+import io.micrometer.observation.ObservationRegistry;
 import com.example.grpc.ChannelServiceGrpc;
 import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
 /**
  * Configuration gRPC client sous Spring Boot 3 / Java 17.
  */
@@ -20,20 +27,65 @@ public class GrpcClientConfig {
     @Value("${grpc.server.port:9090}")
     private int grpcPort;
 
+    @Value("${channel.grpc.resilience.enabled:false}")
+    private boolean resilienceEnabled;
+
+    @Value("${channel.grpc.timeout-ms:1000}")
+    private long timeoutMs;
+
+    @Value("${channel.grpc.hedge.enabled:true}")
+    private boolean hedgeEnabled;
+
+    @Value("${channel.grpc.hedge.percentile:0.95}")
+    private double hedgePercentile;
+
+    @Value("${channel.grpc.hedge.min-delay-ms:20}")
+    private long hedgeMinDelayMs;
+
+    @Value("${channel.grpc.breaker.failure-threshold:5}")
+    private int breakerFailureThreshold;
+
+    @Value("${channel.grpc.breaker.open-ms:5000}")
+    private long breakerOpenMs;
+
     private ManagedChannel channel;
+    private ScheduledExecutorService hedgeScheduler;
 
+    /**
+     * Canal vers channel-service ; chaque appel est mesure (timer grpc.client par methode et statut)
+     * et transmet le contexte de trace a channel-service.
+     */
     @Bean
-    public ManagedChannel grpcManagedChannel() {
+    public ManagedChannel grpcManagedChannel(ObservationRegistry observationRegistry) {
         channel = ManagedChannelBuilder
                 .forAddress(grpcHost, grpcPort)
                 .usePlaintext()
+                .intercept(new ObservationGrpcClientInterceptor(observationRegistry))
                 .build();
         return channel;
     }
 
     @Bean
-    public ChannelServiceGrpc.ChannelServiceBlockingStub channelServiceBlockingStub(ManagedChannel channel) {
-        return ChannelServiceGrpc.newBlockingStub(channel);
+    public ChannelServiceGrpc.ChannelServiceFutureStub channelServiceFutureStub(ManagedChannel channel) {
+        return ChannelServiceGrpc.newFutureStub(channel);
+    }
+
+    @Bean
+    public ResilientGrpcCaller channelServiceCaller() {
+        hedgeScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "channel-client-hedge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        return new ResilientGrpcCaller(
+                resilienceEnabled,
+                timeoutMs,
+                hedgeEnabled,
+                hedgePercentile,
+                hedgeMinDelayMs,
+                new CircuitBreaker("channel-service", breakerFailureThreshold, breakerOpenMs),
+                hedgeScheduler
+        );
     }
 
     @PreDestroy
@@ -41,5 +93,8 @@ public class GrpcClientConfig {
         if (channel != null && !channel.isShutdown()) {
             channel.shutdown();
         }
+        if (hedgeScheduler != null) {
+            hedgeScheduler.shutdownNow();
+        }
     }
 }
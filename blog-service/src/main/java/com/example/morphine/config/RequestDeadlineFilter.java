@@ -0,0 +1,54 @@
+package com.example.morphine.config;
+
+import com.example.morphine.client.RequestDeadline;
+import io.grpc.Deadline;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives every HTTP request a deadline that outgoing gRPC calls inherit
+ * Callers may send their remaining budget in X-Request-Timeout-Ms; it is capped to the configured maximum.
+ * Copied in stream-service (com.stream.stream_service.config), with stream.request.* properties; keep the copies in step.
+ */
+@Component
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    @Value("${blog.request.default-timeout-ms:3000}")
+    private long defaultTimeoutMs;
+
+    @Value("${blog.request.max-timeout-ms:10000}")
+    private long maxTimeoutMs;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestDeadline.set(Deadline.after(timeoutOf(request), TimeUnit.MILLISECONDS));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+
+    private long timeoutOf(HttpServletRequest request) {
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (header == null || header.isBlank()) {
+            return defaultTimeoutMs;
+        }
+        try {
+            return Math.max(0, Math.min(Long.parseLong(header.trim()), maxTimeoutMs));
+        } catch (NumberFormatException e) {
+            return defaultTimeoutMs;
+        }
+    }
+}
@@ -1,13 +1,34 @@
 package com.channel.channel_service;
 
+import java.util.Map;
+
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ChannelServiceApplication {
 
+	// Observability defaults; application.properties is not versioned here and still overrides them
+	static final Map<String, Object> DEFAULT_PROPERTIES = Map.of(
+		"management.endpoints.web.exposure.include", "health,metrics,prometheus",
+		"management.metrics.tags.application", "channel-service",
+		"management.tracing.sampling.probability", "${TRACING_SAMPLING_PROBABILITY:0.1}",
+		"management.metrics.distribution.percentiles-histogram.http.server.requests", "true",
+		"management.metrics.distribution.percentiles-histogram.grpc.server", "true",
+		"management.metrics.distribution.percentiles-histogram.spring.data.repository.invocations", "true",
+		"management.metrics.distribution.percentiles-histogram.ivs.events", "true",
+		// IN lists are padded to powers of two, so chunked id lookups of any size share a few cached query plans
+		"spring.jpa.properties.hibernate.query.in_clause_parameter_padding", "true",
+		// Replaced by the observation-based interceptor in ObservabilityConfig (same data plus trace propagation)
+		"spring.autoconfigure.exclude", "net.devh.boot.grpc.server.autoconfigure.GrpcServerMetricAutoConfiguration"
+	);
+
 	public static void main(String[] args) {
-		SpringApplication.run(ChannelServiceApplication.class, args);
+		SpringApplication application = new SpringApplication(ChannelServiceApplication.class);
+		application.setDefaultProperties(DEFAULT_PROPERTIES);
+		application.run(args);
 	}
 
 }
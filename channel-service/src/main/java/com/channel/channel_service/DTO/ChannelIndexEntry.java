@@ -0,0 +1,21 @@
+package com.channel.channel_service.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChannelIndexEntry {
+    private String channelId;
+    private String arn;
+    private String userId;
+    private String name;
+    private String playbackUrl;
+    private String avatarUrl;
+
+    public ChannelPreviewDTO toPreview() {
+        return new ChannelPreviewDTO(channelId, name, playbackUrl, avatarUrl);
+    }
+}
@@ -0,0 +1,15 @@
+package com.channel.channel_service.DTO;
+
+/**
+ * Provisioning status of a channel, as seen by its owner
+ * UNKNOWN: the row is PROVISIONING but no job is running for it (it is resumed at the next startup)
+ */
+public record ChannelStatusResponse(String channelId, Status status) {
+
+    public enum Status {
+        PROVISIONING,
+        ACTIVE,
+        FAILED,
+        UNKNOWN
+    }
+}
@@ -0,0 +1,23 @@
+package com.channel.channel_service.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import net.devh.boot.grpc.server.serverfactory.GrpcServerConfigurer;
+
+@Configuration
+public class GrpcServerConfig {
+
+    /**
+     * Run @GrpcService handlers on virtual threads when spring.threads.virtual.enabled is set on JDK 21+
+     * Handlers block on JPA queries; by default they share grpc-java's cached pool of platform threads.
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    GrpcServerConfigurer virtualThreadGrpcServer() {
+        return serverBuilder -> serverBuilder.executor(new VirtualThreadTaskExecutor("grpc-handler-"));
+    }
+}
@@ -0,0 +1,22 @@
+package com.channel.channel_service.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.binder.grpc.ObservationGrpcServerInterceptor;
+import io.micrometer.observation.ObservationRegistry;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+
+@Configuration
+public class ObservabilityConfig {
+
+    /**
+     * Time every call handled by ChannelServiceImpl (grpc.server, tagged by method and status code)
+     * Continues the trace sent by stream-service and blog-service in the call metadata.
+     */
+    @Bean
+    @GrpcGlobalServerInterceptor
+    ObservationGrpcServerInterceptor grpcServerObservationInterceptor(ObservationRegistry observationRegistry) {
+        return new ObservationGrpcServerInterceptor(observationRegistry);
+    }
+}
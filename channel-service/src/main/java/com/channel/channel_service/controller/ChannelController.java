@@ -1,7 +1,9 @@
 package com.channel.channel_service.controller;
 
+import java.net.URI;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -20,10 +22,12 @@ import org.springframework.web.multipart.MultipartFile;
 
 import com.channel.channel_service.DTO.ChannelCreateResponse;
 import com.channel.channel_service.DTO.ChannelPreviewDTO;
+import com.channel.channel_service.DTO.ChannelStatusResponse;
 import com.channel.channel_service.DTO.ChannelUpdateRequest;
 import com.channel.channel_service.DTO.StreamConnectionInfo;
 import com.channel.channel_service.entities.Channel;
 import com.channel.channel_service.services.AvatarService;
+import com.channel.channel_service.services.ChannelProvisioner;
 import com.channel.channel_service.services.ChannelService;
 
 @RestController
@@ -31,6 +35,7 @@ import com.channel.channel_service.services.ChannelService;
 public class ChannelController {
     @Autowired private ChannelService channelService;
     @Autowired private AvatarService avatarService;
+    @Autowired private ChannelProvisioner channelProvisioner;
     
     @PostMapping(value = "/channels", consumes = "multipart/form-data")    
     public ResponseEntity<ChannelCreateResponse> create(
@@ -50,11 +55,26 @@ public class ChannelController {
             avatarUrl = avatarService.uploadAvatar(avatarFile, userId);
         }
 
-        // Create channel with the avatar URL
+        // Create channel with the avatar URL; its IVS resources are provisioned in the background
         Channel channel = channelService.createChannel(userId, name, description, avatarUrl);
 
-        ChannelCreateResponse response = new ChannelCreateResponse(channel.getChannelId(), "Channel created successfully");
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        ChannelCreateResponse response = new ChannelCreateResponse(channel.getChannelId(), "Channel is being provisioned");
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(URI.create("/channel-service/channels/" + channel.getChannelId() + "/status"))
+                .body(response);
+    }
+
+    /**
+     * Provisioning status of the caller's channel
+     * With waitMs, a PROVISIONING channel is answered once it is ACTIVE or FAILED, or when the wait is over;
+     * UNKNOWN means no job is running for it, and it is resumed at the next startup
+     */
+    @GetMapping("/channels/{channelId}/status")
+    public CompletableFuture<ResponseEntity<ChannelStatusResponse>> getChannelStatus(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable String channelId,
+            @RequestParam(value = "waitMs", defaultValue = "0") long waitMs) {
+        return channelProvisioner.getChannelStatus(userId, channelId, waitMs).thenApply(ResponseEntity::ok);
     }
       
     @GetMapping("/channels/{channelId}/chatroom/token")
@@ -88,21 +108,25 @@ public class ChannelController {
         return ResponseEntity.ok(Map.of("message", "Channel deleted successfully."));
     }    
     
+    /**
+     * The caller's channel
+     * - 200 with its preview once ACTIVE
+     * - 202 with a Location to the status endpoint while it is PROVISIONING; the channel is not usable yet
+     * - 404 otherwise, including a FAILED channel: the user can create it again
+     */
     @GetMapping("/channels/my-channel")
-    public ResponseEntity<ChannelPreviewDTO> getChannelByUserId(@RequestHeader("X-User-Id") String userId) {
-        Optional<Channel> channelOpt = channelService.getChannelByUserId(userId);
+    public ResponseEntity<?> getChannelByUserId(@RequestHeader("X-User-Id") String userId) {
+        Optional<ChannelPreviewDTO> preview = channelService.getChannelByUserId(userId);
         
-        if (channelOpt.isPresent()) {
-            Channel channel = channelOpt.get();
-            ChannelPreviewDTO preview = new ChannelPreviewDTO(
-                channel.getChannelId(),
-                channel.getName(),
-                channel.getPlaybackUrl(),
-                channel.getAvatarUrl()
-            );        
-            return ResponseEntity.ok(preview);
-        } else {
-            return ResponseEntity.notFound().build();
+        if (preview.isPresent()) {
+            return ResponseEntity.ok(preview.get());
+        }
+        Optional<String> provisioning = channelService.getProvisioningChannelId(userId);
+        if (provisioning.isPresent()) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .location(URI.create("/channel-service/channels/" + provisioning.get() + "/status"))
+                    .body(new ChannelStatusResponse(provisioning.get(), ChannelStatusResponse.Status.PROVISIONING));
         }
+        return ResponseEntity.notFound().build();
     }
 }
\ No newline at end of file
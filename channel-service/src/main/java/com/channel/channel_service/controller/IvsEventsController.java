@@ -11,15 +11,24 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.channel.channel_service.DTO.IvsEvent;
-import com.channel.channel_service.entities.Channel;
-import com.channel.channel_service.repositories.ChannelRepository;
+import com.channel.channel_service.services.ChannelLiveStateService;
+import com.channel.channel_service.services.ChannelLookupIndex;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 @RestController
 @RequestMapping("/api/ivs-events")
 public class IvsEventsController {
 
     @Autowired
-    private ChannelRepository channelRepository;
+    private ChannelLiveStateService channelLiveStateService;
+
+    @Autowired
+    private ChannelLookupIndex channelLookupIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @PostMapping
     public ResponseEntity<Void> handleIvsEvent(@RequestBody IvsEvent event) {
@@ -30,19 +39,30 @@ public class IvsEventsController {
             return ResponseEntity.ok().build();
         }
 
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return applyLiveState(event, eventName);
+        } finally {
+            sample.stop(Timer.builder("ivs.events.process")
+                    .description("Time to apply an IVS stream state change to its channel")
+                    .tag("event", eventName)
+                    .register(meterRegistry));
+        }
+    }
+
+    private ResponseEntity<Void> applyLiveState(IvsEvent event, String eventName) {
         List<String> resources = event.getResources();
-        if (resources == null || resources.isEmpty()) {
+        String awsStreamId = event.getDetail().getStream_id();
+        if (resources == null || resources.isEmpty() || awsStreamId == null) {
             return ResponseEntity.badRequest().build();
         }
 
         String channelArn = resources.get(0); // The ARN is always the first item
         System.out.println("Received event: " + eventName + " for channel ARN: " + channelArn);
-        Optional<Channel> optionalChannel = channelRepository.findByArn(channelArn);
-        if (optionalChannel.isPresent()) {
-            Channel channel = optionalChannel.get();
-            boolean isLive = "Stream Start".equalsIgnoreCase(eventName);
-            channel.setLive(isLive);
-            channelRepository.save(channel);
+        // ARN resolved in memory; the live flag follows the sessions of the channel, not the last event alone
+        Optional<String> channelId = channelLookupIndex.findChannelIdByArn(channelArn);
+        if (channelId.isPresent()) {
+            channelLiveStateService.apply(channelId.get(), awsStreamId, "Stream Start".equalsIgnoreCase(eventName));
         }
         
         return ResponseEntity.ok().build();
@@ -1,6 +1,9 @@
 package com.channel.channel_service.entities;
 
 import java.time.LocalDateTime;
+
+import org.hibernate.annotations.ColumnDefault;
+
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -30,6 +33,12 @@ public class Channel {
 
     private LocalDateTime createdAt;
 
+    // Rows created before provisioning was asynchronous are ACTIVE: the default only covers the schema update
+    // that adds the column, ChannelService.backfillStatus fixes any row still left NULL at startup
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'ACTIVE'")
+    private ChannelStatus status = ChannelStatus.ACTIVE;
+
     @OneToOne(mappedBy = "channel", cascade = CascadeType.ALL)
     private ChatRoom chatRoom;
 
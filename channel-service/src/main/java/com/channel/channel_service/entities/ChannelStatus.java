@@ -0,0 +1,13 @@
+package com.channel.channel_service.entities;
+
+/**
+ * Lifecycle of a channel row
+ * - PROVISIONING: inserted, the IVS channel and chat room are being created
+ * - ACTIVE: IVS resources attached, visible to previews, lookups and the change feed
+ * - FAILED: provisioning gave up; creating the channel again retries on the same row
+ */
+public enum ChannelStatus {
+    PROVISIONING,
+    ACTIVE,
+    FAILED
+}
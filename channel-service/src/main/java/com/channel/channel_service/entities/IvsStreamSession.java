@@ -0,0 +1,31 @@
+package com.channel.channel_service.entities;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An IVS stream session of a channel, by AWS stream ID: started, or ended (possibly before its start arrived)
+ */
+@Entity
+@Table(name = "ivs_stream_sessions", indexes = @Index(name = "idx_ivs_stream_sessions_channel", columnList = "channel_id, ended"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IvsStreamSession {
+    @Id
+    @Column(name = "aws_stream_id")
+    private String awsStreamId;
+
+    @Column(name = "channel_id", nullable = false)
+    private String channelId;
+
+    @Column(name = "ended", nullable = false)
+    private boolean ended;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
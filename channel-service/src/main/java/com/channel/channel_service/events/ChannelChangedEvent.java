@@ -0,0 +1,25 @@
+package com.channel.channel_service.events;
+
+import com.channel.channel_service.DTO.ChannelPreviewDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by ChannelService when a channel is created, updated or deleted
+ * Listeners use @TransactionalEventListener so they only see committed changes
+ */
+@Getter
+@AllArgsConstructor
+public class ChannelChangedEvent {
+
+    public enum Type {
+        UPSERTED,
+        DELETED
+    }
+
+    private final Type type;
+    private final ChannelPreviewDTO channel;
+    private final String arn;
+    private final String userId;
+}
@@ -0,0 +1,16 @@
+package com.channel.channel_service.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by ChannelService when a PROVISIONING channel row is inserted (or a failed one is retried)
+ * ChannelProvisioner picks it up after commit, so the IVS calls never run inside the insert transaction
+ */
+@Getter
+@AllArgsConstructor
+public class ChannelProvisioningRequestedEvent {
+
+    private final String channelId;
+    private final String name;
+}
@@ -0,0 +1,5 @@
+package com.channel.channel_service.exceptions;
+
+public class ChannelNotReadyException extends RuntimeException {
+    public ChannelNotReadyException(String message) { super(message); }
+}
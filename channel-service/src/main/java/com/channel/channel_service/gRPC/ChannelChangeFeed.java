@@ -0,0 +1,234 @@
+package com.channel.channel_service.gRPC;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.channel.channel_service.DTO.ChannelPreviewDTO;
+import com.channel.channel_service.events.ChannelChangedEvent;
+import com.channel.channel_service.repositories.ChannelRepository;
+import com.example.grpc.ChannelChange;
+import com.example.grpc.ChannelPreview;
+
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+
+/**
+ * Server side of the WatchChannels stream
+ * Every committed create/update/delete gets the next version and is pushed to all subscribers.
+ * - The last history-size changes are kept, so a subscriber that reconnects with a recent version
+ *   only receives what it missed (RESUME), anyone else gets a SNAPSHOT first
+ * - Versions start from the startup time in microseconds, so they keep increasing across restarts
+ *   and a version from a previous run is never mistaken for a resumable one
+ * - A subscriber that does not keep up is dropped with ABORTED and reconnects from its last version
+ * The feed only sees changes made through this instance (channel-service runs as a single instance).
+ */
+@Component
+public class ChannelChangeFeed {
+
+    @Autowired
+    private ChannelRepository channelRepository;
+
+    @Value("${channel.feed.history-size:10000}")
+    private int historySize;
+
+    @Value("${channel.feed.snapshot-page-size:500}")
+    private int snapshotPageSize;
+
+    @Value("${channel.feed.max-pending:10000}")
+    private int maxPending;
+
+    // Versions, history and subscribers; also serializes every onNext/onError
+    private final ReentrantLock lock = new ReentrantLock();
+    private long version = System.currentTimeMillis() * 1000;
+    // Oldest version a subscriber can resume from: history holds every change after it
+    private long floor = version;
+    private final ArrayDeque<ChannelChange> history = new ArrayDeque<>();
+    private final List<Subscriber> subscribers = new ArrayList<>();
+
+    /**
+     * Start streaming changes to a WatchChannels caller
+     * Blocks while the snapshot is loaded; changes committed meanwhile are sent right after it.
+     * @param fromVersion Last version the caller applied, 0 for none
+     * @param observer Response stream of the call
+     */
+    public void subscribe(long fromVersion, ServerCallStreamObserver<ChannelChange> observer) {
+        Subscriber subscriber = new Subscriber(observer);
+        observer.setOnCancelHandler(() -> remove(subscriber));
+        long snapshotVersion;
+        lock.lock();
+        try {
+            if (fromVersion > 0 && fromVersion >= floor && fromVersion <= version) {
+                send(subscriber, ChannelChange.newBuilder()
+                        .setType(ChannelChange.Type.RESUME)
+                        .setVersion(fromVersion)
+                        .build());
+                for (ChannelChange change : history) {
+                    if (change.getVersion() > fromVersion) {
+                        send(subscriber, change);
+                    }
+                }
+                subscribers.add(subscriber);
+                return;
+            }
+            snapshotVersion = version;
+            subscriber.pending = new ArrayList<>();
+            subscribers.add(subscriber);
+        } finally {
+            lock.unlock();
+        }
+
+        // Changes up to snapshotVersion were committed before they were published, so the query sees them;
+        // later ones are buffered and replayed after the snapshot (an upsert already in it is harmless)
+        List<ChannelPreviewDTO> channels;
+        try {
+            channels = channelRepository.findAllPreviews();
+        } catch (RuntimeException e) {
+            System.err.println("Could not load channel snapshot for WatchChannels: " + e.getMessage());
+            close(subscriber, Status.UNAVAILABLE.withDescription("Channel snapshot unavailable"));
+            return;
+        }
+
+        lock.lock();
+        try {
+            int from = 0;
+            do {
+                int to = Math.min(from + snapshotPageSize, channels.size());
+                ChannelChange.Builder page = ChannelChange.newBuilder()
+                        .setType(ChannelChange.Type.SNAPSHOT)
+                        .setVersion(snapshotVersion)
+                        .setLast(to == channels.size());
+                channels.subList(from, to).forEach(channel -> page.addChannels(toProto(channel)));
+                send(subscriber, page.build());
+                from = to;
+            } while (from < channels.size());
+            List<ChannelChange> pending = subscriber.pending;
+            subscriber.pending = null;
+            if (pending != null) {
+                pending.forEach(change -> send(subscriber, change));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publish a committed channel change to every subscriber
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChannelChanged(ChannelChangedEvent event) {
+        lock.lock();
+        try {
+            ChannelChange.Builder change = ChannelChange.newBuilder().setVersion(++version);
+            if (event.getType() == ChannelChangedEvent.Type.DELETED) {
+                change.setType(ChannelChange.Type.DELETE).setChannelId(event.getChannel().getChannelId());
+            } else {
+                change.setType(ChannelChange.Type.UPSERT).addChannels(toProto(event.getChannel()));
+            }
+            ChannelChange built = change.build();
+            history.addLast(built);
+            if (history.size() > historySize) {
+                floor = history.removeFirst().getVersion();
+            }
+            for (Subscriber subscriber : List.copyOf(subscribers)) {
+                if (subscriber.pending == null) {
+                    send(subscriber, built);
+                } else if (subscriber.pending.size() < maxPending) {
+                    subscriber.pending.add(built);
+                } else {
+                    close(subscriber, Status.ABORTED.withDescription("Too many changes during the snapshot"));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of open WatchChannels streams
+     */
+    public int getSubscriberCount() {
+        lock.lock();
+        try {
+            return subscribers.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held
+    private void send(Subscriber subscriber, ChannelChange change) {
+        if (subscriber.closed) {
+            return;
+        }
+        // Messages written while the transport is not ready are buffered by gRPC; bound that buffer
+        if (subscriber.observer.isReady()) {
+            subscriber.unreadySends = 0;
+        } else if (++subscriber.unreadySends > maxPending) {
+            close(subscriber, Status.ABORTED.withDescription("Subscriber fell behind"));
+            return;
+        }
+        try {
+            subscriber.observer.onNext(change);
+        } catch (RuntimeException e) {
+            // Call already cancelled
+            remove(subscriber);
+        }
+    }
+
+    private void close(Subscriber subscriber, Status status) {
+        lock.lock();
+        try {
+            if (subscriber.closed) {
+                return;
+            }
+            remove(subscriber);
+            subscriber.observer.onError(status.asRuntimeException());
+        } catch (RuntimeException e) {
+            // Call already cancelled
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        lock.lock();
+        try {
+            subscriber.closed = true;
+            subscribers.remove(subscriber);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static ChannelPreview toProto(ChannelPreviewDTO channel) {
+        return ChannelPreview.newBuilder()
+                .setChannelId(channel.getChannelId())
+                .setName(nullToEmpty(channel.getName()))
+                .setPlaybackUrl(nullToEmpty(channel.getPlaybackUrl()))
+                .setAvatarUrl(nullToEmpty(channel.getAvatarUrl()))
+                .build();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static final class Subscriber {
+        private final ServerCallStreamObserver<ChannelChange> observer;
+        // Changes published while the snapshot loads; null once the subscriber is live
+        private List<ChannelChange> pending;
+        private int unreadySends;
+        private boolean closed;
+
+        private Subscriber(ServerCallStreamObserver<ChannelChange> observer) {
+            this.observer = observer;
+        }
+    }
+}
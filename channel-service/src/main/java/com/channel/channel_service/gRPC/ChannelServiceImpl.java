@@ -1,23 +1,29 @@
 package com.channel.channel_service.gRPC;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.channel.channel_service.DTO.ChannelPreviewDTO;
-import com.channel.channel_service.entities.Channel;
 import com.channel.channel_service.services.ChannelService;
+import com.example.grpc.ArnList;
 import com.example.grpc.ArnRequest;
+import com.example.grpc.ChannelArn;
+import com.example.grpc.ChannelArnList;
+import com.example.grpc.ChannelChange;
 import com.example.grpc.ChannelIdList;
 import com.example.grpc.ChannelPreviewList;
 import com.example.grpc.ChannelResponse;
 import com.example.grpc.ChannelPreview;
 import com.example.grpc.ChannelServiceGrpc;
 import com.example.grpc.UserIdRequest;
+import com.example.grpc.WatchChannelsRequest;
 import io.grpc.Status;
 
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.server.service.GrpcService;
 
@@ -30,6 +36,9 @@ public class ChannelServiceImpl extends ChannelServiceGrpc.ChannelServiceImplBas
     @Autowired
     private ChannelService channelService;
 
+    @Autowired
+    private ChannelChangeFeed channelChangeFeed;
+
 
     @Override
     public void getChannelPreviewsByIds(ChannelIdList request, StreamObserver<ChannelPreviewList> responseObserver) {
@@ -59,17 +68,11 @@ public class ChannelServiceImpl extends ChannelServiceGrpc.ChannelServiceImplBas
     public void getChannelByUserId(UserIdRequest request, StreamObserver<ChannelResponse> responseObserver) {
         String userId = request.getUserId();
 
-        Optional<Channel> optionalChannel = channelService.getChannelByUserId(userId);
+        // Answered from ChannelLookupIndex
+        Optional<ChannelPreviewDTO> optionalChannel = channelService.getChannelByUserId(userId);
 
         if (optionalChannel.isPresent()) {
-            Channel channel = optionalChannel.get();
-            ChannelResponse response = ChannelResponse.newBuilder()
-                    .setChannelId(channel.getChannelId())
-                    .setName(channel.getName())
-                    .setPlaybackUrl(channel.getPlaybackUrl())
-                    .setAvatarUrl(channel.getAvatarUrl())
-                    .build();
-            responseObserver.onNext(response);
+            responseObserver.onNext(toResponse(optionalChannel.get()));
             responseObserver.onCompleted();
         } else {
             responseObserver.onError(
@@ -84,17 +87,11 @@ public class ChannelServiceImpl extends ChannelServiceGrpc.ChannelServiceImplBas
     public void getChannelByArn(ArnRequest request, StreamObserver<ChannelResponse> responseObserver) {
         String arn = request.getArn();
     
-        Optional<Channel> optionalChannel = channelService.getChannelByArn(arn); // assumes this method exists
+        // Answered from ChannelLookupIndex
+        Optional<ChannelPreviewDTO> optionalChannel = channelService.getChannelByArn(arn);
     
         if (optionalChannel.isPresent()) {
-            Channel channel = optionalChannel.get();
-            ChannelResponse response = ChannelResponse.newBuilder()
-                    .setChannelId(channel.getChannelId())
-                    .setName(channel.getName())
-                    .setPlaybackUrl(channel.getPlaybackUrl())
-                    .setAvatarUrl(channel.getAvatarUrl())
-                    .build();
-            responseObserver.onNext(response);
+            responseObserver.onNext(toResponse(optionalChannel.get()));
             responseObserver.onCompleted();
         } else {
             responseObserver.onError(
@@ -104,4 +101,40 @@ public class ChannelServiceImpl extends ChannelServiceGrpc.ChannelServiceImplBas
             );
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void getChannelsByArns(ArnList request, StreamObserver<ChannelArnList> responseObserver) {
+        // Answered from ChannelLookupIndex (at most one query for ARNs it does not hold);
+        // ARNs without a channel are simply absent from the response
+        Map<String, ChannelPreviewDTO> channels = channelService.getChannelsByArns(request.getArnsList());
+
+        ChannelArnList response = ChannelArnList.newBuilder()
+            .addAllChannels(
+                channels.entrySet().stream()
+                    .map(entry -> ChannelArn.newBuilder()
+                        .setArn(entry.getKey())
+                        .setChannel(toResponse(entry.getValue()))
+                        .build())
+                    .collect(Collectors.toList())
+            )
+            .build();
+
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void watchChannels(WatchChannelsRequest request, StreamObserver<ChannelChange> responseObserver) {
+        // Stays open: the feed keeps writing to the observer until the client cancels
+        channelChangeFeed.subscribe(request.getFromVersion(), (ServerCallStreamObserver<ChannelChange>) responseObserver);
+    }
+
+    private static ChannelResponse toResponse(ChannelPreviewDTO channel) {
+        return ChannelResponse.newBuilder()
+                .setChannelId(channel.getChannelId())
+                .setName(channel.getName())
+                .setPlaybackUrl(channel.getPlaybackUrl())
+                .setAvatarUrl(channel.getAvatarUrl())
+                .build();
+    }
+}
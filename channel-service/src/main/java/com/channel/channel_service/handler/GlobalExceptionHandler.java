@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import com.channel.channel_service.exceptions.ChannelNotFoundException;
+import com.channel.channel_service.exceptions.ChannelNotReadyException;
 import com.channel.channel_service.exceptions.ChatRoomNotFoundException;
 import com.channel.channel_service.exceptions.UnauthorizedException;
 import com.channel.channel_service.exceptions.UserAlreadyHasAChannelException;
@@ -26,6 +27,17 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
 
+    // The channel is still PROVISIONING: its IVS resources do not exist yet
+    @ExceptionHandler(ChannelNotReadyException.class)
+    public ResponseEntity<Map<String, Object>> handleChannelNotReady(ChannelNotReadyException ex) {
+        Map<String, Object> error = Map.of(
+            "error", ex.getMessage(),
+            "timestamp", Instant.now().toString(),
+            "status", HttpStatus.CONFLICT.value()
+        );
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
     @ExceptionHandler(ChatRoomNotFoundException.class)
     public ResponseEntity<Map<String, Object>> handleChatRoomNotFound(ChatRoomNotFoundException ex) {
         Map<String, Object> error = Map.of(
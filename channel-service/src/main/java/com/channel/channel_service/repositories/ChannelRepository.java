@@ -1,18 +1,79 @@
 package com.channel.channel_service.repositories;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.channel.channel_service.DTO.ChannelIndexEntry;
+import com.channel.channel_service.DTO.ChannelPreviewDTO;
 import com.channel.channel_service.entities.Channel;
+import com.channel.channel_service.entities.ChannelStatus;
+
+import jakarta.persistence.LockModeType;
 
 public interface ChannelRepository extends JpaRepository<Channel, String> {
     Optional<Channel> findByUserId(String userId);
     Optional<Channel> findByArn(String channelArn);
+    List<Channel> findByArnIn(Collection<String> channelArns);
     List<Channel> findTop10ByIsLiveTrue();
     @Query("SELECT c.channelId FROM Channel c")
     List<String> findAllChannelIds();
-}
 
+    // Preview columns only: no Channel entity is loaded, so neither is its chat room (one query per channel).
+    // Previews, the feed and the lookup index only see ACTIVE channels: the others have no IVS resources yet
+    @Query("SELECT new com.channel.channel_service.DTO.ChannelPreviewDTO(c.channelId, c.name, c.playbackUrl, c.avatarUrl) "
+            + "FROM Channel c WHERE c.channelId IN :ids AND c.status = com.channel.channel_service.entities.ChannelStatus.ACTIVE")
+    List<ChannelPreviewDTO> findPreviewsByChannelIdIn(@Param("ids") Collection<String> ids);
+
+    // Snapshot of the WatchChannels feed
+    @Query("SELECT new com.channel.channel_service.DTO.ChannelPreviewDTO(c.channelId, c.name, c.playbackUrl, c.avatarUrl) "
+            + "FROM Channel c WHERE c.status = com.channel.channel_service.entities.ChannelStatus.ACTIVE")
+    List<ChannelPreviewDTO> findAllPreviews();
+
+    // ChannelLookupIndex: warm-up (newest channels first) and lookups it cannot answer alone
+    @Query("SELECT new com.channel.channel_service.DTO.ChannelIndexEntry(c.channelId, c.arn, c.userId, c.name, c.playbackUrl, c.avatarUrl) "
+            + "FROM Channel c WHERE c.status = com.channel.channel_service.entities.ChannelStatus.ACTIVE ORDER BY c.createdAt DESC")
+    List<ChannelIndexEntry> findIndexEntries(Pageable pageable);
+
+    @Query("SELECT new com.channel.channel_service.DTO.ChannelIndexEntry(c.channelId, c.arn, c.userId, c.name, c.playbackUrl, c.avatarUrl) "
+            + "FROM Channel c WHERE c.arn IN :arns")
+    List<ChannelIndexEntry> findIndexEntriesByArnIn(@Param("arns") Collection<String> arns);
+
+    @Query("SELECT new com.channel.channel_service.DTO.ChannelIndexEntry(c.channelId, c.arn, c.userId, c.name, c.playbackUrl, c.avatarUrl) "
+            + "FROM Channel c WHERE c.userId = :userId AND c.status = com.channel.channel_service.entities.ChannelStatus.ACTIVE")
+    Optional<ChannelIndexEntry> findIndexEntryByUserId(@Param("userId") String userId);
+
+    // Channel row locked until the transaction ends, so the IVS events of a channel are applied one at a time
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Channel c WHERE c.channelId = :channelId")
+    Optional<Channel> findForUpdateByChannelId(@Param("channelId") String channelId);
+
+    // Live flag of the IVS webhook, written alone (the channel's other columns may be edited meanwhile)
+    @Modifying
+    @Transactional
+    @Query("UPDATE Channel c SET c.isLive = :live WHERE c.channelId = :channelId")
+    int updateLiveState(@Param("channelId") String channelId, @Param("live") boolean live);
+
+    List<Channel> findByStatus(ChannelStatus status);
+
+    // Provisioning outcome, only while the row is still PROVISIONING (it may have been deleted or retried meanwhile)
+    @Modifying
+    @Transactional
+    @Query("UPDATE Channel c SET c.status = :status WHERE c.channelId = :channelId "
+            + "AND c.status = com.channel.channel_service.entities.ChannelStatus.PROVISIONING")
+    int updateProvisioningStatus(@Param("channelId") String channelId, @Param("status") ChannelStatus status);
+
+    // Startup backfill of rows inserted before the status column was added
+    @Modifying
+    @Transactional
+    @Query("UPDATE Channel c SET c.status = :status WHERE c.status IS NULL")
+    int backfillMissingStatus(@Param("status") ChannelStatus status);
+}
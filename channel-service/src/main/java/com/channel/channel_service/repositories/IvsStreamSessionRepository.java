@@ -0,0 +1,21 @@
+package com.channel.channel_service.repositories;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.channel.channel_service.entities.IvsStreamSession;
+
+public interface IvsStreamSessionRepository extends JpaRepository<IvsStreamSession, String> {
+    // Live flag of a channel: one of its sessions is started and not ended
+    boolean existsByChannelIdAndEndedFalse(String channelId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IvsStreamSession s WHERE s.updatedAt < :before")
+    int deleteUpdatedBefore(@Param("before") LocalDateTime before);
+}
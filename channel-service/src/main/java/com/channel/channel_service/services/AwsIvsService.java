@@ -1,25 +1,34 @@
 package com.channel.channel_service.services;
 
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import software.amazon.awssdk.services.ivs.IvsClient;
 import software.amazon.awssdk.services.ivs.model.ChannelLatencyMode;
+import software.amazon.awssdk.services.ivs.model.ChannelSummary;
 import software.amazon.awssdk.services.ivs.model.ChannelType;
 import software.amazon.awssdk.services.ivs.model.CreateChannelRequest;
 import software.amazon.awssdk.services.ivs.model.CreateChannelResponse;
 import software.amazon.awssdk.services.ivs.model.CreateStreamKeyRequest;
 import software.amazon.awssdk.services.ivs.model.CreateStreamKeyResponse;
 import software.amazon.awssdk.services.ivs.model.DeleteChannelRequest;
+import software.amazon.awssdk.services.ivs.model.ListChannelsRequest;
+import software.amazon.awssdk.services.ivs.model.ListChannelsResponse;
 import software.amazon.awssdk.services.ivschat.IvschatClient;
-import software.amazon.awssdk.services.ivschat.model.CreateChatTokenRequest;
-import software.amazon.awssdk.services.ivschat.model.CreateChatTokenResponse;
 import software.amazon.awssdk.services.ivschat.model.CreateRoomRequest;
 import software.amazon.awssdk.services.ivschat.model.CreateRoomResponse;
 import software.amazon.awssdk.services.ivschat.model.DeleteRoomRequest;
+import software.amazon.awssdk.services.ivschat.model.ListRoomsRequest;
+import software.amazon.awssdk.services.ivschat.model.ListRoomsResponse;
+import software.amazon.awssdk.services.ivschat.model.RoomSummary;
 
 @Service
 public class AwsIvsService {
+
+    // Tag carrying the id of the channel row a resource was created for
+    static final String CHANNEL_ID_TAG = "channel-id";
     
     @Value("${aws.ivs.recording-config-arn}")
     private String recordingConfigArn;
@@ -32,13 +41,18 @@ public class AwsIvsService {
         this.chatClient = chatClient;
     }
 
-    public CreateChannelResponse createChannel(String name) {
+    /**
+     * Create the IVS channel of a channel row, tagged with the row id so that
+     * {@link #deleteChannelsFor(String, String)} can find it when the response was lost
+     */
+    public CreateChannelResponse createChannel(String name, String channelId) {
         CreateChannelRequest request = CreateChannelRequest.builder()
             .name(name)
             .latencyMode(ChannelLatencyMode.LOW) 
             .type(ChannelType.STANDARD)          
             .authorized(false) 
             .recordingConfigurationArn(recordingConfigArn)               
+            .tags(Map.of(CHANNEL_ID_TAG, channelId))
             .build();
         return ivsClient.createChannel(request);
     }
@@ -55,31 +69,16 @@ public class AwsIvsService {
             .build());
     }
 
-    public CreateRoomResponse createChatRoom(String name) {
+    /**
+     * Create the chat room of a channel row, tagged like {@link #createChannel(String, String)}
+     */
+    public CreateRoomResponse createChatRoom(String name, String channelId) {
         return chatClient.createRoom(CreateRoomRequest.builder()
             .name(name )
+            .tags(Map.of(CHANNEL_ID_TAG, channelId))
             .build());
     }
 
-    /**
-     * Create a chat token for a user to send messages in a chat room.
-     * 
-     * @param chatRoomArn ARN of the chat room
-     * @param userId The user ID or username that will be in the chat
-     * @return Chat token string (JWT)
-     */
-    public String createChatToken(String chatRoomArn, String userId) {
-        CreateChatTokenRequest request = CreateChatTokenRequest.builder()
-            .roomIdentifier(chatRoomArn)  
-            .userId(userId)               
-            .sessionDurationInMinutes(180) 
-            .build();
-
-        CreateChatTokenResponse response = chatClient.createChatToken(request);
-
-        return response.token();
-    }
-
     public void deleteChannel(String arn) {
         ivsClient.deleteChannel(DeleteChannelRequest.builder().arn(arn).build());
     }
@@ -90,4 +89,50 @@ public class AwsIvsService {
         .build());
     }
 
+    /**
+     * Delete the IVS channels named name that were created for channelId
+     * @return Number of channels deleted
+     */
+    public int deleteChannelsFor(String name, String channelId) {
+        int deleted = 0;
+        String nextToken = null;
+        do {
+            ListChannelsResponse page = ivsClient.listChannels(ListChannelsRequest.builder()
+                .filterByName(name)
+                .nextToken(nextToken)
+                .build());
+            for (ChannelSummary channel : page.channels()) {
+                if (channelId.equals(channel.tags().get(CHANNEL_ID_TAG))) {
+                    deleteChannel(channel.arn());
+                    deleted++;
+                }
+            }
+            nextToken = page.nextToken();
+        } while (nextToken != null);
+        return deleted;
+    }
+
+    /**
+     * Delete the chat rooms named name that were created for channelId
+     * @return Number of rooms deleted
+     */
+    public int deleteChatRoomsFor(String name, String channelId) {
+        int deleted = 0;
+        String nextToken = null;
+        do {
+            ListRoomsResponse page = chatClient.listRooms(ListRoomsRequest.builder()
+                .name(name)
+                .nextToken(nextToken)
+                .build());
+            for (RoomSummary room : page.rooms()) {
+                if (channelId.equals(room.tags().get(CHANNEL_ID_TAG))) {
+                    deleteChatRoom(room.arn());
+                    deleted++;
+                }
+            }
+            nextToken = page.nextToken();
+        } while (nextToken != null);
+        return deleted;
+    }
+
 }
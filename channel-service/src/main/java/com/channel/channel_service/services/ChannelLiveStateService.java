@@ -0,0 +1,78 @@
+package com.channel.channel_service.services;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.channel.channel_service.entities.IvsStreamSession;
+import com.channel.channel_service.repositories.ChannelRepository;
+import com.channel.channel_service.repositories.IvsStreamSessionRepository;
+
+/**
+ * Live flag of the channels, from the Stream Start and Stream End events of IVS
+ * IVS delivers at least once and in no particular order, so the flag is not taken from the last event:
+ * - Every session is recorded by AWS stream ID; a start for a session already ended (redelivered, or
+ *   beaten by its end) leaves it ended
+ * - A channel is live while one of its sessions is started and not ended
+ * - Events of one channel are applied one at a time, under a lock on its row
+ * Sessions are kept for retention-hours, long past any IVS redelivery.
+ */
+@Service
+public class ChannelLiveStateService {
+
+    @Autowired
+    private ChannelRepository channelRepository;
+
+    @Autowired
+    private IvsStreamSessionRepository sessionRepository;
+
+    @Value("${channel.ivs-session.retention-hours:168}")
+    private long retentionHours;
+
+    /**
+     * Apply a Stream Start or Stream End to the channel
+     * @param channelId Channel of the event's ARN
+     * @param awsStreamId Stream ID of the event
+     * @param start true for Stream Start, false for Stream End
+     * @return false if the channel no longer exists
+     */
+    @Transactional
+    public boolean apply(String channelId, String awsStreamId, boolean start) {
+        if (channelRepository.findForUpdateByChannelId(channelId).isEmpty()) {
+            return false;
+        }
+
+        Optional<IvsStreamSession> existing = sessionRepository.findById(awsStreamId);
+        if (existing.isEmpty()) {
+            sessionRepository.save(new IvsStreamSession(awsStreamId, channelId, !start, LocalDateTime.now()));
+        } else if (start) {
+            System.out.println("Ignoring " + (existing.get().isEnded() ? "start of ended" : "duplicate start for")
+                    + " AWS stream ID: " + awsStreamId);
+        } else if (!existing.get().isEnded()) {
+            IvsStreamSession session = existing.get();
+            session.setEnded(true);
+            session.setUpdatedAt(LocalDateTime.now());
+            sessionRepository.save(session);
+        }
+
+        channelRepository.updateLiveState(channelId, sessionRepository.existsByChannelIdAndEndedFalse(channelId));
+        return true;
+    }
+
+    /**
+     * Drop sessions untouched for longer than the retention
+     */
+    @Scheduled(fixedDelayString = "${channel.ivs-session.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeSessions() {
+        int purged = sessionRepository.deleteUpdatedBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (purged > 0) {
+            System.out.println("Purged " + purged + " IVS stream sessions");
+        }
+    }
+}
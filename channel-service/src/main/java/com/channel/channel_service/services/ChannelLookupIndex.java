@@ -0,0 +1,181 @@
+package com.channel.channel_service.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.channel.channel_service.DTO.ChannelIndexEntry;
+import com.channel.channel_service.DTO.ChannelPreviewDTO;
+import com.channel.channel_service.events.ChannelChangedEvent;
+import com.channel.channel_service.repositories.ChannelRepository;
+
+/**
+ * In-memory ARN and user ID indexes of the channels, for the lookups of every IVS webhook and
+ * every authenticated write in stream-service and blog-service
+ * - Warmed at startup with one projection query, then kept up to date from ChannelChangedEvent
+ * - Holds at most max-size channels (the newest at startup); the key mappings never change
+ *   (one channel per user, fixed ARN), only the preview is replaced on update
+ * - While every channel fits, a miss means "no such channel" and the database is not asked;
+ *   once over the limit, misses fall back to a projection query
+ * The index only sees changes made through this instance (channel-service runs as a single instance).
+ */
+@Service
+public class ChannelLookupIndex {
+
+    @Autowired
+    private ChannelRepository channelRepository;
+
+    @Value("${channel.index.max-size:100000}")
+    private int maxSize;
+
+    private final Map<String, String> channelIdByArn = new ConcurrentHashMap<>();
+    private final Map<String, String> channelIdByUserId = new ConcurrentHashMap<>();
+    private final Map<String, ChannelPreviewDTO> previews = new ConcurrentHashMap<>();
+
+    // Writers only (warm-up and change events); lookups never lock
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // True once warmed with every channel and while none was left out
+    private volatile boolean complete;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        writeLock.lock();
+        try {
+            // Misses go to the database until the reload is done
+            complete = false;
+            channelIdByArn.clear();
+            channelIdByUserId.clear();
+            previews.clear();
+            List<ChannelIndexEntry> entries = channelRepository.findIndexEntries(PageRequest.of(0, maxSize + 1));
+            entries.stream().limit(maxSize).forEach(this::put);
+            complete = entries.size() <= maxSize;
+            System.out.println("Channel lookup index warmed with " + previews.size() + " channels"
+                    + (complete ? "" : " (limit reached, misses go to the database)"));
+        } catch (RuntimeException e) {
+            // Lookups keep going to the database
+            System.err.println("Channel lookup index warm-up failed: " + e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @param arn IVS channel ARN
+     * @return Channel ID, from memory unless the index is incomplete
+     */
+    public Optional<String> findChannelIdByArn(String arn) {
+        String channelId = channelIdByArn.get(arn);
+        if (channelId != null || complete) {
+            return Optional.ofNullable(channelId);
+        }
+        return channelRepository.findIndexEntriesByArnIn(List.of(arn)).stream()
+                .findFirst()
+                .map(ChannelIndexEntry::getChannelId);
+    }
+
+    /**
+     * @param arn IVS channel ARN
+     * @return Channel preview, from memory unless the index is incomplete
+     */
+    public Optional<ChannelPreviewDTO> findByArn(String arn) {
+        return Optional.ofNullable(findByArns(List.of(arn)).get(arn));
+    }
+
+    /**
+     * @param userId Owner of the channel
+     * @return Channel preview, from memory unless the index is incomplete
+     */
+    public Optional<ChannelPreviewDTO> findByUserId(String userId) {
+        ChannelPreviewDTO preview = preview(channelIdByUserId.get(userId));
+        if (preview != null || complete) {
+            return Optional.ofNullable(preview);
+        }
+        return channelRepository.findIndexEntryByUserId(userId).map(ChannelIndexEntry::toPreview);
+    }
+
+    /**
+     * @param arns IVS channel ARNs, duplicates allowed
+     * @return Previews by ARN; unknown ARNs are left out. At most one query, for the ARNs not in memory
+     */
+    public Map<String, ChannelPreviewDTO> findByArns(Collection<String> arns) {
+        Map<String, ChannelPreviewDTO> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String arn : new LinkedHashSet<>(arns)) {
+            ChannelPreviewDTO preview = preview(channelIdByArn.get(arn));
+            if (preview != null) {
+                found.put(arn, preview);
+            } else {
+                missing.add(arn);
+            }
+        }
+        if (!missing.isEmpty() && !complete) {
+            for (ChannelIndexEntry entry : channelRepository.findIndexEntriesByArnIn(missing)) {
+                found.put(entry.getArn(), entry.toPreview());
+            }
+        }
+        return found;
+    }
+
+    public int size() {
+        return previews.size();
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Apply a committed create, update or delete
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChannelChanged(ChannelChangedEvent event) {
+        ChannelPreviewDTO channel = event.getChannel();
+        writeLock.lock();
+        try {
+            if (event.getType() == ChannelChangedEvent.Type.DELETED) {
+                // Keys first, so a lookup never finds a key without its preview
+                channelIdByArn.remove(event.getArn(), channel.getChannelId());
+                channelIdByUserId.remove(event.getUserId(), channel.getChannelId());
+                previews.remove(channel.getChannelId());
+            } else if (previews.containsKey(channel.getChannelId())) {
+                previews.put(channel.getChannelId(), channel);
+            } else if (previews.size() < maxSize) {
+                put(new ChannelIndexEntry(channel.getChannelId(), event.getArn(), event.getUserId(),
+                        channel.getName(), channel.getPlaybackUrl(), channel.getAvatarUrl()));
+            } else {
+                complete = false;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Called with the write lock held; preview first, so a lookup never finds a key without its preview
+    private void put(ChannelIndexEntry entry) {
+        previews.put(entry.getChannelId(), entry.toPreview());
+        if (entry.getArn() != null) {
+            channelIdByArn.put(entry.getArn(), entry.getChannelId());
+        }
+        if (entry.getUserId() != null) {
+            channelIdByUserId.put(entry.getUserId(), entry.getChannelId());
+        }
+    }
+
+    private ChannelPreviewDTO preview(String channelId) {
+        return channelId == null ? null : previews.get(channelId);
+    }
+}
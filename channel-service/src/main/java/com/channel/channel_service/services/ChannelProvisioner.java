@@ -0,0 +1,356 @@
+package com.channel.channel_service.services;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.channel.channel_service.DTO.ChannelStatusResponse;
+import com.channel.channel_service.entities.Channel;
+import com.channel.channel_service.entities.ChannelStatus;
+import com.channel.channel_service.events.ChannelProvisioningRequestedEvent;
+import com.channel.channel_service.repositories.ChannelRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.services.ivs.model.CreateChannelResponse;
+import software.amazon.awssdk.services.ivschat.model.CreateRoomResponse;
+
+/**
+ * Creates the IVS channel and chat room of PROVISIONING channels, outside any transaction
+ * - Both resources are created in parallel; every AWS call runs on one pool of max-concurrent-calls threads
+ * - Throttled and 5xx/network failures are retried with exponential backoff and full jitter, up to max-attempts;
+ *   a throttled call also holds back every other call of the pool for its backoff delay
+ * - Creates are not idempotent: resources are tagged with the channel id, and after a 5xx/network failure
+ *   (which may have created the resource) the ones carrying the tag are deleted before the next attempt
+ * - ChannelService then attaches the resources in one short transaction and the channel becomes ACTIVE;
+ *   on failure, or if the row was deleted meanwhile, whatever was created is deleted again
+ * - A job is unregistered only once the row is ACTIVE or FAILED; if the row cannot be marked FAILED after
+ *   max-attempts, it stays PROVISIONING with no job and its status reads UNKNOWN until the next startup
+ * Channels left PROVISIONING by a restart are picked up again at startup (channel-service runs as a single
+ * instance), after deleting any tagged resource created before the crash.
+ */
+@Service
+public class ChannelProvisioner implements MeterBinder {
+
+    @Autowired
+    private AwsIvsService awsIvsService;
+
+    @Autowired
+    private ChannelService channelService;
+
+    @Autowired
+    private ChannelRepository channelRepository;
+
+    @Value("${channel.provisioning.max-concurrent-calls:4}")
+    private int maxConcurrentCalls;
+
+    @Value("${channel.provisioning.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${channel.provisioning.backoff-min-ms:200}")
+    private long backoffMinMs;
+
+    @Value("${channel.provisioning.backoff-max-ms:10000}")
+    private long backoffMaxMs;
+
+    @Value("${channel.provisioning.max-wait-ms:25000}")
+    private long maxWaitMs;
+
+    private ExecutorService callExecutor;
+    private ScheduledExecutorService retryScheduler;
+
+    // One job per channel; unregistered once the row is ACTIVE or FAILED
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    // Calls do not start before this time after a throttling error
+    private final AtomicLong throttledUntil = new AtomicLong();
+
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        callExecutor = Executors.newFixedThreadPool(maxConcurrentCalls, r -> {
+            Thread thread = new Thread(r, "channel-provisioning");
+            thread.setDaemon(true);
+            return thread;
+        });
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "channel-provisioning-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+        callExecutor.shutdownNow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProvisioningRequested(ChannelProvisioningRequestedEvent event) {
+        provision(event.getChannelId(), event.getName(), false);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        try {
+            for (Channel channel : channelRepository.findByStatus(ChannelStatus.PROVISIONING)) {
+                // The previous run may have created resources before it stopped
+                provision(channel.getChannelId(), channel.getName(), true);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Could not resume channel provisioning: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Start provisioning a channel, or join the job already running for it
+     * @param channelId PROVISIONING channel
+     * @param name Channel name, also used for the IVS resource names
+     * @param resumed The channel was left PROVISIONING by a previous run, which may have created resources
+     * @return Completes once the row is ACTIVE or FAILED, with that status, or with UNKNOWN if it could not be marked FAILED
+     */
+    public CompletableFuture<ChannelStatusResponse.Status> provision(String channelId, String name, boolean resumed) {
+        Job job = new Job();
+        // A settling job is marking its row FAILED, and the row may already be retried: that retry must not join it
+        Job running = jobs.compute(channelId, (id, current) -> current == null || current.settling ? job : current);
+        if (running != job) {
+            return running.done;
+        }
+        String roomName = name + "-chat";
+        CompletableFuture<CreateChannelResponse> ivsChannel = call(() -> awsIvsService.createChannel(name, channelId),
+                () -> awsIvsService.deleteChannelsFor(name, channelId), resumed);
+        CompletableFuture<CreateRoomResponse> chatRoom = call(() -> awsIvsService.createChatRoom(roomName, channelId),
+                () -> awsIvsService.deleteChatRoomsFor(roomName, channelId), resumed);
+        CompletableFuture.allOf(ivsChannel, chatRoom)
+                .whenComplete((ignored, error) -> finish(channelId, job, ivsChannel, chatRoom, error));
+        return job.done;
+    }
+
+    /**
+     * Status of the caller's channel, for the status endpoint
+     * The row is read on the calling thread, before any wait; the job then completes with the status it wrote,
+     * so nothing is read from the database once the wait is over.
+     * @param waitMs How long to wait for a PROVISIONING channel, capped by max-wait-ms; 0 answers at once
+     * @return PROVISIONING if still running after the wait; UNKNOWN if the row is PROVISIONING but no job runs for it
+     */
+    public CompletableFuture<ChannelStatusResponse> getChannelStatus(String userId, String channelId, long waitMs) {
+        // Looked up before the row: a job is unregistered only after its row left PROVISIONING
+        Job job = jobs.get(channelId);
+        ChannelStatusResponse.Status status = switch (channelService.getChannelStatus(userId, channelId)) {
+            case ACTIVE -> ChannelStatusResponse.Status.ACTIVE;
+            case FAILED -> ChannelStatusResponse.Status.FAILED;
+            case PROVISIONING -> job == null ? ChannelStatusResponse.Status.UNKNOWN : ChannelStatusResponse.Status.PROVISIONING;
+        };
+        if (status != ChannelStatusResponse.Status.PROVISIONING || waitMs <= 0) {
+            return CompletableFuture.completedFuture(new ChannelStatusResponse(channelId, status));
+        }
+        // A copy, so the timeout does not complete the job itself
+        return job.done.copy()
+                .completeOnTimeout(ChannelStatusResponse.Status.PROVISIONING, Math.min(waitMs, maxWaitMs), TimeUnit.MILLISECONDS)
+                .thenApply(outcome -> new ChannelStatusResponse(channelId, outcome));
+    }
+
+    public int getRunningJobs() {
+        return jobs.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("channel.provisioning.running", jobs, Map::size).register(registry);
+        FunctionCounter.builder("channel.provisioning.jobs", succeeded, LongAdder::sum).tag("result", "success").register(registry);
+        FunctionCounter.builder("channel.provisioning.jobs", failed, LongAdder::sum).tag("result", "failure").register(registry);
+        FunctionCounter.builder("channel.provisioning.retries", retries, LongAdder::sum).register(registry);
+    }
+
+    private void finish(String channelId, Job job, CompletableFuture<CreateChannelResponse> ivsChannel,
+            CompletableFuture<CreateRoomResponse> chatRoom, Throwable error) {
+        if (error == null && complete(channelId, ivsChannel.join(), chatRoom.join())) {
+            succeeded.increment();
+            settle(channelId, job, ChannelStatusResponse.Status.ACTIVE);
+            return;
+        }
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            System.err.println("Provisioning of channel " + channelId + " failed: " + cause.getMessage());
+        }
+        // Failed, deleted meanwhile, or the row could not be finished: don't leave resources nobody points to
+        deleteCreated(ivsChannel, chatRoom);
+        failed.increment();
+        markFailed(channelId, job, 1);
+    }
+
+    // The job stays registered until the row is FAILED, so the status endpoint keeps reporting PROVISIONING meanwhile
+    private void markFailed(String channelId, Job job, int attempt) {
+        // Set before FAILED is visible, so a retry of the channel starts a new job instead of joining this one
+        job.settling = true;
+        try {
+            // No-op if the row is gone or no longer PROVISIONING
+            channelService.failProvisioning(channelId);
+        } catch (RuntimeException e) {
+            if (attempt < maxAttempts) {
+                retryScheduler.schedule(() -> callExecutor.execute(() -> markFailed(channelId, job, attempt + 1)),
+                        backoffMs(attempt), TimeUnit.MILLISECONDS);
+                return;
+            }
+            // Still PROVISIONING, picked up again at the next startup
+            System.err.println("Could not mark channel " + channelId + " as failed: " + e.getMessage());
+            settle(channelId, job, ChannelStatusResponse.Status.UNKNOWN);
+            return;
+        }
+        settle(channelId, job, ChannelStatusResponse.Status.FAILED);
+    }
+
+    private void settle(String channelId, Job job, ChannelStatusResponse.Status outcome) {
+        jobs.remove(channelId, job);
+        job.done.complete(outcome);
+    }
+
+    private boolean complete(String channelId, CreateChannelResponse ivsChannel, CreateRoomResponse chatRoom) {
+        try {
+            return channelService.completeProvisioning(channelId, ivsChannel, chatRoom);
+        } catch (RuntimeException e) {
+            System.err.println("Could not finish provisioning of channel " + channelId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Best effort: a resource that cannot be deleted is only logged
+    private void deleteCreated(CompletableFuture<CreateChannelResponse> ivsChannel, CompletableFuture<CreateRoomResponse> chatRoom) {
+        if (!ivsChannel.isCompletedExceptionally()) {
+            String arn = ivsChannel.join().channel().arn();
+            try {
+                awsIvsService.deleteChannel(arn);
+            } catch (RuntimeException e) {
+                System.err.println("Could not delete IVS channel " + arn + ": " + e.getMessage());
+            }
+        }
+        if (!chatRoom.isCompletedExceptionally()) {
+            String arn = chatRoom.join().arn();
+            try {
+                awsIvsService.deleteChatRoom(arn);
+            } catch (RuntimeException e) {
+                System.err.println("Could not delete chat room " + arn + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> call(Supplier<T> request, Runnable cleanup, boolean mayHaveCreated) {
+        Call<T> call = new Call<>(request, cleanup);
+        call.mayHaveCreated = mayHaveCreated;
+        attempt(call, 1);
+        return call.result;
+    }
+
+    private <T> void attempt(Call<T> call, int attempt) {
+        callExecutor.execute(() -> {
+            long heldBackMs = throttledUntil.get() - System.currentTimeMillis();
+            if (heldBackMs > 0) {
+                retryScheduler.schedule(() -> attempt(call, attempt), heldBackMs, TimeUnit.MILLISECONDS);
+                return;
+            }
+            try {
+                if (call.mayHaveCreated) {
+                    // An earlier attempt may have created the resource without us seeing the response
+                    call.cleanup.run();
+                    call.mayHaveCreated = false;
+                }
+                call.result.complete(call.request.get());
+            } catch (RuntimeException e) {
+                // A cleanup that failed leaves the flag set, so it is tried again before the next create
+                call.mayHaveCreated |= isAmbiguous(e);
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    if (call.mayHaveCreated) {
+                        cleanUp(call);
+                    }
+                    call.result.completeExceptionally(e);
+                    return;
+                }
+                long delayMs = backoffMs(attempt);
+                if (isThrottling(e)) {
+                    throttledUntil.accumulateAndGet(System.currentTimeMillis() + delayMs, Math::max);
+                }
+                retries.increment();
+                retryScheduler.schedule(() -> attempt(call, attempt + 1), delayMs, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    // Best effort, once the call has given up: a resource that cannot be deleted is only logged
+    private static void cleanUp(Call<?> call) {
+        try {
+            call.cleanup.run();
+        } catch (RuntimeException e) {
+            System.err.println("Could not delete resources of a failed create: " + e.getMessage());
+        }
+    }
+
+    // Full jitter: uniform in [backoff-min, min(backoff-max, backoff-min * 2^attempt)]
+    private long backoffMs(int attempt) {
+        long ceiling = Math.min(backoffMaxMs, backoffMinMs << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(backoffMinMs, Math.max(backoffMinMs, ceiling) + 1);
+    }
+
+    private static boolean isRetryable(RuntimeException e) {
+        if (e instanceof SdkServiceException serviceException) {
+            return serviceException.isThrottlingException() || serviceException.statusCode() >= 500;
+        }
+        return e instanceof SdkClientException;
+    }
+
+    private static boolean isThrottling(RuntimeException e) {
+        return e instanceof SdkServiceException serviceException && serviceException.isThrottlingException();
+    }
+
+    // Network failures and 5xx may come after the service created the resource; a throttled request was not processed
+    private static boolean isAmbiguous(RuntimeException e) {
+        if (e instanceof SdkServiceException serviceException) {
+            return !serviceException.isThrottlingException() && serviceException.statusCode() >= 500;
+        }
+        return e instanceof SdkClientException;
+    }
+
+    private static final class Job {
+        private final CompletableFuture<ChannelStatusResponse.Status> done = new CompletableFuture<>();
+        // The row is being marked FAILED
+        private volatile boolean settling;
+    }
+
+    private static final class Call<T> {
+        private final Supplier<T> request;
+        // Deletes whatever an earlier attempt created
+        private final Runnable cleanup;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        // Attempts run one after the other, each handed over through the executors
+        private boolean mayHaveCreated;
+
+        private Call(Supplier<T> request, Runnable cleanup) {
+            this.request = request;
+            this.cleanup = cleanup;
+        }
+    }
+}
@@ -1,27 +1,37 @@
 package com.channel.channel_service.services;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import com.channel.channel_service.entities.Channel;
+import com.channel.channel_service.entities.ChannelStatus;
 import com.channel.channel_service.entities.ChatRoom;
 import com.channel.channel_service.DTO.ChannelPreviewDTO;
 import com.channel.channel_service.DTO.ChatRoomDTO;
 import com.channel.channel_service.DTO.PublicChannelInfo;
 import com.channel.channel_service.DTO.StreamConnectionInfo;
+import com.channel.channel_service.events.ChannelChangedEvent;
+import com.channel.channel_service.events.ChannelProvisioningRequestedEvent;
 import com.channel.channel_service.exceptions.ChannelNotFoundException;
+import com.channel.channel_service.exceptions.ChannelNotReadyException;
 import com.channel.channel_service.exceptions.ChatRoomNotFoundException;
 import com.channel.channel_service.exceptions.UnauthorizedException;
 import com.channel.channel_service.exceptions.UserAlreadyHasAChannelException;
 import com.channel.channel_service.repositories.ChannelRepository;
 import com.channel.channel_service.repositories.ChatRoomRepository;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 import software.amazon.awssdk.services.ivs.model.CreateChannelResponse;
 import software.amazon.awssdk.services.ivs.model.StreamKey;
@@ -32,32 +42,75 @@ public class ChannelService {
     @Autowired private ChannelRepository channelRepository;
     @Autowired private ChatRoomRepository chatRoomRepository;
     @Autowired private AwsIvsService awsIvsService;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @Autowired private ChannelLookupIndex channelLookupIndex;
+    @Autowired private ChatTokenCache chatTokenCache;
 
+    // Ids per preview query; keeps IN lists far below the PostgreSQL bind parameter limit
+    @Value("${channel.preview.chunk-size:1000}")
+    private int previewChunkSize;
+
+    /**
+     * Rows inserted before the status column existed have a NULL status (the column default only applies to
+     * new inserts); they are ACTIVE channels. Runs before the lookup index warms up and provisioning resumes.
+     */
+    @PostConstruct
+    public void backfillStatus() {
+        int updated = channelRepository.backfillMissingStatus(ChannelStatus.ACTIVE);
+        if (updated > 0) {
+            System.out.println("Marked " + updated + " channels without a status as ACTIVE");
+        }
+    }
+
+    /**
+     * Insert the channel as PROVISIONING; ChannelProvisioner creates its IVS resources after commit
+     * A user whose previous attempt FAILED retries on the same row
+     */
     @Transactional
     public Channel createChannel(String userId, String name, String description, String avatarUrl) {
         
-        if (channelRepository.findByUserId(userId).isPresent()) {
+        Optional<Channel> existing = channelRepository.findByUserId(userId);
+        if (existing.isPresent() && existing.get().getStatus() != ChannelStatus.FAILED) {
             throw new UserAlreadyHasAChannelException("This User already has a channel.");
         }
 
-        CreateChannelResponse ivsChannel = awsIvsService.createChannel(name);
-        StreamKey streamKey = ivsChannel.streamKey(); 
-
-        CreateRoomResponse chatRoom = awsIvsService.createChatRoom(name + "-chat");
-
-        Channel channel = new Channel();
-        channel.setChannelId(UUID.randomUUID().toString());
+        Channel channel = existing.orElseGet(() -> {
+            Channel created = new Channel();
+            created.setChannelId(UUID.randomUUID().toString());
+            created.setUserId(userId);
+            return created;
+        });
         channel.setName(name);
         channel.setDescription(description);
         channel.setLive(false);
+        channel.setAvatarUrl(avatarUrl);
+        channel.setCreatedAt(LocalDateTime.now());
+        channel.setStatus(ChannelStatus.PROVISIONING);
+
+        Channel saved = channelRepository.save(channel);
+        eventPublisher.publishEvent(new ChannelProvisioningRequestedEvent(saved.getChannelId(), saved.getName()));
+        return saved;
+    }
+
+    /**
+     * Attach the IVS channel and chat room and make the channel ACTIVE, in one short transaction
+     * @return false if the channel was deleted or is no longer PROVISIONING; the caller then deletes the resources
+     */
+    @Transactional
+    public boolean completeProvisioning(String channelId, CreateChannelResponse ivsChannel, CreateRoomResponse chatRoom) {
+        Optional<Channel> found = channelRepository.findById(channelId);
+        if (found.isEmpty() || found.get().getStatus() != ChannelStatus.PROVISIONING) {
+            return false;
+        }
+        Channel channel = found.get();
+        StreamKey streamKey = ivsChannel.streamKey(); 
+
         channel.setArn(ivsChannel.channel().arn());
         channel.setStreamKey(streamKey.value());
         channel.setStreamKeyArn(streamKey.arn());
         channel.setIngestEndpoint(ivsChannel.channel().ingestEndpoint());
         channel.setPlaybackUrl(ivsChannel.channel().playbackUrl());
-        channel.setUserId(userId);
-        channel.setAvatarUrl(avatarUrl);
-        channel.setCreatedAt(LocalDateTime.now());
+        channel.setStatus(ChannelStatus.ACTIVE);
 
         ChatRoom room = new ChatRoom();
         room.setArn(chatRoom.arn());
@@ -68,15 +121,30 @@ public class ChannelService {
 
         channel.setChatRoom(room);
 
+        Channel saved = channelRepository.save(channel);
+        eventPublisher.publishEvent(new ChannelChangedEvent(ChannelChangedEvent.Type.UPSERTED, toPreview(saved), saved.getArn(), saved.getUserId()));
+        return true;
+    }
 
-        return channelRepository.save(channel);
-    }   
-    
-    public PublicChannelInfo getPublicChannelInfo(String channelId) {
+    public void failProvisioning(String channelId) {
+        channelRepository.updateProvisioningStatus(channelId, ChannelStatus.FAILED);
+    }
 
+    public ChannelStatus getChannelStatus(String userId, String channelId) {
         Channel channel = channelRepository.findById(channelId)
             .orElseThrow(() -> new ChannelNotFoundException("Channel not found"));
 
+        if (!channel.getUserId().equals(userId)) {
+            throw new UnauthorizedException("User not authorized");
+        }
+        return channel.getStatus();
+    }
+    
+    public PublicChannelInfo getPublicChannelInfo(String channelId) {
+
+        Channel channel = requireActive(channelRepository.findById(channelId)
+            .orElseThrow(() -> new ChannelNotFoundException("Channel not found")));
+
         return new PublicChannelInfo(
             channel.getChannelId(),
             channel.getName(),
@@ -109,8 +177,8 @@ public class ChannelService {
             throw new ChatRoomNotFoundException("No chat room found for this channel");
         }
         
-        // Generate token using the chat room ARN
-        return awsIvsService.createChatToken(chatRoom.getArn(), userId);
+        // Cached per room and user, minted through the rate-limited pool on a miss
+        return chatTokenCache.getToken(chatRoom.getArn(), userId);
     }
 
     public String generateChatTokenIfValid(String chatRoomArn, String userId) {
@@ -120,12 +188,12 @@ public class ChannelService {
             .orElseThrow(() -> new ChatRoomNotFoundException("ChatRoom ARN not found"));
         
 
-        // If valid, generate token from awsIvsService
-        return awsIvsService.createChatToken(chatRoomArn, userId);
+        // If valid, get a cached or freshly minted token
+        return chatTokenCache.getToken(chatRoomArn, userId);
     }
     public StreamConnectionInfo getPrivateStreamerConnectionInfo(String userId) {
-        Channel channel = channelRepository.findByUserId(userId)
-            .orElseThrow(() -> new ChannelNotFoundException("Channel not found for user: " + userId));
+        Channel channel = requireActive(channelRepository.findByUserId(userId)
+            .orElseThrow(() -> new ChannelNotFoundException("Channel not found for user: " + userId)));
 
         return new StreamConnectionInfo(
             channel.getChannelId(),
@@ -134,8 +202,12 @@ public class ChannelService {
         );
     }
     
-    public Optional<Channel> getChannelByArn(String arn) {
-        return channelRepository.findByArn(arn); // assuming such a method exists in the repo
+    public Optional<ChannelPreviewDTO> getChannelByArn(String arn) {
+        return channelLookupIndex.findByArn(arn);
+    }
+
+    public Map<String, ChannelPreviewDTO> getChannelsByArns(List<String> arns) {
+        return channelLookupIndex.findByArns(arns);
     }
 
 
@@ -155,7 +227,12 @@ public class ChannelService {
         if (avatarUrl != null) {
             channel.setAvatarUrl(avatarUrl);
         }
-        return channelRepository.save(channel);
+        Channel saved = channelRepository.save(channel);
+        // The feed and the lookup index only hold ACTIVE channels
+        if (saved.getStatus() == ChannelStatus.ACTIVE) {
+            eventPublisher.publishEvent(new ChannelChangedEvent(ChannelChangedEvent.Type.UPSERTED, toPreview(saved), saved.getArn(), saved.getUserId()));
+        }
+        return saved;
     }
 
     public void deleteChannel(String userId, String channelId) {
@@ -166,13 +243,19 @@ public class ChannelService {
             throw new UnauthorizedException("User not authorized");
         }
 
-        awsIvsService.deleteChannel(channel.getArn());
+        // No ARN yet while PROVISIONING: ChannelProvisioner deletes what it creates once it finds the row gone
+        if (channel.getArn() != null) {
+            awsIvsService.deleteChannel(channel.getArn());
+        }
         
         if (channel.getChatRoom() != null) {
             awsIvsService.deleteChatRoom(channel.getChatRoom().getArn());
         }
         
         channelRepository.delete(channel);
+        if (channel.getStatus() == ChannelStatus.ACTIVE) {
+            eventPublisher.publishEvent(new ChannelChangedEvent(ChannelChangedEvent.Type.DELETED, toPreview(channel), channel.getArn(), channel.getUserId()));
+        }
     }
 
     public List<ChannelPreviewDTO> getLiveChannels() {
@@ -194,20 +277,60 @@ public class ChannelService {
         return channelRepository.findAllChannelIds();
     }
     
+    /**
+     * Get the previews of several channels with one projection query per chunk of ids
+     * @param ids Channel IDs, duplicates allowed
+     * @return Previews of the channels found, in no particular order
+     */
     public List<ChannelPreviewDTO> getChannelPreviewsByIds(List<String> ids) {
-    return channelRepository.findAllById(ids)
-                            .stream()
-                            .map(channel -> new ChannelPreviewDTO(
-                                channel.getChannelId(),
-                                channel.getName(),
-                                channel.getPlaybackUrl(),
-                                channel.getAvatarUrl()
-                            ))
-                            .toList();
-    }
-
-    public Optional<Channel> getChannelByUserId(String userId) {
-        return channelRepository.findByUserId(userId);
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (distinct.size() <= previewChunkSize) {
+            return distinct.isEmpty() ? List.of() : channelRepository.findPreviewsByChannelIdIn(distinct);
+        }
+        List<ChannelPreviewDTO> previews = new ArrayList<>(distinct.size());
+        for (int from = 0; from < distinct.size(); from += previewChunkSize) {
+            previews.addAll(channelRepository.findPreviewsByChannelIdIn(
+                    distinct.subList(from, Math.min(from + previewChunkSize, distinct.size()))));
+        }
+        return previews;
+    }
+
+    public Optional<ChannelPreviewDTO> getChannelByUserId(String userId) {
+        return channelLookupIndex.findByUserId(userId);
+    }
+
+    /**
+     * Channel of a user that is not ACTIVE yet, for my-channel
+     * @return The id of the user's PROVISIONING channel, empty if it has none (a FAILED one can be created again)
+     */
+    public Optional<String> getProvisioningChannelId(String userId) {
+        return channelRepository.findByUserId(userId)
+            .filter(channel -> channel.getStatus() == ChannelStatus.PROVISIONING)
+            .map(Channel::getChannelId);
+    }
+
+    /**
+     * Same rule as my-channel: only an ACTIVE channel has a stream key, ingest endpoint and playback URL
+     * @throws ChannelNotReadyException (409) while PROVISIONING
+     * @throws ChannelNotFoundException (404) if FAILED, which the user can create again
+     */
+    private static Channel requireActive(Channel channel) {
+        if (channel.getStatus() == ChannelStatus.PROVISIONING) {
+            throw new ChannelNotReadyException("Channel is still being provisioned");
+        }
+        if (channel.getStatus() == ChannelStatus.FAILED) {
+            throw new ChannelNotFoundException("Channel not found");
+        }
+        return channel;
+    }
+
+    private static ChannelPreviewDTO toPreview(Channel channel) {
+        return new ChannelPreviewDTO(
+            channel.getChannelId(),
+            channel.getName(),
+            channel.getPlaybackUrl(),
+            channel.getAvatarUrl()
+        );
     }
 
 }
\ No newline at end of file
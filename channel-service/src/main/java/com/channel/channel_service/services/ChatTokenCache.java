@@ -0,0 +1,285 @@
+package com.channel.channel_service.services;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import software.amazon.awssdk.services.ivschat.IvschatClient;
+import software.amazon.awssdk.services.ivschat.model.CreateChatTokenRequest;
+import software.amazon.awssdk.services.ivschat.model.CreateChatTokenResponse;
+
+/**
+ * IVS Chat tokens by (room ARN, user ID)
+ * CreateChatToken is an AWS call on the viewer's join path and is throttled per account, so:
+ * - A token is reused while younger than reuse-ms (and not expired), so rejoins and extra tabs cost nothing
+ * - Concurrent requests for the same room and user share one in-flight CreateChatToken call
+ * - A token requested after refresh-after-ms is still served, and its replacement is minted in the background
+ * - Every CreateChatToken call goes through one minting pool limited to mint-rate-per-second;
+ *   joins waiting for a token are served before background refreshes, and a join that coalesces onto a
+ *   refresh still queued moves it up to join priority (it waits with its own timeout either way)
+ * A reused token starts a session that ends at its original session expiry, hence the short reuse window.
+ */
+@Service
+public class ChatTokenCache implements MeterBinder {
+
+    private static final int PRIORITY_JOIN = 0;
+    private static final int PRIORITY_REFRESH = 1;
+
+    private final IvschatClient chatClient;
+
+    @Value("${chat.token.session-minutes:180}")
+    private int sessionMinutes;
+
+    @Value("${chat.token.reuse-ms:600000}")
+    private long reuseMs;
+
+    @Value("${chat.token.refresh-after-ms:480000}")
+    private long refreshAfterMs;
+
+    @Value("${chat.token.max-size:100000}")
+    private int maxSize;
+
+    @Value("${chat.token.mint-rate-per-second:50}")
+    private int mintRatePerSecond;
+
+    @Value("${chat.token.mint-threads:4}")
+    private int mintThreads;
+
+    @Value("${chat.token.max-queued-refreshes:1000}")
+    private int maxQueuedRefreshes;
+
+    @Value("${chat.token.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private LongSupplier clock = System::currentTimeMillis;
+
+    private final Map<String, Token> tokens = new ConcurrentHashMap<>();
+    private final Map<String, MintTask> inFlight = new ConcurrentHashMap<>();
+    private final PriorityBlockingQueue<MintTask> queue = new PriorityBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private ScheduledExecutorService executor;
+
+    // Token bucket of the minting pool: at most one second of unused permits accumulates
+    private final ReentrantLock rateLock = new ReentrantLock();
+    private long nextPermitNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder mints = new LongAdder();
+    private final LongAdder mintFailures = new LongAdder();
+
+    public ChatTokenCache(IvschatClient chatClient) {
+        this.chatClient = chatClient;
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newScheduledThreadPool(mintThreads + 1, r -> {
+            Thread thread = new Thread(r, "chat-token-mint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < mintThreads; i++) {
+            executor.execute(this::mintLoop);
+        }
+        executor.scheduleWithFixedDelay(this::evictExpired, reuseMs, reuseMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Get a chat token for a user in a room
+     * @param roomArn Chat room ARN
+     * @param userId The user ID or username that will be in the chat
+     * @return Chat token string (JWT), cached or freshly minted
+     */
+    public String getToken(String roomArn, String userId) {
+        String key = key(roomArn, userId);
+        long now = clock.getAsLong();
+        Token token = tokens.get(key);
+        if (token != null && now - token.mintedAt < reuseMs && now < token.expiresAt) {
+            hits.increment();
+            if (now - token.mintedAt >= refreshAfterMs && queue.size() < maxQueuedRefreshes) {
+                mint(key, roomArn, userId, PRIORITY_REFRESH);
+            }
+            return token.value;
+        }
+        misses.increment();
+        try {
+            return mint(key, roomArn, userId, PRIORITY_JOIN).get(timeoutMs, TimeUnit.MILLISECONDS).value;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Chat token minting failed", e.getCause());
+        } catch (TimeoutException e) {
+            // The mint keeps running and fills the cache for the next attempt
+            throw new IllegalStateException("Timed out waiting for a chat token");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a chat token");
+        }
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("chat.token.requests", hits, LongAdder::sum).tag("result", "hit").register(registry);
+        FunctionCounter.builder("chat.token.requests", misses, LongAdder::sum).tag("result", "miss").register(registry);
+        FunctionCounter.builder("chat.token.requests", coalesced, LongAdder::sum).tag("result", "coalesced").register(registry);
+        FunctionCounter.builder("chat.token.mints", mints, LongAdder::sum).tag("result", "success").register(registry);
+        FunctionCounter.builder("chat.token.mints", mintFailures, LongAdder::sum).tag("result", "failure").register(registry);
+        Gauge.builder("chat.token.cache.size", tokens, Map::size).register(registry);
+        Gauge.builder("chat.token.mint.queue", queue, PriorityBlockingQueue::size).register(registry);
+    }
+
+    // Join the in-flight call for the key, or queue a new one
+    private CompletableFuture<Token> mint(String key, String roomArn, String userId, int priority) {
+        MintTask task = new MintTask(priority, sequence.incrementAndGet(), key, roomArn, userId, new CompletableFuture<>());
+        MintTask existing = inFlight.putIfAbsent(key, task);
+        if (existing == null) {
+            queue.add(task);
+            return task.future;
+        }
+        coalesced.increment();
+        // Only a task still queued can be moved; once taken by a minter it is already running
+        if (priority < existing.priority && queue.remove(existing)) {
+            MintTask promoted = new MintTask(priority, sequence.incrementAndGet(), key, roomArn, userId, existing.future);
+            inFlight.replace(key, existing, promoted);
+            queue.add(promoted);
+        }
+        return existing.future;
+    }
+
+    private void mintLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            MintTask task;
+            try {
+                task = queue.take();
+                acquirePermit();
+            } catch (InterruptedException e) {
+                return;
+            }
+            // Unregistered before completing, so a caller woken by this mint never joins it again
+            try {
+                Token token = createToken(task.roomArn, task.userId);
+                mints.increment();
+                if (tokens.size() < maxSize || tokens.containsKey(task.key)) {
+                    tokens.put(task.key, token);
+                }
+                inFlight.remove(task.key, task);
+                task.future.complete(token);
+            } catch (RuntimeException e) {
+                mintFailures.increment();
+                inFlight.remove(task.key, task);
+                task.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private Token createToken(String roomArn, String userId) {
+        long mintedAt = clock.getAsLong();
+        CreateChatTokenResponse response = chatClient.createChatToken(CreateChatTokenRequest.builder()
+            .roomIdentifier(roomArn)
+            .userId(userId)
+            .sessionDurationInMinutes(sessionMinutes)
+            .build());
+        long expiresAt = mintedAt + TimeUnit.MINUTES.toMillis(sessionMinutes);
+        expiresAt = Math.min(expiresAt, toMillis(response.tokenExpirationTime(), expiresAt));
+        expiresAt = Math.min(expiresAt, toMillis(response.sessionExpirationTime(), expiresAt));
+        return new Token(response.token(), mintedAt, expiresAt);
+    }
+
+    private void acquirePermit() throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / mintRatePerSecond;
+        long now = System.nanoTime();
+        long permitAt;
+        rateLock.lock();
+        try {
+            permitAt = Math.max(nextPermitNanos, now - TimeUnit.SECONDS.toNanos(1));
+            nextPermitNanos = permitAt + interval;
+        } finally {
+            rateLock.unlock();
+        }
+        if (permitAt > now) {
+            TimeUnit.NANOSECONDS.sleep(permitAt - now);
+        }
+    }
+
+    private void evictExpired() {
+        long now = clock.getAsLong();
+        tokens.values().removeIf(token -> now - token.mintedAt >= reuseMs || now >= token.expiresAt);
+    }
+
+    // Room ARNs contain no space, so the first space separates the two parts
+    private static String key(String roomArn, String userId) {
+        return roomArn + ' ' + userId;
+    }
+
+    private static long toMillis(Instant instant, long fallback) {
+        return instant == null ? fallback : instant.toEpochMilli();
+    }
+
+    private static final class Token {
+        private final String value;
+        private final long mintedAt;
+        private final long expiresAt;
+
+        private Token(String value, long mintedAt, long expiresAt) {
+            this.value = value;
+            this.mintedAt = mintedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class MintTask implements Comparable<MintTask> {
+        private final int priority;
+        private final long sequence;
+        private final String key;
+        private final String roomArn;
+        private final String userId;
+        private final CompletableFuture<Token> future;
+
+        private MintTask(int priority, long sequence, String key, String roomArn, String userId, CompletableFuture<Token> future) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.key = key;
+            this.roomArn = roomArn;
+            this.userId = userId;
+            this.future = future;
+        }
+
+        // Joins first, then oldest first
+        @Override
+        public int compareTo(MintTask other) {
+            return priority != other.priority ? Integer.compare(priority, other.priority) : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.channel.channel_service.gRPC;
+
+import com.channel.channel_service.DTO.ChannelPreviewDTO;
+import com.channel.channel_service.events.ChannelChangedEvent;
+import com.channel.channel_service.repositories.ChannelRepository;
+import com.example.grpc.ChannelChange;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChannelChangeFeedTest {
+
+    @Mock
+    private ChannelRepository channelRepository;
+
+    @InjectMocks
+    private ChannelChangeFeed channelChangeFeed;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(channelChangeFeed, "historySize", 2);
+        ReflectionTestUtils.setField(channelChangeFeed, "snapshotPageSize", 2);
+        ReflectionTestUtils.setField(channelChangeFeed, "maxPending", 100);
+    }
+
+    /**
+     * Test: a new subscriber gets the snapshot in pages, then every change with the next version
+     */
+    @Test
+    void subscribe_ShouldSendSnapshotThenOrderedChanges() {
+        // Given
+        when(channelRepository.findAllPreviews()).thenReturn(List.of(preview("channel-1"), preview("channel-2"), preview("channel-3")));
+        RecordingObserver observer = new RecordingObserver();
+
+        // When
+        channelChangeFeed.subscribe(0, observer);
+        channelChangeFeed.onChannelChanged(event(ChannelChangedEvent.Type.UPSERTED, "channel-4"));
+        channelChangeFeed.onChannelChanged(event(ChannelChangedEvent.Type.DELETED, "channel-1"));
+
+        // Then
+        List<ChannelChange> changes = observer.changes;
+        assertEquals(4, changes.size());
+        assertEquals(ChannelChange.Type.SNAPSHOT, changes.get(0).getType());
+        assertEquals(2, changes.get(0).getChannelsCount());
+        assertFalse(changes.get(0).getLast());
+        assertEquals(ChannelChange.Type.SNAPSHOT, changes.get(1).getType());
+        assertTrue(changes.get(1).getLast());
+        long snapshotVersion = changes.get(0).getVersion();
+        assertEquals(snapshotVersion, changes.get(1).getVersion());
+        assertEquals(ChannelChange.Type.UPSERT, changes.get(2).getType());
+        assertEquals("channel-4", changes.get(2).getChannels(0).getChannelId());
+        assertEquals(snapshotVersion + 1, changes.get(2).getVersion());
+        assertEquals(ChannelChange.Type.DELETE, changes.get(3).getType());
+        assertEquals("channel-1", changes.get(3).getChannelId());
+        assertEquals(snapshotVersion + 2, changes.get(3).getVersion());
+    }
+
+    /**
+     * Test: a subscriber reconnecting with a version still in history only gets what it missed
+     */
+    @Test
+    void subscribe_WithRecentVersion_ShouldResumeWithoutSnapshot() {
+        // Given
+        when(channelRepository.findAllPreviews()).thenReturn(List.of());
+        RecordingObserver first = new RecordingObserver();
+        channelChangeFeed.subscribe(0, first);
+        channelChangeFeed.onChannelChanged(event(ChannelChangedEvent.Type.UPSERTED, "channel-1"));
+        long seen = first.changes.get(1).getVersion();
+        channelChangeFeed.onChannelChanged(event(ChannelChangedEvent.Type.UPSERTED, "channel-2"));
+        RecordingObserver resumed = new RecordingObserver();
+
+        // When
+        channelChangeFeed.subscribe(seen, resumed);
+
+        // Then
+        assertEquals(2, resumed.changes.size());
+        assertEquals(ChannelChange.Type.RESUME, resumed.changes.get(0).getType());
+        assertEquals(seen, resumed.changes.get(0).getVersion());
+        assertEquals("channel-2", resumed.changes.get(1).getChannels(0).getChannelId());
+        assertEquals(seen + 1, resumed.changes.get(1).getVersion());
+        verify(channelRepository, times(1)).findAllPreviews();
+    }
+
+    /**
+     * Test: a version older than the history (or from another run) gets a full snapshot
+     */
+    @Test
+    void subscribe_WithVersionOutOfHistory_ShouldSendSnapshot() {
+        // Given - history holds 2 changes, 3 are published
+        when(channelRepository.findAllPreviews()).thenReturn(List.of(preview("channel-1")));
+        RecordingObserver first = new RecordingObserver();
+        channelChangeFeed.subscribe(0, first);
+        for (int i = 0; i < 3; i++) {
+            channelChangeFeed.onChannelChanged(event(ChannelChangedEvent.Type.UPSERTED, "channel-1"));
+        }
+        long beforeHistory = first.changes.get(0).getVersion();
+        RecordingObserver late = new RecordingObserver();
+        RecordingObserver otherRun = new RecordingObserver();
+
+        // When
+        channelChangeFeed.subscribe(beforeHistory, late);
+        channelChangeFeed.subscribe(1, otherRun);
+
+        // Then
+        assertEquals(ChannelChange.Type.SNAPSHOT, late.changes.get(0).getType());
+        assertEquals(ChannelChange.Type.SNAPSHOT, otherRun.changes.get(0).getType());
+        assertEquals(first.changes.get(3).getVersion(), late.changes.get(0).getVersion());
+    }
+
+    /**
+     * Test: a change committed while the snapshot is loading is sent right after the snapshot
+     */
+    @Test
+    void subscribe_ChangeDuringSnapshot_ShouldFollowSnapshot() {
+        // Given
+        when(channelRepository.findAllPreviews()).thenAnswer(invocation -> {
+            channelChangeFeed.onChannelChanged(event(ChannelChangedEvent.Type.UPSERTED, "channel-2"));
+            return List.of(preview("channel-1"));
+        });
+        RecordingObserver observer = new RecordingObserver();
+
+        // When
+        channelChangeFeed.subscribe(0, observer);
+
+        // Then
+        assertEquals(2, observer.changes.size());
+        assertEquals(ChannelChange.Type.SNAPSHOT, observer.changes.get(0).getType());
+        assertEquals(ChannelChange.Type.UPSERT, observer.changes.get(1).getType());
+        assertEquals(observer.changes.get(0).getVersion() + 1, observer.changes.get(1).getVersion());
+    }
+
+    /**
+     * Test: a cancelled call is removed and a failing snapshot closes the call with UNAVAILABLE
+     */
+    @Test
+    void subscribe_CancelAndSnapshotFailure_ShouldRemoveSubscriber() {
+        // Given
+        when(channelRepository.findAllPreviews()).thenReturn(List.of()).thenThrow(new RuntimeException("database down"));
+        RecordingObserver cancelled = new RecordingObserver();
+        RecordingObserver failed = new RecordingObserver();
+
+        // When
+        channelChangeFeed.subscribe(0, cancelled);
+        cancelled.onCancel.run();
+        channelChangeFeed.subscribe(0, failed);
+
+        // Then
+        assertEquals(0, channelChangeFeed.getSubscriberCount());
+        assertEquals(Status.Code.UNAVAILABLE, Status.fromThrowable(failed.error).getCode());
+    }
+
+    private static ChannelChangedEvent event(ChannelChangedEvent.Type type, String channelId) {
+        return new ChannelChangedEvent(type, preview(channelId), "arn-" + channelId, "user-" + channelId);
+    }
+
+    private static ChannelPreviewDTO preview(String channelId) {
+        return new ChannelPreviewDTO(channelId, "Name " + channelId, "https://playback/" + channelId + ".m3u8", null);
+    }
+
+    private static class RecordingObserver extends ServerCallStreamObserver<ChannelChange> {
+        private final List<ChannelChange> changes = new ArrayList<>();
+        private Runnable onCancel;
+        private Throwable error;
+
+        @Override
+        public void onNext(ChannelChange value) {
+            changes.add(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public void setOnCancelHandler(Runnable onCancelHandler) {
+            this.onCancel = onCancelHandler;
+        }
+
+        @Override
+        public void setCompression(String compression) {
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setOnReadyHandler(Runnable onReadyHandler) {
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+        }
+
+        @Override
+        public void request(int count) {
+        }
+
+        @Override
+        public void setMessageCompression(boolean enable) {
+        }
+    }
+}
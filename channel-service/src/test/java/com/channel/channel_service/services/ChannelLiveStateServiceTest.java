@@ -0,0 +1,121 @@
+package com.channel.channel_service.services;
+
+import com.channel.channel_service.entities.Channel;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Live flag of a channel under redelivered and reordered IVS Stream Start / Stream End events
+ * - Runs against a real PostgreSQL (the channel row is locked while an event is applied)
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ChannelLiveStateService.class)
+class ChannelLiveStateServiceTest {
+
+    @TestConfiguration
+    static class EmbeddedPostgresConfig {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.start();
+        }
+
+        @Bean
+        DataSource dataSource(EmbeddedPostgres postgres) {
+            return postgres.getPostgresDatabase();
+        }
+    }
+
+    @Autowired
+    private ChannelLiveStateService channelLiveStateService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        Channel channel = new Channel();
+        channel.setChannelId("channel-1");
+        channel.setName("Channel 1");
+        channel.setArn("arn:aws:ivs:eu-west-1:123456789012:channel/1");
+        channel.setCreatedAt(LocalDateTime.now());
+        entityManager.persist(channel);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Test: a Stream Start redelivered after its Stream End leaves the channel offline
+     */
+    @Test
+    void apply_DuplicateStartAfterEnd_ShouldStayOffline() {
+        // When
+        channelLiveStateService.apply("channel-1", "st-1", true);
+        channelLiveStateService.apply("channel-1", "st-1", false);
+        channelLiveStateService.apply("channel-1", "st-1", true);
+
+        // Then
+        assertFalse(isLive());
+    }
+
+    /**
+     * Test: a Stream End that beats its Stream Start leaves the channel offline
+     */
+    @Test
+    void apply_EndBeforeStart_ShouldStayOffline() {
+        // When
+        channelLiveStateService.apply("channel-1", "st-1", false);
+        channelLiveStateService.apply("channel-1", "st-1", true);
+
+        // Then
+        assertFalse(isLive());
+    }
+
+    /**
+     * Test: the late Stream End of a previous session does not end the session that followed it
+     */
+    @Test
+    void apply_LateEndOfPreviousSession_ShouldStayLive() {
+        // When
+        channelLiveStateService.apply("channel-1", "st-1", true);
+        channelLiveStateService.apply("channel-1", "st-2", true);
+        channelLiveStateService.apply("channel-1", "st-1", false);
+
+        // Then
+        assertTrue(isLive());
+
+        // When
+        channelLiveStateService.apply("channel-1", "st-2", false);
+
+        // Then
+        assertFalse(isLive());
+    }
+
+    /**
+     * Test: events of a channel deleted meanwhile are dropped
+     */
+    @Test
+    void apply_UnknownChannel_ShouldReturnFalse() {
+        assertFalse(channelLiveStateService.apply("channel-2", "st-1", true));
+    }
+
+    private boolean isLive() {
+        entityManager.clear();
+        return entityManager.find(Channel.class, "channel-1").isLive();
+    }
+}
@@ -0,0 +1,193 @@
+package com.channel.channel_service.services;
+
+import com.channel.channel_service.DTO.ChannelPreviewDTO;
+import com.channel.channel_service.entities.Channel;
+import com.channel.channel_service.entities.ChannelStatus;
+import com.channel.channel_service.events.ChannelChangedEvent;
+import com.channel.channel_service.repositories.ChannelRepository;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChannelLookupIndex against a real PostgreSQL
+ * - Once warmed with every channel, ARN and user ID lookups run no statement, misses included
+ * - Past max-size, only the lookups it cannot answer reach the database
+ * - Channels still PROVISIONING are left out
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ChannelLookupIndex.class)
+class ChannelLookupIndexTest {
+
+    @TestConfiguration
+    static class EmbeddedPostgresConfig {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.start();
+        }
+
+        @Bean
+        DataSource dataSource(EmbeddedPostgres postgres) {
+            return postgres.getPostgresDatabase();
+        }
+    }
+
+    @Autowired
+    private ChannelLookupIndex channelLookupIndex;
+
+    @Autowired
+    private ChannelRepository channelRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= 3; i++) {
+            Channel channel = new Channel();
+            channel.setChannelId("channel-" + i);
+            channel.setName("Channel " + i);
+            channel.setArn("arn-" + i);
+            channel.setUserId("user-" + i);
+            channel.setPlaybackUrl("https://playback/" + i + ".m3u8");
+            channel.setAvatarUrl("avatar" + i + ".jpg");
+            channel.setCreatedAt(LocalDateTime.now().plusSeconds(i));
+            entityManager.persist(channel);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Test: a complete index answers hits and misses without a statement and follows creates, updates and deletes
+     */
+    @Test
+    void completeIndex_ShouldAnswerWithoutDatabase() {
+        // Given
+        ReflectionTestUtils.setField(channelLookupIndex, "maxSize", 10);
+        channelLookupIndex.warm();
+        statistics.clear();
+
+        // When
+        Optional<ChannelPreviewDTO> byUser = channelLookupIndex.findByUserId("user-2");
+        Map<String, ChannelPreviewDTO> byArns = channelLookupIndex.findByArns(List.of("arn-1", "arn-3", "arn-1", "arn-unknown"));
+        Optional<ChannelPreviewDTO> unknownUser = channelLookupIndex.findByUserId("user-unknown");
+        channelLookupIndex.onChannelChanged(new ChannelChangedEvent(ChannelChangedEvent.Type.UPSERTED,
+                new ChannelPreviewDTO("channel-4", "Channel 4", "https://playback/4.m3u8", null), "arn-4", "user-4"));
+        channelLookupIndex.onChannelChanged(new ChannelChangedEvent(ChannelChangedEvent.Type.UPSERTED,
+                new ChannelPreviewDTO("channel-1", "Renamed", "https://playback/1.m3u8", "avatar1.jpg"), "arn-1", "user-1"));
+        channelLookupIndex.onChannelChanged(new ChannelChangedEvent(ChannelChangedEvent.Type.DELETED,
+                new ChannelPreviewDTO("channel-2", "Channel 2", "https://playback/2.m3u8", "avatar2.jpg"), "arn-2", "user-2"));
+
+        // Then
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals("channel-2", byUser.orElseThrow().getChannelId());
+        assertEquals(2, byArns.size());
+        assertEquals("Channel 3", byArns.get("arn-3").getName());
+        assertTrue(unknownUser.isEmpty());
+        assertEquals("channel-4", channelLookupIndex.findChannelIdByArn("arn-4").orElseThrow());
+        assertEquals("Renamed", channelLookupIndex.findByArn("arn-1").orElseThrow().getName());
+        assertTrue(channelLookupIndex.findByUserId("user-2").isEmpty());
+        assertEquals(3, channelLookupIndex.size());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    /**
+     * Test: past max-size the newest channels are kept and the others are found with one query per lookup
+     */
+    @Test
+    void overflowingIndex_ShouldFallBackToDatabase() {
+        // Given - room for 2 of the 3 channels
+        ReflectionTestUtils.setField(channelLookupIndex, "maxSize", 2);
+        channelLookupIndex.warm();
+        statistics.clear();
+
+        // When
+        Map<String, ChannelPreviewDTO> indexed = channelLookupIndex.findByArns(List.of("arn-2", "arn-3"));
+        long afterIndexed = statistics.getPrepareStatementCount();
+        Map<String, ChannelPreviewDTO> mixed = channelLookupIndex.findByArns(List.of("arn-1", "arn-3", "arn-unknown"));
+        Optional<ChannelPreviewDTO> oldestByUser = channelLookupIndex.findByUserId("user-1");
+
+        // Then
+        assertFalse(channelLookupIndex.isComplete());
+        assertEquals(2, indexed.size());
+        assertEquals(0, afterIndexed);
+        assertEquals(2, mixed.size());
+        assertEquals("channel-1", mixed.get("arn-1").getChannelId());
+        assertEquals("channel-1", oldestByUser.orElseThrow().getChannelId());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    /**
+     * Test: a PROVISIONING channel is neither indexed nor found by the database fallback
+     */
+    @Test
+    void provisioningChannel_ShouldNotBeFound() {
+        // Given
+        Channel channel = new Channel();
+        channel.setChannelId("channel-4");
+        channel.setName("Channel 4");
+        channel.setUserId("user-4");
+        channel.setCreatedAt(LocalDateTime.now().plusSeconds(4));
+        channel.setStatus(ChannelStatus.PROVISIONING);
+        entityManager.persist(channel);
+        entityManager.flush();
+        ReflectionTestUtils.setField(channelLookupIndex, "maxSize", 10);
+        channelLookupIndex.warm();
+
+        // When
+        Optional<ChannelPreviewDTO> fromIndex = channelLookupIndex.findByUserId("user-4");
+        ReflectionTestUtils.setField(channelLookupIndex, "complete", false);
+        Optional<ChannelPreviewDTO> fromDatabase = channelLookupIndex.findByUserId("user-4");
+
+        // Then
+        assertEquals(3, channelLookupIndex.size());
+        assertTrue(fromIndex.isEmpty());
+        assertTrue(fromDatabase.isEmpty());
+    }
+
+    /**
+     * Test: the IVS webhook flips the live flag with one UPDATE by id
+     */
+    @Test
+    void updateLiveState_ShouldUpdateOneRow() {
+        // When
+        int updated = channelRepository.updateLiveState("channel-1", true);
+        entityManager.clear();
+
+        // Then
+        assertEquals(1, updated);
+        assertTrue(channelRepository.findById("channel-1").orElseThrow().isLive());
+    }
+}
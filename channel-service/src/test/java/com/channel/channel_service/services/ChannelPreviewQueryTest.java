@@ -0,0 +1,129 @@
+package com.channel.channel_service.services;
+
+import com.channel.channel_service.DTO.ChannelPreviewDTO;
+import com.channel.channel_service.entities.Channel;
+import com.channel.channel_service.entities.ChatRoom;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Statement counts of the channel preview lookup (gRPC GetChannelPreviewsByIds)
+ * - Runs against a real PostgreSQL, every channel has a chat room
+ * - Loading Channel entities would also load each chat room (one more query per channel);
+ *   the projection must stay at one statement per chunk of ids
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "channel.preview.chunk-size=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ChannelService.class)
+class ChannelPreviewQueryTest {
+
+    @TestConfiguration
+    static class EmbeddedPostgresConfig {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.start();
+        }
+
+        @Bean
+        DataSource dataSource(EmbeddedPostgres postgres) {
+            return postgres.getPostgresDatabase();
+        }
+    }
+
+    @MockitoBean
+    private AwsIvsService awsIvsService;
+
+    @MockitoBean
+    private ChannelLookupIndex channelLookupIndex;
+
+    @MockitoBean
+    private ChatTokenCache chatTokenCache;
+
+    @Autowired
+    private ChannelService channelService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= 5; i++) {
+            Channel channel = new Channel();
+            channel.setChannelId("channel-" + i);
+            channel.setName("Channel " + i);
+            channel.setArn("arn:aws:ivs:eu-west-1:123456789012:channel/" + i);
+            channel.setPlaybackUrl("https://playback/" + i + ".m3u8");
+            channel.setAvatarUrl("avatar" + i + ".jpg");
+            channel.setCreatedAt(LocalDateTime.now());
+            entityManager.persist(channel);
+
+            ChatRoom room = new ChatRoom();
+            room.setArn("arn:aws:ivschat:eu-west-1:123456789012:room/" + i);
+            room.setChannel(channel);
+            entityManager.persist(room);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    /**
+     * Test: previews of several channels take one statement, load no entity and ignore duplicate ids
+     */
+    @Test
+    void getChannelPreviewsByIds_ShouldRunOneStatement() {
+        // When
+        List<ChannelPreviewDTO> previews = channelService.getChannelPreviewsByIds(List.of("channel-1", "channel-2", "channel-1"));
+
+        // Then
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(List.of("channel-1", "channel-2"), previews.stream().map(ChannelPreviewDTO::getChannelId).sorted().toList());
+        ChannelPreviewDTO first = previews.stream().filter(preview -> preview.getChannelId().equals("channel-1")).findFirst().orElseThrow();
+        assertEquals(new ChannelPreviewDTO("channel-1", "Channel 1", "https://playback/1.m3u8", "avatar1.jpg"), first);
+    }
+
+    /**
+     * Test: long id lists are split into chunks of channel.preview.chunk-size ids, one statement each
+     */
+    @Test
+    void getChannelPreviewsByIds_LongList_ShouldRunOneStatementPerChunk() {
+        // When
+        List<ChannelPreviewDTO> previews = channelService.getChannelPreviewsByIds(
+                List.of("channel-1", "channel-2", "channel-3", "channel-4", "channel-5"));
+
+        // Then
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(5, previews.size());
+    }
+}
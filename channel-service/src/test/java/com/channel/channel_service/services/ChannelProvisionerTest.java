@@ -0,0 +1,389 @@
+package com.channel.channel_service.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.channel.channel_service.DTO.ChannelStatusResponse;
+import com.channel.channel_service.entities.ChannelStatus;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.ivs.IvsClient;
+import software.amazon.awssdk.services.ivs.model.Channel;
+import software.amazon.awssdk.services.ivs.model.ChannelSummary;
+import software.amazon.awssdk.services.ivs.model.CreateChannelRequest;
+import software.amazon.awssdk.services.ivs.model.CreateChannelResponse;
+import software.amazon.awssdk.services.ivs.model.DeleteChannelRequest;
+import software.amazon.awssdk.services.ivs.model.DeleteChannelResponse;
+import software.amazon.awssdk.services.ivs.model.ListChannelsRequest;
+import software.amazon.awssdk.services.ivs.model.ListChannelsResponse;
+import software.amazon.awssdk.services.ivs.model.StreamKey;
+import software.amazon.awssdk.services.ivschat.IvschatClient;
+import software.amazon.awssdk.services.ivschat.model.CreateRoomRequest;
+import software.amazon.awssdk.services.ivschat.model.CreateRoomResponse;
+import software.amazon.awssdk.services.ivschat.model.DeleteRoomRequest;
+import software.amazon.awssdk.services.ivschat.model.DeleteRoomResponse;
+import software.amazon.awssdk.services.ivschat.model.ListRoomsRequest;
+import software.amazon.awssdk.services.ivschat.model.ListRoomsResponse;
+import software.amazon.awssdk.services.ivschat.model.RoomSummary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * ChannelProvisioner against fake IvsClient and IvschatClient implementations; ChannelService is mocked
+ */
+class ChannelProvisionerTest {
+
+    private FakeAws aws;
+    private ChannelService channelService;
+    private ChannelProvisioner provisioner;
+
+    @BeforeEach
+    void setUp() {
+        aws = new FakeAws();
+        channelService = mock(ChannelService.class);
+        when(channelService.completeProvisioning(anyString(), any(), any())).thenReturn(true);
+
+        provisioner = new ChannelProvisioner();
+        ReflectionTestUtils.setField(provisioner, "awsIvsService", new AwsIvsService(aws.ivs, aws.chat));
+        ReflectionTestUtils.setField(provisioner, "channelService", channelService);
+        ReflectionTestUtils.setField(provisioner, "maxConcurrentCalls", 4);
+        ReflectionTestUtils.setField(provisioner, "maxAttempts", 4);
+        ReflectionTestUtils.setField(provisioner, "backoffMinMs", 1L);
+        ReflectionTestUtils.setField(provisioner, "backoffMaxMs", 20L);
+        ReflectionTestUtils.setField(provisioner, "maxWaitMs", 5000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        provisioner.shutdown();
+    }
+
+    /**
+     * Test: the IVS channel and the chat room are created at the same time, then attached to the row
+     */
+    @Test
+    void provision_ShouldCreateBothResourcesInParallel() throws Exception {
+        // Given - each create call waits until the other one has started
+        provisioner.init();
+        aws.rendezvous = new CyclicBarrier(2);
+
+        // When
+        provisioner.provision("channel-1", "gaming", false).get(5, TimeUnit.SECONDS);
+
+        // Then
+        ArgumentCaptor<CreateChannelResponse> ivsChannel = ArgumentCaptor.forClass(CreateChannelResponse.class);
+        ArgumentCaptor<CreateRoomResponse> chatRoom = ArgumentCaptor.forClass(CreateRoomResponse.class);
+        verify(channelService).completeProvisioning(eq("channel-1"), ivsChannel.capture(), chatRoom.capture());
+        assertEquals("arn:ivs:gaming", ivsChannel.getValue().channel().arn());
+        assertEquals("arn:chat:gaming-chat", chatRoom.getValue().arn());
+        verify(channelService, never()).failProvisioning(anyString());
+        assertEquals(0, provisioner.getRunningJobs());
+    }
+
+    /**
+     * Test: throttled calls are retried with backoff until they succeed
+     */
+    @Test
+    void throttledCall_ShouldBeRetried() throws Exception {
+        // Given
+        provisioner.init();
+        aws.createChannelErrors.add(error(429));
+        aws.createChannelErrors.add(error(429));
+
+        // When
+        provisioner.provision("channel-1", "gaming", false).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(3, aws.createChannelCalls.get());
+        assertEquals(1, aws.createRoomCalls.get());
+        verify(channelService).completeProvisioning(eq("channel-1"), any(), any());
+        assertTrue(aws.deleted.isEmpty());
+    }
+
+    /**
+     * Test: a non-retryable failure marks the channel FAILED and deletes the resource already created
+     */
+    @Test
+    void failedCall_ShouldMarkFailedAndDeleteCreatedResource() throws Exception {
+        // Given
+        provisioner.init();
+        aws.createRoomErrors.add(error(400));
+
+        // When
+        provisioner.provision("channel-1", "gaming", false).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(1, aws.createRoomCalls.get());
+        verify(channelService, never()).completeProvisioning(anyString(), any(), any());
+        verify(channelService).failProvisioning("channel-1");
+        assertEquals(List.of("arn:ivs:gaming"), aws.deleted);
+    }
+
+    /**
+     * Test: when the row was deleted during provisioning, both resources are deleted again
+     */
+    @Test
+    void deletedChannel_ShouldDeleteBothResources() throws Exception {
+        // Given
+        provisioner.init();
+        when(channelService.completeProvisioning(anyString(), any(), any())).thenReturn(false);
+
+        // When
+        provisioner.provision("channel-1", "gaming", false).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(2, aws.deleted.size());
+        assertTrue(aws.deleted.containsAll(List.of("arn:ivs:gaming", "arn:chat:gaming-chat")));
+    }
+
+    /**
+     * Test: a signup spike never runs more AWS calls at once than max-concurrent-calls,
+     * and a request for a channel already being provisioned joins its job
+     */
+    @Test
+    void signupSpike_ShouldBoundConcurrentCalls() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(provisioner, "maxConcurrentCalls", 2);
+        provisioner.init();
+        aws.callMs = 20;
+
+        // When
+        List<CompletableFuture<ChannelStatusResponse.Status>> jobs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            jobs.add(provisioner.provision("channel-" + i, "channel" + i, false));
+        }
+        CompletableFuture<ChannelStatusResponse.Status> joined = provisioner.provision("channel-0", "channel0", false);
+        CompletableFuture.allOf(jobs.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertSame(jobs.get(0), joined);
+        assertEquals(8, aws.createChannelCalls.get());
+        assertEquals(8, aws.createRoomCalls.get());
+        assertTrue(aws.maxInFlight.get() <= 2, "max in flight was " + aws.maxInFlight.get());
+        verify(channelService, times(8)).completeProvisioning(anyString(), any(), any());
+    }
+
+    /**
+     * Test: a create that failed on the network may have created the channel, so the channel tagged with
+     * this row id is deleted before the create is retried
+     *
+     * Expected behavior:
+     * - The first create times out after AWS created the channel; the retry creates it again
+     * - Only the channel carrying this row id is deleted, not one of the same name for another row
+     */
+    @Test
+    void ambiguousCreate_ShouldDeleteTaggedChannelBeforeRetrying() throws Exception {
+        // Given
+        provisioner.init();
+        aws.channels.put("arn:ivs:other", CreateChannelRequest.builder().name("gaming").tags(Map.of("channel-id", "channel-2")).build());
+        aws.createChannelErrors.add(SdkClientException.create("Read timed out"));
+
+        // When
+        ChannelStatusResponse.Status outcome = provisioner.provision("channel-1", "gaming", false).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(ChannelStatusResponse.Status.ACTIVE, outcome);
+        assertEquals(2, aws.createChannelCalls.get());
+        assertEquals(List.of("arn:ivs:gaming"), aws.deleted);
+        assertEquals(2, aws.channels.size());
+    }
+
+    /**
+     * Test: the job stays registered until its row is marked FAILED
+     *
+     * Expected behavior:
+     * - The first FAILED update throws and is retried; the status long-poll keeps waiting meanwhile
+     * - A retry of the channel while the row is being marked FAILED starts a new job instead of joining the old one
+     * - The long-poll then answers FAILED without reading the row again
+     */
+    @Test
+    void failProvisioning_WhenUpdateFails_ShouldKeepJobUntilRowIsFailed() throws Exception {
+        // Given
+        provisioner.init();
+        aws.createRoomErrors.add(error(400));
+        CountDownLatch release = new CountDownLatch(1);
+        doThrow(new IllegalStateException("Connection refused"))
+                .doAnswer(invocation -> release.await(5, TimeUnit.SECONDS))
+                .when(channelService).failProvisioning("channel-1");
+        when(channelService.getChannelStatus("user-1", "channel-1")).thenReturn(ChannelStatus.PROVISIONING);
+
+        // When
+        CompletableFuture<ChannelStatusResponse.Status> job = provisioner.provision("channel-1", "gaming", false);
+        verify(channelService, timeout(5000).times(2)).failProvisioning("channel-1");
+        CompletableFuture<ChannelStatusResponse> status = provisioner.getChannelStatus("user-1", "channel-1", 5000);
+        CompletableFuture<ChannelStatusResponse.Status> retried = provisioner.provision("channel-1", "gaming", false);
+        release.countDown();
+
+        // Then
+        assertNotSame(job, retried);
+        assertEquals(ChannelStatusResponse.Status.FAILED, job.get(5, TimeUnit.SECONDS));
+        assertEquals(ChannelStatusResponse.Status.FAILED, status.get(5, TimeUnit.SECONDS).status());
+        assertEquals(ChannelStatusResponse.Status.ACTIVE, retried.get(5, TimeUnit.SECONDS));
+        verify(channelService, times(1)).getChannelStatus("user-1", "channel-1");
+        assertEquals(0, provisioner.getRunningJobs());
+    }
+
+    /**
+     * Test: a PROVISIONING row with no job running for it is reported UNKNOWN at once, instead of PROVISIONING forever
+     */
+    @Test
+    void getChannelStatus_WithoutJob_ShouldBeUnknown() throws Exception {
+        // Given
+        provisioner.init();
+        when(channelService.getChannelStatus("user-1", "channel-1")).thenReturn(ChannelStatus.PROVISIONING);
+
+        // When
+        ChannelStatusResponse status = provisioner.getChannelStatus("user-1", "channel-1", 5000).get(1, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(ChannelStatusResponse.Status.UNKNOWN, status.status());
+    }
+
+    private static AwsServiceException error(int statusCode) {
+        return AwsServiceException.builder().statusCode(statusCode).message("HTTP " + statusCode).build();
+    }
+
+    private static class FakeAws {
+        private final AtomicInteger createChannelCalls = new AtomicInteger();
+        private final AtomicInteger createRoomCalls = new AtomicInteger();
+        private final Queue<RuntimeException> createChannelErrors = new ConcurrentLinkedQueue<>();
+        private final Queue<RuntimeException> createRoomErrors = new ConcurrentLinkedQueue<>();
+        private final List<String> deleted = new CopyOnWriteArrayList<>();
+        // Existing resources by ARN
+        private final Map<String, CreateChannelRequest> channels = new ConcurrentHashMap<>();
+        private final Map<String, CreateRoomRequest> rooms = new ConcurrentHashMap<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        private volatile CyclicBarrier rendezvous;
+        private volatile long callMs;
+
+        private final IvsClient ivs = new IvsClient() {
+            @Override
+            public CreateChannelResponse createChannel(CreateChannelRequest request) {
+                createChannelCalls.incrementAndGet();
+                RuntimeException error = call(createChannelErrors);
+                created("arn:ivs:" + request.name(), request, channels, error);
+                return CreateChannelResponse.builder()
+                        .channel(Channel.builder()
+                                .arn("arn:ivs:" + request.name())
+                                .ingestEndpoint("ingest.example")
+                                .playbackUrl("https://playback/" + request.name() + ".m3u8")
+                                .build())
+                        .streamKey(StreamKey.builder().value("sk_" + request.name()).arn("arn:key:" + request.name()).build())
+                        .build();
+            }
+
+            @Override
+            public DeleteChannelResponse deleteChannel(DeleteChannelRequest request) {
+                deleted.add(request.arn());
+                channels.remove(request.arn());
+                return DeleteChannelResponse.builder().build();
+            }
+
+            @Override
+            public ListChannelsResponse listChannels(ListChannelsRequest request) {
+                List<ChannelSummary> summaries = new ArrayList<>();
+                channels.forEach((arn, created) -> {
+                    if (created.name().equals(request.filterByName())) {
+                        summaries.add(ChannelSummary.builder().arn(arn).name(created.name()).tags(created.tags()).build());
+                    }
+                });
+                return ListChannelsResponse.builder().channels(summaries).build();
+            }
+
+            @Override
+            public String serviceName() {
+                return "ivs";
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        private final IvschatClient chat = new IvschatClient() {
+            @Override
+            public CreateRoomResponse createRoom(CreateRoomRequest request) {
+                createRoomCalls.incrementAndGet();
+                RuntimeException error = call(createRoomErrors);
+                created("arn:chat:" + request.name(), request, rooms, error);
+                return CreateRoomResponse.builder().arn("arn:chat:" + request.name()).build();
+            }
+
+            @Override
+            public DeleteRoomResponse deleteRoom(DeleteRoomRequest request) {
+                deleted.add(request.identifier());
+                rooms.remove(request.identifier());
+                return DeleteRoomResponse.builder().build();
+            }
+
+            @Override
+            public ListRoomsResponse listRooms(ListRoomsRequest request) {
+                List<RoomSummary> summaries = new ArrayList<>();
+                rooms.forEach((arn, created) -> {
+                    if (created.name().equals(request.name())) {
+                        summaries.add(RoomSummary.builder().arn(arn).name(created.name()).tags(created.tags()).build());
+                    }
+                });
+                return ListRoomsResponse.builder().rooms(summaries).build();
+            }
+
+            @Override
+            public String serviceName() {
+                return "ivschat";
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        // A network failure may come after the resource was created; a service error means it was not
+        private static <R> void created(String arn, R request, Map<String, R> resources, RuntimeException error) {
+            if (error != null && !(error instanceof SdkClientException)) {
+                throw error;
+            }
+            resources.put(arn, request);
+            if (error != null) {
+                throw error;
+            }
+        }
+
+        private RuntimeException call(Queue<RuntimeException> errors) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                CyclicBarrier barrier = rendezvous;
+                if (barrier != null) {
+                    barrier.await(2, TimeUnit.SECONDS);
+                }
+                if (callMs > 0) {
+                    Thread.sleep(callMs);
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException("Calls did not overlap", e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return errors.poll();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.channel.channel_service.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.services.ivschat.IvschatClient;
+import software.amazon.awssdk.services.ivschat.model.CreateChatTokenRequest;
+import software.amazon.awssdk.services.ivschat.model.CreateChatTokenResponse;
+import software.amazon.awssdk.services.ivschat.model.ThrottlingException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChatTokenCache against a local fake IvschatClient that counts CreateChatToken calls
+ */
+class ChatTokenCacheTest {
+
+    private static final String ROOM = "arn:aws:ivschat:eu-west-1:123456789012:room/room-1";
+
+    private FakeChatClient chatClient;
+    private AtomicLong now;
+    private ChatTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        chatClient = new FakeChatClient();
+        now = new AtomicLong(1_000_000L);
+        cache = new ChatTokenCache(chatClient);
+        ReflectionTestUtils.setField(cache, "clock", (LongSupplier) now::get);
+        ReflectionTestUtils.setField(cache, "sessionMinutes", 180);
+        ReflectionTestUtils.setField(cache, "reuseMs", 600_000L);
+        ReflectionTestUtils.setField(cache, "refreshAfterMs", 480_000L);
+        ReflectionTestUtils.setField(cache, "maxSize", 1000);
+        ReflectionTestUtils.setField(cache, "mintRatePerSecond", 1000);
+        ReflectionTestUtils.setField(cache, "mintThreads", 4);
+        ReflectionTestUtils.setField(cache, "maxQueuedRefreshes", 1000);
+        ReflectionTestUtils.setField(cache, "timeoutMs", 5000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    /**
+     * Test: concurrent joins by the same user share one CreateChatToken call
+     */
+    @Test
+    void concurrentRequests_ShouldShareOneCall() throws Exception {
+        // Given - the first call blocks until every request is waiting
+        cache.init();
+        chatClient.gate = new CountDownLatch(1);
+        ExecutorService viewers = Executors.newFixedThreadPool(20);
+        List<Future<String>> results = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            results.add(viewers.submit(() -> cache.getToken(ROOM, "user-1")));
+        }
+        Thread.sleep(200);
+        chatClient.gate.countDown();
+
+        // Then
+        for (Future<String> result : results) {
+            assertEquals("token-1", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, chatClient.calls.get());
+        viewers.shutdownNow();
+    }
+
+    /**
+     * Test: a token is reused within the reuse window, served and replaced in the background
+     * past refresh-after, and minted again in the foreground once too old to reuse
+     */
+    @Test
+    void cachedToken_ShouldBeReusedThenRefreshedAhead() throws Exception {
+        // Given
+        cache.init();
+        assertEquals("token-1", cache.getToken(ROOM, "user-1"));
+
+        // When - within the reuse window
+        now.addAndGet(60_000);
+        String reused = cache.getToken(ROOM, "user-1");
+
+        // When - past refresh-after: the cached token is served, a new one is minted behind it
+        now.addAndGet(430_000);
+        String refreshing = cache.getToken(ROOM, "user-1");
+        await(() -> chatClient.calls.get() == 2);
+        String refreshed = cache.getToken(ROOM, "user-1");
+
+        // When - once too old to reuse
+        now.addAndGet(600_000);
+        String expired = cache.getToken(ROOM, "user-1");
+
+        // Then
+        assertEquals("token-1", reused);
+        assertEquals("token-1", refreshing);
+        assertEquals("token-2", refreshed);
+        assertEquals("token-3", expired);
+        assertEquals("token-4", cache.getToken(ROOM, "user-2"));
+        assertEquals(4, chatClient.calls.get());
+    }
+
+    /**
+     * Test: a join that coalesces onto a queued background refresh is minted at join priority
+     *
+     * Expected behavior:
+     * - With one minting thread busy, refreshes for user-1, user-2 and user-3 queue up
+     * - user-3 then joins with a token too old to reuse: its refresh moves ahead of the other two
+     */
+    @Test
+    void joinOnQueuedRefresh_ShouldBeMintedAtJoinPriority() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(cache, "mintThreads", 1);
+        cache.init();
+        for (int i = 1; i <= 3; i++) {
+            cache.getToken(ROOM, "user-" + i);
+        }
+        chatClient.gate = new CountDownLatch(1);
+        ExecutorService viewers = Executors.newFixedThreadPool(2);
+        Future<String> busy = viewers.submit(() -> cache.getToken(ROOM, "user-x"));
+        await(() -> chatClient.calls.get() == 4);
+        now.addAndGet(500_000);
+        for (int i = 1; i <= 3; i++) {
+            cache.getToken(ROOM, "user-" + i);
+        }
+
+        // When
+        now.addAndGet(200_000);
+        Future<String> joined = viewers.submit(() -> cache.getToken(ROOM, "user-3"));
+        Thread.sleep(100);
+        chatClient.gate.countDown();
+
+        // Then
+        busy.get(5, TimeUnit.SECONDS);
+        assertEquals("token-5", joined.get(5, TimeUnit.SECONDS));
+        await(() -> chatClient.calls.get() == 7);
+        assertEquals(List.of("user-x", "user-3", "user-1", "user-2"), chatClient.users.subList(3, 7));
+        viewers.shutdownNow();
+    }
+
+    /**
+     * Test: a failed CreateChatToken reaches the caller and is not cached
+     */
+    @Test
+    void failedMint_ShouldPropagateAndNotBeCached() {
+        // Given
+        cache.init();
+        chatClient.failures.set(1);
+
+        // When / Then
+        assertThrows(ThrottlingException.class, () -> cache.getToken(ROOM, "user-1"));
+        assertEquals("token-2", cache.getToken(ROOM, "user-1"));
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * Test: the minting pool stays under mint-rate-per-second however many users join at once
+     */
+    @Test
+    void joinStorm_ShouldBeRateLimited() throws Exception {
+        // Given - 20 mints per second, 30 distinct users; the first second's worth is allowed at once
+        ReflectionTestUtils.setField(cache, "mintRatePerSecond", 20);
+        cache.init();
+        ExecutorService viewers = Executors.newFixedThreadPool(30);
+        List<Future<String>> results = new ArrayList<>();
+        long start = System.nanoTime();
+
+        // When
+        for (int i = 0; i < 30; i++) {
+            String userId = "user-" + i;
+            results.add(viewers.submit(() -> cache.getToken(ROOM, userId)));
+        }
+        for (Future<String> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then - the 10 mints past the burst are spaced 50ms apart
+        assertEquals(30, chatClient.calls.get());
+        assertTrue(elapsedMs >= 400, "30 mints at 20/s finished in " + elapsedMs + "ms");
+        viewers.shutdownNow();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5s");
+            Thread.sleep(5);
+        }
+    }
+
+    private static class FakeChatClient implements IvschatClient {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final List<String> users = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch gate;
+
+        @Override
+        public CreateChatTokenResponse createChatToken(CreateChatTokenRequest request) {
+            users.add(request.userId());
+            int call = calls.incrementAndGet();
+            CountDownLatch current = gate;
+            if (current != null) {
+                try {
+                    current.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failures.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+                throw ThrottlingException.builder().message("Rate exceeded").build();
+            }
+            Instant expiration = Instant.now().plusSeconds(request.sessionDurationInMinutes() * 60L);
+            return CreateChatTokenResponse.builder()
+                    .token("token-" + call)
+                    .tokenExpirationTime(expiration)
+                    .sessionExpirationTime(expiration)
+                    .build();
+        }
+
+        @Override
+        public String serviceName() {
+            return "ivschat";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
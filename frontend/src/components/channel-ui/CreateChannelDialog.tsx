@@ -15,6 +15,7 @@ import { Label } from '@/components/ui/label';
 import { Textarea } from '@/components/ui/textarea';
 import { Loader2, Plus } from 'lucide-react';
 import { channelApi } from '@/lib/api';
+import { ChannelStatusResponse } from '@/types/api';
 
 interface CreateChannelDialogProps {
   open: boolean;
@@ -33,6 +34,45 @@ interface ChannelCreateResponse {
   message: string;
 }
 
+// The server holds each status request until provisioning is over or the wait ends
+const STATUS_WAIT_MS = 20000;
+// Stop waiting after this long; the channel keeps being set up on the server
+const PROVISIONING_DEADLINE_MS = 2 * 60 * 1000;
+// Pause before asking again when a status request came back early without a final status
+const POLL_BACKOFF_MIN_MS = 1000;
+const POLL_BACKOFF_MAX_MS = 10000;
+
+const sleep = (ms: number) => new Promise(resolve => setTimeout(resolve, ms));
+
+// Long-polls the provisioning status of a new channel until it is ACTIVE, FAILED or UNKNOWN;
+// answers PROVISIONING if it is still being set up at the deadline
+async function waitForProvisioning(channelId: string): Promise<ChannelStatusResponse['status']> {
+  const deadline = Date.now() + PROVISIONING_DEADLINE_MS;
+  let backoffMs = POLL_BACKOFF_MIN_MS;
+  for (;;) {
+    const remainingMs = deadline - Date.now();
+    if (remainingMs <= 0) {
+      return 'PROVISIONING';
+    }
+    const waitMs = Math.min(STATUS_WAIT_MS, remainingMs);
+    const startedAt = Date.now();
+    const { data } = await channelApi.get<ChannelStatusResponse>(`/channels/${channelId}/status`, {
+      params: { waitMs },
+      timeout: waitMs + 5000,
+    });
+    if (data.status !== 'PROVISIONING') {
+      return data.status;
+    }
+    // An answer well before the wait was over would otherwise turn this into a busy loop
+    if (Date.now() - startedAt < waitMs / 2) {
+      await sleep(Math.min(backoffMs, Math.max(0, deadline - Date.now())));
+      backoffMs = Math.min(backoffMs * 2, POLL_BACKOFF_MAX_MS);
+    } else {
+      backoffMs = POLL_BACKOFF_MIN_MS;
+    }
+  }
+}
+
 export function CreateChannelDialog({ open, onOpenChange, onChannelCreated }: CreateChannelDialogProps) {  const [formData, setFormData] = useState<ChannelCreateRequest>({
     name: '',
     description: '',
@@ -140,6 +180,19 @@ export function CreateChannelDialog({ open, onOpenChange, onChannelCreated }: Cr
       });
 
       if (response.data) {
+        // The IVS channel and chat room are created in the background
+        const status = await waitForProvisioning(response.data.channelId);
+        if (status === 'FAILED') {
+          setError('Channel setup failed. Please try again.');
+          return;
+        }
+        if (status !== 'ACTIVE') {
+          // Still PROVISIONING at the deadline, or UNKNOWN: the header shows the channel as being set up
+          setError('Your channel is still being set up. Check back in a few minutes.');
+          onChannelCreated?.();
+          return;
+        }
+
         // Reset form
         setFormData({
           name: '',
@@ -10,7 +10,7 @@ import Link from "next/link";
 
 export function ChannelStatusButton(){
   const { isAuthenticated, isLoading: authLoading } = useAuth();
-  const { userChannel, isLoading: channelLoading, refresh } = useUserChannel();
+  const { userChannel, provisioning, isLoading: channelLoading, refresh } = useUserChannel();
   const [isCreateDialogOpen, setIsCreateDialogOpen] = useState(false);
 
   const handleChannelCreated = () => {
@@ -45,6 +45,16 @@ export function ChannelStatusButton(){
     );
   }
 
+  // Channel is still being set up - nothing to open yet
+  if (provisioning) {
+    return (
+      <Button disabled variant="outline" className="gap-2">
+        <Loader2 className="h-4 w-4 animate-spin" />
+        Setting up channel...
+      </Button>
+    );
+  }
+
   // User doesn't have a channel (error 404 or no data) - show Create Channel button
   return (
     <>
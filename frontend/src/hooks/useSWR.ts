@@ -4,12 +4,20 @@ import React from 'react';
 // SWR configuration with Axios
 import useSWR from 'swr';
 import { channelApi, streamApi } from '@/lib/api';
-import { ChannelPreviewDTO, StreamConnectionInfo, PaginatedResponse, StreamWithChannelDto } from '@/types/api';
+import { ChannelPreviewDTO, ChannelStatusResponse, StreamConnectionInfo, PaginatedResponse, StreamWithChannelDto } from '@/types/api';
 
 
 // Channel API fetcher
 const channelFetcher = (url: string) => channelApi.get(url).then(res => res.data);
 
+// my-channel answers 202 with the provisioning status while the channel is not ready yet
+type UserChannelResponse = { channel?: ChannelPreviewDTO; provisioning?: ChannelStatusResponse };
+const userChannelFetcher = (url: string) => channelApi.get(url).then((res): UserChannelResponse =>
+  res.status === 202 ? { provisioning: res.data } : { channel: res.data });
+
+// Check back on a channel being set up
+const PROVISIONING_REFRESH_MS = 15000;
+
 // Stream API fetcher
 const streamFetcher = (url: string) => streamApi.get(url).then(res => res.data);
 
@@ -101,18 +109,20 @@ export function usePastStreams(page: number = 0, size: number = 10) {
 
 // New hook for user's channel status
 export function useUserChannel() {
-  const { data, error, isLoading, mutate } = useSWR<ChannelPreviewDTO>(
+  const { data, error, isLoading, mutate } = useSWR<UserChannelResponse>(
     `channels/my-channel`,
-    channelFetcher,
+    userChannelFetcher,
     {
       revalidateOnFocus: false,
       revalidateOnReconnect: true,
       shouldRetryOnError: false, // Don't retry on 404 (no channel)
+      refreshInterval: latest => (latest?.provisioning ? PROVISIONING_REFRESH_MS : 0),
     }
   );
 
   return {
-    userChannel: data,
+    userChannel: data?.channel,
+    provisioning: data?.provisioning,
     isLoading,
     error,
     refresh: mutate
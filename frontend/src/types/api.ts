@@ -79,6 +79,12 @@ export interface ChannelPreviewDTO {
   avatarUrl?: string;
 }
 
+// Provisioning status of the user's channel; UNKNOWN: still being set up, but nothing is working on it right now
+export interface ChannelStatusResponse {
+  channelId: string;
+  status: 'PROVISIONING' | 'ACTIVE' | 'FAILED' | 'UNKNOWN';
+}
+
 // Stream connection info for streamers
 export interface StreamConnectionInfo {
   channelId: string;
@@ -0,0 +1,25 @@
+package com.loadtest.ivs_event_storm;
+
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import com.channel.channel_service.controller.IvsEventsController;
+import com.channel.channel_service.entities.Channel;
+import com.channel.channel_service.repositories.ChannelRepository;
+import com.channel.channel_service.services.ChannelLiveStateService;
+import com.channel.channel_service.services.ChannelLookupIndex;
+
+/**
+ * The part of channel-service that IVS events reach: its IvsEventsController, the services behind it and the channel tables
+ * The rest of channel-service (AWS clients, gRPC server) is left out, so it runs without AWS credentials.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EntityScan(basePackageClasses = Channel.class)
+@EnableJpaRepositories(basePackageClasses = ChannelRepository.class)
+@Import({IvsEventsController.class, ChannelLiveStateService.class, ChannelLookupIndex.class})
+public class ChannelWebhookApplication {
+}
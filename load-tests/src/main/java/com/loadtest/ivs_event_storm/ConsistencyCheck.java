@@ -0,0 +1,102 @@
+package com.loadtest.ivs_event_storm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.channel.channel_service.entities.Channel;
+import com.stream.stream_service.entities.Stream;
+
+/**
+ * Compares the rows left by the storm with the plan
+ * stream-service, per session (AWS stream ID):
+ * - exactly one Stream row, with the channel of the session
+ * - is_live only for sessions left live
+ * - a thumbnail once Recording Start is applied, a VOD URL for every ended session
+ * channel-service: the live flag of each channel is the state of its last session.
+ */
+public class ConsistencyCheck {
+
+    private final List<String> problems = new ArrayList<>();
+    private final Map<String, Integer> counts = new LinkedHashMap<>();
+
+    public static ConsistencyCheck run(EventPlan plan, List<Stream> streams, List<Channel> channels) {
+        ConsistencyCheck check = new ConsistencyCheck();
+        check.checkStreams(plan, streams);
+        check.checkChannels(plan, channels);
+        return check;
+    }
+
+    public boolean isConsistent() {
+        return problems.isEmpty();
+    }
+
+    public String summary(int maxExamples) {
+        StringBuilder summary = new StringBuilder();
+        counts.forEach((name, count) -> summary.append("  ").append(name).append(": ").append(count).append('\n'));
+        if (problems.isEmpty()) {
+            return summary.append("  consistent").toString();
+        }
+        summary.append("  ").append(problems.size()).append(" inconsistencies, e.g.:");
+        problems.stream().limit(maxExamples).forEach(problem -> summary.append("\n    ").append(problem));
+        return summary.toString();
+    }
+
+    private void checkStreams(EventPlan plan, List<Stream> streams) {
+        Map<String, List<Stream>> byAwsStreamId = new HashMap<>();
+        for (Stream stream : streams) {
+            byAwsStreamId.computeIfAbsent(stream.getAwsStreamId(), id -> new ArrayList<>()).add(stream);
+        }
+        for (EventPlan.Session session : plan.getSessions()) {
+            List<Stream> rows = byAwsStreamId.getOrDefault(session.getAwsStreamId(), List.of());
+            if (rows.isEmpty()) {
+                problem("stream rows missing", session.getAwsStreamId() + ": no Stream row");
+                continue;
+            }
+            if (rows.size() > 1) {
+                problem("duplicate stream rows", session.getAwsStreamId() + ": " + rows.size() + " Stream rows");
+            }
+            Stream stream = rows.get(0);
+            if (!session.getChannel().getChannelId().equals(stream.getChannelId())) {
+                problem("wrong channel", session.getAwsStreamId() + ": channel " + stream.getChannelId());
+            }
+            if (session.isLive() != Boolean.TRUE.equals(stream.getIsLive())) {
+                problem(session.isLive() ? "streams ended but still live" : "streams still live after end",
+                        session.getAwsStreamId() + ": is_live=" + stream.getIsLive() + ", expected " + session.isLive());
+            }
+            if (stream.getThumbnailUrl() == null) {
+                problem("thumbnails missing", session.getAwsStreamId() + ": no thumbnail");
+            }
+            if (!session.isLive() && stream.getVodUrl() == null) {
+                problem("VOD URLs missing", session.getAwsStreamId() + ": ended without VOD URL");
+            }
+        }
+        counts.put("sessions", plan.getSessions().size());
+        counts.put("stream rows", streams.size());
+        counts.put("live streams", (int) streams.stream().filter(stream -> Boolean.TRUE.equals(stream.getIsLive())).count());
+        counts.put("expected live streams", (int) plan.getSessions().stream().filter(EventPlan.Session::isLive).count());
+    }
+
+    private void checkChannels(EventPlan plan, List<Channel> channels) {
+        Map<String, Channel> byArn = new HashMap<>();
+        channels.forEach(channel -> byArn.put(channel.getArn(), channel));
+        for (EventPlan.PlannedChannel planned : plan.getChannels()) {
+            Channel channel = byArn.get(planned.getArn());
+            if (channel == null) {
+                problem("channel rows missing", planned.getArn() + ": no Channel row");
+            } else if (channel.isLive() != planned.isLive()) {
+                problem(planned.isLive() ? "channels offline but streaming" : "channels live after end",
+                        planned.getArn() + ": isLive=" + channel.isLive() + ", expected " + planned.isLive());
+            }
+        }
+        counts.put("live channels", (int) channels.stream().filter(Channel::isLive).count());
+        counts.put("expected live channels", (int) plan.getChannels().stream().filter(EventPlan.PlannedChannel::isLive).count());
+    }
+
+    private void problem(String kind, String example) {
+        counts.merge(kind, 1, Integer::sum);
+        problems.add(example);
+    }
+}
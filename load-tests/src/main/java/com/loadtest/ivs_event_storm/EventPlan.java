@@ -0,0 +1,232 @@
+package com.loadtest.ivs_event_storm;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A replayable IVS event storm: the channels, their sessions, and every delivery with its send time
+ * Each session emits Stream Start, Recording Start, Stream End and Recording End, in that order before
+ * disorder is applied. EventBridge delivers to each target independently, so:
+ * - Stream state events are delivered to both services, recording events to stream-service only
+ * - Every delivery gets its own jitter, and may be duplicated
+ * - Reordering swaps an event with the next one of its session, for all of its deliveries
+ * Sessions of one channel follow each other without overlapping; the last session of a share of the
+ * channels stays live (its End events are never sent).
+ */
+public class EventPlan {
+
+    public enum Target {
+        STREAM_STATE_TO_STREAM_SERVICE("stream-service POST /api/ivs-events"),
+        STREAM_STATE_TO_CHANNEL_SERVICE("channel-service POST /api/ivs-events"),
+        RECORDING_TO_STREAM_SERVICE("stream-service POST /api/ivs-events/recording");
+
+        private final String label;
+
+        Target(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    public static final String REGION = "eu-west-1";
+    private static final String ACCOUNT = "123456789012";
+    private static final String[] EVENT_NAMES = {"Stream Start", "Recording Start", "Stream End", "Recording End"};
+
+    public static final class PlannedChannel {
+        private final String channelId;
+        private final String arn;
+        private final String name;
+        private final String userId;
+        private boolean live;
+
+        private PlannedChannel(int index) {
+            this.channelId = new UUID(0x5701L, index).toString();
+            this.arn = "arn:aws:ivs:" + REGION + ":" + ACCOUNT + ":channel/storm" + Integer.toString(index, 36);
+            this.name = "storm_channel_" + index;
+            this.userId = "storm-user-" + index;
+        }
+
+        public String getChannelId() { return channelId; }
+        public String getArn() { return arn; }
+        public String getName() { return name; }
+        public String getUserId() { return userId; }
+
+        /** Live flag expected once the storm has been applied */
+        public boolean isLive() { return live; }
+    }
+
+    public static final class Session {
+        private final PlannedChannel channel;
+        private final String awsStreamId;
+        private final boolean live;
+
+        private Session(PlannedChannel channel, String awsStreamId, boolean live) {
+            this.channel = channel;
+            this.awsStreamId = awsStreamId;
+            this.live = live;
+        }
+
+        public PlannedChannel getChannel() { return channel; }
+        public String getAwsStreamId() { return awsStreamId; }
+
+        /** True if the session is still live at the end: no Stream End and no Recording End are sent */
+        public boolean isLive() { return live; }
+    }
+
+    public static final class Delivery {
+        private final long sendAtMs;
+        private final Target target;
+        private final byte[] body;
+
+        private Delivery(long sendAtMs, Target target, byte[] body) {
+            this.sendAtMs = sendAtMs;
+            this.target = target;
+            this.body = body;
+        }
+
+        /** Send time, in ms from the start of the storm */
+        public long getSendAtMs() { return sendAtMs; }
+        public Target getTarget() { return target; }
+        public byte[] getBody() { return body; }
+    }
+
+    private final List<PlannedChannel> channels;
+    private final List<Session> sessions;
+    private final List<Delivery> deliveries;
+
+    private EventPlan(List<PlannedChannel> channels, List<Session> sessions, List<Delivery> deliveries) {
+        this.channels = channels;
+        this.sessions = sessions;
+        this.deliveries = deliveries;
+    }
+
+    public List<PlannedChannel> getChannels() { return channels; }
+    public List<Session> getSessions() { return sessions; }
+
+    /** Deliveries by send time */
+    public List<Delivery> getDeliveries() { return deliveries; }
+
+    public static EventPlan generate(StormOptions options, ObjectMapper objectMapper) {
+        Random random = new Random(options.seed());
+        int channelCount = Math.max(1, Math.min(options.channels(), options.sessions()));
+        List<PlannedChannel> channels = new ArrayList<>(channelCount);
+        for (int i = 0; i < channelCount; i++) {
+            channels.add(new PlannedChannel(i));
+        }
+        Map<PlannedChannel, Boolean> endsLive = new HashMap<>();
+        channels.forEach(channel -> endsLive.put(channel, random.nextDouble() < options.liveFraction()));
+
+        // 6 deliveries per session before duplicates: two starts, two ends, two recording events
+        long durationMs = Math.max(1L, options.sessions() * 6_000L / Math.max(1, options.rate()));
+        int slots = (options.sessions() + channelCount - 1) / channelCount;
+        double slotMs = (double) durationMs / slots;
+
+        List<Session> sessions = new ArrayList<>(options.sessions());
+        List<Delivery> deliveries = new ArrayList<>(options.sessions() * 7);
+        for (int k = 0; k < options.sessions(); k++) {
+            PlannedChannel channel = channels.get(k % channelCount);
+            int slot = k / channelCount;
+            boolean lastOfChannel = k + channelCount >= options.sessions();
+            boolean live = lastOfChannel && endsLive.get(channel);
+            String awsStreamId = "st-" + Long.toString(random.nextLong() & Long.MAX_VALUE, 36);
+            Session session = new Session(channel, awsStreamId, live);
+            sessions.add(session);
+            if (lastOfChannel) {
+                channel.live = live;
+            }
+
+            // Nominal times within the slot, then reordering
+            double start = slot * slotMs + random.nextDouble() * 0.05 * slotMs;
+            double[] times = {start, start + 0.02 * slotMs, start + 0.8 * slotMs, start + 0.85 * slotMs};
+            int events = live ? 2 : 4;
+            for (int i = 0; i + 1 < events; i++) {
+                if (random.nextDouble() < options.reorder()) {
+                    double swapped = times[i];
+                    times[i] = times[i + 1];
+                    times[i + 1] = swapped;
+                }
+            }
+
+            for (int i = 0; i < events; i++) {
+                boolean recording = i == 1 || i == 3;
+                if (recording) {
+                    byte[] body = recordingEvent(objectMapper, session, EVENT_NAMES[i], random);
+                    addDeliveries(deliveries, times[i], Target.RECORDING_TO_STREAM_SERVICE, body, options, random);
+                } else {
+                    byte[] body = streamStateEvent(objectMapper, session, EVENT_NAMES[i], random);
+                    addDeliveries(deliveries, times[i], Target.STREAM_STATE_TO_STREAM_SERVICE, body, options, random);
+                    addDeliveries(deliveries, times[i], Target.STREAM_STATE_TO_CHANNEL_SERVICE, body, options, random);
+                }
+            }
+        }
+        deliveries.sort(Comparator.comparingLong(Delivery::getSendAtMs));
+        return new EventPlan(channels, sessions, deliveries);
+    }
+
+    private static void addDeliveries(List<Delivery> deliveries, double timeMs, Target target, byte[] body,
+                                      StormOptions options, Random random) {
+        long sendAt = Math.round(timeMs) + (long) (random.nextDouble() * options.jitterMs());
+        deliveries.add(new Delivery(sendAt, target, body));
+        if (random.nextDouble() < options.duplicate()) {
+            // Redeliveries come later than the original, up to a second or the jitter
+            deliveries.add(new Delivery(sendAt + (long) (random.nextDouble() * Math.max(1000, options.jitterMs())), target, body));
+        }
+    }
+
+    private static byte[] streamStateEvent(ObjectMapper objectMapper, Session session, String eventName, Random random) {
+        ObjectNode event = envelope(objectMapper, "IVS Stream State Change", session, random);
+        ObjectNode detail = event.putObject("detail");
+        detail.put("event_name", eventName);
+        detail.put("channel_name", session.channel.name);
+        detail.put("stream_id", session.awsStreamId);
+        return write(objectMapper, event);
+    }
+
+    private static byte[] recordingEvent(ObjectMapper objectMapper, Session session, String status, Random random) {
+        ObjectNode event = envelope(objectMapper, "IVS Recording State Change", session, random);
+        ObjectNode detail = event.putObject("detail");
+        detail.put("recording_status", status);
+        detail.put("recording_status_reason", "");
+        detail.put("recording_s3_bucket_name", "ivs-storm-recordings");
+        detail.put("recording_s3_key_prefix", "ivs/v1/" + ACCOUNT + "/" + session.awsStreamId);
+        detail.put("recording_duration_ms", "Recording End".equals(status) ? random.nextInt(10_000_000) : 0);
+        detail.put("channel_name", session.channel.name);
+        detail.put("stream_id", session.awsStreamId);
+        detail.put("recording_session_id", new UUID(random.nextLong(), random.nextLong()).toString());
+        detail.putArray("recording_session_stream_ids").add(session.awsStreamId);
+        return write(objectMapper, event);
+    }
+
+    private static ObjectNode envelope(ObjectMapper objectMapper, String detailType, Session session, Random random) {
+        ObjectNode event = objectMapper.createObjectNode();
+        event.put("version", "0");
+        event.put("id", new UUID(random.nextLong(), random.nextLong()).toString());
+        event.put("detail-type", detailType);
+        event.put("source", "aws.ivs");
+        event.put("account", ACCOUNT);
+        event.put("time", "2025-01-01T00:00:00Z");
+        event.put("region", REGION);
+        event.putArray("resources").add(session.channel.arn);
+        return event;
+    }
+
+    private static byte[] write(ObjectMapper objectMapper, ObjectNode event) {
+        try {
+            return objectMapper.writeValueAsBytes(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.loadtest.ivs_event_storm;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.grpc.ArnList;
+import com.example.grpc.ArnRequest;
+import com.example.grpc.ChannelArn;
+import com.example.grpc.ChannelArnList;
+import com.example.grpc.ChannelIdList;
+import com.example.grpc.ChannelPreview;
+import com.example.grpc.ChannelPreviewList;
+import com.example.grpc.ChannelResponse;
+import com.example.grpc.ChannelServiceGrpc;
+import com.example.grpc.UserIdRequest;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * In-process stand-in for the channel-service gRPC API, serving the storm's channels
+ * stream-service resolves channel ARNs through it when it applies Stream Start events.
+ * Unknown ids and ARNs are left out of list responses and NOT_FOUND for single lookups, like channel-service.
+ */
+public class FakeChannelService extends ChannelServiceGrpc.ChannelServiceImplBase {
+
+    private final Map<String, ChannelResponse> byId = new HashMap<>();
+    private final Map<String, ChannelResponse> byArn = new HashMap<>();
+    private final Map<String, ChannelResponse> byUserId = new HashMap<>();
+    private final LongAdder calls = new LongAdder();
+
+    public FakeChannelService(List<EventPlan.PlannedChannel> channels) {
+        for (EventPlan.PlannedChannel channel : channels) {
+            ChannelResponse response = ChannelResponse.newBuilder()
+                    .setChannelId(channel.getChannelId())
+                    .setName(channel.getName())
+                    .setPlaybackUrl("https://storm.playback.live-video.net/api/video/v1/" + channel.getName() + ".m3u8")
+                    .setAvatarUrl("")
+                    .build();
+            byId.put(channel.getChannelId(), response);
+            byArn.put(channel.getArn(), response);
+            byUserId.put(channel.getUserId(), response);
+        }
+    }
+
+    /**
+     * @return Number of RPCs served so far
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public void getChannelPreviewsByIds(ChannelIdList request, StreamObserver<ChannelPreviewList> responseObserver) {
+        calls.increment();
+        ChannelPreviewList.Builder previews = ChannelPreviewList.newBuilder();
+        for (String id : request.getIdsList()) {
+            ChannelResponse channel = byId.get(id);
+            if (channel != null) {
+                previews.addPreviews(ChannelPreview.newBuilder()
+                        .setChannelId(channel.getChannelId())
+                        .setName(channel.getName())
+                        .setPlaybackUrl(channel.getPlaybackUrl())
+                        .setAvatarUrl(channel.getAvatarUrl()));
+            }
+        }
+        responseObserver.onNext(previews.build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void getChannelByUserId(UserIdRequest request, StreamObserver<ChannelResponse> responseObserver) {
+        single(byUserId.get(request.getUserId()), responseObserver);
+    }
+
+    @Override
+    public void getChannelByArn(ArnRequest request, StreamObserver<ChannelResponse> responseObserver) {
+        single(byArn.get(request.getArn()), responseObserver);
+    }
+
+    @Override
+    public void getChannelsByArns(ArnList request, StreamObserver<ChannelArnList> responseObserver) {
+        calls.increment();
+        ChannelArnList.Builder channels = ChannelArnList.newBuilder();
+        for (String arn : request.getArnsList()) {
+            ChannelResponse channel = byArn.get(arn);
+            if (channel != null) {
+                channels.addChannels(ChannelArn.newBuilder().setArn(arn).setChannel(channel));
+            }
+        }
+        responseObserver.onNext(channels.build());
+        responseObserver.onCompleted();
+    }
+
+    private void single(ChannelResponse channel, StreamObserver<ChannelResponse> responseObserver) {
+        calls.increment();
+        if (channel == null) {
+            responseObserver.onError(Status.NOT_FOUND.withDescription("Channel not found").asRuntimeException());
+            return;
+        }
+        responseObserver.onNext(channel);
+        responseObserver.onCompleted();
+    }
+}
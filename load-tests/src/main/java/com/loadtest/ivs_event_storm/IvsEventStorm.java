@@ -0,0 +1,197 @@
+package com.loadtest.ivs_event_storm;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import com.channel.channel_service.entities.Channel;
+import com.channel.channel_service.repositories.ChannelRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stream.stream_service.StreamServiceApplication;
+import com.stream.stream_service.repositories.StreamRepository;
+import com.stream.stream_service.services.IvsIngestionService;
+
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * IVS event storm replayer
+ * Starts stream-service and the IVS webhook of channel-service in this JVM, each on an embedded PostgreSQL,
+ * with stream-service resolving channels through an in-process fake of the channel-service gRPC API.
+ * Then replays an EventPlan over HTTP at the target rate and reports:
+ * - response and service time percentiles per endpoint
+ * - stream-service ingestion latency (accepted to applied, from its ivs.ingest.latency timer)
+ * - how long the services took to settle, and the final consistency of the Stream and Channel live flags
+ * Exits with status 1 if the final state is inconsistent.
+ */
+public class IvsEventStorm {
+
+    private static final String FAKE_CHANNEL_SERVER = "ivs-event-storm-channel-service";
+    private static final int MAX_EXAMPLES = 10;
+
+    public static void main(String[] args) throws Exception {
+        StormOptions options = new StormOptions(args);
+        PrintStream console = System.out;
+        PrintStream errors = System.err;
+        console.println("IVS event storm: " + options);
+
+        EventPlan plan = EventPlan.generate(options, new ObjectMapper());
+        console.println("Planned " + plan.getSessions().size() + " sessions on " + plan.getChannels().size()
+                + " channels, " + plan.getDeliveries().size() + " deliveries");
+
+        if (options.quiet()) {
+            // The embedded databases and both services log every event on the console
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        }
+        Path workDir = Files.createTempDirectory("ivs-event-storm");
+        boolean consistent;
+        try (EmbeddedPostgres streamDb = EmbeddedPostgres.start();
+             EmbeddedPostgres channelDb = EmbeddedPostgres.start()) {
+            FakeChannelService fakeChannelService = new FakeChannelService(plan.getChannels());
+            Server channelGrpc = InProcessServerBuilder.forName(FAKE_CHANNEL_SERVER)
+                    .directExecutor()
+                    .addService(fakeChannelService)
+                    .build()
+                    .start();
+            ConfigurableApplicationContext streamService = null;
+            ConfigurableApplicationContext channelService = null;
+            try {
+                streamService = startStreamService(options, streamDb, workDir);
+                channelService = startChannelService(options, channelDb);
+                seedChannels(plan, channelService.getBean(ChannelRepository.class));
+
+                StormDriver driver = new StormDriver(
+                        baseUrl(streamService), baseUrl(channelService), options.concurrency(), options.maxAttempts());
+                long sendMs = driver.run(plan.getDeliveries());
+                long plannedMs = plan.getDeliveries().isEmpty() ? 0
+                        : plan.getDeliveries().get(plan.getDeliveries().size() - 1).getSendAtMs();
+
+                long settleStart = System.nanoTime();
+                ConsistencyCheck check = settle(plan, streamService, channelService, options.settleTimeoutMs());
+                long settleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - settleStart);
+                consistent = check.isConsistent();
+
+                console.println();
+                console.println("Sent in " + sendMs + " ms (planned " + plannedMs + " ms), "
+                        + String.format("%.0f", plan.getDeliveries().size() * 1000.0 / Math.max(1, sendMs)) + " deliveries/s");
+                driver.getRecorders().values().forEach(recorder -> console.println(recorder.summary()));
+                console.println(ingestLatency(streamService.getBean(MeterRegistry.class)));
+                console.println("Channel gRPC calls from stream-service: " + fakeChannelService.getCalls());
+                console.println((consistent ? "Settled in " : "Not consistent after ") + settleMs + " ms");
+                console.println(check.summary(MAX_EXAMPLES));
+            } finally {
+                if (channelService != null) {
+                    channelService.close();
+                }
+                if (streamService != null) {
+                    streamService.close();
+                }
+                channelGrpc.shutdownNow();
+            }
+        } finally {
+            System.setOut(console);
+            System.setErr(errors);
+            FileSystemUtils.deleteRecursively(workDir);
+        }
+        System.exit(consistent ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext startStreamService(StormOptions options, EmbeddedPostgres db, Path workDir) {
+        List<String> args = new ArrayList<>(commonArgs(options, db));
+        args.add("--grpc.client.channelService.address=in-process:" + FAKE_CHANNEL_SERVER);
+        args.add("--stream.ivs-log.dir=" + workDir.resolve("ivs-log"));
+        args.add("--stream.deferred.dir=" + workDir.resolve("deferred-tasks"));
+        args.add("--stream.ivs-ingest.thumbnail-delay-ms=" + options.thumbnailDelayMs());
+        args.add("--management.metrics.distribution.percentiles.ivs.ingest=0.5,0.9,0.99,0.999");
+        return new SpringApplicationBuilder(StreamServiceApplication.class).run(args.toArray(String[]::new));
+    }
+
+    private static ConfigurableApplicationContext startChannelService(StormOptions options, EmbeddedPostgres db) {
+        List<String> args = new ArrayList<>(commonArgs(options, db));
+        // The stream-service application.properties is on the classpath too; these override what it sets
+        args.add("--spring.application.name=channel-service");
+        args.add("--spring.jpa.hibernate.ddl-auto=create");
+        args.add("--spring.flyway.enabled=false");
+        return new SpringApplicationBuilder(ChannelWebhookApplication.class).run(args.toArray(String[]::new));
+    }
+
+    // Command line arguments, so they take precedence over the application.properties on the classpath
+    private static List<String> commonArgs(StormOptions options, EmbeddedPostgres db) {
+        List<String> args = new ArrayList<>();
+        args.add("--server.port=0");
+        args.add("--spring.datasource.url=" + db.getJdbcUrl("postgres", "postgres"));
+        args.add("--spring.datasource.username=postgres");
+        args.add("--spring.datasource.password=");
+        args.add("--spring.jpa.show-sql=false");
+        // Both services' gRPC starters are on the classpath; neither needs to listen
+        args.add("--grpc.server.port=-1");
+        if (options.quiet()) {
+            args.add("--spring.main.banner-mode=off");
+            args.add("--logging.level.root=WARN");
+        }
+        return args;
+    }
+
+    private static void seedChannels(EventPlan plan, ChannelRepository channelRepository) {
+        List<Channel> channels = new ArrayList<>(plan.getChannels().size());
+        for (EventPlan.PlannedChannel planned : plan.getChannels()) {
+            Channel channel = new Channel();
+            channel.setChannelId(planned.getChannelId());
+            channel.setName(planned.getName());
+            channel.setArn(planned.getArn());
+            channel.setUserId(planned.getUserId());
+            channel.setLive(false);
+            channels.add(channel);
+        }
+        channelRepository.saveAll(channels);
+    }
+
+    // Stream-service applies events asynchronously: poll until its queues are empty and the state matches the plan
+    private static ConsistencyCheck settle(EventPlan plan, ConfigurableApplicationContext streamService,
+                                           ConfigurableApplicationContext channelService, long timeoutMs) throws InterruptedException {
+        IvsIngestionService ingestion = streamService.getBean(IvsIngestionService.class);
+        StreamRepository streamRepository = streamService.getBean(StreamRepository.class);
+        ChannelRepository channelRepository = channelService.getBean(ChannelRepository.class);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (true) {
+            ConsistencyCheck check = ConsistencyCheck.run(plan, streamRepository.findAll(), channelRepository.findAll());
+            if ((ingestion.getQueued() == 0 && check.isConsistent()) || System.nanoTime() >= deadline) {
+                return check;
+            }
+            Thread.sleep(500);
+        }
+    }
+
+    private static String ingestLatency(MeterRegistry registry) {
+        StringBuilder summary = new StringBuilder("stream-service ingestion (accepted to applied)");
+        for (Timer timer : registry.find("ivs.ingest.latency").timers()) {
+            summary.append("\n  ").append(timer.getId().getTag("type")).append(" count=").append(timer.count()).append(' ');
+            for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+                summary.append(LatencyRecorder.label(value.percentile()))
+                        .append(String.format("=%.1f ", value.value(TimeUnit.MILLISECONDS)));
+            }
+            summary.append(String.format("max=%.1f ms", timer.max(TimeUnit.MILLISECONDS)));
+        }
+        return summary.toString();
+    }
+
+    private static URI baseUrl(ConfigurableApplicationContext context) {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        return URI.create("http://localhost:" + port);
+    }
+}
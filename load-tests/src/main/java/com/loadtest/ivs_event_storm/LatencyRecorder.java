@@ -0,0 +1,117 @@
+package com.loadtest.ivs_event_storm;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Latencies and outcomes of the deliveries to one endpoint
+ * Two latencies are kept per attempt:
+ * - response time, from the intended send time: includes the time a delivery waited for a free slot,
+ *   so a slow service is not hidden by the driver falling behind schedule (coordinated omission)
+ * - service time, from the moment the request was actually sent
+ */
+public class LatencyRecorder {
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final String name;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long[] responseNanos = new long[1024];
+    private long[] serviceNanos = new long[1024];
+    private int count;
+    private final Map<Integer, Integer> statuses = new TreeMap<>();
+    private int transportErrors;
+    private int retries;
+    private int failures;
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    public void recordResponse(int status, long responseNanos, long serviceNanos) {
+        lock.lock();
+        try {
+            if (count == this.responseNanos.length) {
+                this.responseNanos = Arrays.copyOf(this.responseNanos, count * 2);
+                this.serviceNanos = Arrays.copyOf(this.serviceNanos, count * 2);
+            }
+            this.responseNanos[count] = responseNanos;
+            this.serviceNanos[count] = serviceNanos;
+            count++;
+            statuses.merge(status, 1, Integer::sum);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void recordTransportError() {
+        lock.lock();
+        try {
+            transportErrors++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void recordRetry() {
+        lock.lock();
+        try {
+            retries++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A delivery was given up after its last attempt
+     */
+    public void recordFailure() {
+        lock.lock();
+        try {
+            failures++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String summary() {
+        lock.lock();
+        try {
+            StringBuilder summary = new StringBuilder(name).append('\n');
+            summary.append("  responses ").append(count).append(' ').append(statuses)
+                    .append(", transport errors ").append(transportErrors)
+                    .append(", retries ").append(retries)
+                    .append(", given up ").append(failures).append('\n');
+            summary.append("  response time ").append(percentiles(responseNanos)).append('\n');
+            summary.append("  service time  ").append(percentiles(serviceNanos));
+            return summary.toString();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String percentiles(long[] nanos) {
+        if (count == 0) {
+            return "-";
+        }
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        StringBuilder line = new StringBuilder();
+        for (double percentile : PERCENTILES) {
+            int index = (int) Math.min(count - 1, Math.ceil(percentile * count) - 1);
+            line.append(label(percentile)).append('=').append(millis(sorted[index])).append(' ');
+        }
+        return line.append("max=").append(millis(sorted[count - 1])).append(" ms").toString();
+    }
+
+    static String label(double percentile) {
+        String digits = Double.toString(percentile * 100);
+        return "p" + (digits.endsWith(".0") ? digits.substring(0, digits.length() - 2) : digits);
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1_000_000.0);
+    }
+}
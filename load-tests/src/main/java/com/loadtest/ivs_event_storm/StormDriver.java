@@ -0,0 +1,124 @@
+package com.loadtest.ivs_event_storm;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the deliveries of an EventPlan at their scheduled times
+ * - At most `concurrency` requests are in flight; when all slots are busy the schedule slips, and the
+ *   slip is counted in the response times
+ * - 5xx answers (503 when stream-service's ingest queue is full) are retried after Retry-After, or one
+ *   second, up to `maxAttempts` attempts
+ */
+public class StormDriver {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final HttpClient httpClient;
+    private final Map<EventPlan.Target, URI> uris;
+    private final Semaphore inFlight;
+    private final int maxAttempts;
+    private final Map<EventPlan.Target, LatencyRecorder> recorders = new EnumMap<>(EventPlan.Target.class);
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "storm-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public StormDriver(URI streamServiceUrl, URI channelServiceUrl, int concurrency, int maxAttempts) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+        this.uris = Map.of(
+            EventPlan.Target.STREAM_STATE_TO_STREAM_SERVICE, streamServiceUrl.resolve("/api/ivs-events"),
+            EventPlan.Target.STREAM_STATE_TO_CHANNEL_SERVICE, channelServiceUrl.resolve("/api/ivs-events"),
+            EventPlan.Target.RECORDING_TO_STREAM_SERVICE, streamServiceUrl.resolve("/api/ivs-events/recording")
+        );
+        this.inFlight = new Semaphore(concurrency);
+        this.maxAttempts = maxAttempts;
+        for (EventPlan.Target target : EventPlan.Target.values()) {
+            recorders.put(target, new LatencyRecorder(target.getLabel()));
+        }
+    }
+
+    public Map<EventPlan.Target, LatencyRecorder> getRecorders() {
+        return recorders;
+    }
+
+    /**
+     * Send every delivery and wait for its final outcome
+     * @return Achieved send duration in ms (later than planned if the services could not keep up)
+     */
+    public long run(List<EventPlan.Delivery> deliveries) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(deliveries.size());
+        long start = System.nanoTime();
+        for (EventPlan.Delivery delivery : deliveries) {
+            long intended = start + TimeUnit.MILLISECONDS.toNanos(delivery.getSendAtMs());
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(delivery, intended, 1, done);
+        }
+        long sendMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        done.await();
+        retryScheduler.shutdownNow();
+        return sendMs;
+    }
+
+    private void send(EventPlan.Delivery delivery, long intended, int attempt, CountDownLatch done) {
+        LatencyRecorder recorder = recorders.get(delivery.getTarget());
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            done.countDown();
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder(uris.get(delivery.getTarget()))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(delivery.getBody()))
+                .build();
+        long sentAt = System.nanoTime();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            inFlight.release();
+            long now = System.nanoTime();
+            boolean retryable;
+            long retryAfterMs = 1000;
+            if (error != null) {
+                recorder.recordTransportError();
+                retryable = true;
+            } else {
+                recorder.recordResponse(response.statusCode(), now - intended, now - sentAt);
+                retryable = response.statusCode() >= 500;
+                retryAfterMs = response.headers().firstValue("Retry-After")
+                        .map(seconds -> Long.parseLong(seconds) * 1000)
+                        .orElse(retryAfterMs);
+            }
+            if (!retryable) {
+                done.countDown();
+            } else if (attempt >= maxAttempts) {
+                recorder.recordFailure();
+                done.countDown();
+            } else {
+                recorder.recordRetry();
+                // Response times of retries still count from the first intended send time
+                retryScheduler.schedule(() -> send(delivery, intended, attempt + 1, done), retryAfterMs, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+}
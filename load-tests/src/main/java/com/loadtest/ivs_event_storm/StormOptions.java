@@ -0,0 +1,77 @@
+package com.loadtest.ivs_event_storm;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Storm parameters, given as --name=value
+ * - sessions: broadcasts to replay; each is Stream Start, Recording Start, Stream End, Recording End
+ * - channels: channels the sessions are spread over (sessions of one channel never overlap)
+ * - rate: target deliveries per second, over both services
+ * - concurrency: maximum requests in flight
+ * - jitter-ms: random delay added to each delivery
+ * - duplicate: probability that an event is delivered twice
+ * - reorder: probability that an event swaps its send time with the next event of its session
+ * - live-fraction: share of channels whose last session is still live at the end (no End events)
+ * - max-attempts: deliveries answered 5xx are retried, as EventBridge does, up to this many attempts
+ * - settle-timeout-ms: how long to wait for asynchronous ingestion before checking consistency
+ * - thumbnail-delay-ms: stream-service delay before applying Recording Start (thumbnail)
+ * - seed: random seed, the same seed replays the same storm
+ * - quiet: silence the services' console logging during the run
+ */
+public class StormOptions {
+
+    private static final Set<String> NAMES = Set.of(
+            "sessions", "channels", "rate", "concurrency", "jitter-ms", "duplicate", "reorder", "live-fraction",
+            "max-attempts", "settle-timeout-ms", "thumbnail-delay-ms", "seed", "quiet");
+
+    private final Map<String, String> values = new HashMap<>();
+
+    public StormOptions(String[] args) {
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            String name = arg.substring(2, separator);
+            if (!NAMES.contains(name)) {
+                throw new IllegalArgumentException("Unknown option --" + name + ", expected one of " + NAMES);
+            }
+            values.put(name, arg.substring(separator + 1));
+        }
+    }
+
+    public int sessions() { return intValue("sessions", 1000); }
+    public int channels() { return intValue("channels", 200); }
+    public int rate() { return intValue("rate", 500); }
+    public int concurrency() { return intValue("concurrency", 64); }
+    public long jitterMs() { return longValue("jitter-ms", 200); }
+    public double duplicate() { return doubleValue("duplicate", 0.05); }
+    public double reorder() { return doubleValue("reorder", 0.02); }
+    public double liveFraction() { return doubleValue("live-fraction", 0.1); }
+    public int maxAttempts() { return intValue("max-attempts", 3); }
+    public long settleTimeoutMs() { return longValue("settle-timeout-ms", 60_000); }
+    public long thumbnailDelayMs() { return longValue("thumbnail-delay-ms", 1000); }
+    public long seed() { return longValue("seed", 42); }
+    public boolean quiet() { return Boolean.parseBoolean(values.getOrDefault("quiet", "true")); }
+
+    @Override
+    public String toString() {
+        return "sessions=" + sessions() + " channels=" + channels() + " rate=" + rate() + "/s concurrency=" + concurrency()
+                + " jitter-ms=" + jitterMs() + " duplicate=" + duplicate() + " reorder=" + reorder()
+                + " live-fraction=" + liveFraction() + " seed=" + seed();
+    }
+
+    private int intValue(String name, int defaultValue) {
+        return values.containsKey(name) ? Integer.parseInt(values.get(name)) : defaultValue;
+    }
+
+    private long longValue(String name, long defaultValue) {
+        return values.containsKey(name) ? Long.parseLong(values.get(name)) : defaultValue;
+    }
+
+    private double doubleValue(String name, double defaultValue) {
+        return values.containsKey(name) ? Double.parseDouble(values.get(name)) : defaultValue;
+    }
+}
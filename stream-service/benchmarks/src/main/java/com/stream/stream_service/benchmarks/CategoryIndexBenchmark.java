@@ -0,0 +1,117 @@
+package com.stream.stream_service.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stream.stream_service.DTO.ChannelDto;
+import com.stream.stream_service.DTO.LiveDirectorySnapshot;
+import com.stream.stream_service.DTO.StreamCardDto;
+import com.stream.stream_service.DTO.StreamCardWithChannelDto;
+import com.stream.stream_service.entities.Stream;
+import com.stream.stream_service.enums.StreamCategory;
+import com.stream.stream_service.events.StreamLifecycleEvent;
+import com.stream.stream_service.services.LiveDirectoryService;
+import com.stream.stream_service.services.StreamQueryService;
+import com.stream.stream_service.services.ViewerCounterService;
+
+/**
+ * Live directory and its per-category index (LiveDirectoryService)
+ * - rebuild: full rebuild from already enriched entries (index + top N + facets + snapshot JSON)
+ * - refreshViewerCounts: one viewer refresh tick where 10% of the streams changed count
+ * - changeCategory: one UPDATED event moving a stream to another category
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CategoryIndexBenchmark {
+
+    private static final StreamCategory[] CATEGORIES = StreamCategory.values();
+
+    @Param({"10", "1000", "100000"})
+    private int streams;
+
+    private LiveDirectoryService liveDirectoryService;
+    private List<StreamCardDto> cards;
+    private final Map<String, Long> counts = new ConcurrentHashMap<>();
+    private int tick;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cards = SyntheticData.cards(streams, streams, 6L);
+        Map<String, ChannelDto> channels = SyntheticData.channels(streams).stream()
+                .collect(Collectors.toMap(ChannelDto::getChannelId, Function.identity()));
+        List<StreamCardWithChannelDto> entries = cards.stream()
+                .map(card -> new StreamCardWithChannelDto(card, channels.get(card.getChannelId())))
+                .toList();
+        cards.forEach(card -> counts.put(card.getId(), card.getViewers()));
+
+        liveDirectoryService = new LiveDirectoryService();
+        SyntheticData.inject(liveDirectoryService, "streamQueryService", new StreamQueryService() {
+            @Override
+            public List<StreamCardWithChannelDto> getLiveStreams() {
+                return entries;
+            }
+        });
+        SyntheticData.inject(liveDirectoryService, "viewerCounterService", new ViewerCounterService() {
+            @Override
+            public long peekCount(String streamId) {
+                return counts.getOrDefault(streamId, -1L);
+            }
+        });
+        SyntheticData.inject(liveDirectoryService, "objectMapper", SyntheticData.objectMapper());
+        SyntheticData.inject(liveDirectoryService, "categoryTopN", 100);
+        liveDirectoryService.rebuild();
+    }
+
+    @Benchmark
+    public LiveDirectorySnapshot rebuild() {
+        return liveDirectoryService.rebuild();
+    }
+
+    @Benchmark
+    public LiveDirectorySnapshot refreshViewerCounts() {
+        int offset = tick++ % 10;
+        for (int i = offset; i < cards.size(); i += 10) {
+            counts.merge(cards.get(i).getId(), 1L, Long::sum);
+        }
+        liveDirectoryService.refreshViewerCounts();
+        return liveDirectoryService.getSnapshot();
+    }
+
+    @Benchmark
+    public LiveDirectorySnapshot changeCategory() {
+        int index = tick++;
+        StreamCardDto card = cards.get(index % cards.size());
+        Stream stream = new Stream();
+        stream.setId(card.getId());
+        stream.setChannelId(card.getChannelId());
+        stream.setTitle(card.getTitle());
+        stream.setThumbnailUrl(card.getThumbnailUrl());
+        stream.setIsLive(true);
+        stream.setViewers(counts.get(card.getId()));
+        stream.setCategory(CATEGORIES[index % CATEGORIES.length]);
+        stream.setStartedAt(card.getStartedAt());
+        liveDirectoryService.onStreamLifecycle(new StreamLifecycleEvent(StreamLifecycleEvent.Type.UPDATED, stream));
+        return liveDirectoryService.getSnapshot();
+    }
+}
@@ -0,0 +1,118 @@
+package com.stream.stream_service.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Pageable;
+
+import com.stream.stream_service.DTO.ChannelDto;
+import com.stream.stream_service.DTO.PaginatedStreamResponse;
+import com.stream.stream_service.DTO.StreamCardDto;
+import com.stream.stream_service.DTO.StreamCardWithChannelDto;
+import com.stream.stream_service.gRPC.ChannelGrpcClient;
+import com.stream.stream_service.gRPC.ChannelReplica;
+import com.stream.stream_service.repositories.StreamRepository;
+import com.stream.stream_service.services.StreamQueryService;
+import com.stream.stream_service.utils.TtlCache;
+
+/**
+ * Stream/channel join of the list endpoints (StreamQueryService)
+ * The repository returns pre-built cards and every channel is fresh in the ChannelGrpcClient near-cache,
+ * so what is measured is the join itself: id extraction, cache lookups, the channel map and the
+ * StreamCardWithChannelDto list.
+ * - liveStreams: /livestreams cache miss, one live stream per channel
+ * - finishedPage: a VOD page of `streams` cards, channels repeat (4 streams per channel)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnrichmentBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int streams;
+
+    private StreamQueryService streamQueryService;
+    private ChannelGrpcClient channelGrpcClient;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<StreamCardDto> live = SyntheticData.cards(streams, streams, 1L);
+        List<StreamCardDto> finished = SyntheticData.cards(streams, Math.max(1, streams / 4), 2L);
+        List<ChannelDto> channels = SyntheticData.channels(streams);
+
+        channelGrpcClient = new ChannelGrpcClient();
+        // Replica never started, so lookups measure the near-cache path
+        SyntheticData.inject(channelGrpcClient, "replica", new ChannelReplica());
+        SyntheticData.inject(channelGrpcClient, "ttlMs", TimeUnit.HOURS.toMillis(1));
+        SyntheticData.inject(channelGrpcClient, "maxStaleMs", TimeUnit.HOURS.toMillis(1));
+        SyntheticData.inject(channelGrpcClient, "maxSize", streams);
+        SyntheticData.inject(channelGrpcClient, "timeoutMs", 1000L);
+        SyntheticData.inject(channelGrpcClient, "hedgePercentile", 0.95);
+        SyntheticData.inject(channelGrpcClient, "breakerFailureThreshold", 5);
+        SyntheticData.inject(channelGrpcClient, "breakerOpenMs", 5000L);
+        channelGrpcClient.init();
+        // No stub: a cache miss would fail loudly instead of measuring a network call
+        @SuppressWarnings("unchecked")
+        TtlCache<String, ChannelDto> byId = (TtlCache<String, ChannelDto>) SyntheticData.read(channelGrpcClient, "byId");
+        channels.forEach(channel -> byId.put(channel.getChannelId(), channel));
+
+        streamQueryService = new StreamQueryService();
+        SyntheticData.inject(streamQueryService, "streamRepository", repository(live, finished));
+        SyntheticData.inject(streamQueryService, "channelGrpcClient", channelGrpcClient);
+        SyntheticData.inject(streamQueryService, "vodCountCacheTtlMs", 60_000L);
+        streamQueryService.init();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        channelGrpcClient.shutdown();
+    }
+
+    @Benchmark
+    public List<StreamCardWithChannelDto> liveStreams() {
+        return streamQueryService.getLiveStreams();
+    }
+
+    @Benchmark
+    public PaginatedStreamResponse<StreamCardWithChannelDto> finishedPage() {
+        return streamQueryService.getFinishedStreamsByUniqueViewersWithChannelInfo(0, streams);
+    }
+
+    // Only the finders used by the benchmarked methods are implemented
+    private static StreamRepository repository(List<StreamCardDto> live, List<StreamCardDto> finished) {
+        return (StreamRepository) Proxy.newProxyInstance(
+            StreamRepository.class.getClassLoader(),
+            new Class<?>[] {StreamRepository.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "findLiveCards" -> live;
+                case "findFinishedCardsByUniqueViewers" -> {
+                    Pageable pageable = (Pageable) args[0];
+                    int from = (int) Math.min(pageable.getOffset(), finished.size());
+                    yield finished.subList(from, Math.min(from + pageable.getPageSize(), finished.size()));
+                }
+                case "countByIsLiveFalse" -> (long) finished.size();
+                case "toString" -> "SyntheticStreamRepository";
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(method.getName());
+            }
+        );
+    }
+}
@@ -0,0 +1,89 @@
+package com.stream.stream_service.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stream.stream_service.DTO.IvsCommand;
+import com.stream.stream_service.DTO.IvsEvent;
+import com.stream.stream_service.DTO.IvsRecordingEvent;
+
+/**
+ * IVS webhook bodies to queued commands, the same way IvsEventsController does it:
+ * the body is read as a JsonNode, each event is converted to IvsEvent/IvsRecordingEvent, then to an IvsCommand.
+ * `events` is the number of events per delivery (1 = a single object, more = an array).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IvsEventParsingBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int events;
+
+    private ObjectMapper objectMapper;
+    private byte[] streamStateBody;
+    private byte[] recordingBody;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        objectMapper = SyntheticData.objectMapper();
+        streamStateBody = SyntheticData.streamStateEvents(objectMapper, events, 4L);
+        recordingBody = SyntheticData.recordingEvents(objectMapper, events, 5L);
+    }
+
+    @Benchmark
+    public List<IvsCommand> streamStateChange() throws Exception {
+        List<IvsCommand> commands = new ArrayList<>();
+        for (IvsEvent event : read(objectMapper.readTree(streamStateBody), IvsEvent.class)) {
+            IvsCommand command = IvsCommand.fromStreamEvent(event);
+            if (command != null) {
+                commands.add(command);
+            }
+        }
+        return commands;
+    }
+
+    @Benchmark
+    public List<IvsCommand> recordingStateChange() throws Exception {
+        List<IvsCommand> commands = new ArrayList<>();
+        for (IvsRecordingEvent event : read(objectMapper.readTree(recordingBody), IvsRecordingEvent.class)) {
+            IvsCommand command = IvsCommand.fromRecordingEvent(event);
+            if (command != null) {
+                commands.add(command);
+            }
+        }
+        return commands;
+    }
+
+    // Copy of IvsEventsController#read
+    private <T> List<T> read(JsonNode body, Class<T> type) {
+        List<T> result = new ArrayList<>();
+        if (body.isArray()) {
+            for (JsonNode node : body) {
+                result.add(objectMapper.convertValue(node, type));
+            }
+        } else {
+            result.add(objectMapper.convertValue(body, type));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,73 @@
+package com.stream.stream_service.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.stream.stream_service.DTO.ChannelDto;
+import com.stream.stream_service.DTO.PaginatedStreamResponse;
+import com.stream.stream_service.DTO.StreamCardWithChannelDto;
+
+/**
+ * JSON serialization of list responses
+ * - paginatedResponse: PaginatedStreamResponse<StreamCardWithChannelDto> as written by the VOD list endpoints
+ * - liveDirectory: the bare list written once per LiveDirectoryService snapshot
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int streams;
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter pageWriter;
+    private PaginatedStreamResponse<StreamCardWithChannelDto> page;
+    private List<StreamCardWithChannelDto> entries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, ChannelDto> channels = SyntheticData.channels(Math.max(1, streams / 4)).stream()
+                .collect(Collectors.toMap(ChannelDto::getChannelId, Function.identity()));
+        entries = SyntheticData.cards(streams, channels.size(), 3L).stream()
+                .map(card -> new StreamCardWithChannelDto(card, channels.get(card.getChannelId())))
+                .toList();
+        page = new PaginatedStreamResponse<>(entries, 0, streams, streams * 10L, 10);
+
+        objectMapper = SyntheticData.objectMapper();
+        // What the message converter resolves for the controller's declared return type
+        pageWriter = objectMapper.writerFor(new TypeReference<PaginatedStreamResponse<StreamCardWithChannelDto>>() { });
+    }
+
+    @Benchmark
+    public byte[] paginatedResponse() throws Exception {
+        return pageWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] liveDirectory() throws Exception {
+        return objectMapper.writeValueAsBytes(entries);
+    }
+}
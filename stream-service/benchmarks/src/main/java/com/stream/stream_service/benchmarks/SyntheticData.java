@@ -0,0 +1,172 @@
+package com.stream.stream_service.benchmarks;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.ReflectionUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.stream.stream_service.DTO.ChannelDto;
+import com.stream.stream_service.DTO.StreamCardDto;
+import com.stream.stream_service.enums.StreamCategory;
+
+/**
+ * Deterministic synthetic data shaped like production rows and IVS EventBridge payloads
+ * Same seed, same data: runs of different commits can be compared.
+ */
+final class SyntheticData {
+
+    static final String REGION = "eu-west-1";
+    static final String ACCOUNT = "123456789012";
+
+    private static final StreamCategory[] CATEGORIES = StreamCategory.values();
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private SyntheticData() {
+    }
+
+    /**
+     * Same settings as the Spring Boot mapper for what the benchmarks touch (JSR-310 module, ISO dates,
+     * unknown properties ignored)
+     */
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    static String channelId(int index) {
+        return new UUID(0x5eedL, index).toString();
+    }
+
+    static String channelArn(int index) {
+        return "arn:aws:ivs:" + REGION + ":" + ACCOUNT + ":channel/" + Long.toString(0x5eedL * 31 + index, 36);
+    }
+
+    /**
+     * @param channels Number of channels
+     * @return One preview per channel, ids from channelId(0) to channelId(channels - 1)
+     */
+    static List<ChannelDto> channels(int channels) {
+        List<ChannelDto> result = new ArrayList<>(channels);
+        for (int i = 0; i < channels; i++) {
+            result.add(new ChannelDto(
+                channelId(i),
+                "channel_" + i,
+                "https://a1b2c3d4e5f6.us-west-2.playback.live-video.net/api/video/v1/" + channelArn(i).substring(12) + ".m3u8",
+                "https://cdn.example.com/avatars/" + channelId(i) + ".png"
+            ));
+        }
+        return result;
+    }
+
+    /**
+     * Stream cards spread over the channels, with skewed viewers and categories
+     * @param count Number of cards
+     * @param channels Number of distinct channels referenced
+     * @param seed Random seed
+     */
+    static List<StreamCardDto> cards(int count, int channels, long seed) {
+        Random random = new Random(seed);
+        List<StreamCardDto> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = new UUID(random.nextLong(), random.nextLong()).toString();
+            result.add(new StreamCardDto(
+                id,
+                channelId(random.nextInt(channels)),
+                "Synthetic stream #" + i + " - ranked grind and chill",
+                "https://ivs-recordings.s3." + REGION + ".amazonaws.com/ivs/v1/" + id + "/media/latest_thumbnail/thumb.jpg",
+                true,
+                // Most streams have a handful of viewers, a few have tens of thousands
+                (long) Math.pow(10, random.nextDouble() * random.nextDouble() * 5),
+                CATEGORIES[Math.min(CATEGORIES.length - 1, (int) Math.abs(random.nextGaussian() * 4))],
+                EPOCH.plusSeconds(random.nextInt(30 * 24 * 3600)),
+                null,
+                null
+            ));
+        }
+        return result;
+    }
+
+    /**
+     * Body of an IVS Stream State Change delivery: a single event, or an array when count > 1
+     */
+    static byte[] streamStateEvents(ObjectMapper mapper, int count, long seed) throws Exception {
+        Random random = new Random(seed);
+        ArrayNode events = mapper.createArrayNode();
+        for (int i = 0; i < count; i++) {
+            ObjectNode event = envelope(mapper, "IVS Stream State Change", random);
+            ObjectNode detail = event.putObject("detail");
+            detail.put("event_name", random.nextBoolean() ? "Stream Start" : "Stream End");
+            detail.put("channel_name", "channel_" + i);
+            detail.put("stream_id", "st-" + Long.toString(random.nextLong() & Long.MAX_VALUE, 36));
+            events.add(event);
+        }
+        return mapper.writeValueAsBytes(count == 1 ? events.get(0) : events);
+    }
+
+    /**
+     * Body of an IVS Recording State Change delivery: a single event, or an array when count > 1
+     */
+    static byte[] recordingEvents(ObjectMapper mapper, int count, long seed) throws Exception {
+        Random random = new Random(seed);
+        ArrayNode events = mapper.createArrayNode();
+        for (int i = 0; i < count; i++) {
+            ObjectNode event = envelope(mapper, "IVS Recording State Change", random);
+            String streamId = "st-" + Long.toString(random.nextLong() & Long.MAX_VALUE, 36);
+            ObjectNode detail = event.putObject("detail");
+            detail.put("recording_status", random.nextBoolean() ? "Recording Start" : "Recording End");
+            detail.put("recording_status_reason", "");
+            detail.put("recording_s3_bucket_name", "ivs-recordings");
+            detail.put("recording_s3_key_prefix", "ivs/v1/" + ACCOUNT + "/" + streamId + "/2025/1/1/0/0/" + i);
+            detail.put("recording_duration_ms", random.nextInt(10_000_000));
+            detail.put("channel_name", "channel_" + i);
+            detail.put("stream_id", streamId);
+            detail.put("recording_session_id", new UUID(random.nextLong(), random.nextLong()).toString());
+            detail.putArray("recording_session_stream_ids").add(streamId);
+            events.add(event);
+        }
+        return mapper.writeValueAsBytes(count == 1 ? events.get(0) : events);
+    }
+
+    /**
+     * Set a private field the way Spring injection would
+     */
+    static void inject(Object target, String fieldName, Object value) {
+        ReflectionUtils.setField(field(target, fieldName), target, value);
+    }
+
+    static Object read(Object target, String fieldName) {
+        return ReflectionUtils.getField(field(target, fieldName), target);
+    }
+
+    private static Field field(Object target, String fieldName) {
+        Field field = ReflectionUtils.findField(target.getClass(), fieldName);
+        if (field == null) {
+            throw new IllegalArgumentException(target.getClass().getName() + " has no field " + fieldName);
+        }
+        ReflectionUtils.makeAccessible(field);
+        return field;
+    }
+
+    private static ObjectNode envelope(ObjectMapper mapper, String detailType, Random random) {
+        ObjectNode event = mapper.createObjectNode();
+        event.put("version", "0");
+        event.put("id", new UUID(random.nextLong(), random.nextLong()).toString());
+        event.put("detail-type", detailType);
+        event.put("source", "aws.ivs");
+        event.put("account", ACCOUNT);
+        event.put("time", "2025-01-01T00:00:00Z");
+        event.put("region", REGION);
+        event.putArray("resources").add(channelArn(random.nextInt(1000)));
+        return event;
+    }
+}
@@ -0,0 +1,14 @@
+package com.stream.stream_service.DTO;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchGetStreamsRequest {
+    private List<String> ids;
+}
@@ -0,0 +1,26 @@
+package com.stream.stream_service.DTO;
+
+import java.util.Map;
+import java.util.Set;
+
+import io.grpc.StatusRuntimeException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Result of a batch channel lookup by ARN
+ * Unresolved ARNs could not be looked up (channel-service failed and nothing was cached for them);
+ * ARNs unknown to channel-service are neither in channels nor unresolved.
+ */
+@Getter
+@AllArgsConstructor
+public class ChannelArnLookup {
+    private final Map<String, ChannelDto> channels;
+    private final Set<String> unresolved;
+    // Why the unresolved ARNs could not be looked up, null when there are none
+    private final StatusRuntimeException failure;
+
+    public static ChannelArnLookup of(Map<String, ChannelDto> channels) {
+        return new ChannelArnLookup(channels, Set.of(), null);
+    }
+}
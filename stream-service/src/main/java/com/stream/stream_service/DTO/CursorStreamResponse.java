@@ -0,0 +1,15 @@
+package com.stream.stream_service.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorStreamResponse<T> {
+    private List<T> content;          // The actual data (streams)
+    private int size;                 // Requested page size
+    private String nextCursor;        // Cursor of the next page, null on the last page
+}
@@ -0,0 +1,139 @@
+package com.stream.stream_service.DTO;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * One stream change extracted from an IVS webhook, queued for batched ingestion
+ * Commands of the same channel ARN are applied in arrival order.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class IvsCommand {
+
+    public enum Type {
+        START,
+        END,
+        THUMBNAIL,
+        VOD
+    }
+
+    private final Type type;
+    private final String channelArn;
+    private final String awsStreamId;
+    private final String url;
+
+    /**
+     * Build the command for an IVS Stream State Change event
+     * @param event The event
+     * @return The command, or null for events other than Stream Start and Stream End
+     * @throws IllegalArgumentException if the event has no channel ARN
+     */
+    public static IvsCommand fromStreamEvent(IvsEvent event) {
+        String eventName = event.getDetail() == null ? null : event.getDetail().getEvent_name();
+        Type type;
+        if ("Stream Start".equalsIgnoreCase(eventName)) {
+            type = Type.START;
+        } else if ("Stream End".equalsIgnoreCase(eventName)) {
+            type = Type.END;
+        } else {
+            return null;
+        }
+        return new IvsCommand(type, channelArnOf(event.getResources()), event.getDetail().getStream_id(), null);
+    }
+
+    /**
+     * Build the command for an IVS Recording State Change event
+     * - Recording Start: thumbnail URL of the recording
+     * - Recording End: playback URL of the VOD
+     * @param event The event
+     * @return The command, or null for other recording statuses
+     * @throws IllegalArgumentException if the event has no channel ARN
+     */
+    public static IvsCommand fromRecordingEvent(IvsRecordingEvent event) {
+        IvsRecordingEvent.Detail detail = event.getDetail();
+        String status = detail == null ? null : detail.getRecording_status();
+        Type type;
+        String path;
+        if ("Recording Start".equalsIgnoreCase(status)) {
+            type = Type.THUMBNAIL;
+            path = "media/latest_thumbnail/thumb.jpg";
+        } else if ("Recording End".equalsIgnoreCase(status)) {
+            type = Type.VOD;
+            path = "media/hls/master.m3u8";
+        } else {
+            return null;
+        }
+        String url = String.format(
+            "https://%s.s3.%s.amazonaws.com/%s/%s",
+            detail.getRecording_s3_bucket_name(),
+            event.getRegion(),
+            detail.getRecording_s3_key_prefix(),
+            path
+        );
+        return new IvsCommand(type, channelArnOf(event.getResources()), detail.getStream_id(), url);
+    }
+
+    /**
+     * Binary form stored in the IVS event log
+     */
+    public byte[] toBytes() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type.ordinal());
+            writeNullable(out, channelArn);
+            writeNullable(out, awsStreamId);
+            writeNullable(out, url);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not a command written by toBytes
+     */
+    public static IvsCommand fromBytes(byte[] bytes) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            Type[] types = Type.values();
+            int ordinal = in.readUnsignedByte();
+            if (ordinal >= types.length) {
+                throw new IllegalArgumentException("Unknown IVS command type " + ordinal);
+            }
+            return new IvsCommand(types[ordinal], readNullable(in), readNullable(in), readNullable(in));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed IVS command", e);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // The ARN is always the first resource
+    private static String channelArnOf(List<String> resources) {
+        if (resources == null || resources.isEmpty()) {
+            throw new IllegalArgumentException("IVS event has no channel ARN");
+        }
+        return resources.get(0);
+    }
+}
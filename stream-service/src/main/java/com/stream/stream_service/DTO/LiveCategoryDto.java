@@ -0,0 +1,18 @@
+package com.stream.stream_service.DTO;
+
+import com.stream.stream_service.enums.StreamCategory;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Live facet of one category: how many streams are live in it and their total viewers
+ */
+@Getter
+@AllArgsConstructor
+public class LiveCategoryDto {
+    private final StreamCategory category;
+    private final String displayName;
+    private final long liveCount;
+    private final long viewers;
+}
@@ -0,0 +1,19 @@
+package com.stream.stream_service.DTO;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Immutable, versioned view of the live directory
+ * Holds the enriched entries and their pre-serialized JSON so reads never query or serialize
+ */
+@Getter
+@AllArgsConstructor
+public class LiveDirectorySnapshot {
+    private final long version;
+    private final String etag;
+    private final List<StreamCardWithChannelDto> entries;   // unmodifiable, cards are immutable
+    private final byte[] json;                              // serialized entries, never mutated
+}
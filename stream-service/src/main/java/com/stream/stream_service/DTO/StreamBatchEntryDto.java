@@ -0,0 +1,27 @@
+package com.stream.stream_service.DTO;
+
+import com.stream.stream_service.entities.Stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One result of a batch stream lookup, at the position of its id in the request
+ * Unknown ids are kept with found=false and no stream, so clients can match results by index.
+ */
+@Getter
+@AllArgsConstructor
+public class StreamBatchEntryDto {
+    private final String id;
+    private final boolean found;
+    private final Stream stream;
+    private final ChannelDto channel;
+
+    public static StreamBatchEntryDto found(Stream stream, ChannelDto channel) {
+        return new StreamBatchEntryDto(stream.getId(), true, stream, channel);
+    }
+
+    public static StreamBatchEntryDto notFound(String id) {
+        return new StreamBatchEntryDto(id, false, null, null);
+    }
+}
@@ -0,0 +1,50 @@
+package com.stream.stream_service.DTO;
+
+import java.time.LocalDateTime;
+
+import com.stream.stream_service.entities.Stream;
+import com.stream.stream_service.enums.StreamCategory;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Lean view of a stream for list pages (live grid, VOD lists)
+ * Built by JPQL constructor expressions, so list queries neither read the TEXT description nor put
+ * entities in the persistence context. The detail endpoints still return the full Stream.
+ * Carries every field the list pages read (isLive, endedAt and vodUrl included), only not the description.
+ * Immutable: in-memory indexes and snapshots share instances, changes go through withViewers.
+ */
+@Getter
+@AllArgsConstructor
+public class StreamCardDto {
+    private final String id;
+    private final String channelId;
+    private final String title;
+    private final String thumbnailUrl;
+    private final Boolean isLive;
+    private final Long viewers;
+    private final StreamCategory category;
+    private final LocalDateTime startedAt;
+    private final LocalDateTime endedAt;
+    private final String vodUrl;
+
+    public static StreamCardDto from(Stream stream) {
+        return new StreamCardDto(
+            stream.getId(),
+            stream.getChannelId(),
+            stream.getTitle(),
+            stream.getThumbnailUrl(),
+            stream.getIsLive(),
+            stream.getViewers(),
+            stream.getCategory(),
+            stream.getStartedAt(),
+            stream.getEndedAt(),
+            stream.getVodUrl()
+        );
+    }
+
+    public StreamCardDto withViewers(Long viewers) {
+        return new StreamCardDto(id, channelId, title, thumbnailUrl, isLive, viewers, category, startedAt, endedAt, vodUrl);
+    }
+}
@@ -0,0 +1,14 @@
+package com.stream.stream_service.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * List-page counterpart of StreamWithChannelDto, same JSON shape with the lean stream fields
+ */
+@Data
+@AllArgsConstructor
+public class StreamCardWithChannelDto {
+    private StreamCardDto stream;
+    private ChannelDto channel;
+}
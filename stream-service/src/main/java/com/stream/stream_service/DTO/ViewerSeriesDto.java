@@ -0,0 +1,20 @@
+package com.stream.stream_service.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Downsampled views-over-time series of a live stream, for the live chart
+ * Samples are the stream's cumulative view count, not concurrent viewers (nothing tracks who stops watching).
+ * Bucket i covers bucketMs of samples ending (buckets - 1 - i) * bucketMs before lastSampleAt.
+ */
+@Getter
+@AllArgsConstructor
+public class ViewerSeriesDto {
+    private final String streamId;
+    private final long lastSampleAt;    // epoch millis of the newest sample
+    private final long bucketMs;
+    private final long[] min;
+    private final double[] avg;
+    private final long[] max;
+}
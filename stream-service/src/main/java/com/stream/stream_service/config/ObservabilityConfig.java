@@ -0,0 +1,23 @@
+package com.stream.stream_service.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.binder.grpc.ObservationGrpcClientInterceptor;
+import io.micrometer.observation.ObservationRegistry;
+import net.devh.boot.grpc.client.interceptor.GrpcGlobalClientInterceptor;
+
+@Configuration
+public class ObservabilityConfig {
+
+    /**
+     * Time every channel-service call (grpc.client, tagged by method and status code)
+     * - Recorded per attempt, so a hedged call shows up as two
+     * - Sends the trace context in the call metadata, so channel-service spans join the caller's trace
+     */
+    @Bean
+    @GrpcGlobalClientInterceptor
+    ObservationGrpcClientInterceptor grpcClientObservationInterceptor(ObservationRegistry observationRegistry) {
+        return new ObservationGrpcClientInterceptor(observationRegistry);
+    }
+}
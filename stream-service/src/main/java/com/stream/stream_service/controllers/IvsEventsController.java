@@ -1,118 +1,97 @@
 package com.stream.stream_service.controllers;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stream.stream_service.DTO.IvsCommand;
 import com.stream.stream_service.DTO.IvsEvent;
 import com.stream.stream_service.DTO.IvsRecordingEvent;
-import com.stream.stream_service.services.StreamService;
+import com.stream.stream_service.services.IvsIngestionService;
 
+/**
+ * IVS webhooks
+ * Both endpoints accept a single event or an array of events. Events are only validated and queued here,
+ * the stream changes are applied asynchronously in batches (see IvsIngestionService):
+ * - 202: all events were queued (or ignored)
+ * - 400: an event has no channel ARN, nothing was queued
+ * - 503: the ingest queue is full, the sender should retry later
+ */
 @RestController
 @RequestMapping("/api/ivs-events")
-public class IvsEventsController {    
+public class IvsEventsController {
+
     @Autowired
-    private StreamService streamService;
+    private IvsIngestionService ingestionService;
 
-    @Value("${aws.s3.thumbnail-bucket}")
-    private String s3BucketName;
+    @Autowired
+    private ObjectMapper objectMapper;
 
-    @Value("${aws.s3.region}")
-    private String s3Region;    
-    
     @PostMapping
-    public ResponseEntity<Void> handleIvsEvent(@RequestBody IvsEvent event) {
-        System.out.println("=== IVS Event Received ===");
-        
-        String eventName = event.getDetail().getEvent_name();
-        System.out.println("Event name: " + eventName);
-        
-        // Filter only "Stream Start" or "Stream End"
-        if (!"Stream Start".equalsIgnoreCase(eventName) && !"Stream End".equalsIgnoreCase(eventName)) {
-            System.out.println("Ignoring event: " + eventName);
-            return ResponseEntity.ok().build();
-        }
-
-        List<String> resources = event.getResources();
-        if (resources == null || resources.isEmpty()) {
-            return ResponseEntity.badRequest().build();
-        }        String channelArn = resources.get(0); // The ARN is always the first item
-        String awsStreamId = event.getDetail().getStream_id(); // Get AWS stream ID
-        
-        if ("Stream Start".equalsIgnoreCase(eventName)) {
-            streamService.createStream(channelArn, awsStreamId);
-        } else if ("Stream End".equalsIgnoreCase(eventName)) {
-            streamService.endStreamByAwsStreamId(awsStreamId);
+    public ResponseEntity<Void> handleIvsEvent(@RequestBody JsonNode body) {
+        List<IvsCommand> commands = new ArrayList<>();
+        for (IvsEvent event : read(body, IvsEvent.class)) {
+            String eventName = event.getDetail() == null ? null : event.getDetail().getEvent_name();
+            try {
+                // Only "Stream Start" and "Stream End" are kept
+                IvsCommand command = IvsCommand.fromStreamEvent(event);
+                if (command == null) {
+                    System.out.println("Ignoring event: " + eventName);
+                } else {
+                    commands.add(command);
+                }
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
         }
-        return ResponseEntity.ok().build();
+        return enqueue(commands);
     }
 
     @PostMapping("/recording")
-    public ResponseEntity<Void> handleIvsRecording(@RequestBody IvsRecordingEvent recordingEvent) {
-        System.out.println("=== IVS Recording Event Received ===");
-        
-        String status = recordingEvent.getDetail().getRecording_status();
-        System.out.println("Recording status: " + status);
+    public ResponseEntity<Void> handleIvsRecording(@RequestBody JsonNode body) {
+        List<IvsCommand> commands = new ArrayList<>();
+        for (IvsRecordingEvent event : read(body, IvsRecordingEvent.class)) {
+            try {
+                // Only "Recording Start" (thumbnail) and "Recording End" (VOD) are kept
+                IvsCommand command = IvsCommand.fromRecordingEvent(event);
+                if (command != null) {
+                    commands.add(command);
+                }
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return enqueue(commands);
+    }
 
-        if (!"Recording End".equalsIgnoreCase(status) && !"Recording Start".equalsIgnoreCase(status)) {
-            return ResponseEntity.ok().build(); 
-        }        
-        
-        String bucket = recordingEvent.getDetail().getRecording_s3_bucket_name(); // "ivs-streams-archives"
-        String region = recordingEvent.getRegion(); // "eu-west-1"
-        String keyPrefix = recordingEvent.getDetail().getRecording_s3_key_prefix(); // path before media/
-        String awsStreamId = recordingEvent.getDetail().getStream_id(); // AWS stream ID
-          
-        if ("Recording End".equalsIgnoreCase(status)) {
-            // Construct the playback URL for the recording
-    
-            String playbackUrl = String.format(
-                "https://%s.s3.%s.amazonaws.com/%s/media/hls/master.m3u8",
-                bucket,
-                region,
-                keyPrefix
-            );
-    
-            System.out.println("Playback URL: " + playbackUrl);
-            System.out.println("AWS Stream ID: " + awsStreamId);
-    
-            // Update the VOD URL for the specific stream using AWS stream ID
-            streamService.updateStreamVodUrlByAwsStreamId(awsStreamId, playbackUrl);        
-        } 
-            
-        else if ("Recording Start".equalsIgnoreCase(status)) {
-            String thumbnailURL = String.format(
-                "https://%s.s3.%s.amazonaws.com/%s/media/latest_thumbnail/thumb.jpg",
-                bucket,
-                region,
-                keyPrefix
-            );
-    
-            System.out.println("Thumbnail URL: " + thumbnailURL);
-            System.out.println("AWS Stream ID: " + awsStreamId);
-            
-            // Update the thumbnail URL for the specific stream with 1-minute delay
-            updateStreamThumbnailWithDelay(awsStreamId, thumbnailURL);
-            
+    private ResponseEntity<Void> enqueue(List<IvsCommand> commands) {
+        if (!ingestionService.submit(commands)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
         }
-    return ResponseEntity.ok().build();
-    }    
-    /**
-     * Updates the stream thumbnail with a 30-second delay using AWS stream ID
-     */
-    private void updateStreamThumbnailWithDelay(String awsStreamId, String thumbnailURL) {
-        CompletableFuture.delayedExecutor(30, java.util.concurrent.TimeUnit.SECONDS)
-            .execute(() -> {
-                System.out.println("Updating thumbnail after 30-second delay for stream ID: " + awsStreamId);
-                streamService.updateStreamThumbnailByAwsStreamId(awsStreamId, thumbnailURL);
-        });
+        return ResponseEntity.accepted().build();
     }
 
-}
\ No newline at end of file
+    private <T> List<T> read(JsonNode body, Class<T> type) {
+        List<T> events = new ArrayList<>();
+        if (body.isArray()) {
+            for (JsonNode node : body) {
+                events.add(objectMapper.convertValue(node, type));
+            }
+        } else {
+            events.add(objectMapper.convertValue(body, type));
+        }
+        return events;
+    }
+}
@@ -1,14 +1,30 @@
 package com.stream.stream_service.controllers;
 
+import com.stream.stream_service.DTO.BatchGetStreamsRequest;
+import com.stream.stream_service.DTO.CursorStreamResponse;
+import com.stream.stream_service.DTO.LiveCategoryDto;
+import com.stream.stream_service.DTO.LiveDirectorySnapshot;
+import com.stream.stream_service.DTO.StreamCardDto;
+import com.stream.stream_service.DTO.StreamBatchEntryDto;
+import com.stream.stream_service.DTO.StreamCardWithChannelDto;
 import com.stream.stream_service.DTO.StreamWithChannelDto;
+import com.stream.stream_service.DTO.ViewerSeriesDto;
 import com.stream.stream_service.DTO.PaginatedStreamResponse;
-import com.stream.stream_service.entities.Stream;
+import com.stream.stream_service.enums.StreamCategory;
+import com.stream.stream_service.exceptions.ApiException;
+import com.stream.stream_service.services.LiveDirectoryService;
+import com.stream.stream_service.services.LivePushService;
 import com.stream.stream_service.services.StreamService;
 import com.stream.stream_service.services.StreamQueryService;
+import com.stream.stream_service.services.ViewerSeriesService;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -17,8 +33,16 @@ import java.util.List;
 @RequiredArgsConstructor
 public class StreamController {
 
+    private static final int MAX_PUSH_STREAM_IDS = 50;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_SERIES_BUCKETS = 600;
+    private static final int MAX_BATCH_GET_IDS = 100;
+
     private final StreamService streamService;
     private final StreamQueryService streamQueryService;
+    private final LivePushService livePushService;
+    private final LiveDirectoryService liveDirectoryService;
+    private final ViewerSeriesService viewerSeriesService;
 
     // Get live stream by channel ID
     @GetMapping("/channels/{channelId}/live")
@@ -28,35 +52,114 @@ public class StreamController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    // Get all live streams
-    @GetMapping("/livestreams")
-    public ResponseEntity<List<StreamWithChannelDto>> getAllLiveStreams() {
-        return ResponseEntity.ok(streamQueryService.getLiveStreams());
+    // Get all live streams, served from the materialized live directory (supports If-None-Match)
+    @GetMapping(value = "/livestreams", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getAllLiveStreams(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        LiveDirectorySnapshot snapshot = liveDirectoryService.getSnapshot();
+        if (matchesAny(ifNoneMatch, snapshot.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.getEtag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.getEtag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.getJson());
+    }
+
+    // Get the live streams of one category, most viewed first (top N, from memory)
+    @GetMapping(value = "/livestreams", params = "category")
+    public ResponseEntity<List<StreamCardWithChannelDto>> getLiveStreamsByCategory(@RequestParam StreamCategory category) {
+        return ResponseEntity.ok(liveDirectoryService.getLiveStreamsByCategory(category));
+    }
+
+    // Get the number of live streams and viewers of every category (from memory)
+    @GetMapping("/categories/live")
+    public ResponseEntity<List<LiveCategoryDto>> getLiveCategories() {
+        return ResponseEntity.ok(liveDirectoryService.getCategoryFacets());
+    }
+
+    // Subscribe to pushed viewer counts (for the given streams) and live-directory changes (Server-Sent Events)
+    @GetMapping(value = "/live/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeLiveEvents(
+            @RequestParam(required = false) List<String> streamIds,
+            @RequestParam(defaultValue = "true") boolean directory) {
+        List<String> ids = streamIds == null ? List.of() : streamIds;
+        if (ids.size() > MAX_PUSH_STREAM_IDS) {
+            throw new ApiException("Too many stream IDs (max " + MAX_PUSH_STREAM_IDS + ")", HttpStatus.BAD_REQUEST);
+        }
+        return livePushService.subscribe(ids, directory);
     }
     
 
     // Get finished streams with pagination metadata
     @GetMapping("/channels/{channelId}/finished")
-    public ResponseEntity<PaginatedStreamResponse<Stream>> getFinishedStreamsWithMeta(
+    public ResponseEntity<PaginatedStreamResponse<StreamCardDto>> getFinishedStreamsWithMeta(
             @PathVariable String channelId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
-        PaginatedStreamResponse<Stream> response = streamQueryService.getFinishedStreamsWithMetadata(channelId, page, size);
+        PaginatedStreamResponse<StreamCardDto> response = streamQueryService.getFinishedStreamsWithMetadata(channelId, page, size);
         return ResponseEntity.ok(response);
-    }    
+    }
+
+    // Get finished streams with keyset pagination; pass the returned nextCursor to get the following page
+    @GetMapping("/channels/{channelId}/finished/cursor")
+    public ResponseEntity<CursorStreamResponse<StreamCardDto>> getFinishedStreamsByCursor(
+            @PathVariable String channelId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ApiException("Size must be between 1 and " + MAX_PAGE_SIZE, HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.ok(streamQueryService.getFinishedStreamsByCursor(channelId, cursor, size));
+    }
+
+    // Get the number of finished streams of a channel (cached, for clients that show a total)
+    @GetMapping("/channels/{channelId}/finished/count")
+    public ResponseEntity<Long> countFinishedStreams(@PathVariable String channelId) {
+        return ResponseEntity.ok(streamQueryService.countFinishedStreams(channelId));
+    }
     
-    // Get all finished streams sorted by views with channel info and pagination metadata
+    // Get all finished streams sorted by views (or unique viewers with sort=unique) with channel info and pagination metadata
     @GetMapping("/vods/popular")
-    public ResponseEntity<PaginatedStreamResponse<StreamWithChannelDto>> getPopularFinishedStreams(
+    public ResponseEntity<PaginatedStreamResponse<StreamCardWithChannelDto>> getPopularFinishedStreams(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        PaginatedStreamResponse<StreamWithChannelDto> response = streamQueryService.getFinishedStreamsWithChannelInfo(page, size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "views") String sort) {
+        PaginatedStreamResponse<StreamCardWithChannelDto> response = "unique".equalsIgnoreCase(sort)
+                ? streamQueryService.getFinishedStreamsByUniqueViewersWithChannelInfo(page, size)
+                : streamQueryService.getFinishedStreamsWithChannelInfo(page, size);
         return ResponseEntity.ok(response);
     }
-      // Increment stream viewers
+      // Increment stream viewers, returns the updated count
+    // The viewer is identified by X-User-Id, or by an anonymous viewerKey fingerprint, for unique counting
     @PostMapping("/{id}/viewers")
-    public ResponseEntity<Stream> incrementViewers(@PathVariable String id) {
-        return streamService.incrementViewers(id)
+    public ResponseEntity<Long> incrementViewers(
+            @PathVariable String id,
+            @RequestHeader(value = "X-User-Id", required = false) String userId,
+            @RequestParam(required = false) String viewerKey) {
+        String key = userId != null ? "user:" + userId : (viewerKey != null ? "anon:" + viewerKey : null);
+        return streamService.incrementViewers(id, key)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Get approximate unique viewers count
+    @GetMapping("/{id}/viewers/unique")
+    public ResponseEntity<Long> getUniqueViewersCount(@PathVariable String id) {
+        return streamService.getUniqueViewersCount(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Get the views-over-time chart of a live stream as min/avg/max buckets
+    @GetMapping("/{id}/viewers/series")
+    public ResponseEntity<ViewerSeriesDto> getViewerSeries(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "60") int buckets) {
+        if (buckets < 1 || buckets > MAX_SERIES_BUCKETS) {
+            throw new ApiException("Buckets must be between 1 and " + MAX_SERIES_BUCKETS, HttpStatus.BAD_REQUEST);
+        }
+        return viewerSeriesService.getSeries(id, buckets)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -77,10 +180,41 @@ public class StreamController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Get several streams by ID with channel information (sidebars, watch history), in request order
+    // Each result has found=false when its stream does not exist
+    @PostMapping("/streams:batchGet")
+    public ResponseEntity<List<StreamBatchEntryDto>> batchGetStreams(@RequestBody BatchGetStreamsRequest request) {
+        List<String> ids = request.getIds() == null ? List.of() : request.getIds();
+        if (ids.size() > MAX_BATCH_GET_IDS) {
+            throw new ApiException("Too many stream IDs (max " + MAX_BATCH_GET_IDS + ")", HttpStatus.BAD_REQUEST);
+        }
+        if (ids.stream().anyMatch(id -> id == null || id.isBlank())) {
+            throw new ApiException("Stream IDs must not be blank", HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.ok(streamQueryService.getStreamsWithChannelByIds(ids));
+    }
+
     // // Delete stream
     // @DeleteMapping("/{id}")
     // public ResponseEntity<Void> deleteStream(@PathVariable String id, @RequestParam String userId) {
     //     streamService.deleteStream(id, userId);
     //     return ResponseEntity.noContent().build();
     // }
+
+    // If-None-Match may list several entity tags, weak ones included, or be "*"; GET uses the weak comparison
+    private static boolean matchesAny(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,32 @@
+package com.stream.stream_service.entities;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Marks an IVS stream session as ended, whether or not its START has been applied yet
+ */
+@Entity
+@Table(name = "ivs_stream_tombstones")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IvsStreamTombstone {
+
+    @Id
+    @Column(name = "aws_stream_id")
+    private String awsStreamId;
+
+    @Column(name = "channel_arn", nullable = false)
+    private String channelArn;
+
+    // False while the end has arrived before its start: that start still has to record the stream
+    @Column(name = "start_seen", nullable = false)
+    private Boolean startSeen;
+
+    @Column(name = "ended_at", nullable = false)
+    private LocalDateTime endedAt;
+}
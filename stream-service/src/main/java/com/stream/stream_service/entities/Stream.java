@@ -1,5 +1,6 @@
 package com.stream.stream_service.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -40,8 +41,18 @@ public class Stream {
     @Column(name = "is_live", nullable = false)
     private Boolean isLive = false;
     
-    @Column(name = "viewers")
+    // Only written by ViewerCounterService through atomic increments, never by entity saves
+    @Column(name = "viewers", updatable = false)
     private Long viewers = 0L;
+
+    // Approximate distinct viewers, estimated from viewerSketch when the stream ends
+    @Column(name = "unique_viewers")
+    private Long uniqueViewers;
+
+    // Serialized HyperLogLog sketch of the stream's viewers
+    @JsonIgnore
+    @Column(name = "viewer_sketch", columnDefinition = "bytea")
+    private byte[] viewerSketch;
     
     @Column(columnDefinition = "TEXT")
     private String description;
@@ -60,6 +71,28 @@ public class Stream {
     @Column(name = "vod_url")
     private String vodUrl;
     
+    /**
+     * Detached copy for in-memory snapshots, so they never share state with managed entities
+     * The viewer sketch is not copied
+     */
+    public Stream copy() {
+        Stream copy = new Stream();
+        copy.setId(id);
+        copy.setChannelId(channelId);
+        copy.setAwsStreamId(awsStreamId);
+        copy.setTitle(title);
+        copy.setThumbnailUrl(thumbnailUrl);
+        copy.setIsLive(isLive);
+        copy.setViewers(viewers);
+        copy.setUniqueViewers(uniqueViewers);
+        copy.setDescription(description);
+        copy.setStartedAt(startedAt);
+        copy.setEndedAt(endedAt);
+        copy.setCategory(category);
+        copy.setVodUrl(vodUrl);
+        return copy;
+    }
+
     @PrePersist
     private void generateId() {
         if (this.id == null) {
@@ -0,0 +1,25 @@
+package com.stream.stream_service.events;
+
+import com.stream.stream_service.entities.Stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by StreamService when a stream starts, ends, has its metadata updated or is deleted
+ * Listeners use @TransactionalEventListener so they only see committed changes
+ */
+@Getter
+@AllArgsConstructor
+public class StreamLifecycleEvent {
+
+    public enum Type {
+        STARTED,
+        ENDED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+    private final Stream stream;
+}
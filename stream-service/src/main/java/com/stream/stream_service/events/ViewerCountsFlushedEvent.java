@@ -0,0 +1,17 @@
+package com.stream.stream_service.events;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by ViewerCounterService after a batch of viewer deltas is written
+ * Carries the new persisted count of every stream that changed
+ */
+@Getter
+@AllArgsConstructor
+public class ViewerCountsFlushedEvent {
+
+    private final Map<String, Long> counts;
+}
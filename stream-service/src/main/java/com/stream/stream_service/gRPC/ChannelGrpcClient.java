@@ -2,57 +2,429 @@ package com.stream.stream_service.gRPC;
 
 import com.example.grpc.ChannelServiceGrpc;
 import com.example.grpc.UserIdRequest;
+import com.stream.stream_service.DTO.ChannelArnLookup;
 import com.stream.stream_service.DTO.ChannelDto;
+import com.stream.stream_service.utils.CircuitBreaker;
+import com.stream.stream_service.utils.TtlCache;
 import com.example.grpc.ChannelIdList;
 import com.example.grpc.ChannelPreview;
 import com.example.grpc.ChannelPreviewList;
 import com.example.grpc.ChannelResponse;
+import com.example.grpc.ArnList;
 import com.example.grpc.ArnRequest;
+import com.example.grpc.ChannelArn;
+import com.example.grpc.ChannelArnList;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+/**
+ * gRPC client for channel-service with an in-process near-cache
+ * - Fresh entries are served without a network hop
+ * - Stale entries are served immediately and refreshed in the background
+ * - Batch lookups only fetch the ids that are missing
+ * - When channel-service fails, the last known value is served if there is one
+ * Lookups by user ID back ownership checks, so they have their own short TTL and are never served stale.
+ * Calls go through the future stub; with channel.grpc.resilience.enabled they also get a deadline, hedging and a
+ * circuit breaker (see ResilientGrpcCaller).
+ * Preview lookups only enrich list responses, so when channel-service is down they degrade to what is cached.
+ * While the ChannelReplica is ready, preview lookups are answered from it and never reach the network.
+ */
 @Service
-public class ChannelGrpcClient {
+public class ChannelGrpcClient implements MeterBinder {
 
-    @GrpcClient("channelService")  
-    private ChannelServiceGrpc.ChannelServiceBlockingStub stub;
+    @GrpcClient("channelService")
+    private ChannelServiceGrpc.ChannelServiceFutureStub stub;
 
+    @Autowired
+    private ChannelReplica replica;
+
+    @Value("${channel.cache.ttl-ms:30000}")
+    private long ttlMs;
+
+    @Value("${channel.cache.max-stale-ms:600000}")
+    private long maxStaleMs;
+
+    @Value("${channel.cache.user-id.ttl-ms:5000}")
+    private long userIdTtlMs;
+
+    @Value("${channel.cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${channel.grpc.resilience.enabled:false}")
+    private boolean resilienceEnabled;
+
+    @Value("${channel.grpc.timeout-ms:1000}")
+    private long timeoutMs;
+
+    @Value("${channel.grpc.hedge.enabled:true}")
+    private boolean hedgeEnabled;
+
+    @Value("${channel.grpc.hedge.percentile:0.95}")
+    private double hedgePercentile;
+
+    @Value("${channel.grpc.hedge.min-delay-ms:20}")
+    private long hedgeMinDelayMs;
+
+    @Value("${channel.grpc.breaker.failure-threshold:5}")
+    private int breakerFailureThreshold;
+
+    @Value("${channel.grpc.breaker.open-ms:5000}")
+    private long breakerOpenMs;
+
+    private TtlCache<String, ChannelDto> byId;
+    private TtlCache<String, ChannelDto> byArn;
+    private TtlCache<String, ChannelDto> byUserId;
+    private ScheduledExecutorService executor;
+    private ResilientGrpcCaller caller;
+
+    @PostConstruct
+    public void init() {
+        byId = new TtlCache<>("channel-by-id", ttlMs, maxStaleMs, maxSize);
+        byArn = new TtlCache<>("channel-by-arn", ttlMs, maxStaleMs, maxSize);
+        // No stale window: an expired entry is a miss
+        byUserId = new TtlCache<>("channel-by-user-id", userIdTtlMs, 0, maxSize);
+        // Runs background refreshes and hedge timers
+        executor = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "channel-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+        caller = new ResilientGrpcCaller(
+                resilienceEnabled,
+                timeoutMs,
+                hedgeEnabled,
+                hedgePercentile,
+                hedgeMinDelayMs,
+                new CircuitBreaker("channel-service", breakerFailureThreshold, breakerOpenMs),
+                executor
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Get the channel owned by a user
+     * Never answered from a stale or expired entry: when channel-service fails, the call fails
+     * @param userId The user ID
+     * @return The user's channel
+     * @throws StatusRuntimeException if the user has no channel or channel-service fails
+     */
     public ChannelDto getChannelByUserId(String userId) {
+        return cached(byUserId, userId, () -> fetchChannelByUserId(userId), false);
+    }
+
+    public List<ChannelDto> getChannelPreviewsByIds(List<String> ids) {
+        if (replica.isConnected()) {
+            // Complete local copy: an id missing from it is not a channel, nothing to ask channel-service
+            return replica.getChannelPreviewsByIds(ids);
+        }
+        if (!replica.isReady()) {
+            return lookupPreviews(ids);
+        }
+        // Stream down: the replica still answers what it has, but channels created since it broke are
+        // missing from it and are looked up like without a replica
+        List<ChannelDto> hits = replica.getChannelPreviewsByIds(ids);
+        Map<String, ChannelDto> found = new HashMap<>();
+        hits.forEach(channel -> found.put(channel.getChannelId(), channel));
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            if (!found.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return hits;
+        }
+        lookupPreviews(missing).forEach(channel -> found.put(channel.getChannelId(), channel));
+        List<ChannelDto> result = new ArrayList<>(found.size());
+        for (String id : ids) {
+            ChannelDto channel = found.remove(id);
+            if (channel != null) {
+                result.add(channel);
+            }
+        }
+        return result;
+    }
+
+    // Near-cache, then one call to channel-service for what it lacks
+    private List<ChannelDto> lookupPreviews(List<String> ids) {
+        Map<String, ChannelDto> found = new LinkedHashMap<>();
+        Map<String, ChannelDto> fallback = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        List<String> stale = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+
+        for (String id : ids) {
+            if (!seen.add(id)) {
+                continue;
+            }
+            TtlCache.Entry<ChannelDto> entry = byId.get(id);
+            TtlCache.State state = entry == null ? null : byId.stateOf(entry);
+            if (state == TtlCache.State.FRESH) {
+                found.put(id, entry.getValue());
+            } else if (state == TtlCache.State.STALE) {
+                found.put(id, entry.getValue());
+                stale.add(id);
+            } else {
+                missing.add(id);
+                if (entry != null) {
+                    fallback.put(id, entry.getValue());
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            try {
+                for (ChannelDto channel : fetchChannelPreviewsByIds(missing)) {
+                    byId.put(channel.getChannelId(), channel);
+                    found.put(channel.getChannelId(), channel);
+                }
+            } catch (StatusRuntimeException e) {
+                // Degraded response: streams are returned with the channels we have (possibly none)
+                System.err.println("Channel preview lookup failed, serving cached values: " + e.getStatus());
+                fallback.forEach((id, channel) -> {
+                    byId.recordStaleFallback();
+                    found.put(id, channel);
+                });
+            }
+        }
+
+        if (!stale.isEmpty()) {
+            refreshPreviewsAsync(stale);
+        }
+
+        // Preserve the caller's order; ids unknown to channel-service are left out as before
+        List<ChannelDto> result = new ArrayList<>(found.size());
+        for (String id : ids) {
+            ChannelDto channel = found.remove(id);
+            if (channel != null) {
+                result.add(channel);
+            }
+        }
+        return result;
+    }
+
+    public ChannelDto getChannelByArn(String arn) {
+        return cached(byArn, arn, () -> fetchChannelByArn(arn), true);
+    }
+
+    /**
+     * Resolve several channel ARNs with at most one call to channel-service
+     * When channel-service fails, cached values are returned (expired ones included) and the ARNs
+     * without any are marked unresolved, so the caller can go on with the others
+     * @param arns Channel ARNs
+     * @return Channels by ARN and unresolved ARNs; ARNs unknown to channel-service are in neither
+     */
+    public ChannelArnLookup getChannelsByArns(Collection<String> arns) {
+        Map<String, ChannelDto> found = new HashMap<>();
+        Map<String, ChannelDto> fallback = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String arn : new LinkedHashSet<>(arns)) {
+            TtlCache.Entry<ChannelDto> entry = byArn.get(arn);
+            if (entry != null && byArn.stateOf(entry) != TtlCache.State.EXPIRED) {
+                found.put(arn, entry.getValue());
+            } else {
+                missing.add(arn);
+                if (entry != null) {
+                    fallback.put(arn, entry.getValue());
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return ChannelArnLookup.of(found);
+        }
+
+        try {
+            fetchChannelsByArns(missing).forEach((arn, channel) -> {
+                store(byArn, arn, channel);
+                found.put(arn, channel);
+            });
+        } catch (StatusRuntimeException e) {
+            System.err.println("Channel ARN lookup failed, serving cached values: " + e.getStatus());
+            Set<String> unresolved = new HashSet<>();
+            for (String arn : missing) {
+                ChannelDto channel = fallback.get(arn);
+                if (channel != null) {
+                    byArn.recordStaleFallback();
+                    found.put(arn, channel);
+                } else {
+                    unresolved.add(arn);
+                }
+            }
+            return new ChannelArnLookup(found, unresolved, unresolved.isEmpty() ? null : e);
+        }
+        return ChannelArnLookup.of(found);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (TtlCache<String, ChannelDto> cache : List.of(byId, byArn, byUserId)) {
+            FunctionCounter.builder("channel.cache.requests", cache, TtlCache::getHits)
+                    .tag("cache", cache.getName()).tag("result", "hit").register(registry);
+            FunctionCounter.builder("channel.cache.requests", cache, TtlCache::getStaleHits)
+                    .tag("cache", cache.getName()).tag("result", "stale").register(registry);
+            FunctionCounter.builder("channel.cache.requests", cache, TtlCache::getMisses)
+                    .tag("cache", cache.getName()).tag("result", "miss").register(registry);
+            FunctionCounter.builder("channel.cache.evictions", cache, TtlCache::getEvictions)
+                    .tag("cache", cache.getName()).register(registry);
+            FunctionCounter.builder("channel.cache.stale.fallbacks", cache, TtlCache::getStaleFallbacks)
+                    .tag("cache", cache.getName()).register(registry);
+            Gauge.builder("channel.cache.size", cache, TtlCache::size)
+                    .tag("cache", cache.getName()).register(registry);
+        }
+        Gauge.builder("channel.grpc.circuit.open", caller, c -> c.getCircuitState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .register(registry);
+    }
+
+    // staleFallback: whether an expired entry may answer when channel-service fails
+    private ChannelDto cached(TtlCache<String, ChannelDto> cache, String key, Supplier<ChannelDto> loader, boolean staleFallback) {
+        TtlCache.Entry<ChannelDto> entry = cache.get(key);
+        TtlCache.State state = entry == null ? null : cache.stateOf(entry);
+        if (state == TtlCache.State.FRESH) {
+            return entry.getValue();
+        }
+        if (state == TtlCache.State.STALE) {
+            refreshAsync(cache, key, loader);
+            return entry.getValue();
+        }
+        try {
+            ChannelDto channel = loader.get();
+            store(cache, key, channel);
+            return channel;
+        } catch (StatusRuntimeException e) {
+            if (e.getStatus().getCode() == Status.Code.NOT_FOUND || entry == null || !staleFallback) {
+                cache.invalidate(key);
+                throw e;
+            }
+            System.err.println("Channel lookup failed, serving cached value for " + key + ": " + e.getStatus());
+            cache.recordStaleFallback();
+            return entry.getValue();
+        }
+    }
+
+    private void refreshAsync(TtlCache<String, ChannelDto> cache, String key, Supplier<ChannelDto> loader) {
+        if (!cache.tryStartRefresh(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    store(cache, key, loader.get());
+                } catch (StatusRuntimeException e) {
+                    if (e.getStatus().getCode() == Status.Code.NOT_FOUND) {
+                        cache.invalidate(key);
+                    }
+                } finally {
+                    cache.refreshDone(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            cache.refreshDone(key);
+        }
+    }
+
+    private void refreshPreviewsAsync(List<String> ids) {
+        List<String> claimed = ids.stream().filter(byId::tryStartRefresh).toList();
+        if (claimed.isEmpty()) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    for (ChannelDto channel : fetchChannelPreviewsByIds(claimed)) {
+                        byId.put(channel.getChannelId(), channel);
+                    }
+                } catch (StatusRuntimeException e) {
+                    // Keep the stale values, the next lookup retries
+                } finally {
+                    claimed.forEach(byId::refreshDone);
+                }
+            });
+        } catch (RuntimeException e) {
+            claimed.forEach(byId::refreshDone);
+        }
+    }
+
+    private void store(TtlCache<String, ChannelDto> cache, String key, ChannelDto channel) {
+        cache.put(key, channel);
+        if (cache != byId) {
+            byId.put(channel.getChannelId(), channel);
+        }
+    }
+
+    private ChannelDto fetchChannelByUserId(String userId) {
         UserIdRequest request = UserIdRequest.newBuilder()
                 .setUserId(userId)
                 .build();
 
-        ChannelResponse response = stub.getChannelByUserId(request);
+        ChannelResponse response = caller.call(true, deadline -> stub.withDeadline(deadline).getChannelByUserId(request));
         return mapToDto(response);
     }
 
-    public List<ChannelDto> getChannelPreviewsByIds(List<String> ids) {
+    private List<ChannelDto> fetchChannelPreviewsByIds(List<String> ids) {
         ChannelIdList request = ChannelIdList.newBuilder()
                 .addAllIds(ids)
                 .build();
 
-        ChannelPreviewList response = stub.getChannelPreviewsByIds(request);
+        ChannelPreviewList response = caller.call(true, deadline -> stub.withDeadline(deadline).getChannelPreviewsByIds(request));
         return response.getPreviewsList().stream()
                 .map(this::mapToDto)
                 .toList();
     }
 
-    public ChannelDto getChannelByArn(String arn) {
+    private ChannelDto fetchChannelByArn(String arn) {
         ArnRequest request = ArnRequest.newBuilder()
                 .setArn(arn)
                 .build();
 
-        ChannelResponse response = stub.getChannelByArn(request);
+        ChannelResponse response = caller.call(true, deadline -> stub.withDeadline(deadline).getChannelByArn(request));
         if (response == null || response.getChannelId().isEmpty()) {
             throw new RuntimeException("Channel not found for ARN: " + arn);
         }
-        
+
         return mapToDto(response);
     }
-    
+
+    private Map<String, ChannelDto> fetchChannelsByArns(List<String> arns) {
+        ArnList request = ArnList.newBuilder()
+                .addAllArns(arns)
+                .build();
+
+        ChannelArnList response = caller.call(true, deadline -> stub.withDeadline(deadline).getChannelsByArns(request));
+        Map<String, ChannelDto> channels = new HashMap<>();
+        for (ChannelArn entry : response.getChannelsList()) {
+            channels.put(entry.getArn(), mapToDto(entry.getChannel()));
+        }
+        return channels;
+    }
+
     private ChannelDto mapToDto(ChannelResponse response) {
         return new ChannelDto(
                 response.getChannelId(),
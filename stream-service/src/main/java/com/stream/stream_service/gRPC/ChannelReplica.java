@@ -0,0 +1,261 @@
+package com.stream.stream_service.gRPC;
+
+import com.example.grpc.ChannelChange;
+import com.example.grpc.ChannelPreview;
+import com.example.grpc.ChannelServiceGrpc;
+import com.example.grpc.WatchChannelsRequest;
+import com.stream.stream_service.DTO.ChannelDto;
+import com.stream.stream_service.utils.StringPacker;
+import io.grpc.Status;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Local replica of every channel preview, fed by channel-service's WatchChannels stream
+ * - Starts from a snapshot, then applies upserts and deletes in version order
+ * - Reconnects with backoff from the last applied version, so a short disconnect only replays what was missed
+ * - Each preview is one byte[] (StringPacker): the playback and avatar URL prefixes are stored once
+ * While it is ready (a snapshot was applied, and the stream is up or broke less than max-stale ago),
+ * ChannelGrpcClient answers preview lookups from here; only while the stream is up is a channel missing
+ * from the replica known not to exist, otherwise it may have been created since the stream broke.
+ */
+@Service
+public class ChannelReplica implements MeterBinder {
+
+    @GrpcClient("channelService")
+    private ChannelServiceGrpc.ChannelServiceStub stub;
+
+    @Value("${channel.replica.enabled:true}")
+    private boolean enabled;
+
+    @Value("${channel.replica.max-stale-ms:600000}")
+    private long maxStaleMs;
+
+    @Value("${channel.replica.reconnect-min-ms:500}")
+    private long reconnectMinMs;
+
+    @Value("${channel.replica.reconnect-max-ms:30000}")
+    private long reconnectMaxMs;
+
+    @Value("${channel.replica.max-prefixes:4096}")
+    private int maxPrefixes;
+
+    private StringPacker packer;
+    private ScheduledExecutorService executor;
+
+    // Packed name, playback URL and avatar URL by channel ID; replaced whole by each snapshot
+    private volatile Map<String, byte[]> channels = new ConcurrentHashMap<>();
+    private volatile long version;
+    private volatile boolean synced;
+    // When the stream last broke, 0 while it is up
+    private volatile long disconnectedAt;
+    private volatile boolean stopped;
+    private volatile ClientCallStreamObserver<WatchChannelsRequest> call;
+
+    // Only touched by the callbacks of the current call, which gRPC runs one at a time
+    private Map<String, byte[]> building;
+    private long reconnectDelayMs;
+    private boolean unimplementedLogged;
+
+    @PostConstruct
+    public void init() {
+        packer = new StringPacker(maxPrefixes);
+        reconnectDelayMs = reconnectMinMs;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "channel-replica");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            connect();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopped = true;
+        ClientCallStreamObserver<WatchChannelsRequest> current = call;
+        if (current != null) {
+            current.cancel("Shutting down", null);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return true if lookups can be answered from the replica alone
+     */
+    public boolean isReady() {
+        long brokenSince = disconnectedAt;
+        return synced && (brokenSince == 0 || System.currentTimeMillis() - brokenSince < maxStaleMs);
+    }
+
+    /**
+     * @return true if the replica is ready and the stream is up, so an id it lacks is not a channel
+     */
+    public boolean isConnected() {
+        return synced && disconnectedAt == 0;
+    }
+
+    /**
+     * Look up channel previews in the replica
+     * @param ids Channel IDs, duplicates allowed
+     * @return Previews in the order of the ids; duplicates and unknown ids are left out
+     */
+    public List<ChannelDto> getChannelPreviewsByIds(List<String> ids) {
+        Map<String, byte[]> current = channels;
+        List<ChannelDto> result = new ArrayList<>(ids.size());
+        Set<String> seen = new HashSet<>();
+        for (String id : ids) {
+            byte[] record = current.get(id);
+            if (record != null && seen.add(id)) {
+                String[] values = packer.unpack(record);
+                result.add(new ChannelDto(id, values[0], values[1], values[2]));
+            }
+        }
+        return result;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return channels.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("channel.replica.size", this, ChannelReplica::size).register(registry);
+        Gauge.builder("channel.replica.ready", this, replica -> replica.isReady() ? 1 : 0).register(registry);
+        Gauge.builder("channel.replica.prefixes", this, replica -> replica.packer.getPrefixCount()).register(registry);
+    }
+
+    private void connect() {
+        if (stopped) {
+            return;
+        }
+        WatchChannelsRequest request = WatchChannelsRequest.newBuilder()
+                .setFromVersion(synced ? version : 0)
+                .build();
+        stub.watchChannels(request, new ClientResponseObserver<WatchChannelsRequest, ChannelChange>() {
+            @Override
+            public void beforeStart(ClientCallStreamObserver<WatchChannelsRequest> requestStream) {
+                call = requestStream;
+            }
+
+            @Override
+            public void onNext(ChannelChange change) {
+                apply(change);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                disconnected(Status.fromThrowable(t));
+            }
+
+            @Override
+            public void onCompleted() {
+                disconnected(Status.UNAVAILABLE.withDescription("Stream closed by channel-service"));
+            }
+        });
+    }
+
+    private void apply(ChannelChange change) {
+        switch (change.getType()) {
+            case SNAPSHOT -> {
+                if (building == null) {
+                    building = new ConcurrentHashMap<>();
+                }
+                change.getChannelsList().forEach(preview -> building.put(preview.getChannelId(), pack(preview)));
+                if (change.getLast()) {
+                    // Swapped whole, readers never see half a snapshot
+                    channels = building;
+                    building = null;
+                    version = change.getVersion();
+                    synced = true;
+                    connected();
+                }
+            }
+            case RESUME -> connected();
+            case UPSERT -> {
+                if (change.getVersion() > version) {
+                    change.getChannelsList().forEach(preview -> channels.put(preview.getChannelId(), pack(preview)));
+                    version = change.getVersion();
+                }
+            }
+            case DELETE -> {
+                if (change.getVersion() > version) {
+                    channels.remove(change.getChannelId());
+                    version = change.getVersion();
+                }
+            }
+            default -> {
+                // Type added by a newer channel-service
+            }
+        }
+    }
+
+    private void connected() {
+        disconnectedAt = 0;
+        reconnectDelayMs = reconnectMinMs;
+    }
+
+    private void disconnected(Status status) {
+        call = null;
+        building = null;
+        if (disconnectedAt == 0) {
+            disconnectedAt = System.currentTimeMillis();
+        }
+        if (stopped) {
+            return;
+        }
+        long delayMs = reconnectDelayMs;
+        reconnectDelayMs = Math.min(reconnectDelayMs * 2, reconnectMaxMs);
+        if (status.getCode() == Status.Code.UNIMPLEMENTED) {
+            // Older channel-service: keep using the near-cache and retry at the slowest pace
+            delayMs = reconnectMaxMs;
+            if (!unimplementedLogged) {
+                unimplementedLogged = true;
+                System.err.println("channel-service does not serve WatchChannels, channel previews use the near-cache");
+            }
+        } else {
+            System.err.println("Channel replica stream failed (" + status + "), reconnecting in " + delayMs + "ms");
+        }
+        try {
+            executor.schedule(this::connect, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // Executor shut down
+        }
+    }
+
+    private byte[] pack(ChannelPreview preview) {
+        return packer.pack(preview.getName(), preview.getPlaybackUrl(), preview.getAvatarUrl());
+    }
+}
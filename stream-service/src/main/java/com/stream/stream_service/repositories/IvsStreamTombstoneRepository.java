@@ -0,0 +1,20 @@
+package com.stream.stream_service.repositories;
+
+import com.stream.stream_service.entities.IvsStreamTombstone;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface IvsStreamTombstoneRepository extends JpaRepository<IvsStreamTombstone, String> {
+
+    List<IvsStreamTombstone> findByAwsStreamIdIn(Collection<String> awsStreamIds);
+
+    @Modifying
+    @Query("DELETE FROM IvsStreamTombstone t WHERE t.endedAt < :before")
+    int deleteEndedBefore(LocalDateTime before);
+}
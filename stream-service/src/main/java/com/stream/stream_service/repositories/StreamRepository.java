@@ -1,30 +1,73 @@
 package com.stream.stream_service.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.Pageable;
+import com.stream.stream_service.DTO.StreamCardDto;
 import com.stream.stream_service.entities.Stream;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import jakarta.persistence.LockModeType;
 
 @Repository
 public interface StreamRepository extends JpaRepository<Stream, String> {
+
+    // List pages read StreamCardDto rows in read-only transactions: no TEXT description, no managed entities,
+    // no flush or dirty checking
+    String CARD = "SELECT new com.stream.stream_service.DTO.StreamCardDto("
+            + "s.id, s.channelId, s.title, s.thumbnailUrl, s.isLive, s.viewers, s.category, s.startedAt, s.endedAt, s.vodUrl) "
+            + "FROM Stream s ";
     
     List<Stream> findByChannelId(String channelId);
  
     Optional<Stream> findByChannelIdAndIsLiveTrue(String channelId);
  
-    List<Stream> findByIsLive(Boolean isLive);
+    // Live streams only; the literal predicate lets Postgres use the partial index on is_live = true
+    List<Stream> findByIsLiveTrue();
+
+    @Transactional(readOnly = true)
+    @Query(CARD + "WHERE s.isLive = true")
+    List<StreamCardDto> findLiveCards();
+
+    // IDs of live streams only (popular VOD index)
+    @Query("SELECT s.id FROM Stream s WHERE s.isLive = true")
+    List<String> findLiveIds();
     
     // Find finished streams for a channel, ordered by start date descending (latest first)
-    List<Stream> findByChannelIdAndIsLiveFalseOrderByStartedAtDesc(String channelId, Pageable pageable);
+    @Transactional(readOnly = true)
+    @Query(CARD + "WHERE s.channelId = :channelId AND s.isLive = false ORDER BY s.startedAt DESC")
+    List<StreamCardDto> findFinishedCardsByChannel(String channelId, Pageable pageable);
     
     // Count finished streams for a channel
     long countByChannelIdAndIsLiveFalse(String channelId);
+
+    // Keyset pagination of a channel's finished streams, newest first; the first page has no cursor
+    @Transactional(readOnly = true)
+    @Query(CARD + "WHERE s.channelId = :channelId AND s.isLive = false AND s.startedAt IS NOT NULL "
+            + "ORDER BY s.startedAt DESC, s.id DESC")
+    List<StreamCardDto> findFinishedCardsByChannelKeyset(String channelId, Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query(CARD + "WHERE s.channelId = :channelId AND s.isLive = false AND s.startedAt IS NOT NULL "
+            + "AND (s.startedAt < :startedAt OR (s.startedAt = :startedAt AND s.id < :id)) "
+            + "ORDER BY s.startedAt DESC, s.id DESC")
+    List<StreamCardDto> findFinishedCardsByChannelBefore(String channelId, LocalDateTime startedAt, String id, Pageable pageable);
     
     // Find all finished streams ordered by views descending (most viewed first)
-    List<Stream> findByIsLiveFalseOrderByViewersDesc(Pageable pageable);
+    @Transactional(readOnly = true)
+    @Query(CARD + "WHERE s.isLive = false ORDER BY s.viewers DESC")
+    List<StreamCardDto> findFinishedCardsByViewers(Pageable pageable);
     
+    // Find all finished streams by approximate unique viewers, unmeasured streams last (then by raw views)
+    @Transactional(readOnly = true)
+    @Query(CARD + "WHERE s.isLive = false ORDER BY s.uniqueViewers DESC NULLS LAST, s.viewers DESC")
+    List<StreamCardDto> findFinishedCardsByUniqueViewers(Pageable pageable);
+
     // Count all finished streams
     long countByIsLiveFalse();
       // Find the most recent stream for a channel (for updating VOD URL)
@@ -34,4 +77,20 @@ public interface StreamRepository extends JpaRepository<Stream, String> {
     
     // Find stream by AWS stream ID
     Optional<Stream> findByAwsStreamId(String awsStreamId);
+
+    // Find streams by AWS stream IDs (batched IVS ingestion)
+    List<Stream> findByAwsStreamIdIn(Collection<String> awsStreamIds);
+
+    // Which of the given streams are still live (unique-viewer sketches of the others are merged and dropped)
+    @Query("SELECT s.id FROM Stream s WHERE s.id IN :ids AND s.isLive = true")
+    List<String> findLiveIdsByIdIn(Collection<String> ids);
+
+    // Load a stream with its row locked until the transaction ends (read-modify-write of the viewer sketch)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Stream s WHERE s.id = :id")
+    Optional<Stream> findForUpdateById(String id);
+
+    // Read only the persisted viewer count (used to seed the in-memory counter)
+    @Query("SELECT COALESCE(s.viewers, 0) FROM Stream s WHERE s.id = :id")
+    Optional<Long> findViewersById(String id);
 }
\ No newline at end of file
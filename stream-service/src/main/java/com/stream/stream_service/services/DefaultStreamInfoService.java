@@ -11,7 +11,10 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 public class DefaultStreamInfoService {
@@ -30,6 +33,19 @@ public class DefaultStreamInfoService {
     public Optional<DefaultStreamInfo> findByChannelId(String channelId) {
         return defaultStreamInfoRepository.findByChannelId(channelId);
     }
+
+    /**
+     * Load the default stream infos of several channels with one query
+     * @param channelIds Channel IDs
+     * @return Default stream infos by channel ID; channels without one are left out
+     */
+    public Map<String, DefaultStreamInfo> findByChannelIds(Collection<String> channelIds) {
+        if (channelIds.isEmpty()) {
+            return Map.of();
+        }
+        return defaultStreamInfoRepository.findAllById(channelIds).stream()
+                .collect(Collectors.toMap(DefaultStreamInfo::getChannelId, info -> info));
+    }
     
     public Optional<DefaultStreamInfo> getStreamInfoWithUserId(String userId) {
         // Step 1: Get the channel from gRPC
@@ -0,0 +1,328 @@
+package com.stream.stream_service.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.stream.stream_service.utils.HashedTimerWheel;
+import com.stream.stream_service.utils.SegmentedLog;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Persistent scheduler for deferred stream work (delayed thumbnail updates, retries...)
+ * - Tasks are a type and an opaque payload; a handler is registered per type by the owning service
+ * - Each task is appended to a local log (SegmentedLog) before it is armed on a hashed timer wheel,
+ *   so pending tasks survive a restart and are re-armed (late ones run right away) once the app is ready
+ * - Due tasks run on a bounded pool; when it is saturated the wheel thread runs them itself,
+ *   which slows the wheel down instead of queueing without limit
+ * - A failing task is retried with a linear backoff, up to a maximum number of attempts
+ * - On shutdown, running and queued tasks are drained; tasks not yet due stay in the log
+ * Delivery is at-least-once: a task finished just before a crash may run again, handlers must be idempotent.
+ */
+@Service
+public class DeferredTaskService {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${stream.deferred.tick-ms:100}")
+    private long tickMs;
+
+    @Value("${stream.deferred.wheel-size:512}")
+    private int wheelSize;
+
+    @Value("${stream.deferred.threads:4}")
+    private int threads;
+
+    @Value("${stream.deferred.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${stream.deferred.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${stream.deferred.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Value("${stream.deferred.drain-timeout-ms:10000}")
+    private long drainTimeoutMs;
+
+    @Value("${stream.deferred.dir:data/deferred-tasks}")
+    private String dir;
+
+    @Value("${stream.deferred.segment-bytes:4194304}")
+    private int segmentBytes;
+
+    @Value("${stream.deferred.fsync:false}")
+    private boolean fsync;
+
+    private final Map<String, Consumer<byte[]>> handlers = new ConcurrentHashMap<>();
+
+    // Log offsets of tasks not finished yet; guarded by logLock together with the appends
+    private final NavigableSet<Long> unfinished = new ConcurrentSkipListSet<>();
+    private final ReentrantLock logLock = new ReentrantLock();
+    private final AtomicInteger running = new AtomicInteger();
+
+    private SegmentedLog log;
+    private long replayUntil;
+    private ThreadPoolExecutor executor;
+    private HashedTimerWheel wheel;
+
+    private Timer scheduleTimer;
+    private Counter succeeded;
+    private Counter retried;
+    private Counter dropped;
+
+    @PostConstruct
+    public void init() throws IOException {
+        log = SegmentedLog.open(Path.of(dir), segmentBytes, fsync);
+        // Tasks appended from now on are armed by schedule(); older ones by replay()
+        replayUntil = log.getLastOffset();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "deferred-task");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        wheel = new HashedTimerWheel("deferred-task-wheel", tickMs, wheelSize, executor);
+
+        scheduleTimer = Timer.builder("deferred.tasks.schedule")
+                .description("Time to persist and arm a deferred task")
+                .register(meterRegistry);
+        succeeded = Counter.builder("deferred.tasks.executed").tag("result", "success").register(meterRegistry);
+        retried = Counter.builder("deferred.tasks.executed").tag("result", "retry").register(meterRegistry);
+        dropped = Counter.builder("deferred.tasks.executed").tag("result", "dropped").register(meterRegistry);
+        Gauge.builder("deferred.tasks.pending", unfinished, NavigableSet::size).register(meterRegistry);
+        Gauge.builder("deferred.tasks.running", running, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Register the handler of a task type; call it before the application is ready so replayed tasks find it
+     * @param type Task type
+     * @param handler Runs the task; throwing makes it retried
+     */
+    public void register(String type, Consumer<byte[]> handler) {
+        handlers.put(type, handler);
+    }
+
+    /**
+     * Persist a task and run it after a delay
+     * @param type Task type (a handler must be registered for it)
+     * @param payload Task data passed to the handler
+     * @param delay Delay before the task runs
+     */
+    public void schedule(String type, byte[] payload, Duration delay) {
+        long start = System.nanoTime();
+        Task task = new Task(type, System.currentTimeMillis() + delay.toMillis(), 1, payload);
+        persist(task);
+        arm(task);
+        scheduleTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return Number of tasks persisted and not finished
+     */
+    public int getPending() {
+        return unfinished.size();
+    }
+
+    /**
+     * Arm the tasks left in the log by the previous run
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void replay() {
+        List<Task> tasks = new ArrayList<>();
+        log.read(log.getCommittedOffset() + 1, (offset, payload) -> {
+            if (offset > replayUntil) {
+                return;
+            }
+            try {
+                Task task = decode(payload);
+                task.offset = offset;
+                tasks.add(task);
+            } catch (UncheckedIOException e) {
+                System.err.println("Skipping unreadable deferred task " + offset);
+            }
+        });
+        logLock.lock();
+        try {
+            tasks.forEach(task -> unfinished.add(task.offset));
+        } finally {
+            logLock.unlock();
+        }
+        if (!tasks.isEmpty()) {
+            System.out.println("Re-arming " + tasks.size() + " deferred tasks from the log");
+        }
+        tasks.forEach(this::arm);
+        // Unreadable entries are committed past once everything before them is finished
+        commit();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        // Tasks not due yet stay in the log for the next start
+        wheel.stop();
+        executor.shutdown();
+        if (!executor.awaitTermination(drainTimeoutMs, TimeUnit.MILLISECONDS)) {
+            System.err.println("Deferred tasks still running after " + drainTimeoutMs + "ms, they will run again after restart");
+            executor.shutdownNow();
+        }
+        log.close();
+    }
+
+    private void persist(Task task) {
+        logLock.lock();
+        try {
+            task.offset = log.append(encode(task));
+            unfinished.add(task.offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not persist deferred task " + task.type, e);
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    private void arm(Task task) {
+        long delayMs = Math.max(0, task.dueAt - System.currentTimeMillis());
+        try {
+            wheel.schedule(() -> run(task), delayMs, TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
+            // Shutting down: the task is already in the log and is re-armed at the next start
+            System.err.println("Deferred task " + task.type + " left in the log, timer wheel stopped");
+        }
+    }
+
+    private void run(Task task) {
+        Timer.builder("deferred.tasks.fire.lag")
+                .description("Delay between the due time of a deferred task and its start")
+                .tag("type", task.type)
+                .register(meterRegistry)
+                .record(Math.max(0, System.currentTimeMillis() - task.dueAt), TimeUnit.MILLISECONDS);
+        running.incrementAndGet();
+        try {
+            Consumer<byte[]> handler = handlers.get(task.type);
+            if (handler == null) {
+                throw new IllegalStateException("No handler for deferred task type " + task.type);
+            }
+            handler.accept(task.payload);
+            succeeded.increment();
+            finish(task);
+        } catch (RuntimeException e) {
+            if (task.attempt < maxAttempts) {
+                retried.increment();
+                Task retry = new Task(task.type, System.currentTimeMillis() + retryBackoffMs * task.attempt,
+                        task.attempt + 1, task.payload);
+                try {
+                    persist(retry);
+                } catch (RuntimeException persistFailure) {
+                    // The original entry stays unfinished, so the task runs again after a restart
+                    System.err.println("Could not reschedule deferred task " + task.type + ": " + persistFailure.getMessage());
+                    return;
+                }
+                arm(retry);
+            } else {
+                dropped.increment();
+                System.err.println("Dropping deferred task " + task.type + " after " + task.attempt + " attempts: " + e.getMessage());
+            }
+            finish(task);
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    private void finish(Task task) {
+        logLock.lock();
+        try {
+            unfinished.remove(task.offset);
+        } finally {
+            logLock.unlock();
+        }
+        commit();
+    }
+
+    // Advance the consumer offset to just below the oldest unfinished task
+    private void commit() {
+        logLock.lock();
+        try {
+            log.commit(unfinished.isEmpty() ? log.getLastOffset() : unfinished.first() - 1);
+        } catch (IOException e) {
+            System.err.println("Could not commit deferred task log offset: " + e.getMessage());
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    private static byte[] encode(Task task) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + task.payload.length);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(task.type);
+            out.writeLong(task.dueAt);
+            out.writeInt(task.attempt);
+            out.writeInt(task.payload.length);
+            out.write(task.payload);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Task decode(byte[] bytes) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            String type = in.readUTF();
+            long dueAt = in.readLong();
+            int attempt = in.readInt();
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            return new Task(type, dueAt, attempt, payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class Task {
+        private final String type;
+        private final long dueAt;
+        private final int attempt;
+        private final byte[] payload;
+        private long offset;
+
+        private Task(String type, long dueAt, int attempt, byte[] payload) {
+            this.type = type;
+            this.dueAt = dueAt;
+            this.attempt = attempt;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.stream.stream_service.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.stream.stream_service.DTO.IvsCommand;
+import com.stream.stream_service.utils.SegmentedLog;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queued, batched ingestion of IVS webhook events
+ * - Each accepted command is first appended to a local memory-mapped log (SegmentedLog), then queued;
+ *   the webhook answers 202 once it is in the log, so bursts (e.g. mass reconnects) never block it
+ * - Commands are sharded by channel ARN over single-threaded workers, which keeps per-ARN ordering
+ * - Each worker drains its queue in micro-batches applied in one transaction (StreamService.applyIvsBatch)
+ * - If a batch fails, its commands are retried one by one so a single bad event cannot hold back the others
+ * - A command that keeps failing is never skipped: it is retried with a capped backoff and holds its shard
+ *   (and the consumer offset) until it applies; at shutdown it stays in the log and is replayed at the next start
+ * - The log's consumer offset advances to the highest offset below which everything is applied, and
+ *   fully applied segments are deleted; at startup the entries after it are replayed before new events
+ * Queues are bounded: when a shard is full the webhook answers 503 and IVS/EventBridge redelivers later.
+ * Timers: ivs.ingest.apply (each applyIvsBatch call, by mode and result) and ivs.ingest.latency
+ * (acceptance to processing of each command, by event type).
+ * Thumbnail commands are handed to the DeferredTaskService and only logged and enqueued once IVS has
+ * written the first thumbnail; if the queue is full at that point the deferred task is retried.
+ */
+@Service
+public class IvsIngestionService implements MeterBinder {
+
+    private static final String DEFERRED_COMMAND = "ivs-command";
+
+    @Autowired
+    private StreamService streamService;
+
+    @Autowired
+    private DeferredTaskService deferredTaskService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${stream.ivs-ingest.workers:4}")
+    private int workers;
+
+    @Value("${stream.ivs-ingest.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${stream.ivs-ingest.batch-size:100}")
+    private int batchSize;
+
+    @Value("${stream.ivs-ingest.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${stream.ivs-ingest.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+
+    @Value("${stream.ivs-ingest.max-backoff-ms:30000}")
+    private long maxBackoffMs;
+
+    @Value("${stream.ivs-ingest.thumbnail-delay-ms:30000}")
+    private long thumbnailDelayMs;
+
+    @Value("${stream.ivs-log.dir:data/ivs-log}")
+    private String logDir;
+
+    @Value("${stream.ivs-log.segment-bytes:16777216}")
+    private int segmentBytes;
+
+    @Value("${stream.ivs-log.fsync:false}")
+    private boolean fsync;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder stalled = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+
+    // Log offsets appended but not applied yet; guarded by logLock together with the appends
+    private final NavigableSet<Long> unapplied = new ConcurrentSkipListSet<>();
+    private final ReentrantLock logLock = new ReentrantLock();
+
+    private SegmentedLog log;
+    private List<BlockingQueue<Pending>> queues;
+    private List<Thread> threads;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() throws IOException {
+        log = SegmentedLog.open(Path.of(logDir), segmentBytes, fsync);
+        int perWorker = Math.max(1, queueCapacity / workers);
+        queues = new ArrayList<>(workers);
+        threads = new ArrayList<>(workers);
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(perWorker);
+            Thread thread = new Thread(() -> drain(queue), "ivs-ingest-" + i);
+            thread.setDaemon(true);
+            queues.add(queue);
+            threads.add(thread);
+            thread.start();
+        }
+        deferredTaskService.register(DEFERRED_COMMAND, payload -> {
+            if (!accept(IvsCommand.fromBytes(payload))) {
+                throw new IllegalStateException("IVS ingest queue full");
+            }
+        });
+        replay();
+    }
+
+    /**
+     * Stop accepting work and let the workers apply what is already queued
+     * Thumbnails not due yet stay in the deferred task log and are scheduled again at the next start.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        running = false;
+        for (Thread thread : threads) {
+            thread.join(10_000);
+            // Still retrying a failing command: interrupt it, the command stays in the log
+            thread.interrupt();
+            thread.join(1000);
+        }
+        log.close();
+    }
+
+    /**
+     * Log and enqueue commands for their workers
+     * Redelivered events are harmless (see StreamService.applyIvsBatch), so a partially accepted
+     * list can simply be sent again.
+     * @param commands Commands in arrival order
+     * @return false if at least one command was not accepted (queue full or log not writable)
+     */
+    public boolean submit(List<IvsCommand> commands) {
+        boolean accepted = true;
+        for (IvsCommand command : commands) {
+            if (!running) {
+                rejected.increment();
+                return false;
+            }
+            if (command.getType() != IvsCommand.Type.THUMBNAIL) {
+                accepted &= accept(command);
+                continue;
+            }
+            try {
+                deferredTaskService.schedule(DEFERRED_COMMAND, command.toBytes(), Duration.ofMillis(thumbnailDelayMs));
+            } catch (UncheckedIOException e) {
+                rejected.increment();
+                System.err.println("Could not persist deferred " + command + ": " + e.getMessage());
+                return false;
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * @return Number of commands waiting in the queues
+     */
+    public int getQueued() {
+        return queues.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    /**
+     * @return Log offset up to which every command has been applied
+     */
+    public long getCommittedOffset() {
+        return log.getCommittedOffset();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("ivs.ingest.queue.size", this, IvsIngestionService::getQueued).register(registry);
+        Gauge.builder("ivs.ingest.log.unapplied", unapplied, NavigableSet::size).register(registry);
+        Gauge.builder("ivs.ingest.log.segments", this, service -> service.log.getSegmentCount()).register(registry);
+        FunctionCounter.builder("ivs.ingest.rejected", rejected, LongAdder::sum).register(registry);
+        FunctionCounter.builder("ivs.ingest.stalled", stalled, LongAdder::sum).register(registry);
+        FunctionCounter.builder("ivs.ingest.replayed", replayed, LongAdder::sum).register(registry);
+    }
+
+    // Log and enqueue one command; when it is not accepted, the sender (or the deferred task) retries it
+    private boolean accept(IvsCommand command) {
+        if (!running) {
+            rejected.increment();
+            return false;
+        }
+        Pending pending;
+        try {
+            pending = new Pending(append(command), command);
+        } catch (IOException e) {
+            rejected.increment();
+            System.err.println("Could not write IVS event log, rejecting " + command + ": " + e.getMessage());
+            return false;
+        }
+        if (!enqueue(pending)) {
+            markApplied(List.of(pending));
+            return false;
+        }
+        return true;
+    }
+
+    private long append(IvsCommand command) throws IOException {
+        logLock.lock();
+        try {
+            long offset = log.append(command.toBytes());
+            unapplied.add(offset);
+            return offset;
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    // Entries after the consumer offset were accepted but maybe not applied; apply them again, in order
+    private void replay() throws IOException {
+        List<Pending> entries = new ArrayList<>();
+        log.read(log.getCommittedOffset() + 1, (offset, payload) -> {
+            try {
+                entries.add(new Pending(offset, IvsCommand.fromBytes(payload)));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Skipping unreadable IVS log entry " + offset);
+            }
+        });
+        logLock.lock();
+        try {
+            entries.forEach(entry -> unapplied.add(entry.offset));
+            // Offsets skipped above (unreadable) are committed past as soon as the replayed ones are applied
+            if (entries.isEmpty()) {
+                log.commit(log.getLastOffset());
+            }
+        } finally {
+            logLock.unlock();
+        }
+        if (!entries.isEmpty()) {
+            System.out.println("Replaying " + entries.size() + " IVS events from the log");
+        }
+        for (Pending entry : entries) {
+            try {
+                queues.get(shardOf(entry.command)).put(entry);
+                replayed.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private boolean enqueue(Pending pending) {
+        if (!queues.get(shardOf(pending.command)).offer(pending)) {
+            rejected.increment();
+            System.err.println("IVS ingest queue full, rejecting " + pending.command);
+            return false;
+        }
+        return true;
+    }
+
+    private int shardOf(IvsCommand command) {
+        return Math.floorMod(command.getChannelArn().hashCode(), queues.size());
+    }
+
+    private void drain(BlockingQueue<Pending> queue) {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                List<Pending> done = apply(batch);
+                long now = System.nanoTime();
+                for (Pending pending : done) {
+                    Timer.builder("ivs.ingest.latency")
+                            .description("Time from acceptance (or replay) of an IVS event to its processing")
+                            .tag("type", pending.command.getType().name())
+                            .register(meterRegistry)
+                            .record(now - pending.acceptedAt, TimeUnit.NANOSECONDS);
+                }
+                markApplied(done);
+                if (done.size() < batch.size()) {
+                    // Stopping with a command not applied: later ones stay queued in the log behind it
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * @return The applied commands: the whole batch, or the ones before a command given up on at shutdown
+     */
+    private List<Pending> apply(List<Pending> batch) throws InterruptedException {
+        if (batch.size() > 1) {
+            long start = System.nanoTime();
+            try {
+                streamService.applyIvsBatch(batch.stream().map(pending -> pending.command).toList());
+                recordApply("batch", "success", start);
+                return batch;
+            } catch (RuntimeException e) {
+                recordApply("batch", "failure", start);
+                System.err.println("IVS batch of " + batch.size() + " commands failed, applying one by one: " + e.getMessage());
+            }
+        }
+        // In order and blocking the worker, so later commands of the same ARN wait for the retries
+        List<Pending> done = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            if (!applyWithRetry(pending.command)) {
+                break;
+            }
+            done.add(pending);
+        }
+        return done;
+    }
+
+    /**
+     * Apply one command, retrying until it succeeds
+     * @return false if the service is stopping before it could be applied (it is replayed at the next start)
+     */
+    private boolean applyWithRetry(IvsCommand command) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                streamService.applyIvsBatch(List.of(command));
+                recordApply("single", "success", start);
+                return true;
+            } catch (RuntimeException e) {
+                recordApply("single", "failure", start);
+                if (attempt == maxAttempts) {
+                    stalled.increment();
+                    System.err.println("Still failing to apply " + command + " after " + attempt
+                            + " attempts, holding its shard until it applies: " + e.getMessage());
+                }
+                if (!running) {
+                    System.err.println("Leaving " + command + " in the IVS log for the next start");
+                    return false;
+                }
+                Thread.sleep(Math.min(retryBackoffMs * attempt, maxBackoffMs));
+            }
+        }
+    }
+
+    private void recordApply(String mode, String result, long startNanos) {
+        Timer.builder("ivs.ingest.apply")
+                .description("Time to apply IVS commands in one transaction")
+                .tag("mode", mode)
+                .tag("result", result)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Advance the consumer offset to just below the oldest command still in flight
+    private void markApplied(List<Pending> done) {
+        logLock.lock();
+        try {
+            done.forEach(pending -> unapplied.remove(pending.offset));
+            long watermark = unapplied.isEmpty() ? log.getLastOffset() : unapplied.first() - 1;
+            log.commit(watermark);
+        } catch (IOException e) {
+            // Only means more replay after a crash; the next commit retries
+            System.err.println("Could not commit IVS log offset: " + e.getMessage());
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    private static final class Pending {
+        private final long offset;
+        private final IvsCommand command;
+        private final long acceptedAt = System.nanoTime();
+
+        private Pending(long offset, IvsCommand command) {
+            this.offset = offset;
+            this.command = command;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.stream.stream_service.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stream.stream_service.DTO.ChannelDto;
+import com.stream.stream_service.DTO.LiveCategoryDto;
+import com.stream.stream_service.DTO.LiveDirectorySnapshot;
+import com.stream.stream_service.DTO.StreamCardDto;
+import com.stream.stream_service.DTO.StreamCardWithChannelDto;
+import com.stream.stream_service.entities.Stream;
+import com.stream.stream_service.enums.StreamCategory;
+import com.stream.stream_service.events.StreamLifecycleEvent;
+import com.stream.stream_service.gRPC.ChannelGrpcClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Materialized live directory
+ * The list served by /livestreams only changes on stream start/end/update, so it is kept as an immutable
+ * snapshot (enriched entries + JSON bytes) and swapped atomically when a change commits:
+ * - STARTED/UPDATED/ENDED events patch the previous snapshot (one channel lookup at most, outside the write lock)
+ * - Viewer counts are refreshed from the in-memory counter on a short interval
+ * - A periodic full rebuild picks up changes committed by other replicas; it loads and enriches without the
+ *   lock and only swaps the result in under it
+ * Every change is also applied to a per-category index (EnumMap of viewer-ordered sets with running
+ * totals), from which the category facets and the per-category top N are republished, so
+ * /livestreams?category= and /categories/live never scan the directory.
+ */
+@Service
+public class LiveDirectoryService {
+
+    @Autowired
+    private StreamQueryService streamQueryService;
+
+    @Autowired
+    private ChannelGrpcClient channelGrpcClient;
+
+    @Autowired
+    private ViewerCounterService viewerCounterService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${stream.directory.category-top-n:100}")
+    private int categoryTopN;
+
+    // Distinguishes ETags of different replicas/restarts that reach the same version number
+    private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+
+    // Single writer at a time; readers only load the reference
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicReference<LiveDirectorySnapshot> current = new AtomicReference<>();
+    // Bumped under writeLock by every lifecycle patch; a rebuild whose load overlapped one is discarded
+    private volatile long patches;
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+
+    // Live entries per category, most viewed first; only touched under writeLock
+    private static final Comparator<StreamCardWithChannelDto> BY_VIEWERS =
+            Comparator.comparingLong(LiveDirectoryService::viewersOf).reversed()
+                    .thenComparing(entry -> entry.getStream().getId());
+    private final Map<StreamCategory, CategoryEntries> categoryIndex = new EnumMap<>(StreamCategory.class);
+
+    // Published for readers, replaced after each change
+    private volatile Map<StreamCategory, List<StreamCardWithChannelDto>> categoryTop = Map.of();
+    private volatile List<LiveCategoryDto> categoryFacets = List.of();
+
+    public LiveDirectoryService() {
+        for (StreamCategory category : StreamCategory.values()) {
+            categoryIndex.put(category, new CategoryEntries());
+        }
+    }
+
+    /**
+     * Get the current snapshot
+     * @return Latest published snapshot (never null once the application is ready)
+     */
+    public LiveDirectorySnapshot getSnapshot() {
+        LiveDirectorySnapshot snapshot = current.get();
+        return snapshot != null ? snapshot : rebuild();
+    }
+
+    /**
+     * Get the live streams of one category, most viewed first
+     * @param category The category
+     * @return Up to the configured top N streams of the category
+     */
+    public List<StreamCardWithChannelDto> getLiveStreamsByCategory(StreamCategory category) {
+        getSnapshot();
+        return categoryTop.getOrDefault(category, List.of());
+    }
+
+    /**
+     * Get the live count and total viewers of every category
+     * @return One facet per category, in enum order (empty categories included)
+     */
+    public List<LiveCategoryDto> getCategoryFacets() {
+        getSnapshot();
+        return categoryFacets;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        scheduledRebuild();
+    }
+
+    /**
+     * Rebuild the whole snapshot from the database
+     * The query and the channel enrichment run without the lock. If a lifecycle patch was applied meanwhile,
+     * the load may predate it, so it is retried; after MAX_REBUILD_ATTEMPTS the patched snapshot is kept.
+     * @return New snapshot, or the current one if every attempt raced with a patch
+     */
+    public LiveDirectorySnapshot rebuild() {
+        for (int attempt = 1; ; attempt++) {
+            long seen = patches;
+            List<StreamCardWithChannelDto> entries = new ArrayList<>(streamQueryService.getLiveStreams());
+            writeLock.lock();
+            try {
+                LiveDirectorySnapshot previous = current.get();
+                if (patches != seen && previous != null) {
+                    if (attempt < MAX_REBUILD_ATTEMPTS) {
+                        continue;
+                    }
+                    return previous;
+                }
+                categoryIndex.values().forEach(CategoryEntries::clear);
+                Set<StreamCategory> touched = EnumSet.allOf(StreamCategory.class);
+                entries.forEach(entry -> index(entry, touched));
+                publishCategories(touched);
+                return publish(entries);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stream.directory.full-rebuild-interval-ms:60000}",
+               initialDelayString = "${stream.directory.full-rebuild-interval-ms:60000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // Keep serving the previous snapshot
+            System.err.println("Live directory rebuild failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Patch the snapshot once a stream change is committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStreamLifecycle(StreamLifecycleEvent event) {
+        Stream changed = event.getStream();
+        boolean listed = (event.getType() == StreamLifecycleEvent.Type.STARTED || event.getType() == StreamLifecycleEvent.Type.UPDATED)
+                && Boolean.TRUE.equals(changed.getIsLive());
+        // Resolved before taking the lock, so a slow channel-service never holds up other writers
+        ChannelDto resolved = listed ? resolveChannel(changed) : null;
+        writeLock.lock();
+        try {
+            LiveDirectorySnapshot previous = current.get();
+            if (previous != null) {
+                patches++;
+                apply(previous, changed, listed, resolved);
+                return;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        // Nothing published yet: this change is committed, so a full load includes it
+        rebuild();
+    }
+
+    // Patch one stream into the previous snapshot; caller holds writeLock
+    private void apply(LiveDirectorySnapshot previous, Stream changed, boolean listed, ChannelDto resolved) {
+        List<StreamCardWithChannelDto> entries = new ArrayList<>(previous.getEntries().size() + 1);
+        Set<StreamCategory> touched = EnumSet.noneOf(StreamCategory.class);
+        ChannelDto channel = null;
+        for (StreamCardWithChannelDto entry : previous.getEntries()) {
+            if (entry.getStream().getId().equals(changed.getId())) {
+                channel = entry.getChannel();
+                unindex(entry, touched);
+            } else {
+                entries.add(entry);
+            }
+        }
+        if (listed) {
+            if (channel == null) {
+                channel = resolved;
+            }
+            StreamCardWithChannelDto entry = new StreamCardWithChannelDto(StreamCardDto.from(changed), channel);
+            entries.add(entry);
+            index(entry, touched);
+        }
+        publishCategories(touched);
+        publish(entries);
+    }
+
+    /**
+     * Refresh viewer counts in the snapshot if any changed since the last publish
+     */
+    @Scheduled(fixedDelayString = "${stream.directory.viewers-refresh-interval-ms:5000}")
+    public void refreshViewerCounts() {
+        writeLock.lock();
+        try {
+            LiveDirectorySnapshot previous = current.get();
+            if (previous == null || previous.getEntries().isEmpty()) {
+                return;
+            }
+            Set<StreamCategory> touched = EnumSet.noneOf(StreamCategory.class);
+            List<StreamCardWithChannelDto> entries = new ArrayList<>(previous.getEntries().size());
+            for (StreamCardWithChannelDto entry : previous.getEntries()) {
+                long count = viewerCounterService.peekCount(entry.getStream().getId());
+                Long shown = entry.getStream().getViewers();
+                if (count >= 0 && (shown == null || count != shown)) {
+                    StreamCardWithChannelDto updated = new StreamCardWithChannelDto(entry.getStream().withViewers(count), entry.getChannel());
+                    unindex(entry, touched);
+                    index(updated, touched);
+                    entries.add(updated);
+                } else {
+                    entries.add(entry);
+                }
+            }
+            if (!touched.isEmpty()) {
+                publishCategories(touched);
+                publish(entries);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private LiveDirectorySnapshot publish(List<StreamCardWithChannelDto> entries) {
+        LiveDirectorySnapshot previous = current.get();
+        long version = previous == null ? 1 : previous.getVersion() + 1;
+        List<StreamCardWithChannelDto> frozen = Collections.unmodifiableList(entries);
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(frozen);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize live directory", e);
+        }
+        if (previous != null && Arrays.equals(previous.getJson(), json)) {
+            // Nothing visible changed, keep the version (and ETag) clients already have
+            return previous;
+        }
+        LiveDirectorySnapshot snapshot = new LiveDirectorySnapshot(
+            version,
+            "\"" + instanceId + "-" + version + "\"",
+            frozen,
+            json
+        );
+        current.set(snapshot);
+        return snapshot;
+    }
+
+    private void index(StreamCardWithChannelDto entry, Set<StreamCategory> touched) {
+        StreamCategory category = categoryOf(entry);
+        CategoryEntries entries = categoryIndex.get(category);
+        if (entries.sorted.add(entry)) {
+            entries.viewers += viewersOf(entry);
+            touched.add(category);
+        }
+    }
+
+    private void unindex(StreamCardWithChannelDto entry, Set<StreamCategory> touched) {
+        StreamCategory category = categoryOf(entry);
+        CategoryEntries entries = categoryIndex.get(category);
+        if (entries.sorted.remove(entry)) {
+            entries.viewers -= viewersOf(entry);
+            touched.add(category);
+        }
+    }
+
+    // Republish the top N of the touched categories and the facets of all of them
+    private void publishCategories(Set<StreamCategory> touched) {
+        Map<StreamCategory, List<StreamCardWithChannelDto>> top = new EnumMap<>(StreamCategory.class);
+        top.putAll(categoryTop);
+        for (StreamCategory category : touched) {
+            top.put(category, categoryIndex.get(category).sorted.stream().limit(categoryTopN).toList());
+        }
+        List<LiveCategoryDto> facets = new ArrayList<>(categoryIndex.size());
+        categoryIndex.forEach((category, entries) ->
+                facets.add(new LiveCategoryDto(category, category.getDisplayName(), entries.sorted.size(), entries.viewers)));
+        categoryTop = Collections.unmodifiableMap(top);
+        categoryFacets = Collections.unmodifiableList(facets);
+    }
+
+    private static StreamCategory categoryOf(StreamCardWithChannelDto entry) {
+        StreamCategory category = entry.getStream().getCategory();
+        return category != null ? category : StreamCategory.OTHER;
+    }
+
+    private static long viewersOf(StreamCardWithChannelDto entry) {
+        Long viewers = entry.getStream().getViewers();
+        return viewers == null ? 0L : viewers;
+    }
+
+    // Channel of the stream's current entry if it has one, else looked up over gRPC
+    private ChannelDto resolveChannel(Stream stream) {
+        LiveDirectorySnapshot snapshot = current.get();
+        if (snapshot != null) {
+            for (StreamCardWithChannelDto entry : snapshot.getEntries()) {
+                if (entry.getStream().getId().equals(stream.getId()) && entry.getChannel() != null) {
+                    return entry.getChannel();
+                }
+            }
+        }
+        return findChannel(stream.getChannelId());
+    }
+
+    private ChannelDto findChannel(String channelId) {
+        try {
+            List<ChannelDto> channels = channelGrpcClient.getChannelPreviewsByIds(List.of(channelId));
+            return channels.isEmpty() ? null : channels.get(0);
+        } catch (RuntimeException e) {
+            // Publish without channel info; the next full rebuild fills it in
+            System.err.println("Could not load channel " + channelId + " for live directory: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static final class CategoryEntries {
+        private final NavigableSet<StreamCardWithChannelDto> sorted = new TreeSet<>(BY_VIEWERS);
+        private long viewers;
+
+        private void clear() {
+            sorted.clear();
+            viewers = 0;
+        }
+    }
+}
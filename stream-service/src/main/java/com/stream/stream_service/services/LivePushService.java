@@ -0,0 +1,456 @@
+package com.stream.stream_service.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.stream.stream_service.DTO.ChannelDto;
+import com.stream.stream_service.DTO.StreamCardDto;
+import com.stream.stream_service.DTO.StreamCardWithChannelDto;
+import com.stream.stream_service.entities.Stream;
+import com.stream.stream_service.events.StreamLifecycleEvent;
+import com.stream.stream_service.gRPC.ChannelGrpcClient;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-push gateway for live viewer counts and live-directory changes (Server-Sent Events)
+ * - Connections are async servlet requests, so idle subscribers hold no thread
+ * - Viewer counts are sampled once per interval per stream and the same frame is fanned out to all its subscribers
+ * - Each subscriber keeps only the latest viewer frame per stream and a bounded queue of directory deltas;
+ *   a slow subscriber skips intermediate frames, and on delta overflow gets a single "resync" event instead
+ * - Writes happen on a small sender pool, at most one drain in flight per subscriber
+ * - Directory deltas are built on a single delta thread, in commit order, so the channel lookup they need
+ *   never runs on the thread that committed the transaction
+ * - A subscriber whose write has been blocked for longer than write-timeout-ms is evicted, and the pool gets
+ *   one extra thread until that write returns, so stalled clients never hold back the others
+ */
+@Service
+public class LivePushService {
+
+    static final String EVENT_VIEWERS = "viewers";
+    static final String EVENT_STREAM_STARTED = "stream-started";
+    static final String EVENT_STREAM_ENDED = "stream-ended";
+    static final String EVENT_STREAM_UPDATED = "stream-updated";
+    static final String EVENT_RESYNC = "resync";
+
+    @Autowired
+    private ViewerCounterService viewerCounterService;
+
+    @Autowired
+    private ChannelGrpcClient channelGrpcClient;
+
+    @Value("${stream.push.viewer-interval-ms:1000}")
+    private long viewerIntervalMs;
+
+    @Value("${stream.push.heartbeat-interval-ms:20000}")
+    private long heartbeatIntervalMs;
+
+    @Value("${stream.push.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${stream.push.max-pending-deltas:32}")
+    private int maxPendingDeltas;
+
+    @Value("${stream.push.sender-threads:4}")
+    private int senderThreads;
+
+    @Value("${stream.push.write-timeout-ms:5000}")
+    private long writeTimeoutMs;
+
+    // Upper bound on the extra sender threads started in place of stalled ones
+    @Value("${stream.push.max-stalled-senders:64}")
+    private int maxStalledSenders;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<Subscriber>> subscribersByStream = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastPublishedViewers = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService ticker;
+    private ExecutorService senders;
+    // One thread, so deltas keep the order of the commits that produced them
+    private ExecutorService deltaBuilder;
+    private final AtomicInteger stalledSenders = new AtomicInteger();
+
+    @PostConstruct
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "live-push-ticker"));
+        deltaBuilder = Executors.newSingleThreadExecutor(r -> daemon(r, "live-push-deltas"));
+        AtomicInteger senderIndex = new AtomicInteger();
+        // Core size grows by one per stalled write, up to max-stalled-senders
+        senders = new ThreadPoolExecutor(senderThreads, senderThreads + maxStalledSenders, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> daemon(r, "live-push-sender-" + senderIndex.incrementAndGet()));
+        ticker.scheduleAtFixedRate(this::publishViewerCounts, viewerIntervalMs, viewerIntervalMs, TimeUnit.MILLISECONDS);
+        ticker.scheduleAtFixedRate(this::evictStalledSubscribers, viewerIntervalMs, viewerIntervalMs, TimeUnit.MILLISECONDS);
+        ticker.scheduleAtFixedRate(this::sendHeartbeats, heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+        deltaBuilder.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    /**
+     * Open a push subscription
+     * @param streamIds Streams whose viewer counts should be pushed (may be empty)
+     * @param directory Whether to receive stream-started/ended/updated deltas
+     * @return Emitter bound to the HTTP response
+     */
+    public SseEmitter subscribe(Collection<String> streamIds, boolean directory) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = register(emitter, streamIds, directory);
+
+        // Initial value so the client does not wait a full interval
+        for (String streamId : subscriber.streamIds) {
+            viewerCounterService.getCount(streamId)
+                    .ifPresent(count -> subscriber.offerViewers(streamId, viewersFrame(streamId, count)));
+        }
+        return emitter;
+    }
+
+    Subscriber register(SseEmitter emitter, Collection<String> streamIds, boolean directory) {
+        Subscriber subscriber = new Subscriber(emitter, Set.copyOf(streamIds), directory);
+        subscribers.add(subscriber);
+        for (String streamId : subscriber.streamIds) {
+            subscribersByStream.computeIfAbsent(streamId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+        emitter.onCompletion(() -> unregister(subscriber));
+        emitter.onTimeout(() -> unregister(subscriber));
+        emitter.onError(e -> unregister(subscriber));
+        return subscriber;
+    }
+
+    /**
+     * Sample viewer counts of subscribed streams and push the ones that changed
+     * Runs once per interval, so each stream gets at most one update per interval
+     */
+    void publishViewerCounts() {
+        try {
+            // Forget streams nobody watches any more, so the map stays bounded by the subscribed streams
+            lastPublishedViewers.keySet().retainAll(subscribersByStream.keySet());
+            for (Map.Entry<String, Set<Subscriber>> entry : subscribersByStream.entrySet()) {
+                String streamId = entry.getKey();
+                long count = viewerCounterService.peekCount(streamId);
+                if (count < 0) {
+                    lastPublishedViewers.remove(streamId);
+                    continue;
+                }
+                Long previous = lastPublishedViewers.put(streamId, count);
+                if (previous != null && previous == count) {
+                    continue;
+                }
+                Map<String, Object> frame = viewersFrame(streamId, count);
+                for (Subscriber subscriber : entry.getValue()) {
+                    subscriber.offerViewers(streamId, frame);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the periodic task
+            System.err.println("Failed to publish viewer counts: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Evict subscribers whose current write has been blocked for longer than write-timeout-ms
+     * Only flags and unregisters: completing the emitter would wait for the blocked write to release it
+     */
+    void evictStalledSubscribers() {
+        long now = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs);
+        for (Subscriber subscriber : subscribers) {
+            long started = subscriber.sendStartedNanos;
+            if (started != 0 && now - started > timeoutNanos) {
+                subscriber.evict();
+            }
+        }
+    }
+
+    /**
+     * Push live-directory deltas once the stream change is committed
+     * The delta is built and broadcast on the delta thread; the committing thread only hands it over
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStreamLifecycle(StreamLifecycleEvent event) {
+        if (event.getType() == StreamLifecycleEvent.Type.ENDED || event.getType() == StreamLifecycleEvent.Type.DELETED) {
+            lastPublishedViewers.remove(event.getStream().getId());
+        }
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Stream stream = event.getStream();
+        if (event.getType() != StreamLifecycleEvent.Type.ENDED && !Boolean.TRUE.equals(stream.getIsLive())) {
+            // Changes to VODs are not part of the live directory
+            return;
+        }
+        try {
+            deltaBuilder.execute(() -> publishDelta(event.getType(), stream));
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    private void publishDelta(StreamLifecycleEvent.Type type, Stream stream) {
+        String eventName;
+        Object payload;
+        switch (type) {
+            case STARTED -> {
+                eventName = EVENT_STREAM_STARTED;
+                payload = new StreamCardWithChannelDto(StreamCardDto.from(stream), findChannel(stream.getChannelId()));
+            }
+            case UPDATED -> {
+                eventName = EVENT_STREAM_UPDATED;
+                payload = new StreamCardWithChannelDto(StreamCardDto.from(stream), findChannel(stream.getChannelId()));
+            }
+            default -> {
+                // ENDED, or DELETED while live
+                eventName = EVENT_STREAM_ENDED;
+                payload = Map.of("streamId", stream.getId(), "channelId", stream.getChannelId());
+            }
+        }
+        broadcastDelta(eventName, payload);
+    }
+
+    void broadcastDelta(String eventName, Object payload) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.directory) {
+                subscriber.offerDelta(eventName, payload);
+            }
+        }
+    }
+
+    int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    int getLastPublishedCount() {
+        return lastPublishedViewers.size();
+    }
+
+    // One more sender thread while a write is stalled; false when max-stalled-senders are already out
+    private boolean addStalledSender() {
+        if (stalledSenders.incrementAndGet() > maxStalledSenders) {
+            stalledSenders.decrementAndGet();
+            return false;
+        }
+        if (senders instanceof ThreadPoolExecutor pool) {
+            pool.setCorePoolSize(pool.getCorePoolSize() + 1);
+        }
+        return true;
+    }
+
+    private void releaseStalledSender() {
+        stalledSenders.decrementAndGet();
+        if (senders instanceof ThreadPoolExecutor pool) {
+            pool.setCorePoolSize(pool.getCorePoolSize() - 1);
+        }
+    }
+
+    private void sendHeartbeats() {
+        subscribers.forEach(Subscriber::offerHeartbeat);
+    }
+
+    private void unregister(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        for (String streamId : subscriber.streamIds) {
+            subscribersByStream.computeIfPresent(streamId, (id, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    private ChannelDto findChannel(String channelId) {
+        try {
+            List<ChannelDto> channels = channelGrpcClient.getChannelPreviewsByIds(List.of(channelId));
+            return channels.isEmpty() ? null : channels.get(0);
+        } catch (RuntimeException e) {
+            System.err.println("Could not load channel " + channelId + " for push event: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Map<String, Object> viewersFrame(String streamId, long count) {
+        return Map.of("streamId", streamId, "viewers", count);
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * One SSE connection with its coalescing buffers
+     */
+    final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<String> streamIds;
+        private final boolean directory;
+
+        // Latest viewer frame per stream; a newer frame replaces one not yet sent
+        private final Map<String, Object> latestViewers = new ConcurrentHashMap<>();
+        private final Queue<SseEmitter.SseEventBuilder> deltas = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingDeltas = new AtomicInteger();
+        private final AtomicBoolean resync = new AtomicBoolean();
+        private final AtomicBoolean heartbeat = new AtomicBoolean();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // Whether a replacement sender was started for the write this subscriber is stuck in
+        private final AtomicBoolean stalled = new AtomicBoolean();
+        private volatile boolean closed;
+        // The emitter is completed once, by whichever of drain() and evict() gets there
+        private final AtomicBoolean completed = new AtomicBoolean();
+        // Start of the write in progress, 0 when not writing
+        private volatile long sendStartedNanos;
+
+        private Subscriber(SseEmitter emitter, Set<String> streamIds, boolean directory) {
+            this.emitter = emitter;
+            this.streamIds = streamIds;
+            this.directory = directory;
+        }
+
+        void offerViewers(String streamId, Object frame) {
+            latestViewers.put(streamId, frame);
+            scheduleDrain();
+        }
+
+        void offerDelta(String eventName, Object payload) {
+            if (pendingDeltas.incrementAndGet() > maxPendingDeltas) {
+                // Too far behind: drop the backlog and ask the client to refetch the directory
+                pendingDeltas.decrementAndGet();
+                resync.set(true);
+            } else {
+                deltas.add(SseEmitter.event().name(eventName).data(payload));
+            }
+            scheduleDrain();
+        }
+
+        void offerHeartbeat() {
+            heartbeat.set(true);
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (!closed && draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RuntimeException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                if (resync.getAndSet(false)) {
+                    int dropped = 0;
+                    while (deltas.poll() != null) {
+                        dropped++;
+                    }
+                    pendingDeltas.addAndGet(-dropped);
+                    send(SseEmitter.event().name(EVENT_RESYNC).data(Map.of("reason", "backlog")));
+                }
+                SseEmitter.SseEventBuilder delta;
+                while ((delta = deltas.poll()) != null) {
+                    pendingDeltas.decrementAndGet();
+                    send(delta);
+                }
+                Iterator<Map.Entry<String, Object>> it = latestViewers.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, Object> entry = it.next();
+                    Object frame = entry.getValue();
+                    // Only remove the frame we send; a newer one stays for the next drain
+                    if (latestViewers.remove(entry.getKey(), frame)) {
+                        send(SseEmitter.event().name(EVENT_VIEWERS).data(frame));
+                    }
+                }
+                if (heartbeat.getAndSet(false)) {
+                    send(SseEmitter.event().comment("keep-alive"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                closed = true;
+                unregister(this);
+                complete(e);
+            } finally {
+                draining.set(false);
+                // After draining is cleared, so either this or evict() sees the flag (see evict)
+                if (stalled.getAndSet(false)) {
+                    releaseStalledSender();
+                }
+            }
+            if (closed) {
+                // Evicted while the last write of this drain was blocked: no further send would notice
+                complete(new IOException("Subscriber evicted after a write timeout"));
+            } else if (hasPending()) {
+                scheduleDrain();
+            }
+        }
+
+        // Ends the connection with an error, so the client reconnects and resyncs
+        private void complete(Exception cause) {
+            if (completed.compareAndSet(false, true)) {
+                emitter.completeWithError(cause);
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            if (closed) {
+                throw new IllegalStateException("Subscriber evicted after a write timeout");
+            }
+            sendStartedNanos = System.nanoTime();
+            try {
+                emitter.send(event);
+            } finally {
+                sendStartedNanos = 0;
+            }
+        }
+
+        private void evict() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            unregister(this);
+            System.err.println("Evicted SSE subscriber after a write blocked for more than " + writeTimeoutMs + "ms");
+            if (sendStartedNanos != 0 && addStalledSender()) {
+                stalled.set(true);
+                // The drain may have ended meanwhile: whoever clears the flag gives the thread back
+                if (!draining.get() && stalled.getAndSet(false)) {
+                    releaseStalledSender();
+                }
+            }
+            // Not writing: no drain is left to complete the emitter (a running one does it when it ends)
+            if (!draining.get()) {
+                complete(new IOException("Subscriber evicted after a write timeout"));
+            }
+        }
+
+        private boolean hasPending() {
+            return resync.get() || heartbeat.get() || !deltas.isEmpty() || !latestViewers.isEmpty();
+        }
+    }
+}
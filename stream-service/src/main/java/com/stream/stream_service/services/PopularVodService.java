@@ -0,0 +1,263 @@
+package com.stream.stream_service.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.stream.stream_service.DTO.StreamCardDto;
+import com.stream.stream_service.entities.Stream;
+import com.stream.stream_service.events.StreamLifecycleEvent;
+import com.stream.stream_service.events.ViewerCountsFlushedEvent;
+import com.stream.stream_service.repositories.StreamRepository;
+import com.stream.stream_service.utils.TopKHeap;
+
+import jakarta.annotation.PostConstruct;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory index of the K most viewed finished streams
+ * - Rebuilt from the database at startup and periodically (picks up other replicas' views)
+ * - Kept current from flushed viewer counts and stream end/update/delete events
+ * - Pages that fit in the top K are served without touching Postgres; deeper pages use the DB path
+ * Viewer counts only grow, so a stream outside the index can only enter it through a flushed count,
+ * and only then is it loaded from the database. Entries are StreamCardDto, so the index holds no descriptions.
+ */
+@Service
+public class PopularVodService {
+
+    @Autowired
+    private StreamRepository streamRepository;
+
+    @Value("${stream.popular.top-k:1000}")
+    private int topK;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private TopKHeap<StreamCardDto> index;
+
+    // Streams known to be live, so their flushed counts do not trigger lookups; reloaded by each rebuild,
+    // which drops the streams that ended on another replica
+    private final Set<String> liveIds = ConcurrentHashMap.newKeySet();
+    private final AtomicLong finishedCount = new AtomicLong();
+
+    // Minimum an outsider must beat while a removal left the index short of K (guarded by lock)
+    private long admissionFloor = Long.MIN_VALUE;
+
+    // Sorted view for readers, replaced after each change
+    private volatile List<StreamCardDto> ranking = List.of();
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void init() {
+        index = new TopKHeap<>(topK);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        scheduledRebuild();
+    }
+
+    /**
+     * Rebuild the index from the database
+     */
+    public void rebuild() {
+        List<StreamCardDto> top = streamRepository.findFinishedCardsByViewers(PageRequest.of(0, topK));
+        long count = streamRepository.countByIsLiveFalse();
+        List<String> live = streamRepository.findLiveIds();
+        lock.lock();
+        try {
+            // A stream started since the query is added back by its next flushed count
+            liveIds.clear();
+            liveIds.addAll(live);
+            index.clear();
+            for (StreamCardDto card : top) {
+                index.offer(card.getId(), viewersOf(card.getViewers()), card);
+            }
+            finishedCount.set(count);
+            admissionFloor = Long.MIN_VALUE;
+            publish();
+            ready = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stream.popular.rebuild-interval-ms:600000}",
+               initialDelayString = "${stream.popular.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // Keep serving the previous index, or the DB path if there is none
+            System.err.println("Popular VOD index rebuild failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get a page of finished streams by views, if the index can answer it
+     * @param page Page number (0-based)
+     * @param size Number of streams per page
+     * @return The page, or empty if it reaches past the top K (or the index is not loaded yet)
+     */
+    public Optional<List<StreamCardDto>> getPage(int page, int size) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        List<StreamCardDto> current = ranking;
+        long from = (long) page * size;
+        long to = from + size;
+        boolean holdsEverything = finishedCount.get() <= current.size();
+        if (to > current.size() && !holdsEverything) {
+            return Optional.empty();
+        }
+        if (from >= current.size()) {
+            return Optional.of(List.of());
+        }
+        return Optional.of(current.subList((int) from, (int) Math.min(to, current.size())));
+    }
+
+    /**
+     * @return Number of finished streams, as of the last rebuild plus streams ended since
+     */
+    public long getFinishedCount() {
+        return finishedCount.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStreamLifecycle(StreamLifecycleEvent event) {
+        Stream stream = event.getStream();
+        switch (event.getType()) {
+            case STARTED -> liveIds.add(stream.getId());
+            case ENDED -> {
+                liveIds.remove(stream.getId());
+                finishedCount.incrementAndGet();
+                update(stream, viewersOf(stream.getViewers()));
+            }
+            case UPDATED -> {
+                if (!Boolean.TRUE.equals(stream.getIsLive())) {
+                    updateIfIndexed(stream);
+                }
+            }
+            case DELETED -> {
+                liveIds.remove(stream.getId());
+                if (!Boolean.TRUE.equals(stream.getIsLive())) {
+                    finishedCount.decrementAndGet();
+                }
+                remove(stream.getId());
+            }
+        }
+    }
+
+    /**
+     * Move indexed streams whose count changed, and admit outsiders that now beat the minimum
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onViewerCountsFlushed(ViewerCountsFlushedEvent event) {
+        Map<String, Long> candidates = new HashMap<>();
+        lock.lock();
+        try {
+            boolean changed = false;
+            for (Map.Entry<String, Long> entry : event.getCounts().entrySet()) {
+                String id = entry.getKey();
+                long count = entry.getValue();
+                StreamCardDto indexed = index.get(id);
+                if (indexed != null) {
+                    if (count > viewersOf(indexed.getViewers())) {
+                        index.offer(id, count, indexed.withViewers(count));
+                        changed = true;
+                    }
+                } else if (count > Math.max(index.minScore(), admissionFloor) && !liveIds.contains(id)) {
+                    candidates.put(id, count);
+                }
+            }
+            if (changed) {
+                publish();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Rare once the index is full: only streams that just overtook the K-th one
+        for (Map.Entry<String, Long> candidate : candidates.entrySet()) {
+            streamRepository.findById(candidate.getKey()).ifPresent(stream -> {
+                if (Boolean.TRUE.equals(stream.getIsLive())) {
+                    liveIds.add(stream.getId());
+                } else {
+                    update(stream, Math.max(candidate.getValue(), viewersOf(stream.getViewers())));
+                }
+            });
+        }
+    }
+
+    private void update(Stream stream, long viewers) {
+        lock.lock();
+        try {
+            if (index.offer(stream.getId(), viewers, StreamCardDto.from(stream).withViewers(viewers))) {
+                publish();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Metadata change (thumbnail, VOD URL...); the indexed count is kept if it is more recent
+    private void updateIfIndexed(Stream stream) {
+        lock.lock();
+        try {
+            StreamCardDto indexed = index.get(stream.getId());
+            if (indexed != null) {
+                long viewers = Math.max(viewersOf(indexed.getViewers()), viewersOf(stream.getViewers()));
+                index.offer(stream.getId(), viewers, StreamCardDto.from(stream).withViewers(viewers));
+                publish();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop a stream from the index; if that leaves it short of K while more finished streams exist,
+     * the K-th stream is only in the database, so the index is rebuilt right away
+     */
+    private void remove(String streamId) {
+        boolean refill;
+        lock.lock();
+        try {
+            long minimum = index.minScore();
+            if (!index.remove(streamId)) {
+                return;
+            }
+            refill = finishedCount.get() > index.size();
+            if (refill) {
+                // Until the rebuild lands, outsiders still have to beat the old K-th stream
+                admissionFloor = Math.max(admissionFloor, minimum);
+            }
+            publish();
+        } finally {
+            lock.unlock();
+        }
+        if (refill) {
+            scheduledRebuild();
+        }
+    }
+
+    private void publish() {
+        ranking = List.copyOf(index.sortedDescending());
+    }
+
+    private static long viewersOf(Long viewers) {
+        return viewers == null ? 0L : viewers;
+    }
+}
@@ -1,17 +1,33 @@
 package com.stream.stream_service.services;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import com.stream.stream_service.DTO.ChannelDto;
+import com.stream.stream_service.DTO.CursorStreamResponse;
+import com.stream.stream_service.DTO.StreamCardDto;
+import com.stream.stream_service.DTO.StreamCardWithChannelDto;
 import com.stream.stream_service.DTO.StreamWithChannelDto;
 import com.stream.stream_service.DTO.PaginatedStreamResponse;
+import com.stream.stream_service.DTO.StreamBatchEntryDto;
 import com.stream.stream_service.entities.Stream;
+import com.stream.stream_service.events.StreamLifecycleEvent;
+import com.stream.stream_service.exceptions.ApiException;
 import com.stream.stream_service.gRPC.ChannelGrpcClient;
 import com.stream.stream_service.repositories.StreamRepository;
+import com.stream.stream_service.utils.StreamCursor;
+import com.stream.stream_service.utils.TtlCache;
 
+import jakarta.annotation.PostConstruct;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -23,8 +39,11 @@ import java.util.stream.Collectors;
  * Handles all read operations for streams including:
  * - Fetching live streams
  * - Fetching finished streams (VODs)
- * - Pagination support
+ * - Pagination support (offset-based and keyset/cursor-based)
  * - Channel information enrichment
+ * List methods return StreamCardDto projections (no description, no managed entities); only the
+ * single-stream lookups load the full entity. No method here opens a transaction: each repository call
+ * runs in its own short read-only one, so no connection is held during the channel gRPC calls.
  */
 @Service
 public class StreamQueryService {
@@ -35,6 +54,20 @@ public class StreamQueryService {
     @Autowired
     private ChannelGrpcClient channelGrpcClient;
 
+    @Autowired
+    private PopularVodService popularVodService;
+
+    @Value("${stream.vod-count.cache-ttl-ms:60000}")
+    private long vodCountCacheTtlMs;
+
+    // Finished-stream counts per channel, so clients paging with cursors do not pay for COUNT(*) on each page
+    private TtlCache<String, Long> finishedCounts;
+
+    @PostConstruct
+    public void init() {
+        finishedCounts = new TtlCache<>("finished-stream-counts", vodCountCacheTtlMs, 0, 10_000);
+    }
+
     /**
      * Get the live stream of a channel 
      * @param channelId The channel ID to get the live stream for
@@ -51,10 +84,10 @@ public class StreamQueryService {
 
     /**
      * Get all live streams with channel information
-     * @return List of StreamWithChannelDto containing live streams and their associated channel info
+     * @return List of StreamCardWithChannelDto containing live streams and their associated channel info
      */
-    public List<StreamWithChannelDto> getLiveStreams() {
-        List<Stream> streams = streamRepository.findByIsLive(true);
+    public List<StreamCardWithChannelDto> getLiveStreams() {
+        List<StreamCardDto> streams = streamRepository.findLiveCards();
         
         // Return empty list immediately if no live streams
         if (streams.isEmpty()) {
@@ -62,7 +95,7 @@ public class StreamQueryService {
         }
         
         List<String> channelIds = streams.stream()
-                .map(Stream::getChannelId)
+                .map(StreamCardDto::getChannelId)
                 .toList();
     
         List<ChannelDto> channelDtos = channelGrpcClient.getChannelPreviewsByIds(channelIds);
@@ -72,7 +105,7 @@ public class StreamQueryService {
                 .collect(Collectors.toMap(ChannelDto::getChannelId, Function.identity()));
     
         return streams.stream()
-                .map(stream -> new StreamWithChannelDto(
+                .map(stream -> new StreamCardWithChannelDto(
                         stream,
                         channelMap.get(stream.getChannelId()) // may be null if channel not found
                 ))
@@ -86,9 +119,9 @@ public class StreamQueryService {
      * @param size Number of streams per page (e.g., 10)
      * @return List of finished streams for the specified page
      */
-    public List<Stream> getFinishedStreamsByChannel(String channelId, int page, int size) {
+    public List<StreamCardDto> getFinishedStreamsByChannel(String channelId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        return streamRepository.findByChannelIdAndIsLiveFalseOrderByStartedAtDesc(channelId, pageable);
+        return streamRepository.findFinishedCardsByChannel(channelId, pageable);
     }
 
     /**
@@ -96,11 +129,11 @@ public class StreamQueryService {
      * @param channelId The channel ID to get finished streams for
      * @param page Page number (0-based)
      * @param size Number of streams per page
-     * @return PaginatedStreamResponse with Stream entities and pagination metadata
+     * @return PaginatedStreamResponse with stream cards and pagination metadata
      */
-    public PaginatedStreamResponse<Stream> getFinishedStreamsWithMetadata(String channelId, int page, int size) {
+    public PaginatedStreamResponse<StreamCardDto> getFinishedStreamsWithMetadata(String channelId, int page, int size) {
         // Get streams for current page
-        List<Stream> streams = getFinishedStreamsByChannel(channelId, page, size);
+        List<StreamCardDto> streams = getFinishedStreamsByChannel(channelId, page, size);
         
         // Get total count for pagination metadata
         long totalElements = streamRepository.countByChannelIdAndIsLiveFalse(channelId);
@@ -116,27 +149,103 @@ public class StreamQueryService {
         );
     }
 
+    /**
+     * Get finished streams of a channel with keyset pagination, newest first
+     * Each page seeks directly past the cursor on (startedAt, id), so deep pages cost the same as the first one
+     * @param channelId The channel ID to get finished streams for
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param size Number of streams per page
+     * @return CursorStreamResponse with the page and the cursor of the next one (null on the last page)
+     */
+    public CursorStreamResponse<StreamCardDto> getFinishedStreamsByCursor(String channelId, String cursor, int size) {
+        // One extra row tells whether there is a next page
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<StreamCardDto> streams;
+        if (cursor == null || cursor.isBlank()) {
+            streams = streamRepository.findFinishedCardsByChannelKeyset(channelId, limit);
+        } else {
+            StreamCursor position;
+            try {
+                position = StreamCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                throw new ApiException("Invalid cursor", HttpStatus.BAD_REQUEST);
+            }
+            streams = streamRepository.findFinishedCardsByChannelBefore(channelId, position.getStartedAt(), position.getId(), limit);
+        }
+
+        String nextCursor = null;
+        if (streams.size() > size) {
+            streams = streams.subList(0, size);
+            StreamCardDto last = streams.get(size - 1);
+            nextCursor = new StreamCursor(last.getStartedAt(), last.getId()).encode();
+        }
+        return new CursorStreamResponse<>(streams, size, nextCursor);
+    }
+
+    /**
+     * Count the finished streams of a channel
+     * Cached for a short time and dropped when one of the channel's streams ends
+     * @param channelId The channel ID
+     * @return Number of finished streams
+     */
+    public long countFinishedStreams(String channelId) {
+        TtlCache.Entry<Long> cached = finishedCounts.get(channelId);
+        if (cached != null && finishedCounts.stateOf(cached) == TtlCache.State.FRESH) {
+            return cached.getValue();
+        }
+        long count = streamRepository.countByChannelIdAndIsLiveFalse(channelId);
+        finishedCounts.put(channelId, count);
+        return count;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStreamLifecycle(StreamLifecycleEvent event) {
+        if (event.getType() == StreamLifecycleEvent.Type.ENDED) {
+            finishedCounts.invalidate(event.getStream().getChannelId());
+        }
+    }
+
     /**
      * Get all finished streams with channel information and pagination metadata, sorted by view count
      * @param page Page number (0-based)
      * @param size Number of streams per page
-     * @return PaginatedStreamResponse with StreamWithChannelDto and pagination metadata
+     * @return PaginatedStreamResponse with StreamCardWithChannelDto and pagination metadata
      */
-    public PaginatedStreamResponse<StreamWithChannelDto> getFinishedStreamsWithChannelInfo(int page, int size) {
+    public PaginatedStreamResponse<StreamCardWithChannelDto> getFinishedStreamsWithChannelInfo(int page, int size) {
+        // Pages within the top K come from the in-memory index
+        Optional<List<StreamCardDto>> indexed = popularVodService.getPage(page, size);
+        if (indexed.isPresent()) {
+            return toPaginatedResponseWithChannelInfo(indexed.get(), page, size, popularVodService.getFinishedCount());
+        }
+
         // Get streams for current page, sorted by views descending
         Pageable pageable = PageRequest.of(page, size);
-        List<Stream> streams = streamRepository.findByIsLiveFalseOrderByViewersDesc(pageable);
-        
-        // Get total count for pagination metadata
-        long totalElements = streamRepository.countByIsLiveFalse();
+        List<StreamCardDto> streams = streamRepository.findFinishedCardsByViewers(pageable);
+        return toPaginatedResponseWithChannelInfo(streams, page, size, streamRepository.countByIsLiveFalse());
+    }
+
+    /**
+     * Get all finished streams with channel information and pagination metadata, sorted by approximate unique viewers
+     * Streams that were never measured come last, ordered by raw views
+     * @param page Page number (0-based)
+     * @param size Number of streams per page
+     * @return PaginatedStreamResponse with StreamCardWithChannelDto and pagination metadata
+     */
+    public PaginatedStreamResponse<StreamCardWithChannelDto> getFinishedStreamsByUniqueViewersWithChannelInfo(int page, int size) {
+        List<StreamCardDto> streams = streamRepository.findFinishedCardsByUniqueViewers(PageRequest.of(page, size));
+        return toPaginatedResponseWithChannelInfo(streams, page, size, streamRepository.countByIsLiveFalse());
+    }
+
+    private PaginatedStreamResponse<StreamCardWithChannelDto> toPaginatedResponseWithChannelInfo(List<StreamCardDto> streams, int page, int size,
+                                                                                                long totalElements) {
         int totalPages = (int) Math.ceil((double) totalElements / size);
         
         // Get channel info and build StreamWithChannelDto list
-        List<StreamWithChannelDto> content = List.of();
+        List<StreamCardWithChannelDto> content = List.of();
         if (!streams.isEmpty()) {
             // Get unique channel IDs
             List<String> channelIds = streams.stream()
-                    .map(Stream::getChannelId)
+                    .map(StreamCardDto::getChannelId)
                     .distinct()
                     .toList();
             
@@ -148,7 +257,7 @@ public class StreamQueryService {
                     .collect(Collectors.toMap(ChannelDto::getChannelId, Function.identity()));
             
             content = streams.stream()
-                    .map(stream -> new StreamWithChannelDto(stream, channelMap.get(stream.getChannelId())))
+                    .map(stream -> new StreamCardWithChannelDto(stream, channelMap.get(stream.getChannelId())))
                     .toList();
         }
         
@@ -175,4 +284,40 @@ public class StreamQueryService {
                     return new StreamWithChannelDto(stream, channel);
                 });
     }
+
+    /**
+     * Get several streams by ID with channel information
+     * One findAllById for the distinct ids and one channel preview call for the distinct channels,
+     * instead of one of each per stream.
+     * @param streamIds Stream IDs, possibly repeated
+     * @return One entry per requested ID, in request order; unknown IDs are marked not found
+     */
+    public List<StreamBatchEntryDto> getStreamsWithChannelByIds(List<String> streamIds) {
+        if (streamIds.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Stream> streams = new HashMap<>();
+        for (Stream stream : streamRepository.findAllById(new LinkedHashSet<>(streamIds))) {
+            streams.put(stream.getId(), stream);
+        }
+
+        Map<String, ChannelDto> channelMap = Map.of();
+        if (!streams.isEmpty()) {
+            List<String> channelIds = streams.values().stream()
+                    .map(Stream::getChannelId)
+                    .distinct()
+                    .toList();
+            channelMap = channelGrpcClient.getChannelPreviewsByIds(channelIds).stream()
+                    .collect(Collectors.toMap(ChannelDto::getChannelId, Function.identity()));
+        }
+
+        List<StreamBatchEntryDto> entries = new ArrayList<>(streamIds.size());
+        for (String id : streamIds) {
+            Stream stream = streams.get(id);
+            entries.add(stream == null
+                    ? StreamBatchEntryDto.notFound(id)
+                    : StreamBatchEntryDto.found(stream, channelMap.get(stream.getChannelId())));
+        }
+        return entries;
+    }
 }
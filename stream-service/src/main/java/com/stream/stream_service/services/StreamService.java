@@ -1,22 +1,37 @@
 package com.stream.stream_service.services;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import com.stream.stream_service.DTO.ChannelArnLookup;
 import com.stream.stream_service.DTO.ChannelDto;
+import com.stream.stream_service.DTO.IvsCommand;
 import com.stream.stream_service.entities.DefaultStreamInfo;
+import com.stream.stream_service.entities.IvsStreamTombstone;
 import com.stream.stream_service.entities.Stream;
 import com.stream.stream_service.enums.StreamCategory;
+import com.stream.stream_service.events.StreamLifecycleEvent;
 import com.stream.stream_service.exceptions.ApiException;
 import com.stream.stream_service.gRPC.ChannelGrpcClient;
+import com.stream.stream_service.repositories.IvsStreamTombstoneRepository;
 import com.stream.stream_service.repositories.StreamRepository;
 
 import jakarta.transaction.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class StreamService {
@@ -24,11 +39,29 @@ public class StreamService {
     @Autowired
     private StreamRepository streamRepository;
     
+    @Autowired
+    private IvsStreamTombstoneRepository tombstoneRepository;
+
     @Autowired
     private DefaultStreamInfoService defaultStreamInfoService;
 
     @Autowired
-    private ChannelGrpcClient channelGrpcClient;    
+    private ChannelGrpcClient channelGrpcClient;
+
+    @Autowired
+    private ViewerCounterService viewerCounterService;
+
+    @Autowired
+    private UniqueViewerService uniqueViewerService;
+
+    @Autowired
+    private ViewerSeriesService viewerSeriesService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${stream.ivs-tombstone.retention-hours:168}")
+    private long tombstoneRetentionHours;
     
     @Transactional
     public Stream createStream(String arn, String awsStreamId) {
@@ -39,6 +72,135 @@ public class StreamService {
         }       
         
         Optional<DefaultStreamInfo> defaultInfo = defaultStreamInfoService.findByChannelId(channel.getChannelId());
+        Stream saved = start(channel, awsStreamId, defaultInfo);
+        eventPublisher.publishEvent(new StreamLifecycleEvent(StreamLifecycleEvent.Type.STARTED, saved));
+        return saved;
+    }
+
+    /**
+     * Apply a batch of IVS commands in one transaction
+     * - Channel ARNs of the starts are resolved with one call to channel-service
+     * - Default stream infos and existing streams are loaded with one query each
+     * - Commands are applied in order, so a stream started earlier in the batch can be ended later in it
+     * - Redelivered events are no-ops: a start for a known AWS stream ID or an end for a stream that is
+     *   no longer live is skipped
+     * - Every end leaves a tombstone for its AWS stream ID, so a start arriving after it never makes the
+     *   stream live: an end that beat its start has the start record the stream as already ended, and a
+     *   start redelivered once the stream was deleted is ignored
+     * Commands whose channel or stream cannot be found are skipped and logged, they do not fail the batch;
+     * a start whose channel could not be looked up (channel-service down, nothing cached) does.
+     * @param commands Commands in arrival order
+     */
+    @Transactional
+    public void applyIvsBatch(List<IvsCommand> commands) {
+        Set<String> startArns = new HashSet<>();
+        Set<String> awsStreamIds = new HashSet<>();
+        for (IvsCommand command : commands) {
+            if (command.getType() == IvsCommand.Type.START) {
+                startArns.add(command.getChannelArn());
+            }
+            awsStreamIds.add(command.getAwsStreamId());
+        }
+
+        ChannelArnLookup lookup = startArns.isEmpty() ? ChannelArnLookup.of(Map.of()) : channelGrpcClient.getChannelsByArns(startArns);
+        Map<String, ChannelDto> channels = lookup.getChannels();
+        Map<String, Stream> streams = new HashMap<>();
+        for (Stream stream : streamRepository.findByAwsStreamIdIn(awsStreamIds)) {
+            streams.put(stream.getAwsStreamId(), stream);
+        }
+        Map<String, IvsStreamTombstone> tombstones = new HashMap<>();
+        for (IvsStreamTombstone tombstone : tombstoneRepository.findByAwsStreamIdIn(awsStreamIds)) {
+            tombstones.put(tombstone.getAwsStreamId(), tombstone);
+        }
+        Map<String, IvsStreamTombstone> changedTombstones = new HashMap<>();
+        for (IvsCommand command : commands) {
+            if (command.getType() == IvsCommand.Type.START && lookup.getUnresolved().contains(command.getChannelArn())
+                    && !streams.containsKey(command.getAwsStreamId())) {
+                // Skipping it would lose the stream: fail the batch, the ingestion retries it
+                throw lookup.getFailure();
+            }
+        }
+        Map<String, DefaultStreamInfo> defaultInfos = defaultStreamInfoService.findByChannelIds(
+                channels.values().stream().map(ChannelDto::getChannelId).collect(Collectors.toSet()));
+
+        List<StreamLifecycleEvent> events = new ArrayList<>();
+        for (IvsCommand command : commands) {
+            Stream stream = streams.get(command.getAwsStreamId());
+            switch (command.getType()) {
+                case START -> {
+                    ChannelDto channel = channels.get(command.getChannelArn());
+                    IvsStreamTombstone tombstone = tombstones.get(command.getAwsStreamId());
+                    if (stream != null) {
+                        System.out.println("Ignoring duplicate start for AWS stream ID: " + command.getAwsStreamId());
+                    } else if (channel == null) {
+                        System.err.println("No channel found for ARN: " + command.getChannelArn());
+                    } else if (tombstone != null && tombstone.getStartSeen()) {
+                        System.out.println("Ignoring start of ended (and since deleted) AWS stream ID: " + command.getAwsStreamId());
+                    } else if (tombstone != null) {
+                        // Its end came first: keep the stream, but as a finished one
+                        tombstone.setStartSeen(true);
+                        changedTombstones.put(tombstone.getAwsStreamId(), tombstone);
+                        Stream saved = end(start(channel, command.getAwsStreamId(),
+                                Optional.ofNullable(defaultInfos.get(channel.getChannelId()))));
+                        streams.put(saved.getAwsStreamId(), saved);
+                        events.add(new StreamLifecycleEvent(StreamLifecycleEvent.Type.ENDED, saved));
+                    } else {
+                        Stream saved = start(channel, command.getAwsStreamId(),
+                                Optional.ofNullable(defaultInfos.get(channel.getChannelId())));
+                        streams.put(saved.getAwsStreamId(), saved);
+                        events.add(new StreamLifecycleEvent(StreamLifecycleEvent.Type.STARTED, saved));
+                    }
+                }
+                case END -> {
+                    if (!tombstones.containsKey(command.getAwsStreamId())) {
+                        IvsStreamTombstone tombstone = new IvsStreamTombstone(command.getAwsStreamId(),
+                                command.getChannelArn(), stream != null, LocalDateTime.now());
+                        tombstones.put(tombstone.getAwsStreamId(), tombstone);
+                        changedTombstones.put(tombstone.getAwsStreamId(), tombstone);
+                    }
+                    if (stream == null) {
+                        System.out.println("End before start for AWS stream ID: " + command.getAwsStreamId()
+                                + ", its start will record it as ended");
+                    } else if (Boolean.TRUE.equals(stream.getIsLive())) {
+                        Stream saved = end(stream);
+                        streams.put(saved.getAwsStreamId(), saved);
+                        events.add(new StreamLifecycleEvent(StreamLifecycleEvent.Type.ENDED, saved));
+                    }
+                }
+                case THUMBNAIL, VOD -> {
+                    if (stream == null) {
+                        System.err.println("No stream found with AWS stream ID: " + command.getAwsStreamId());
+                    } else {
+                        if (command.getType() == IvsCommand.Type.THUMBNAIL) {
+                            stream.setThumbnailUrl(command.getUrl());
+                        } else {
+                            stream.setVodUrl(command.getUrl());
+                        }
+                        Stream saved = streamRepository.save(stream);
+                        streams.put(saved.getAwsStreamId(), saved);
+                        events.add(new StreamLifecycleEvent(StreamLifecycleEvent.Type.UPDATED, saved));
+                    }
+                }
+            }
+        }
+        tombstoneRepository.saveAll(changedTombstones.values());
+        // Listeners are transactional, they run once the whole batch is committed
+        events.forEach(eventPublisher::publishEvent);
+    }
+
+    /**
+     * Drop tombstones older than the retention, long past any IVS redelivery
+     */
+    @Scheduled(fixedDelayString = "${stream.ivs-tombstone.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeTombstones() {
+        int purged = tombstoneRepository.deleteEndedBefore(LocalDateTime.now().minusHours(tombstoneRetentionHours));
+        if (purged > 0) {
+            System.out.println("Purged " + purged + " IVS stream tombstones");
+        }
+    }
+
+    private Stream start(ChannelDto channel, String awsStreamId, Optional<DefaultStreamInfo> defaultInfo) {
         String title = defaultInfo.map(DefaultStreamInfo::getTitle).orElse("Untitled-Stream");
         String description = defaultInfo.map(DefaultStreamInfo::getDescription).orElse("No description available");
         StreamCategory category = defaultInfo.map(DefaultStreamInfo::getCategory).orElse(StreamCategory.OTHER);
@@ -54,6 +216,20 @@ public class StreamService {
         stream.setEndedAt(null);
         stream.setViewers(0L);
 
+        Stream saved = streamRepository.save(stream);
+        uniqueViewerService.start(saved.getId());
+        viewerSeriesService.start(saved.getId());
+        return saved;
+    }
+
+    private Stream end(Stream stream) {
+        // Persist the buffered viewer increments before the stream is closed
+        long flushed = viewerCounterService.flush(stream.getId());
+        stream.setViewers(stream.getViewers() + flushed);
+        uniqueViewerService.complete(stream);
+        viewerSeriesService.stop(stream.getId());
+        stream.setIsLive(false);
+        stream.setEndedAt(LocalDateTime.now());
         return streamRepository.save(stream);
     }
 
@@ -75,6 +251,7 @@ public class StreamService {
             }
 
             streamRepository.save(stream);
+            eventPublisher.publishEvent(new StreamLifecycleEvent(StreamLifecycleEvent.Type.UPDATED, stream));
             return Optional.of(stream);
         }
 
@@ -82,19 +259,59 @@ public class StreamService {
     }
       
 
-    public Optional<Stream> incrementViewers(String streamId) {
-        return streamRepository.findById(streamId)
-                .map(stream -> {
-                    stream.setViewers(stream.getViewers() + 1);
-                    return streamRepository.save(stream);
-                });
+    /**
+     * Add one viewer to a stream
+     * The increment is buffered in memory and written to the database by the background flusher
+     * @param streamId The stream ID
+     * @return Optional updated viewer count, empty if the stream does not exist
+     */
+    public Optional<Long> incrementViewers(String streamId) {
+        return viewerCounterService.increment(streamId);
     }
 
-   
-    public Optional<Long> getViewersCount(String streamId) {
-        return streamRepository.findById(streamId)
-                .map(Stream::getViewers);
+    /**
+     * Add one viewer to a stream and record the viewer in the stream's unique-viewer sketch
+     * @param streamId The stream ID
+     * @param viewerKey User ID or anonymous fingerprint, null if unknown
+     * @return Optional updated viewer count, empty if the stream does not exist
+     */
+    public Optional<Long> incrementViewers(String streamId, String viewerKey) {
+        Optional<Long> count = viewerCounterService.increment(streamId);
+        if (count.isPresent() && viewerKey != null) {
+            uniqueViewerService.offer(streamId, viewerKey);
+        }
+        return count;
+    }
+
+    /**
+     * Get the approximate number of distinct viewers of a stream
+     * Live streams use the in-memory sketch, ended streams the persisted estimate (a sketch this replica still
+     * holds for an ended stream only has the keys it saw since, it is merged in by the next sweep)
+     * @param streamId The stream ID
+     * @return Optional estimate, empty if the stream does not exist or was never measured
+     */
+    public Optional<Long> getUniqueViewersCount(String streamId) {
+        Optional<Stream> stream = streamRepository.findById(streamId);
+        if (stream.isEmpty()) {
+            return Optional.empty();
+        }
+        if (Boolean.TRUE.equals(stream.get().getIsLive())) {
+            Optional<Long> live = uniqueViewerService.estimate(streamId);
+            if (live.isPresent()) {
+                return live;
+            }
         }
+        return Optional.ofNullable(stream.get().getUniqueViewers());
+    }
+
+    /**
+     * Get the viewer count of a stream (persisted value plus pending increments)
+     * @param streamId The stream ID
+     * @return Optional viewer count, empty if the stream does not exist
+     */
+    public Optional<Long> getViewersCount(String streamId) {
+        return viewerCounterService.getCount(streamId);
+    }
     
     /**
      * End a specific stream using AWS stream ID
@@ -110,9 +327,8 @@ public class StreamService {
         
         if (streamOpt.isPresent()) {
             Stream stream = streamOpt.get();
-            stream.setIsLive(false);
-            stream.setEndedAt(LocalDateTime.now());
-            Stream saved = streamRepository.save(stream);
+            Stream saved = end(stream);
+            eventPublisher.publishEvent(new StreamLifecycleEvent(StreamLifecycleEvent.Type.ENDED, saved));
             System.out.println("Successfully ended stream ID: " + stream.getId());
             return Optional.of(saved);
         } else {
@@ -137,6 +353,7 @@ public class StreamService {
         
         // Delete the stream
         streamRepository.deleteById(id);
+        eventPublisher.publishEvent(new StreamLifecycleEvent(StreamLifecycleEvent.Type.DELETED, stream));
     }
 
 
@@ -165,6 +382,7 @@ public class StreamService {
             
             stream.setThumbnailUrl(thumbnailUrl);
             Stream saved = streamRepository.save(stream);
+            eventPublisher.publishEvent(new StreamLifecycleEvent(StreamLifecycleEvent.Type.UPDATED, saved));
             System.out.println("Successfully updated thumbnail for stream ID: " + stream.getId());
             return Optional.of(saved);
         } else {
@@ -197,6 +415,7 @@ public class StreamService {
             
             stream.setVodUrl(vodUrl);
             Stream saved = streamRepository.save(stream);
+            eventPublisher.publishEvent(new StreamLifecycleEvent(StreamLifecycleEvent.Type.UPDATED, saved));
             System.out.println("Successfully updated VOD URL for stream ID: " + stream.getId());
             return Optional.of(saved);
         } else {
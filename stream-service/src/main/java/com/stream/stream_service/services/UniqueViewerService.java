@@ -0,0 +1,133 @@
+package com.stream.stream_service.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.stream.stream_service.entities.Stream;
+import com.stream.stream_service.repositories.StreamRepository;
+import com.stream.stream_service.utils.HyperLogLog;
+
+import jakarta.transaction.Transactional;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Approximate unique-viewer counting
+ * Keeps one HyperLogLog sketch per live stream (a few KB each, whatever the audience size).
+ * When the stream ends the sketch is merged with any persisted sketch and stored on the Stream row.
+ * Every replica sketches the viewers it serves; only the one applying the END sees the stream end, so the
+ * others find ended streams on a periodic sweep, merge their sketch into the stored one and drop it.
+ */
+@Service
+public class UniqueViewerService {
+
+    @Autowired
+    private StreamRepository streamRepository;
+
+    private final Map<String, HyperLogLog> sketches = new ConcurrentHashMap<>();
+
+    /**
+     * Rebuild sketches for streams that were live before a restart
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadLiveStreams() {
+        for (Stream stream : streamRepository.findByIsLiveTrue()) {
+            sketches.computeIfAbsent(stream.getId(), id -> restore(stream.getViewerSketch()));
+        }
+    }
+
+    /**
+     * Start tracking unique viewers for a stream that just went live
+     * @param streamId The stream ID
+     */
+    public void start(String streamId) {
+        sketches.putIfAbsent(streamId, new HyperLogLog());
+    }
+
+    /**
+     * Record a viewer of a stream
+     * A replica that did not see the stream start begins its own sketch; the sweep merges it once the stream ends
+     * @param streamId The stream ID
+     * @param viewerKey User ID or anonymous fingerprint
+     */
+    public void offer(String streamId, String viewerKey) {
+        sketches.computeIfAbsent(streamId, id -> new HyperLogLog()).add(viewerKey);
+    }
+
+    /**
+     * Get the live unique-viewer estimate of a stream
+     * @param streamId The stream ID
+     * @return Optional estimate, empty if the stream is not tracked
+     */
+    public Optional<Long> estimate(String streamId) {
+        HyperLogLog sketch = sketches.get(streamId);
+        return sketch == null ? Optional.empty() : Optional.of(sketch.estimate());
+    }
+
+    /**
+     * Stop tracking a stream and write its sketch onto the entity
+     * The sketch is merged with the one already stored so counts from other replicas are kept
+     * @param stream The stream being ended (saved by the caller)
+     */
+    public void complete(Stream stream) {
+        HyperLogLog sketch = sketches.remove(stream.getId());
+        if (sketch == null) {
+            return;
+        }
+        if (stream.getViewerSketch() != null) {
+            sketch.merge(restore(stream.getViewerSketch()));
+        }
+        stream.setViewerSketch(sketch.toBytes());
+        stream.setUniqueViewers(sketch.estimate());
+    }
+
+    /**
+     * Merge and drop the sketches of streams that are no longer live
+     * Catches streams ended on another replica; each merge holds the row lock so concurrent sweeps do not
+     * overwrite each other's viewers
+     */
+    @Scheduled(fixedDelayString = "${stream.unique-viewers.sweep-interval-ms:30000}")
+    @Transactional
+    public void sweepEnded() {
+        if (sketches.isEmpty()) {
+            return;
+        }
+        Set<String> ended = new HashSet<>(sketches.keySet());
+        List<String> live = streamRepository.findLiveIdsByIdIn(ended);
+        live.forEach(ended::remove);
+        for (String streamId : ended) {
+            HyperLogLog sketch = sketches.remove(streamId);
+            if (sketch == null) {
+                continue;
+            }
+            streamRepository.findForUpdateById(streamId).ifPresent(stream -> {
+                if (stream.getViewerSketch() != null) {
+                    sketch.merge(restore(stream.getViewerSketch()));
+                }
+                stream.setViewerSketch(sketch.toBytes());
+                stream.setUniqueViewers(sketch.estimate());
+                streamRepository.save(stream);
+            });
+        }
+    }
+
+    private HyperLogLog restore(byte[] bytes) {
+        if (bytes == null) {
+            return new HyperLogLog();
+        }
+        try {
+            return HyperLogLog.fromBytes(bytes);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ignoring unreadable viewer sketch: " + e.getMessage());
+            return new HyperLogLog();
+        }
+    }
+}
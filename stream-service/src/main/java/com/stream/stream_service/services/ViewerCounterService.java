@@ -0,0 +1,303 @@
+package com.stream.stream_service.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.stream.stream_service.events.ViewerCountsFlushedEvent;
+import com.stream.stream_service.repositories.StreamRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.transaction.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind viewer counter
+ * Keeps one striped counter per stream so that viewer increments never touch the database:
+ * - Increments go to a LongAdder cell (no allocation, no row lock)
+ * - A background flusher writes accumulated deltas in one batched atomic UPDATE
+ * - Reads return the persisted value plus the pending delta
+ * - Each successful batch publishes a ViewerCountsFlushedEvent with the new persisted counts
+ */
+@Service
+public class ViewerCounterService {
+
+    static final String FLUSH_SQL = "UPDATE streams SET viewers = viewers + ? WHERE id = ?";
+
+    @Autowired
+    private StreamRepository streamRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Number of consecutive empty flushes after which an idle cell is dropped
+    @Value("${stream.viewers.max-idle-flushes:60}")
+    private int maxIdleFlushes = 60;
+
+    private final Map<String, Cell> cells = new ConcurrentHashMap<>();
+
+    /**
+     * Add one viewer to a stream without a database round-trip
+     * The persisted count is loaded once, the first time a stream is seen
+     * @param streamId The stream ID to increment
+     * @return Optional current viewer count, empty if the stream does not exist
+     */
+    public Optional<Long> increment(String streamId) {
+        Cell cell = cells.get(streamId);
+        if (cell == null) {
+            cell = load(streamId);
+            if (cell == null) {
+                return Optional.empty();
+            }
+        }
+        cell.pending.increment();
+        if (cell.retired) {
+            // The flusher dropped this cell meanwhile: carry the increment over to the live one
+            cell = moveTo(streamId, cell.takePending());
+            if (cell == null) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(cell.current());
+    }
+
+    /**
+     * Get the viewer count of a stream, including increments not yet flushed
+     * @param streamId The stream ID
+     * @return Optional viewer count, empty if the stream does not exist
+     */
+    public Optional<Long> getCount(String streamId) {
+        Cell cell = cells.get(streamId);
+        if (cell == null) {
+            cell = load(streamId);
+        }
+        return cell == null ? Optional.empty() : Optional.of(cell.current());
+    }
+
+    /**
+     * Get the viewer count of a stream only if it already has an in-memory counter
+     * Never touches the database, used by the push gateway on every tick
+     * @param streamId The stream ID
+     * @return Viewer count, or -1 if the stream has no counter
+     */
+    public long peekCount(String streamId) {
+        Cell cell = cells.get(streamId);
+        return cell == null ? -1L : cell.current();
+    }
+
+    /**
+     * Get the increments of a stream that have not been written to the database yet
+     * @param streamId The stream ID
+     * @return Pending delta, 0 if the stream has no counter
+     */
+    public long getPendingDelta(String streamId) {
+        Cell cell = cells.get(streamId);
+        return cell == null ? 0L : cell.pending.sum();
+    }
+
+    /**
+     * Periodically write all pending deltas to Postgres in a single batch
+     */
+    @Scheduled(fixedDelayString = "${stream.viewers.flush-interval-ms:1000}")
+    @Transactional
+    public void flush() {
+        List<String> ids = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        Map<String, Long> counts = new HashMap<>();
+
+        cells.forEach((streamId, cell) -> {
+            long delta = cell.drain();
+            if (delta == 0) {
+                if (++cell.idleFlushes >= maxIdleFlushes) {
+                    retire(streamId, cell);
+                }
+                return;
+            }
+            cell.idleFlushes = 0;
+            ids.add(streamId);
+            batch.add(new Object[] { delta, streamId });
+            counts.put(streamId, cell.base.get());
+        });
+
+        write(ids, batch);
+        if (!counts.isEmpty()) {
+            eventPublisher.publishEvent(new ViewerCountsFlushedEvent(counts));
+        }
+    }
+
+    /**
+     * Force the pending delta of one stream to the database
+     * Used when a stream ends so that the final count is persisted
+     * @param streamId The stream ID to flush
+     * @return Delta that was written (0 if nothing was pending)
+     */
+    @Transactional
+    public long flush(String streamId) {
+        Cell cell = cells.get(streamId);
+        if (cell == null) {
+            return 0L;
+        }
+        long delta = cell.drain();
+        if (delta != 0) {
+            List<Object[]> batch = new ArrayList<>();
+            batch.add(new Object[] { delta, streamId });
+            write(List.of(streamId), batch);
+        }
+        return delta;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void write(List<String> ids, List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+            recordFlush("success", start);
+        } catch (RuntimeException e) {
+            recordFlush("failure", start);
+            // Put the deltas back so the next flush retries them
+            for (int i = 0; i < ids.size(); i++) {
+                Cell cell = cells.get(ids.get(i));
+                if (cell != null) {
+                    cell.undrain((Long) batch.get(i)[0]);
+                }
+            }
+            System.err.println("Failed to flush viewer counts: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    private void recordFlush(String result, long startNanos) {
+        Timer.builder("stream.viewers.flush")
+                .description("Time to write one batch of viewer deltas")
+                .tag("result", result)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Drop an idle cell
+     * An increment holding a reference to it may still land after the removal: both sides move whatever
+     * is pending to the live cell, under the cell lock, so each such increment is carried over exactly once
+     * (the flag is set before pending is read here, and read after pending is written by increment)
+     */
+    private void retire(String streamId, Cell cell) {
+        cell.retired = true;
+        cells.remove(streamId, cell);
+        long leftover = cell.takePending();
+        if (leftover != 0) {
+            moveTo(streamId, leftover);
+        }
+    }
+
+    // Add a delta to the live cell of a stream, loading it if needed; null if the stream is gone
+    private Cell moveTo(String streamId, long delta) {
+        Cell live = cells.get(streamId);
+        if (live == null) {
+            live = load(streamId);
+            if (live == null) {
+                return null;
+            }
+        }
+        live.pending.add(delta);
+        if (live.retired) {
+            return moveTo(streamId, live.takePending());
+        }
+        return live;
+    }
+
+    private Cell load(String streamId) {
+        Optional<Long> persisted = streamRepository.findViewersById(streamId);
+        if (persisted.isEmpty()) {
+            return null;
+        }
+        Cell loaded = new Cell(persisted.get());
+        Cell existing = cells.putIfAbsent(streamId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    /**
+     * Counter state of one stream
+     * base is the value known to be in the database, pending the increments not yet flushed
+     */
+    private static final class Cell {
+        private final AtomicLong base;
+        private final LongAdder pending = new LongAdder();
+        private final ReentrantLock lock = new ReentrantLock();
+        private int idleFlushes; // only touched by the flusher
+        private volatile boolean retired;
+
+        private Cell(long base) {
+            this.base = new AtomicLong(base);
+        }
+
+        private long current() {
+            return base.get() + pending.sum();
+        }
+
+        // Move the pending delta into base; concurrent increments stay in pending
+        // (a lock rather than synchronized, so virtual threads never pin their carrier here)
+        private long drain() {
+            lock.lock();
+            try {
+                long delta = pending.sum();
+                if (delta != 0) {
+                    pending.add(-delta);
+                    base.addAndGet(delta);
+                }
+                return delta;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Remove the pending delta without adding it to base, for the hand-over of a retired cell
+        private long takePending() {
+            lock.lock();
+            try {
+                long delta = pending.sum();
+                pending.add(-delta);
+                return delta;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void undrain(long delta) {
+            lock.lock();
+            try {
+                base.addAndGet(-delta);
+                pending.add(delta);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
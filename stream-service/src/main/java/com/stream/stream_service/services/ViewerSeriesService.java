@@ -0,0 +1,143 @@
+package com.stream.stream_service.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.stream.stream_service.DTO.StreamCardDto;
+import com.stream.stream_service.DTO.ViewerSeriesDto;
+import com.stream.stream_service.events.StreamLifecycleEvent;
+import com.stream.stream_service.repositories.StreamRepository;
+import com.stream.stream_service.utils.LongRingBuffer;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Views-over-time series of live streams
+ * Samples the view count of each live stream once per interval into a fixed-size ring
+ * (LongRingBuffer), so memory per stream is constant and sampling allocates nothing.
+ * - The chart endpoint reads min/avg/max buckets of the ring
+ * - The count is cumulative (ViewerCounterService: local increments plus the last flushed total of all
+ *   replicas), so it only grows; concurrent viewers are not tracked, there is no join/leave or heartbeat
+ * - Nothing is persisted when the stream ends: a peak or mean of cumulative views would not be a viewer statistic
+ * Samples live in memory only: after a restart a live stream's series starts over.
+ */
+@Service
+public class ViewerSeriesService {
+
+    @Autowired
+    private StreamRepository streamRepository;
+
+    @Autowired
+    private ViewerCounterService viewerCounterService;
+
+    @Value("${stream.viewer-series.capacity:3600}")
+    private int capacity;
+
+    @Value("${stream.viewer-series.sample-interval-ms:1000}")
+    private long sampleIntervalMs;
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    /**
+     * Start series for streams that were live before a restart
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadLiveStreams() {
+        for (StreamCardDto stream : streamRepository.findLiveCards()) {
+            start(stream.getId());
+        }
+    }
+
+    /**
+     * Start sampling a stream that just went live
+     * @param streamId The stream ID
+     */
+    public void start(String streamId) {
+        series.computeIfAbsent(streamId, id -> new Series(capacity));
+    }
+
+    /**
+     * Record one sample per live stream
+     * Streams without an in-memory counter (no view since it was dropped) repeat their last sample.
+     */
+    @Scheduled(fixedRateString = "${stream.viewer-series.sample-interval-ms:1000}")
+    public void sample() {
+        long now = System.currentTimeMillis();
+        series.forEach((streamId, entry) -> {
+            long count = viewerCounterService.peekCount(streamId);
+            entry.lock.lock();
+            try {
+                entry.samples.add(count >= 0 ? count : entry.samples.last());
+                entry.lastSampleAt = now;
+            } finally {
+                entry.lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Get the downsampled series of a live stream
+     * @param streamId The stream ID
+     * @param buckets Maximum number of buckets; each covers the same number of samples
+     * @return Optional series, empty if the stream is not sampled by this instance
+     */
+    public Optional<ViewerSeriesDto> getSeries(String streamId, int buckets) {
+        Series entry = series.get(streamId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        entry.lock.lock();
+        try {
+            LongRingBuffer samples = entry.samples;
+            int bucketSize = Math.max(1, (samples.size() + buckets - 1) / buckets);
+            int count = (samples.size() + bucketSize - 1) / bucketSize;
+            long[] min = new long[count];
+            double[] avg = new double[count];
+            long[] max = new long[count];
+            samples.downsample(bucketSize, min, avg, max);
+            return Optional.of(new ViewerSeriesDto(
+                streamId,
+                entry.lastSampleAt,
+                bucketSize * sampleIntervalMs,
+                min,
+                avg,
+                max
+            ));
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * Stop sampling a stream that ended
+     * @param streamId The stream ID
+     */
+    public void stop(String streamId) {
+        series.remove(streamId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStreamLifecycle(StreamLifecycleEvent event) {
+        if (event.getType() == StreamLifecycleEvent.Type.DELETED) {
+            series.remove(event.getStream().getId());
+        }
+    }
+
+    private static final class Series {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LongRingBuffer samples;
+        private long lastSampleAt;
+
+        private Series(int capacity) {
+            this.samples = new LongRingBuffer(capacity);
+        }
+    }
+}
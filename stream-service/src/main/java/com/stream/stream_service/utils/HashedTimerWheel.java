@@ -0,0 +1,194 @@
+package com.stream.stream_service.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed timer wheel
+ * A ring of buckets advanced by one thread every tick; a timeout lands in the bucket of its deadline
+ * and carries the number of full turns left, so scheduling and cancelling are O(1) whatever the
+ * number of pending timeouts. Precision is one tick.
+ * - New timeouts go through a lock-free queue and are placed in their bucket by the wheel thread
+ * - Expired tasks are handed to the executor; the wheel thread never runs them itself
+ *   (unless the executor runs rejected tasks in the caller)
+ */
+public class HashedTimerWheel {
+
+    private final long tickNanos;
+    private final List<Timeout>[] wheel;
+    private final int mask;
+    private final Executor executor;
+    private final Thread worker;
+    private final long startNanos;
+    private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean running = true;
+    private long tick;
+
+    /**
+     * @param name Name of the wheel thread
+     * @param tickMillis Duration of one tick
+     * @param wheelSize Number of buckets, rounded up to a power of two
+     * @param executor Runs the expired tasks
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimerWheel(String name, long tickMillis, int wheelSize, Executor executor) {
+        if (tickMillis < 1 || wheelSize < 1) {
+            throw new IllegalArgumentException("tick and wheel size must be positive");
+        }
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new List[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+        this.mask = size - 1;
+        this.executor = executor;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Run a task after a delay
+     * @return Handle to cancel the task
+     * @throws IllegalStateException if the wheel is stopped
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Timer wheel is stopped");
+        }
+        long deadline = System.nanoTime() + unit.toNanos(Math.max(0, delay)) - startNanos;
+        Timeout timeout = new Timeout(task, deadline);
+        pending.incrementAndGet();
+        incoming.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return Number of scheduled tasks not yet handed to the executor
+     */
+    public int pending() {
+        return pending.get();
+    }
+
+    /**
+     * Stop the wheel thread
+     * @return Tasks that were scheduled and not cancelled, but not run
+     */
+    public List<Runnable> stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join();
+        List<Runnable> unprocessed = new ArrayList<>();
+        for (List<Timeout> bucket : wheel) {
+            collect(bucket, unprocessed);
+        }
+        collect(incoming, unprocessed);
+        return unprocessed;
+    }
+
+    private void collect(Iterable<Timeout> timeouts, List<Runnable> into) {
+        for (Timeout timeout : timeouts) {
+            if (timeout.state.compareAndSet(false, true)) {
+                into.add(timeout.task);
+            }
+        }
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = tickNanos * (tick + 1);
+            long sleepNanos = startNanos + deadline - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            transferIncoming();
+            expire(wheel[(int) (tick & mask)], deadline);
+            tick++;
+        }
+    }
+
+    private void transferIncoming() {
+        // Bounded so that a burst of schedules cannot stall the tick
+        for (int i = 0; i < 100_000; i++) {
+            Timeout timeout = incoming.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state.get()) {
+                continue;
+            }
+            long expiresAtTick = timeout.deadline / tickNanos;
+            timeout.rounds = (expiresAtTick - tick) / wheel.length;
+            // Already late: expire on the current tick
+            long bucketTick = Math.max(expiresAtTick, tick);
+            wheel[(int) (bucketTick & mask)].add(timeout);
+        }
+    }
+
+    private void expire(List<Timeout> bucket, long deadline) {
+        int kept = 0;
+        for (Timeout timeout : bucket) {
+            if (timeout.state.get()) {
+                continue;
+            }
+            if (timeout.rounds <= 0 && timeout.deadline <= deadline) {
+                if (timeout.state.compareAndSet(false, true)) {
+                    pending.decrementAndGet();
+                    try {
+                        executor.execute(timeout.task);
+                    } catch (RejectedExecutionException e) {
+                        System.err.println("Timer wheel task rejected by its executor: " + e.getMessage());
+                    }
+                }
+            } else {
+                timeout.rounds--;
+                bucket.set(kept++, timeout);
+            }
+        }
+        bucket.subList(kept, bucket.size()).clear();
+    }
+
+    public final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private long rounds;
+        // true once run, cancelled or collected by stop
+        private final AtomicBoolean state = new AtomicBoolean();
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return true if the task will not run because of this call
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(false, true)) {
+                pending.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
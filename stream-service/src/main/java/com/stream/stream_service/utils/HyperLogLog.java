@@ -0,0 +1,161 @@
+package com.stream.stream_service.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-size HyperLogLog sketch for approximate distinct counting
+ * - 2^precision one-byte registers (4 KB at the default precision of 12, ~1.6% standard error)
+ * - Lock-free adds: registers only ever grow, updated with a CAS loop
+ * - Sketches with the same precision can be merged (register-wise max),
+ *   so counts from different replicas can be combined
+ */
+public class HyperLogLog {
+
+    public static final int DEFAULT_PRECISION = 12;
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final VarHandle REGISTER = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("Precision must be between 4 and 16");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Add a key to the sketch
+     * @param key Viewer key (user ID or anonymous fingerprint)
+     */
+    public void add(String key) {
+        addHash(hash64(key));
+    }
+
+    void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // Rank of the first set bit in the remaining bits (the sentinel bit caps it)
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+
+        byte current = (byte) REGISTER.getVolatile(registers, index);
+        while (rank > current) {
+            if (REGISTER.compareAndSet(registers, index, current, rank)) {
+                return;
+            }
+            current = (byte) REGISTER.getVolatile(registers, index);
+        }
+    }
+
+    /**
+     * Estimate the number of distinct keys added
+     * @return Cardinality estimate
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < m; i++) {
+            byte r = (byte) REGISTER.getVolatile(registers, i);
+            sum += 1.0 / (1L << r);
+            if (r == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+
+        // Small range correction: linear counting is more accurate while many registers are empty
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Merge another sketch into this one
+     * @param other Sketch with the same precision
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches with different precision");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            byte rank = (byte) REGISTER.getVolatile(other.registers, i);
+            byte current = (byte) REGISTER.getVolatile(registers, i);
+            while (rank > current) {
+                if (REGISTER.compareAndSet(registers, i, current, rank)) {
+                    break;
+                }
+                current = (byte) REGISTER.getVolatile(registers, i);
+            }
+        }
+    }
+
+    /**
+     * Serialize the sketch: [version][precision][registers...]
+     * @return Serialized bytes
+     */
+    public byte[] toBytes() {
+        byte[] bytes = new byte[registers.length + 2];
+        bytes[0] = FORMAT_VERSION;
+        bytes[1] = (byte) precision;
+        for (int i = 0; i < registers.length; i++) {
+            bytes[i + 2] = (byte) REGISTER.getVolatile(registers, i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Restore a sketch serialized with {@link #toBytes()}
+     * @param bytes Serialized sketch
+     * @return Sketch
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length < 2 || bytes[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported sketch format");
+        }
+        HyperLogLog sketch = new HyperLogLog(bytes[1]);
+        if (bytes.length != sketch.registers.length + 2) {
+            throw new IllegalArgumentException("Corrupted sketch");
+        }
+        System.arraycopy(bytes, 2, sketch.registers, 0, sketch.registers.length);
+        return sketch;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16: return 0.673;
+            case 32: return 0.697;
+            case 64: return 0.709;
+            default: return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes followed by the MurmurHash3 finalizer for avalanche
+    static long hash64(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
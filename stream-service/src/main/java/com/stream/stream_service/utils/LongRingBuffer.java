@@ -0,0 +1,94 @@
+package com.stream.stream_service.utils;
+
+/**
+ * Fixed-size ring of long samples
+ * The array is allocated once and the oldest sample is overwritten when full, so recording never
+ * allocates or boxes.
+ * Not thread-safe; callers lock around it.
+ */
+public class LongRingBuffer {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    public LongRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.samples = new long[capacity];
+    }
+
+    public void add(long sample) {
+        samples[next] = sample;
+        next = next + 1 == samples.length ? 0 : next + 1;
+        if (size < samples.length) {
+            size++;
+        }
+    }
+
+    /**
+     * @return Number of samples in the window (at most the capacity)
+     */
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return samples.length;
+    }
+
+    /**
+     * @param index Position in the window, 0 being the oldest sample kept
+     */
+    public long get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return samples[Math.floorMod(next - size + index, samples.length)];
+    }
+
+    /**
+     * @return Most recent sample, or 0 if there is none
+     */
+    public long last() {
+        return size == 0 ? 0L : samples[next == 0 ? samples.length - 1 : next - 1];
+    }
+
+    /**
+     * Summarize the window in buckets of consecutive samples, oldest first
+     * The last bucket holds the remainder and may be smaller.
+     * @param bucketSize Samples per bucket
+     * @param min Receives the minimum of each bucket
+     * @param avg Receives the mean of each bucket
+     * @param max Receives the maximum of each bucket
+     * @return Number of buckets written
+     */
+    public int downsample(int bucketSize, long[] min, double[] avg, long[] max) {
+        if (bucketSize < 1) {
+            throw new IllegalArgumentException("bucketSize must be positive");
+        }
+        int buckets = (size + bucketSize - 1) / bucketSize;
+        if (min.length < buckets || avg.length < buckets || max.length < buckets) {
+            throw new IllegalArgumentException("output arrays hold fewer than " + buckets + " buckets");
+        }
+        int position = Math.floorMod(next - size, samples.length);
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int length = Math.min(bucketSize, size - bucket * bucketSize);
+            long low = Long.MAX_VALUE;
+            long high = Long.MIN_VALUE;
+            long total = 0;
+            for (int i = 0; i < length; i++) {
+                long sample = samples[position];
+                position = position + 1 == samples.length ? 0 : position + 1;
+                low = Math.min(low, sample);
+                high = Math.max(high, sample);
+                total += sample;
+            }
+            min[bucket] = low;
+            avg[bucket] = (double) total / length;
+            max[bucket] = high;
+        }
+        return buckets;
+    }
+}
@@ -0,0 +1,315 @@
+package com.stream.stream_service.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Local append-only log of opaque records, stored in memory-mapped segment files
+ * - Records get consecutive offsets starting at 1; a segment file is named after its first offset
+ * - Record layout: length (int), CRC32 of the payload (int), offset (long), payload
+ * - A write is in the page cache as soon as append returns, so it survives a process crash;
+ *   with fsync enabled it is also forced to disk (survives a machine crash, at a latency cost)
+ * - A consumer offset is persisted with commit; segments whose records are all committed are deleted
+ * On open, the tail of the last segment is scanned and cut at the first torn or corrupt record.
+ */
+public class SegmentedLog implements Closeable {
+
+    private static final int HEADER_BYTES = 16;
+    private static final String SUFFIX = ".log";
+    private static final String OFFSET_FILE = "consumer.offset";
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final boolean fsync;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final NavigableMap<Long, Segment> segments = new TreeMap<>();
+    private final FileChannel offsetChannel;
+    private final MappedByteBuffer offsetBuffer;
+
+    private Segment active;
+    private long nextOffset;
+    private long committed;
+
+    private SegmentedLog(Path dir, int segmentBytes, boolean fsync) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        Files.createDirectories(dir);
+
+        offsetChannel = FileChannel.open(dir.resolve(OFFSET_FILE),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        offsetBuffer = offsetChannel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+        committed = offsetBuffer.getLong(0);
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long base = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            segments.put(base, Segment.open(file, base, segmentBytes));
+        }
+        if (segments.isEmpty()) {
+            nextOffset = committed + 1;
+        } else {
+            active = segments.lastEntry().getValue();
+            active.truncateTail();
+            nextOffset = active.lastOffset + 1;
+        }
+    }
+
+    /**
+     * Open (or create) a log
+     * @param dir Directory holding the segments and the consumer offset
+     * @param segmentBytes Size of a segment file; a record cannot be larger than this minus 16 bytes
+     * @param fsync Whether appends and commits are forced to disk before returning
+     */
+    public static SegmentedLog open(Path dir, int segmentBytes, boolean fsync) throws IOException {
+        return new SegmentedLog(dir, segmentBytes, fsync);
+    }
+
+    /**
+     * Append a record
+     * @param payload Record content
+     * @return Offset of the record
+     */
+    public long append(byte[] payload) throws IOException {
+        int size = HEADER_BYTES + payload.length;
+        if (size > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit in a segment");
+        }
+        lock.lock();
+        try {
+            if (active == null || active.remaining() < size) {
+                roll();
+            }
+            long offset = nextOffset++;
+            active.write(offset, payload, fsync);
+            return offset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Read the records from an offset to the end of the log, in order
+     * @param from First offset to read
+     * @param consumer Receives each offset and payload
+     */
+    public void read(long from, BiConsumer<Long, byte[]> consumer) {
+        lock.lock();
+        try {
+            Long start = segments.floorKey(from);
+            for (Segment segment : segments.tailMap(start == null ? from : start, true).values()) {
+                segment.forEach((offset, payload) -> {
+                    if (offset >= from) {
+                        consumer.accept(offset, payload);
+                    }
+                });
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Persist the consumer offset and delete the segments it covers entirely
+     * @param offset Offset up to which (inclusive) every record has been applied
+     */
+    public void commit(long offset) throws IOException {
+        lock.lock();
+        try {
+            if (offset <= committed) {
+                return;
+            }
+            committed = offset;
+            offsetBuffer.putLong(0, offset);
+            if (fsync) {
+                offsetBuffer.force();
+            }
+            // The active segment is kept so the next offset is still known after a restart
+            while (segments.size() > 1) {
+                Map.Entry<Long, Segment> first = segments.firstEntry();
+                if (first.getValue().lastOffset > committed) {
+                    break;
+                }
+                segments.remove(first.getKey());
+                first.getValue().delete();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCommittedOffset() {
+        lock.lock();
+        try {
+            return committed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Offset of the last appended record, 0 if nothing was ever appended
+     */
+    public long getLastOffset() {
+        lock.lock();
+        try {
+            return nextOffset - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getSegmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+            offsetBuffer.force();
+            offsetChannel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void roll() throws IOException {
+        if (active != null) {
+            active.buffer.force();
+        }
+        Path file = dir.resolve(String.format("%020d%s", nextOffset, SUFFIX));
+        active = Segment.open(file, nextOffset, segmentBytes);
+        segments.put(nextOffset, active);
+    }
+
+    private static final class Segment {
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final long base;
+        private long lastOffset;
+        private int position;
+
+        private Segment(Path file, FileChannel channel, MappedByteBuffer buffer, long base) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.base = base;
+            this.lastOffset = base - 1;
+        }
+
+        private static Segment open(Path file, long base, int segmentBytes) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                if (raf.length() < segmentBytes) {
+                    raf.setLength(segmentBytes);
+                }
+            }
+            FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            Segment segment = new Segment(file, channel, buffer, base);
+            segment.forEach((offset, payload) -> { });
+            return segment;
+        }
+
+        private int remaining() {
+            return buffer.capacity() - position;
+        }
+
+        private void write(long offset, byte[] payload, boolean fsync) {
+            int start = position;
+            buffer.putInt(start + 4, crc(payload));
+            buffer.putLong(start + 8, offset);
+            buffer.put(start + HEADER_BYTES, payload);
+            // The length goes last: a record is only visible once complete
+            buffer.putInt(start, payload.length);
+            if (fsync) {
+                buffer.force(start, HEADER_BYTES + payload.length);
+            }
+            position = start + HEADER_BYTES + payload.length;
+            lastOffset = offset;
+        }
+
+        /**
+         * Visit the valid records from the start of the segment; also sets the write position after the last one
+         */
+        private void forEach(BiConsumer<Long, byte[]> consumer) {
+            ByteBuffer view = buffer.duplicate();
+            int at = 0;
+            long expected = base;
+            while (at + HEADER_BYTES <= view.capacity()) {
+                int length = view.getInt(at);
+                if (length <= 0 || at + HEADER_BYTES + length > view.capacity() || view.getLong(at + 8) != expected) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                view.get(at + HEADER_BYTES, payload);
+                if (crc(payload) != view.getInt(at + 4)) {
+                    break;
+                }
+                consumer.accept(expected, payload);
+                at += HEADER_BYTES + length;
+                expected++;
+            }
+            position = at;
+            lastOffset = expected - 1;
+        }
+
+        // Zero what follows the last valid record, so a torn write can never be read back later
+        private void truncateTail() {
+            int end = buffer.capacity();
+            byte[] zeros = new byte[Math.min(8192, Math.max(1, end - position))];
+            for (int at = position; at < end; at += zeros.length) {
+                buffer.put(at, zeros, 0, Math.min(zeros.length, end - at));
+            }
+        }
+
+        private void close() throws IOException {
+            buffer.force();
+            channel.close();
+        }
+
+        // The mapping itself is released when the buffer is garbage collected
+        private void delete() throws IOException {
+            channel.close();
+            Files.deleteIfExists(file);
+        }
+
+        private static int crc(byte[] payload) {
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return (int) crc.getValue();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.stream.stream_service.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor over (startedAt, id), the sort key of VOD listings
+ * Encoded as URL-safe base64 so clients treat it as a token rather than something to build themselves.
+ */
+public final class StreamCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final LocalDateTime startedAt;
+    private final String id;
+
+    public StreamCursor(LocalDateTime startedAt, String id) {
+        this.startedAt = startedAt;
+        this.id = id;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = startedAt + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param token Cursor returned as nextCursor by a previous page
+     * @return Decoded cursor
+     * @throws IllegalArgumentException if the token is not a cursor
+     */
+    public static StreamCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator <= 0 || separator == raw.length() - 1) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new StreamCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.stream.stream_service.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Packs a few strings into one byte[] record, sharing their prefixes across records
+ * Each value is cut after its last '/': the head (scheme, host, path) is stored once in a dictionary
+ * and the record keeps its index, then the UTF-8 tail. Per value: varint prefix index (0 = none),
+ * varint tail length, tail bytes.
+ * A record replaces one String per value, and URLs that only differ in their last segment
+ * (playback URLs, avatar keys) share everything before it.
+ * Once the dictionary is full, new heads are kept inline in the tail.
+ * pack() takes a lock; unpack() never does.
+ */
+public class StringPacker {
+
+    private final int maxPrefixes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Integer> prefixIds = new HashMap<>();
+    private int prefixCount = 1;
+    // Index 0 is the empty prefix; grown by copy, so readers always see a complete array
+    private volatile String[] prefixes = new String[] {""};
+
+    public StringPacker(int maxPrefixes) {
+        if (maxPrefixes < 1) {
+            throw new IllegalArgumentException("maxPrefixes must be positive");
+        }
+        this.maxPrefixes = maxPrefixes;
+    }
+
+    /**
+     * @param values Values to pack, null is stored as ""
+     * @return Record to pass to unpack
+     */
+    public byte[] pack(String... values) {
+        byte[] buffer = new byte[64];
+        int length = 0;
+        lock.lock();
+        try {
+            for (String value : values) {
+                String text = value == null ? "" : value;
+                int cut = text.lastIndexOf('/') + 1;
+                int prefixId = cut == 0 ? 0 : prefixId(text.substring(0, cut));
+                byte[] tail = (prefixId == 0 ? text : text.substring(cut)).getBytes(StandardCharsets.UTF_8);
+                if (length + 10 + tail.length > buffer.length) {
+                    buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + 10 + tail.length));
+                }
+                length = writeVarint(buffer, length, prefixId);
+                length = writeVarint(buffer, length, tail.length);
+                System.arraycopy(tail, 0, buffer, length, tail.length);
+                length += tail.length;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * @param record Record returned by pack
+     * @return The packed values, in order
+     */
+    public String[] unpack(byte[] record) {
+        String[] table = prefixes;
+        String[] values = new String[countValues(record)];
+        int position = 0;
+        for (int i = 0; i < values.length; i++) {
+            int prefixId = readVarint(record, position);
+            position = skipVarint(record, position);
+            int tailLength = readVarint(record, position);
+            position = skipVarint(record, position);
+            String tail = new String(record, position, tailLength, StandardCharsets.UTF_8);
+            position += tailLength;
+            values[i] = prefixId == 0 ? tail : table[prefixId].concat(tail);
+        }
+        return values;
+    }
+
+    /**
+     * @return Number of distinct prefixes stored, the empty one included
+     */
+    public int getPrefixCount() {
+        return prefixCount;
+    }
+
+    // Called with the lock held; 0 when the dictionary is full
+    private int prefixId(String prefix) {
+        Integer id = prefixIds.get(prefix);
+        if (id != null) {
+            return id;
+        }
+        if (prefixCount >= maxPrefixes) {
+            return 0;
+        }
+        String[] table = prefixes;
+        if (prefixCount == table.length) {
+            table = Arrays.copyOf(table, Math.min(table.length * 2, maxPrefixes));
+        }
+        table[prefixCount] = prefix;
+        prefixes = table;
+        prefixIds.put(prefix, prefixCount);
+        return prefixCount++;
+    }
+
+    private static int countValues(byte[] record) {
+        int count = 0;
+        int position = 0;
+        while (position < record.length) {
+            position = skipVarint(record, position);
+            int tailLength = readVarint(record, position);
+            position = skipVarint(record, position) + tailLength;
+            count++;
+        }
+        return count;
+    }
+
+    private static int writeVarint(byte[] buffer, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    private static int readVarint(byte[] buffer, int position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer[position++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static int skipVarint(byte[] buffer, int position) {
+        while (buffer[position] < 0) {
+            position++;
+        }
+        return position + 1;
+    }
+}
@@ -0,0 +1,182 @@
+package com.stream.stream_service.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded top-K by score
+ * A min-heap of at most K entries with an id -> heap position map, so that:
+ * - an entry whose score changes is moved in O(log K) instead of searched for
+ * - a new entry is admitted only if it beats the current minimum
+ * Ties are broken by id so the order is deterministic. Not thread-safe; callers lock around it.
+ */
+public class TopKHeap<V> {
+
+    private final int capacity;
+    private final List<Node<V>> heap;
+    private final Map<String, Integer> positions;
+
+    public TopKHeap(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.heap = new ArrayList<>(capacity);
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Insert or update an entry
+     * @param id Entry id
+     * @param score Ranking score (higher is better)
+     * @param value Value to keep with the entry
+     * @return true if the entry is in the top K after the call
+     */
+    public boolean offer(String id, long score, V value) {
+        Integer position = positions.get(id);
+        if (position != null) {
+            Node<V> node = heap.get(position);
+            long previous = node.score;
+            node.score = score;
+            node.value = value;
+            if (score > previous) {
+                siftDown(position);
+            } else {
+                siftUp(position);
+            }
+            return true;
+        }
+        Node<V> node = new Node<>(id, score, value);
+        if (heap.size() < capacity) {
+            heap.add(node);
+            positions.put(id, heap.size() - 1);
+            siftUp(heap.size() - 1);
+            return true;
+        }
+        if (compare(node, heap.get(0)) <= 0) {
+            return false;
+        }
+        positions.remove(heap.get(0).id);
+        heap.set(0, node);
+        positions.put(id, 0);
+        siftDown(0);
+        return true;
+    }
+
+    public boolean remove(String id) {
+        Integer position = positions.remove(id);
+        if (position == null) {
+            return false;
+        }
+        Node<V> last = heap.remove(heap.size() - 1);
+        if (position < heap.size()) {
+            heap.set(position, last);
+            positions.put(last.id, position);
+            siftDown(position);
+            siftUp(position);
+        }
+        return true;
+    }
+
+    public boolean contains(String id) {
+        return positions.containsKey(id);
+    }
+
+    /**
+     * @return Value kept for the id, or null if the id is not in the top K
+     */
+    public V get(String id) {
+        Integer position = positions.get(id);
+        return position == null ? null : heap.get(position).value;
+    }
+
+    /**
+     * @return Lowest score kept, or Long.MIN_VALUE while the heap is not full (anything is admitted)
+     */
+    public long minScore() {
+        return heap.size() < capacity ? Long.MIN_VALUE : heap.get(0).score;
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public void clear() {
+        heap.clear();
+        positions.clear();
+    }
+
+    /**
+     * @return Values ordered by score, highest first (O(K log K))
+     */
+    public List<V> sortedDescending() {
+        List<Node<V>> nodes = new ArrayList<>(heap);
+        nodes.sort((a, b) -> compare(b, a));
+        List<V> values = new ArrayList<>(nodes.size());
+        for (Node<V> node : nodes) {
+            values.add(node.value);
+        }
+        return values;
+    }
+
+    // Lower score is "smaller"; on equal scores the larger id is smaller so that ids sort ascending at the top
+    private static int compare(Node<?> a, Node<?> b) {
+        int byScore = Long.compare(a.score, b.score);
+        return byScore != 0 ? byScore : b.id.compareTo(a.id);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (compare(heap.get(index), heap.get(parent)) >= 0) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        int size = heap.size();
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int right = left + 1;
+            int smallest = right < size && compare(heap.get(right), heap.get(left)) < 0 ? right : left;
+            if (compare(heap.get(smallest), heap.get(index)) >= 0) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        Node<V> a = heap.get(i);
+        Node<V> b = heap.get(j);
+        heap.set(i, b);
+        heap.set(j, a);
+        positions.put(b.id, i);
+        positions.put(a.id, j);
+    }
+
+    private static final class Node<V> {
+        private final String id;
+        private long score;
+        private V value;
+
+        private Node(String id, long score, V value) {
+            this.id = id;
+            this.score = score;
+            this.value = value;
+        }
+    }
+}
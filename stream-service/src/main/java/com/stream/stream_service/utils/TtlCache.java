@@ -0,0 +1,173 @@
+package com.stream.stream_service.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded in-process cache with per-entry TTL and a stale window
+ * - FRESH: younger than ttl, served as is
+ * - STALE: older than ttl but younger than ttl + maxStale, served while a refresh runs
+ * - EXPIRED: older than that, only used as a fallback when the upstream call fails
+ * When the size limit is exceeded, the least recently accessed entries are evicted down to 90% of the limit.
+ */
+public class TtlCache<K, V> {
+
+    public enum State {
+        FRESH,
+        STALE,
+        EXPIRED
+    }
+
+    private final String name;
+    private final long ttlNanos;
+    private final long maxStaleNanos;
+    private final int maxSize;
+    private final LongSupplier clock;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock evictLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder staleFallbacks = new LongAdder();
+
+    public TtlCache(String name, long ttlMillis, long maxStaleMillis, int maxSize) {
+        this(name, ttlMillis, maxStaleMillis, maxSize, System::nanoTime);
+    }
+
+    public TtlCache(String name, long ttlMillis, long maxStaleMillis, int maxSize, LongSupplier clock) {
+        this.name = name;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.maxStaleNanos = maxStaleMillis * 1_000_000L;
+        this.maxSize = maxSize;
+        this.clock = clock;
+    }
+
+    /**
+     * Look up an entry and record a hit, stale hit or miss
+     * @param key Cache key
+     * @return Entry (possibly stale or expired), or null if absent
+     */
+    public Entry<V> get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        long now = clock.getAsLong();
+        entry.lastAccess = now;
+        switch (stateOf(entry, now)) {
+            case FRESH -> hits.increment();
+            case STALE -> staleHits.increment();
+            default -> misses.increment();
+        }
+        return entry;
+    }
+
+    public State stateOf(Entry<V> entry) {
+        return stateOf(entry, clock.getAsLong());
+    }
+
+    public void put(K key, V value) {
+        long now = clock.getAsLong();
+        entries.put(key, new Entry<>(value, now));
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Claim the background refresh of a key so that only one refresh runs at a time
+     * @return true if the caller must refresh the key and then call {@link #refreshDone(Object)}
+     */
+    public boolean tryStartRefresh(K key) {
+        return refreshing.add(key);
+    }
+
+    public void refreshDone(K key) {
+        refreshing.remove(key);
+    }
+
+    /**
+     * Record that an expired or stale value was served because the upstream call failed
+     */
+    public void recordStaleFallback() {
+        staleFallbacks.increment();
+    }
+
+    public String getName() { return name; }
+    public int size() { return entries.size(); }
+    public long getHits() { return hits.sum(); }
+    public long getStaleHits() { return staleHits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public long getStaleFallbacks() { return staleFallbacks.sum(); }
+
+    private State stateOf(Entry<V> entry, long now) {
+        long age = now - entry.loadedAt;
+        if (age < ttlNanos) {
+            return State.FRESH;
+        }
+        return age < ttlNanos + maxStaleNanos ? State.STALE : State.EXPIRED;
+    }
+
+    // Evicting in a batch keeps the sort cost away from most puts; a put that finds an eviction
+    // running skips it rather than waiting (a lock, not synchronized, so virtual threads never pin here)
+    private void evict() {
+        if (!evictLock.tryLock()) {
+            return;
+        }
+        try {
+            int target = (int) (maxSize * 0.9);
+            if (entries.size() <= maxSize) {
+                return;
+            }
+            // Sorted on a copy of lastAccess: get() keeps updating it, and a key that changes during the
+            // sort breaks the comparator contract
+            List<Candidate<K, V>> candidates = new ArrayList<>(entries.size());
+            entries.forEach((key, entry) -> candidates.add(new Candidate<>(key, entry, entry.lastAccess)));
+            candidates.sort(Comparator.comparingLong(Candidate::lastAccess));
+            int toRemove = candidates.size() - target;
+            for (int i = 0; i < toRemove; i++) {
+                Candidate<K, V> candidate = candidates.get(i);
+                if (entries.remove(candidate.key(), candidate.entry())) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    private record Candidate<K, V>(K key, Entry<V> entry, long lastAccess) {}
+
+    public static final class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+        private volatile long lastAccess;
+
+        private Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.lastAccess = loadedAt;
+        }
+
+        public V getValue() {
+            return value;
+        }
+    }
+}
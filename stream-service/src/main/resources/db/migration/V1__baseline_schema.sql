@@ -0,0 +1,26 @@
+-- Schema as previously generated by Hibernate (ddl-auto=update).
+-- Existing databases are baselined at version 1, so this script only runs on empty databases.
+
+CREATE TABLE IF NOT EXISTS streams (
+    id             VARCHAR(255) PRIMARY KEY,
+    channel_id     VARCHAR(255) NOT NULL,
+    aws_stream_id  VARCHAR(255),
+    title          VARCHAR(255) NOT NULL,
+    thumbnail_url  VARCHAR(255),
+    is_live        BOOLEAN      NOT NULL,
+    viewers        BIGINT,
+    unique_viewers BIGINT,
+    viewer_sketch  BYTEA,
+    description    TEXT,
+    started_at     TIMESTAMP(6),
+    ended_at       TIMESTAMP(6),
+    category       VARCHAR(255) NOT NULL,
+    vod_url        VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS default_stream_info (
+    channel_id  VARCHAR(255) PRIMARY KEY,
+    title       VARCHAR(255) NOT NULL,
+    description TEXT,
+    category    VARCHAR(255) NOT NULL
+);
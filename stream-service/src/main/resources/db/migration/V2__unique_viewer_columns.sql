@@ -0,0 +1,4 @@
+-- Columns added while the schema was still managed by ddl-auto; no-op on databases created by V1.
+
+ALTER TABLE streams ADD COLUMN IF NOT EXISTS unique_viewers BIGINT;
+ALTER TABLE streams ADD COLUMN IF NOT EXISTS viewer_sketch BYTEA;
@@ -0,0 +1,31 @@
+-- Indexes matched to the StreamRepository queries (checked by StreamRepositoryQueryPlanTest).
+-- Built CONCURRENTLY so the streams table stays writable; Flyway runs this script outside a transaction.
+
+-- findByChannelId, findTopByChannelIdOrderByStartedAtDesc
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_streams_channel_started
+    ON streams (channel_id, started_at DESC);
+
+-- findByIsLiveTrue, findByChannelIdAndIsLiveTrue: live streams are a tiny fraction of the table
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_streams_live_channel
+    ON streams (channel_id) WHERE is_live = true;
+
+-- findByChannelIdAndIsLiveFalseOrderByStartedAtDesc, countByChannelIdAndIsLiveFalse,
+-- findFinishedByChannel, findFinishedByChannelBefore (keyset on started_at, id)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_streams_finished_channel_started
+    ON streams (channel_id, started_at DESC, id DESC) WHERE is_live = false;
+
+-- findTopByChannelIdAndIsLiveFalseOrderByEndedAtDesc
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_streams_finished_channel_ended
+    ON streams (channel_id, ended_at DESC) WHERE is_live = false;
+
+-- findByIsLiveFalseOrderByViewersDesc, countByIsLiveFalse
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_streams_finished_viewers
+    ON streams (viewers DESC) WHERE is_live = false;
+
+-- findFinishedByUniqueViewers
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_streams_finished_unique_viewers
+    ON streams (unique_viewers DESC NULLS LAST, viewers DESC) WHERE is_live = false;
+
+-- findByAwsStreamId (IVS events)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_streams_aws_stream_id
+    ON streams (aws_stream_id);
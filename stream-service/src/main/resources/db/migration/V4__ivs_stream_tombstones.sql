@@ -0,0 +1,11 @@
+-- AWS stream IDs whose IVS Stream End has been seen, so that a START arriving late (after its END, or
+-- redelivered after the stream row was deleted) cannot put the stream live again. Purged after a retention period.
+
+CREATE TABLE IF NOT EXISTS ivs_stream_tombstones (
+    aws_stream_id VARCHAR(255) PRIMARY KEY,
+    channel_arn VARCHAR(255) NOT NULL,
+    start_seen BOOLEAN NOT NULL,
+    ended_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_ivs_stream_tombstones_ended ON ivs_stream_tombstones (ended_at);
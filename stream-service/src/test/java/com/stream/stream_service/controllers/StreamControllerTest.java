@@ -0,0 +1,104 @@
+package com.stream.stream_service.controllers;
+
+import com.stream.stream_service.DTO.LiveDirectorySnapshot;
+import com.stream.stream_service.services.LiveDirectoryService;
+import com.stream.stream_service.services.LivePushService;
+import com.stream.stream_service.services.StreamQueryService;
+import com.stream.stream_service.services.StreamService;
+import com.stream.stream_service.services.ViewerSeriesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * StreamController over standalone MockMvc, services mocked
+ */
+@ExtendWith(MockitoExtension.class)
+class StreamControllerTest {
+
+    private static final String ETAG = "\"abcd1234-7\"";
+
+    @Mock
+    private StreamService streamService;
+
+    @Mock
+    private StreamQueryService streamQueryService;
+
+    @Mock
+    private LivePushService livePushService;
+
+    @Mock
+    private LiveDirectoryService liveDirectoryService;
+
+    @Mock
+    private ViewerSeriesService viewerSeriesService;
+
+    @InjectMocks
+    private StreamController streamController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(streamController).build();
+    }
+
+    /**
+     * Test: /livestreams answers 304 when If-None-Match lists the current ETag among others, weak or not
+     */
+    @Test
+    void getAllLiveStreams_WithMatchingTagInList_ShouldReturnNotModified() throws Exception {
+        // Given
+        when(liveDirectoryService.getSnapshot()).thenReturn(snapshot());
+
+        // When / Then
+        mockMvc.perform(get("/stream-service/public/livestreams").header(HttpHeaders.IF_NONE_MATCH, "\"other-1\", W/" + ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG));
+    }
+
+    /**
+     * Test: If-None-Match: * matches the existing directory
+     */
+    @Test
+    void getAllLiveStreams_WithWildcard_ShouldReturnNotModified() throws Exception {
+        // Given
+        when(liveDirectoryService.getSnapshot()).thenReturn(snapshot());
+
+        // When / Then
+        mockMvc.perform(get("/stream-service/public/livestreams").header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotModified());
+    }
+
+    /**
+     * Test: a stale ETag gets the full body and the current ETag
+     */
+    @Test
+    void getAllLiveStreams_WithStaleTag_ShouldReturnBody() throws Exception {
+        // Given
+        when(liveDirectoryService.getSnapshot()).thenReturn(snapshot());
+
+        // When / Then
+        mockMvc.perform(get("/stream-service/public/livestreams").header(HttpHeaders.IF_NONE_MATCH, "\"abcd1234-6\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(content().string("[]"));
+    }
+
+    private static LiveDirectorySnapshot snapshot() {
+        return new LiveDirectorySnapshot(7, ETAG, List.of(), "[]".getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,288 @@
+package com.stream.stream_service.gRPC;
+
+import com.example.grpc.ArnList;
+import com.example.grpc.ArnRequest;
+import com.example.grpc.ChannelArn;
+import com.example.grpc.ChannelArnList;
+import com.example.grpc.ChannelIdList;
+import com.example.grpc.ChannelPreviewList;
+import com.example.grpc.ChannelResponse;
+import com.example.grpc.ChannelServiceGrpc;
+import com.example.grpc.UserIdRequest;
+import com.stream.stream_service.DTO.ChannelArnLookup;
+import com.stream.stream_service.DTO.ChannelDto;
+import com.stream.stream_service.utils.RequestDeadline;
+import io.grpc.Deadline;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChannelGrpcClient against an in-process channel-service that injects latency and failures
+ */
+class ChannelGrpcClientTest {
+
+    private FakeChannelService service;
+    private Server server;
+    private ManagedChannel channel;
+    private ChannelGrpcClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String name = InProcessServerBuilder.generateName();
+        service = new FakeChannelService();
+        server = InProcessServerBuilder.forName(name).addService(service).build().start();
+        channel = InProcessChannelBuilder.forName(name).build();
+
+        client = new ChannelGrpcClient();
+        ReflectionTestUtils.setField(client, "stub", ChannelServiceGrpc.newFutureStub(channel));
+        // Never started: every lookup goes through the near-cache
+        ReflectionTestUtils.setField(client, "replica", new ChannelReplica());
+        ReflectionTestUtils.setField(client, "ttlMs", 30_000L);
+        ReflectionTestUtils.setField(client, "maxStaleMs", 600_000L);
+        ReflectionTestUtils.setField(client, "userIdTtlMs", 5000L);
+        ReflectionTestUtils.setField(client, "maxSize", 1000);
+        ReflectionTestUtils.setField(client, "resilienceEnabled", true);
+        ReflectionTestUtils.setField(client, "timeoutMs", 2000L);
+        ReflectionTestUtils.setField(client, "hedgeEnabled", true);
+        ReflectionTestUtils.setField(client, "hedgePercentile", 0.95);
+        ReflectionTestUtils.setField(client, "hedgeMinDelayMs", 20L);
+        ReflectionTestUtils.setField(client, "breakerFailureThreshold", 3);
+        ReflectionTestUtils.setField(client, "breakerOpenMs", 60_000L);
+        client.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestDeadline.clear();
+        client.shutdown();
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    /**
+     * Test: once the latency percentile is known, a slow first attempt is hedged and the fast
+     * second attempt answers long before the slow one would have
+     */
+    @Test
+    void getChannelByArn_WithSlowAttempt_ShouldBeHedged() {
+        // Given - warm up the latency tracker with fast calls (distinct ARNs, so no cache hits)
+        for (int i = 0; i < 40; i++) {
+            client.getChannelByArn("arn-warmup-" + i);
+        }
+        int before = service.calls.get();
+        service.latencyMs = call -> call == before + 1 ? 1500 : 0;
+
+        // When
+        long start = System.nanoTime();
+        ChannelDto channelDto = client.getChannelByArn("arn-slow");
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then
+        assertEquals("channel-arn-slow", channelDto.getChannelId());
+        assertTrue(elapsedMs < 1000, "hedge should answer before the slow attempt, took " + elapsedMs + "ms");
+        assertEquals(before + 2, service.calls.get());
+    }
+
+    /**
+     * Test: the deadline of the HTTP request bounds the gRPC call
+     */
+    @Test
+    void getChannelByUserId_ShouldRespectRequestDeadline() {
+        // Given
+        service.latencyMs = call -> 1500;
+        RequestDeadline.set(Deadline.after(150, TimeUnit.MILLISECONDS));
+
+        // When
+        long start = System.nanoTime();
+        StatusRuntimeException exception = assertThrows(StatusRuntimeException.class,
+                () -> client.getChannelByUserId("user-1"));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then
+        assertEquals(Status.Code.DEADLINE_EXCEEDED, exception.getStatus().getCode());
+        assertTrue(elapsedMs < 1000, "call should stop at the request deadline, took " + elapsedMs + "ms");
+    }
+
+    /**
+     * Test: after repeated UNAVAILABLE the circuit opens, calls fail fast without reaching the server,
+     * and preview lookups degrade to an empty result instead of failing
+     */
+    @Test
+    void circuitBreaker_ShouldFailFastAndDegradePreviews() {
+        // Given
+        service.failure = Status.UNAVAILABLE;
+        for (int i = 0; i < 3; i++) {
+            String userId = "user-" + i;
+            assertThrows(StatusRuntimeException.class, () -> client.getChannelByUserId(userId));
+        }
+        int callsWhenOpen = service.calls.get();
+
+        // When
+        StatusRuntimeException exception = assertThrows(StatusRuntimeException.class,
+                () -> client.getChannelByUserId("user-4"));
+        List<ChannelDto> previews = client.getChannelPreviewsByIds(List.of("channel-1", "channel-2"));
+
+        // Then
+        assertEquals(Status.Code.UNAVAILABLE, exception.getStatus().getCode());
+        assertTrue(previews.isEmpty());
+        assertEquals(callsWhenOpen, service.calls.get());
+    }
+
+    /**
+     * Test: with resilience disabled (the default), calls are single attempts with no deadline and no breaker
+     */
+    @Test
+    void resilienceDisabled_ShouldCallPlainly() {
+        // Given
+        ReflectionTestUtils.setField(client, "resilienceEnabled", false);
+        client.init();
+        service.latencyMs = call -> 200;
+        RequestDeadline.set(Deadline.after(50, TimeUnit.MILLISECONDS));
+
+        // When / Then - the request deadline is not applied
+        assertEquals("channel-user-1", client.getChannelByUserId("user-1").getChannelId());
+
+        // When / Then - failures never open the circuit
+        service.latencyMs = call -> 0;
+        service.failure = Status.UNAVAILABLE;
+        for (int i = 0; i < 5; i++) {
+            String userId = "user-x" + i;
+            assertThrows(StatusRuntimeException.class, () -> client.getChannelByUserId(userId));
+        }
+        assertEquals(6, service.calls.get());
+    }
+
+    /**
+     * Test: NOT_FOUND is an answer, not a failure, so it neither hedges nor opens the circuit
+     */
+    @Test
+    void notFound_ShouldNotOpenCircuit() {
+        // Given
+        service.failure = Status.NOT_FOUND;
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            String userId = "user-" + i;
+            StatusRuntimeException exception = assertThrows(StatusRuntimeException.class,
+                    () -> client.getChannelByUserId(userId));
+            assertEquals(Status.Code.NOT_FOUND, exception.getStatus().getCode());
+        }
+
+        // Then
+        assertEquals(5, service.calls.get());
+        service.failure = null;
+        assertEquals("channel-user-9", client.getChannelByUserId("user-9").getChannelId());
+    }
+
+    /**
+     * Test: when channel-service fails, an ARN batch returns the cached channels and marks the others unresolved
+     */
+    @Test
+    void getChannelsByArns_WhenServiceFails_ShouldReturnCachedAndMarkUnresolved() {
+        // Given - arn-1 cached, then expired; channel-service starts failing
+        ReflectionTestUtils.setField(client, "ttlMs", 0L);
+        ReflectionTestUtils.setField(client, "maxStaleMs", 0L);
+        client.init();
+        assertEquals("channel-arn-1", client.getChannelsByArns(List.of("arn-1")).getChannels().get("arn-1").getChannelId());
+        service.failure = Status.UNAVAILABLE;
+
+        // When
+        ChannelArnLookup lookup = client.getChannelsByArns(List.of("arn-1", "arn-2"));
+
+        // Then
+        assertEquals("channel-arn-1", lookup.getChannels().get("arn-1").getChannelId());
+        assertEquals(Set.of("arn-2"), lookup.getUnresolved());
+        assertEquals(Status.Code.UNAVAILABLE, lookup.getFailure().getStatus().getCode());
+    }
+
+    /**
+     * Test: a user's channel, used for ownership checks, is never served from an expired entry
+     */
+    @Test
+    void getChannelByUserId_WhenExpiredAndServiceFails_ShouldFail() {
+        // Given
+        ReflectionTestUtils.setField(client, "userIdTtlMs", 0L);
+        client.init();
+        assertEquals("channel-user-1", client.getChannelByUserId("user-1").getChannelId());
+        service.failure = Status.UNAVAILABLE;
+
+        // When / Then
+        assertThrows(StatusRuntimeException.class, () -> client.getChannelByUserId("user-1"));
+    }
+
+    private static class FakeChannelService extends ChannelServiceGrpc.ChannelServiceImplBase {
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile IntFunction<Integer> latencyMs = call -> 0;
+        private volatile Status failure;
+
+        @Override
+        public void getChannelByUserId(UserIdRequest request, StreamObserver<ChannelResponse> responseObserver) {
+            respond(responseObserver, () -> channel("channel-" + request.getUserId()));
+        }
+
+        @Override
+        public void getChannelByArn(ArnRequest request, StreamObserver<ChannelResponse> responseObserver) {
+            respond(responseObserver, () -> channel("channel-" + request.getArn()));
+        }
+
+        @Override
+        public void getChannelsByArns(ArnList request, StreamObserver<ChannelArnList> responseObserver) {
+            respond(responseObserver, () -> {
+                ChannelArnList.Builder list = ChannelArnList.newBuilder();
+                for (String arn : request.getArnsList()) {
+                    list.addChannels(ChannelArn.newBuilder().setArn(arn).setChannel(channel("channel-" + arn)));
+                }
+                return list.build();
+            });
+        }
+
+        @Override
+        public void getChannelPreviewsByIds(ChannelIdList request, StreamObserver<ChannelPreviewList> responseObserver) {
+            respond(responseObserver, () -> ChannelPreviewList.getDefaultInstance());
+        }
+
+        private <T> void respond(StreamObserver<T> responseObserver, Supplier<T> response) {
+            int call = calls.incrementAndGet();
+            try {
+                Thread.sleep(latencyMs.apply(call));
+                if (failure != null) {
+                    responseObserver.onError(failure.asRuntimeException());
+                } else {
+                    responseObserver.onNext(response.get());
+                    responseObserver.onCompleted();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (StatusRuntimeException e) {
+                // Call was cancelled by the client (hedge won or deadline passed)
+            }
+        }
+
+        private static ChannelResponse channel(String channelId) {
+            return ChannelResponse.newBuilder()
+                    .setChannelId(channelId)
+                    .setName("name")
+                    .setPlaybackUrl("playback")
+                    .setAvatarUrl("avatar")
+                    .build();
+        }
+    }
+}
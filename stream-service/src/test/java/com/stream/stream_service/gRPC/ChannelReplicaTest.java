@@ -0,0 +1,247 @@
+package com.stream.stream_service.gRPC;
+
+import com.example.grpc.ChannelChange;
+import com.example.grpc.ChannelIdList;
+import com.example.grpc.ChannelPreview;
+import com.example.grpc.ChannelPreviewList;
+import com.example.grpc.ChannelServiceGrpc;
+import com.example.grpc.WatchChannelsRequest;
+import com.stream.stream_service.DTO.ChannelDto;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChannelReplica against an in-process channel-service whose WatchChannels stream is driven by the test
+ */
+class ChannelReplicaTest {
+
+    private FakeChannelService service;
+    private Server server;
+    private ManagedChannel channel;
+    private ChannelReplica replica;
+    private ChannelGrpcClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String name = InProcessServerBuilder.generateName();
+        service = new FakeChannelService();
+        server = InProcessServerBuilder.forName(name).addService(service).build().start();
+        channel = InProcessChannelBuilder.forName(name).build();
+
+        replica = new ChannelReplica();
+        ReflectionTestUtils.setField(replica, "stub", ChannelServiceGrpc.newStub(channel));
+        ReflectionTestUtils.setField(replica, "enabled", true);
+        ReflectionTestUtils.setField(replica, "maxStaleMs", 600_000L);
+        ReflectionTestUtils.setField(replica, "reconnectMinMs", 10L);
+        ReflectionTestUtils.setField(replica, "reconnectMaxMs", 100L);
+        ReflectionTestUtils.setField(replica, "maxPrefixes", 100);
+        replica.init();
+
+        client = new ChannelGrpcClient();
+        ReflectionTestUtils.setField(client, "stub", ChannelServiceGrpc.newFutureStub(channel));
+        ReflectionTestUtils.setField(client, "replica", replica);
+        ReflectionTestUtils.setField(client, "ttlMs", 30_000L);
+        ReflectionTestUtils.setField(client, "maxStaleMs", 600_000L);
+        ReflectionTestUtils.setField(client, "maxSize", 1000);
+        ReflectionTestUtils.setField(client, "timeoutMs", 2000L);
+        ReflectionTestUtils.setField(client, "hedgePercentile", 0.95);
+        ReflectionTestUtils.setField(client, "breakerFailureThreshold", 3);
+        ReflectionTestUtils.setField(client, "breakerOpenMs", 60_000L);
+        client.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        replica.shutdown();
+        client.shutdown();
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    /**
+     * Test: once the snapshot is applied, upserts and deletes follow and preview lookups
+     * are answered locally without any GetChannelPreviewsByIds call
+     */
+    @Test
+    void snapshotAndDeltas_ShouldServePreviewsWithoutNetworkCall() throws Exception {
+        // Given
+        replica.start();
+        StreamObserver<ChannelChange> feed = service.nextWatcher();
+        feed.onNext(snapshot(100, false, preview("channel-1", "One")));
+        assertFalse(replica.isReady(), "half a snapshot must not be served");
+        feed.onNext(snapshot(100, true, preview("channel-2", "Two")));
+
+        // When
+        feed.onNext(upsert(101, preview("channel-1", "One renamed")));
+        feed.onNext(ChannelChange.newBuilder().setType(ChannelChange.Type.DELETE).setVersion(102).setChannelId("channel-2").build());
+        feed.onNext(upsert(101, preview("channel-1", "Replayed, older")));
+        await(() -> replica.getVersion() == 102);
+        List<ChannelDto> previews = client.getChannelPreviewsByIds(List.of("channel-2", "channel-1", "channel-1", "unknown"));
+
+        // Then
+        assertEquals(1, previews.size());
+        assertEquals(new ChannelDto("channel-1", "One renamed", "https://playback/channel-1.m3u8", "https://cdn/avatars/channel-1.jpg"),
+                previews.get(0));
+        assertEquals(0, service.previewCalls.get());
+    }
+
+    /**
+     * Test: when the stream breaks, the replica keeps serving and reconnects from its last version
+     */
+    @Test
+    void brokenStream_ShouldReconnectFromLastVersion() throws Exception {
+        // Given
+        replica.start();
+        StreamObserver<ChannelChange> feed = service.nextWatcher();
+        feed.onNext(snapshot(100, true, preview("channel-1", "One")));
+        feed.onNext(upsert(101, preview("channel-2", "Two")));
+        await(() -> replica.getVersion() == 101);
+
+        // When
+        feed.onError(Status.UNAVAILABLE.asRuntimeException());
+        StreamObserver<ChannelChange> resumed = service.nextWatcher();
+
+        // Then
+        assertEquals(List.of(0L, 101L), service.fromVersions);
+        assertTrue(replica.isReady());
+        resumed.onNext(ChannelChange.newBuilder().setType(ChannelChange.Type.RESUME).setVersion(101).build());
+        resumed.onNext(upsert(102, preview("channel-3", "Three")));
+        await(() -> replica.size() == 3);
+    }
+
+    /**
+     * Test: while the stream is down, the replica still answers what it has, and a channel it lacks
+     * (possibly created since the stream broke) is looked up on channel-service
+     */
+    @Test
+    void brokenStream_ShouldLookUpReplicaMissesOnNetwork() throws Exception {
+        // Given
+        replica.start();
+        StreamObserver<ChannelChange> feed = service.nextWatcher();
+        feed.onNext(snapshot(100, true, preview("channel-1", "One")));
+        await(replica::isConnected);
+        feed.onError(Status.UNAVAILABLE.asRuntimeException());
+        await(() -> !replica.isConnected());
+        service.channels.put("channel-2", preview("channel-2", "Created during the outage"));
+
+        // When
+        List<ChannelDto> previews = client.getChannelPreviewsByIds(List.of("channel-2", "channel-1", "unknown"));
+
+        // Then
+        assertEquals(List.of("channel-2", "channel-1"), previews.stream().map(ChannelDto::getChannelId).toList());
+        assertEquals("Created during the outage", previews.get(0).getName());
+        assertEquals(1, service.previewCalls.get());
+        assertEquals(List.of(List.of("channel-2", "unknown")), service.previewRequests);
+    }
+
+    /**
+     * Test: once the stream has been down longer than max-stale, lookups go back to channel-service
+     */
+    @Test
+    void staleReplica_ShouldFallBackToNetwork() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(replica, "maxStaleMs", 0L);
+        replica.start();
+        StreamObserver<ChannelChange> feed = service.nextWatcher();
+        feed.onNext(snapshot(100, true, preview("channel-1", "One")));
+        await(replica::isReady);
+
+        // When
+        feed.onError(Status.UNAVAILABLE.asRuntimeException());
+        await(() -> !replica.isReady());
+        client.getChannelPreviewsByIds(List.of("channel-1"));
+
+        // Then
+        assertEquals(1, service.previewCalls.get());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5s");
+            Thread.sleep(5);
+        }
+    }
+
+    private static ChannelChange snapshot(long version, boolean last, ChannelPreview... channels) {
+        return ChannelChange.newBuilder()
+                .setType(ChannelChange.Type.SNAPSHOT)
+                .setVersion(version)
+                .setLast(last)
+                .addAllChannels(List.of(channels))
+                .build();
+    }
+
+    private static ChannelChange upsert(long version, ChannelPreview channel) {
+        return ChannelChange.newBuilder()
+                .setType(ChannelChange.Type.UPSERT)
+                .setVersion(version)
+                .addChannels(channel)
+                .build();
+    }
+
+    private static ChannelPreview preview(String channelId, String name) {
+        return ChannelPreview.newBuilder()
+                .setChannelId(channelId)
+                .setName(name)
+                .setPlaybackUrl("https://playback/" + channelId + ".m3u8")
+                .setAvatarUrl("https://cdn/avatars/" + channelId + ".jpg")
+                .build();
+    }
+
+    private static class FakeChannelService extends ChannelServiceGrpc.ChannelServiceImplBase {
+        private final AtomicInteger previewCalls = new AtomicInteger();
+        private final List<Long> fromVersions = new CopyOnWriteArrayList<>();
+        private final BlockingQueue<StreamObserver<ChannelChange>> watchers = new LinkedBlockingQueue<>();
+        // Channels GetChannelPreviewsByIds knows about
+        private final Map<String, ChannelPreview> channels = new ConcurrentHashMap<>();
+        private final List<List<String>> previewRequests = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void watchChannels(WatchChannelsRequest request, StreamObserver<ChannelChange> responseObserver) {
+            fromVersions.add(request.getFromVersion());
+            watchers.add(responseObserver);
+        }
+
+        @Override
+        public void getChannelPreviewsByIds(ChannelIdList request, StreamObserver<ChannelPreviewList> responseObserver) {
+            previewCalls.incrementAndGet();
+            previewRequests.add(List.copyOf(request.getIdsList()));
+            ChannelPreviewList.Builder list = ChannelPreviewList.newBuilder();
+            for (String id : request.getIdsList()) {
+                ChannelPreview preview = channels.get(id);
+                if (preview != null) {
+                    list.addPreviews(preview);
+                }
+            }
+            responseObserver.onNext(list.build());
+            responseObserver.onCompleted();
+        }
+
+        private StreamObserver<ChannelChange> nextWatcher() throws InterruptedException {
+            StreamObserver<ChannelChange> watcher = watchers.poll(5, TimeUnit.SECONDS);
+            assertNotNull(watcher, "replica did not open WatchChannels");
+            return watcher;
+        }
+    }
+}
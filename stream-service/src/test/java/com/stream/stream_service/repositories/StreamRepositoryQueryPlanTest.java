@@ -0,0 +1,318 @@
+package com.stream.stream_service.repositories;
+
+import com.stream.stream_service.DTO.StreamCardDto;
+import com.stream.stream_service.entities.Stream;
+import com.stream.stream_service.enums.StreamCategory;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Query-plan regression suite for the stream repositories
+ * - Runs against a real PostgreSQL with the Flyway migrations applied (and ddl-auto=validate against them)
+ * - Each repository method is executed once to capture the SQL Hibernate actually generates
+ * - That SQL is planned with EXPLAIN (GENERIC_PLAN), i.e. for any parameter values, with sequential scans
+ *   disabled, and the plan must use the index created for the method
+ * A renamed method, a changed query or a dropped index shows up here instead of as a slow endpoint.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.stream.stream_service.repositories.StreamRepositoryQueryPlanTest$LastStatement"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class StreamRepositoryQueryPlanTest {
+
+    @TestConfiguration
+    static class EmbeddedPostgresConfig {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.start();
+        }
+
+        @Bean
+        DataSource dataSource(EmbeddedPostgres postgres) {
+            return postgres.getPostgresDatabase();
+        }
+    }
+
+    @Autowired
+    private StreamRepository streamRepository;
+
+    @Autowired
+    private DefaultStreamInfoRepository defaultStreamInfoRepository;
+
+    @Autowired
+    private IvsStreamTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private EmbeddedPostgres postgres;
+
+    @BeforeEach
+    void setUp() {
+        LastStatement.sql = null;
+    }
+
+    @Test
+    void findByChannelId_ShouldUseChannelStartedIndex() throws SQLException {
+        streamRepository.findByChannelId("channel-1");
+        assertPlanUses("idx_streams_channel_started");
+    }
+
+    @Test
+    void findByChannelIdAndIsLiveTrue_ShouldUseLiveIndex() throws SQLException {
+        streamRepository.findByChannelIdAndIsLiveTrue("channel-1");
+        assertPlanUses("idx_streams_live_channel");
+    }
+
+    @Test
+    void findByIsLiveTrue_ShouldUseLiveIndex() throws SQLException {
+        streamRepository.findByIsLiveTrue();
+        assertPlanUses("idx_streams_live_channel");
+    }
+
+    @Test
+    void findLiveCards_ShouldUseLiveIndexAndSkipDescription() throws SQLException {
+        streamRepository.findLiveCards();
+        assertFalse(LastStatement.sql.contains("description"), LastStatement.sql);
+        assertPlanUses("idx_streams_live_channel");
+    }
+
+    @Test
+    void findLiveIds_ShouldUseLiveIndex() throws SQLException {
+        streamRepository.findLiveIds();
+        assertPlanUses("idx_streams_live_channel");
+    }
+
+    @Test
+    void findFinishedCardsByChannel_ShouldUseFinishedChannelIndex() throws SQLException {
+        streamRepository.findFinishedCardsByChannel("channel-1", PageRequest.of(0, 10));
+        assertPlanUses("idx_streams_finished_channel_started");
+    }
+
+    @Test
+    void countByChannelIdAndIsLiveFalse_ShouldUseFinishedChannelIndex() throws SQLException {
+        streamRepository.countByChannelIdAndIsLiveFalse("channel-1");
+        assertPlanUses("idx_streams_finished_channel_started");
+    }
+
+    @Test
+    void findFinishedCardsByChannelKeyset_ShouldUseFinishedChannelIndex() throws SQLException {
+        streamRepository.findFinishedCardsByChannelKeyset("channel-1", PageRequest.of(0, 10));
+        assertPlanUses("idx_streams_finished_channel_started");
+    }
+
+    @Test
+    void findFinishedCardsByChannelBefore_ShouldUseFinishedChannelIndex() throws SQLException {
+        streamRepository.findFinishedCardsByChannelBefore("channel-1", LocalDateTime.now(), "stream-1", PageRequest.of(0, 10));
+        assertPlanUses("idx_streams_finished_channel_started");
+    }
+
+    @Test
+    void findFinishedCardsByViewers_ShouldUseFinishedViewersIndex() throws SQLException {
+        streamRepository.findFinishedCardsByViewers(PageRequest.of(0, 10));
+        assertPlanUses("idx_streams_finished_viewers");
+    }
+
+    @Test
+    void findFinishedCardsByUniqueViewers_ShouldUseUniqueViewersIndex() throws SQLException {
+        streamRepository.findFinishedCardsByUniqueViewers(PageRequest.of(0, 10));
+        assertPlanUses("idx_streams_finished_unique_viewers");
+    }
+
+    @Test
+    void countByIsLiveFalse_ShouldUseFinishedIndex() throws SQLException {
+        // Any of the is_live = false partial indexes answers the count
+        streamRepository.countByIsLiveFalse();
+        assertPlanUses("idx_streams_finished_");
+    }
+
+    @Test
+    void findTopByChannelIdOrderByStartedAtDesc_ShouldUseChannelStartedIndex() throws SQLException {
+        streamRepository.findTopByChannelIdOrderByStartedAtDesc("channel-1");
+        assertPlanUses("idx_streams_channel_started");
+    }
+
+    @Test
+    void findTopByChannelIdAndIsLiveFalseOrderByEndedAtDesc_ShouldUseFinishedEndedIndex() throws SQLException {
+        streamRepository.findTopByChannelIdAndIsLiveFalseOrderByEndedAtDesc("channel-1");
+        assertPlanUses("idx_streams_finished_channel_ended");
+    }
+
+    @Test
+    void findByAwsStreamId_ShouldUseAwsStreamIdIndex() throws SQLException {
+        streamRepository.findByAwsStreamId("st-123");
+        assertPlanUses("idx_streams_aws_stream_id");
+    }
+
+    @Test
+    void findByAwsStreamIdIn_ShouldUseAwsStreamIdIndex() throws SQLException {
+        streamRepository.findByAwsStreamIdIn(List.of("st-1", "st-2", "st-3"));
+        assertPlanUses("idx_streams_aws_stream_id");
+    }
+
+    @Test
+    void findViewersById_ShouldUsePrimaryKey() throws SQLException {
+        streamRepository.findViewersById("stream-1");
+        assertPlanUses("streams_pkey");
+    }
+
+    @Test
+    void findLiveIdsByIdIn_ShouldUsePrimaryKey() throws SQLException {
+        streamRepository.findLiveIdsByIdIn(List.of("stream-1", "stream-2"));
+        assertPlanUses("streams_pkey");
+    }
+
+    @Test
+    void findForUpdateById_ShouldUsePrimaryKey() throws SQLException {
+        streamRepository.findForUpdateById("stream-1");
+        assertPlanUses("streams_pkey");
+    }
+
+    @Test
+    void defaultStreamInfoFindByChannelId_ShouldUsePrimaryKey() throws SQLException {
+        defaultStreamInfoRepository.findByChannelId("channel-1");
+        assertPlanUses("default_stream_info_pkey");
+    }
+
+    @Test
+    void tombstoneFindByAwsStreamIdIn_ShouldUsePrimaryKey() throws SQLException {
+        tombstoneRepository.findByAwsStreamIdIn(List.of("aws-1", "aws-2"));
+        assertPlanUses("ivs_stream_tombstones_pkey");
+    }
+
+    @Test
+    void tombstoneDeleteEndedBefore_ShouldUseEndedIndex() throws SQLException {
+        tombstoneRepository.deleteEndedBefore(LocalDateTime.now());
+        assertPlanUses("idx_ivs_stream_tombstones_ended");
+    }
+
+    /**
+     * Test: the schema built by the migrations accepts what the entity writes
+     */
+    @Test
+    void migratedSchema_ShouldRoundTripStream() {
+        // Given
+        Stream stream = new Stream();
+        stream.setId("stream-1");
+        stream.setChannelId("channel-1");
+        stream.setTitle("Title");
+        stream.setCategory(StreamCategory.OTHER);
+        stream.setStartedAt(LocalDateTime.now());
+        stream.setEndedAt(LocalDateTime.now());
+        stream.setVodUrl("https://vod");
+        stream.setViewerSketch(new byte[]{1, 2, 3});
+
+        // When
+        streamRepository.saveAndFlush(stream);
+
+        // Then - cards keep the fields the list pages read
+        StreamCardDto card = streamRepository.findFinishedCardsByChannelKeyset("channel-1", PageRequest.of(0, 10)).get(0);
+        assertEquals("Title", card.getTitle());
+        assertFalse(card.getIsLive());
+        assertNotNull(card.getEndedAt());
+        assertEquals("https://vod", card.getVodUrl());
+        assertArrayEquals(new byte[]{1, 2, 3}, streamRepository.findById("stream-1").orElseThrow().getViewerSketch());
+    }
+
+    /**
+     * Test: sort=unique ranks measured streams by unique viewers and puts never-measured ones last, by raw views
+     */
+    @Test
+    void findFinishedCardsByUniqueViewers_ShouldPutUnmeasuredStreamsLast() {
+        // Given
+        streamRepository.saveAndFlush(finished("unmeasured-popular", null, 500L));
+        streamRepository.saveAndFlush(finished("measured-low", 10L, 20L));
+        streamRepository.saveAndFlush(finished("unmeasured-quiet", null, 5L));
+        streamRepository.saveAndFlush(finished("measured-high", 40L, 50L));
+
+        // When
+        List<String> ids = streamRepository.findFinishedCardsByUniqueViewers(PageRequest.of(0, 10)).stream()
+                .map(card -> card.getId())
+                .toList();
+
+        // Then
+        assertEquals(List.of("measured-high", "measured-low", "unmeasured-popular", "unmeasured-quiet"), ids);
+    }
+
+    private static Stream finished(String id, Long uniqueViewers, long viewers) {
+        Stream stream = new Stream();
+        stream.setId(id);
+        stream.setChannelId("channel-1");
+        stream.setTitle(id);
+        stream.setCategory(StreamCategory.OTHER);
+        stream.setStartedAt(LocalDateTime.now());
+        stream.setIsLive(false);
+        stream.setUniqueViewers(uniqueViewers);
+        stream.setViewers(viewers);
+        return stream;
+    }
+
+    private void assertPlanUses(String indexName) throws SQLException {
+        String sql = LastStatement.sql;
+        assertNotNull(sql, "no statement was captured");
+        List<String> lines = new ArrayList<>();
+        // Simple query protocol: the driver must pass $n through instead of binding parameters
+        DataSource explainDataSource = postgres.getPostgresDatabase(Map.of("preferQueryMode", "simple"));
+        try (Connection connection = explainDataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("SET enable_seqscan = off");
+            try (ResultSet rs = statement.executeQuery("EXPLAIN (GENERIC_PLAN) " + numberParameters(sql))) {
+                while (rs.next()) {
+                    lines.add(rs.getString(1));
+                }
+            }
+        }
+        String plan = String.join("\n", lines);
+        assertFalse(plan.contains("Seq Scan"), "sequential scan for:\n" + sql + "\n" + plan);
+        assertTrue(plan.contains(indexName), "expected " + indexName + " for:\n" + sql + "\n" + plan);
+    }
+
+    // JDBC placeholders (?) to the $n form EXPLAIN (GENERIC_PLAN) accepts
+    private static String numberParameters(String sql) {
+        Matcher matcher = Pattern.compile("\\?").matcher(sql);
+        StringBuilder numbered = new StringBuilder();
+        int n = 0;
+        while (matcher.find()) {
+            matcher.appendReplacement(numbered, "\\$" + (++n));
+        }
+        matcher.appendTail(numbered);
+        return numbered.toString();
+    }
+
+    /**
+     * Keeps the last SQL statement Hibernate prepared
+     */
+    public static class LastStatement implements StatementInspector {
+        private static volatile String sql;
+
+        @Override
+        public String inspect(String sql) {
+            LastStatement.sql = sql;
+            return sql;
+        }
+    }
+}
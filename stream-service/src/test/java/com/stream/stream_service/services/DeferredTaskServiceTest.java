@@ -0,0 +1,163 @@
+package com.stream.stream_service.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeferredTaskServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<DeferredTaskService> started = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (DeferredTaskService service : started) {
+            service.shutdown();
+        }
+    }
+
+    /**
+     * Test: a task runs once its delay has passed and is then removed from the pending set
+     */
+    @Test
+    void schedule_ShouldRunTaskWhenDue() throws Exception {
+        // Given
+        DeferredTaskService service = start();
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+        service.register("thumbnail", payload -> {
+            ran.add(text(payload));
+            done.countDown();
+        });
+        service.replay();
+        long start = System.currentTimeMillis();
+
+        // When
+        service.schedule("thumbnail", bytes("s1"), Duration.ofMillis(100));
+
+        // Then
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 100);
+        assertEquals(List.of("s1"), ran);
+        awaitPending(service, 0);
+        assertEquals(1, meterRegistry.get("deferred.tasks.fire.lag").tag("type", "thumbnail").timer().count());
+        assertEquals(1, meterRegistry.get("deferred.tasks.schedule").timer().count());
+    }
+
+    /**
+     * Test: tasks not run before a shutdown are run after the restart, and finished ones are not
+     */
+    @Test
+    void replay_ShouldRunTasksLeftByPreviousRun() throws Exception {
+        // Given - one task done, one still waiting when the service stops
+        DeferredTaskService first = start();
+        CountDownLatch firstDone = new CountDownLatch(1);
+        first.register("thumbnail", payload -> firstDone.countDown());
+        first.replay();
+        first.schedule("thumbnail", bytes("done"), Duration.ZERO);
+        assertTrue(firstDone.await(5, TimeUnit.SECONDS));
+        awaitPending(first, 0);
+        first.schedule("thumbnail", bytes("waiting"), Duration.ofMillis(300));
+        first.shutdown();
+        started.remove(first);
+
+        // When
+        DeferredTaskService second = start();
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch secondDone = new CountDownLatch(1);
+        second.register("thumbnail", payload -> {
+            ran.add(text(payload));
+            secondDone.countDown();
+        });
+        second.replay();
+
+        // Then
+        assertTrue(secondDone.await(5, TimeUnit.SECONDS));
+        awaitPending(second, 0);
+        assertEquals(List.of("waiting"), ran);
+    }
+
+    /**
+     * Test: a failing task is retried until it succeeds, and dropped after the maximum attempts
+     */
+    @Test
+    void failingTask_ShouldBeRetriedThenDropped() throws Exception {
+        // Given - max 3 attempts; "flaky" fails twice, "broken" always fails
+        DeferredTaskService service = start();
+        AtomicInteger flakyCalls = new AtomicInteger();
+        AtomicInteger brokenCalls = new AtomicInteger();
+        service.register("flaky", payload -> {
+            if (flakyCalls.incrementAndGet() < 3) {
+                throw new IllegalStateException("not yet");
+            }
+        });
+        service.register("broken", payload -> {
+            brokenCalls.incrementAndGet();
+            throw new IllegalStateException("never");
+        });
+        service.replay();
+
+        // When
+        service.schedule("flaky", bytes("a"), Duration.ZERO);
+        service.schedule("broken", bytes("b"), Duration.ZERO);
+
+        // Then
+        awaitPending(service, 0);
+        assertEquals(3, flakyCalls.get());
+        assertEquals(3, brokenCalls.get());
+        assertEquals(1, meterRegistry.get("deferred.tasks.executed").tag("result", "success").counter().count());
+        assertEquals(4, meterRegistry.get("deferred.tasks.executed").tag("result", "retry").counter().count());
+        assertEquals(1, meterRegistry.get("deferred.tasks.executed").tag("result", "dropped").counter().count());
+    }
+
+    private DeferredTaskService start() throws Exception {
+        DeferredTaskService service = new DeferredTaskService();
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(service, "tickMs", 10L);
+        ReflectionTestUtils.setField(service, "wheelSize", 64);
+        ReflectionTestUtils.setField(service, "threads", 2);
+        ReflectionTestUtils.setField(service, "queueCapacity", 10);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "retryBackoffMs", 10L);
+        ReflectionTestUtils.setField(service, "drainTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(service, "dir", dir.toString());
+        ReflectionTestUtils.setField(service, "segmentBytes", 4096);
+        ReflectionTestUtils.setField(service, "fsync", false);
+        service.init();
+        started.add(service);
+        return service;
+    }
+
+    private static void awaitPending(DeferredTaskService service, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.getPending() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, service.getPending());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] payload) {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,320 @@
+package com.stream.stream_service.services;
+
+import com.stream.stream_service.DTO.IvsCommand;
+import com.stream.stream_service.utils.SegmentedLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IvsIngestionServiceTest {
+
+    @Mock
+    private StreamService streamService;
+
+    @Mock
+    private DeferredTaskService deferredTaskService;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path logDir;
+
+    @InjectMocks
+    private IvsIngestionService ingestionService;
+
+    // Copies of the batches passed to applyIvsBatch, in call order
+    private final List<List<IvsCommand>> applied = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ingestionService, "workers", 2);
+        ReflectionTestUtils.setField(ingestionService, "queueCapacity", 100);
+        ReflectionTestUtils.setField(ingestionService, "batchSize", 10);
+        ReflectionTestUtils.setField(ingestionService, "maxAttempts", 2);
+        ReflectionTestUtils.setField(ingestionService, "retryBackoffMs", 1L);
+        ReflectionTestUtils.setField(ingestionService, "maxBackoffMs", 10L);
+        ReflectionTestUtils.setField(ingestionService, "thumbnailDelayMs", 0L);
+        ReflectionTestUtils.setField(ingestionService, "logDir", logDir.toString());
+        ReflectionTestUtils.setField(ingestionService, "segmentBytes", 4096);
+        ReflectionTestUtils.setField(ingestionService, "fsync", false);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        ingestionService.shutdown();
+    }
+
+    /**
+     * Test: commands queued while a worker is busy are applied together, in arrival order per ARN
+     *
+     * Expected behavior:
+     * - The first command is applied alone (the worker picks it up right away)
+     * - The commands queued meanwhile are applied as one batch
+     * - For each ARN, the applied order is the submitted order
+     */
+    @Test
+    void submit_ShouldBatchQueuedCommandsAndKeepPerArnOrder() throws Exception {
+        // Given - the first batch blocks until everything else is queued
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(7);
+        doAnswer(invocation -> {
+            List<IvsCommand> batch = invocation.getArgument(0);
+            applied.add(List.copyOf(batch));
+            release.await(5, TimeUnit.SECONDS);
+            batch.forEach(command -> done.countDown());
+            return null;
+        }).when(streamService).applyIvsBatch(anyList());
+        ingestionService.init();
+
+        // When
+        assertTrue(ingestionService.submit(List.of(start("arn-a", "s1"))));
+        Thread.sleep(100);
+        assertTrue(ingestionService.submit(List.of(
+                end("arn-a", "s1"), start("arn-b", "s2"), start("arn-a", "s3"),
+                end("arn-b", "s2"), vod("arn-a", "s1"), end("arn-a", "s3"))));
+        release.countDown();
+
+        // Then
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("START s1", "END s1", "START s3", "VOD s1", "END s3"), appliedFor("arn-a"));
+        assertEquals(List.of("START s2", "END s2"), appliedFor("arn-b"));
+        assertTrue(applied.stream().anyMatch(batch -> batch.size() > 1), "queued commands should be batched");
+    }
+
+    /**
+     * Test: when a batch fails, its commands are retried one by one so the good ones still apply,
+     * and a failing command is retried past the max attempts instead of being skipped
+     */
+    @Test
+    void failedBatch_ShouldBeRetriedCommandByCommand() throws Exception {
+        // Given - the first three calls containing the poison command fail (the batch, then two singles)
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger poisonCalls = new AtomicInteger();
+        doAnswer(invocation -> {
+            List<IvsCommand> batch = invocation.getArgument(0);
+            applied.add(List.copyOf(batch));
+            release.await(5, TimeUnit.SECONDS);
+            if (batch.stream().anyMatch(command -> command.getAwsStreamId().equals("poison"))
+                    && poisonCalls.incrementAndGet() <= 3) {
+                throw new IllegalStateException("bad event");
+            }
+            if (batch.size() == 1 && batch.get(0).getAwsStreamId().equals("s2")) {
+                done.countDown();
+            }
+            return null;
+        }).when(streamService).applyIvsBatch(anyList());
+        ingestionService.init();
+        ingestionService.bindTo(meterRegistry);
+
+        // When
+        ingestionService.submit(List.of(start("arn-a", "s0")));
+        Thread.sleep(100);
+        ingestionService.submit(List.of(start("arn-a", "s1"), start("arn-a", "poison"), start("arn-a", "s2")));
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        ingestionService.shutdown();
+
+        // Then - the batch, then s1, poison until it applies, s2
+        List<String> singles = applied.stream().filter(batch -> batch.size() == 1)
+                .map(batch -> batch.get(0).getAwsStreamId()).toList();
+        assertEquals(List.of("s0", "s1", "poison", "poison", "poison", "s2"), singles);
+        assertEquals(1, meterRegistry.get("ivs.ingest.apply").tags("mode", "batch", "result", "failure").timer().count());
+        assertEquals(2, meterRegistry.get("ivs.ingest.apply").tags("mode", "single", "result", "failure").timer().count());
+        assertEquals(4, meterRegistry.get("ivs.ingest.apply").tags("mode", "single", "result", "success").timer().count());
+        assertEquals(4, meterRegistry.get("ivs.ingest.latency").tag("type", "START").timer().count());
+        assertEquals(1, meterRegistry.get("ivs.ingest.stalled").functionCounter().count());
+        assertEquals(4, ingestionService.getCommittedOffset());
+    }
+
+    /**
+     * Test: a command still failing at shutdown is not committed past, and is replayed at the next start
+     */
+    @Test
+    void failingCommand_ShouldHoldOffsetAndBeReplayed() throws Exception {
+        // Given - s2 fails until the service restarts
+        AtomicBoolean failing = new AtomicBoolean(true);
+        CountDownLatch retried = new CountDownLatch(3);
+        doAnswer(invocation -> {
+            List<IvsCommand> batch = invocation.getArgument(0);
+            applied.add(List.copyOf(batch));
+            if (batch.get(0).getAwsStreamId().equals("s2") && failing.get()) {
+                retried.countDown();
+                throw new IllegalStateException("database down");
+            }
+            return null;
+        }).when(streamService).applyIvsBatch(anyList());
+        ingestionService.init();
+        ingestionService.submit(List.of(start("arn-a", "s1")));
+        Thread.sleep(100);
+        ingestionService.submit(List.of(start("arn-a", "s2")));
+        assertTrue(retried.await(5, TimeUnit.SECONDS));
+
+        // When
+        ingestionService.shutdown();
+        long committed = ingestionService.getCommittedOffset();
+        failing.set(false);
+        applied.clear();
+        CountDownLatch replayed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            applied.add(List.copyOf(invocation.<List<IvsCommand>>getArgument(0)));
+            replayed.countDown();
+            return null;
+        }).when(streamService).applyIvsBatch(anyList());
+        ingestionService.init();
+
+        // Then
+        assertEquals(1, committed);
+        assertTrue(replayed.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("START s2"), appliedFor("arn-a"));
+    }
+
+    /**
+     * Test: a full queue rejects commands instead of blocking the webhook
+     */
+    @Test
+    void submit_WhenQueueFull_ShouldReject() throws Exception {
+        // Given - one worker, blocked, with room for two commands
+        ReflectionTestUtils.setField(ingestionService, "workers", 1);
+        ReflectionTestUtils.setField(ingestionService, "queueCapacity", 2);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(streamService).applyIvsBatch(anyList());
+        ingestionService.init();
+        ingestionService.submit(List.of(start("arn-a", "s0")));
+        Thread.sleep(100);
+
+        // When
+        boolean accepted = ingestionService.submit(List.of(start("arn-a", "s1"), start("arn-a", "s2"), start("arn-a", "s3")));
+
+        // Then
+        assertFalse(accepted);
+        assertEquals(2, ingestionService.getQueued());
+        release.countDown();
+    }
+
+    /**
+     * Test: commands logged but not applied before a crash are replayed at startup, in order
+     *
+     * Expected behavior:
+     * - Only the entries after the persisted consumer offset are applied
+     * - The consumer offset then advances to the end of the log
+     */
+    @Test
+    void init_ShouldReplayUnappliedCommandsFromLog() throws Exception {
+        // Given - a log left by a previous run: offset 1 applied, 2 and 3 accepted but not applied
+        try (SegmentedLog log = SegmentedLog.open(logDir, 4096, false)) {
+            log.append(start("arn-a", "s1").toBytes());
+            log.append(end("arn-a", "s1").toBytes());
+            log.append(vod("arn-a", "s1").toBytes());
+            log.commit(1);
+        }
+        CountDownLatch done = new CountDownLatch(2);
+        doAnswer(invocation -> {
+            List<IvsCommand> batch = invocation.getArgument(0);
+            applied.add(List.copyOf(batch));
+            batch.forEach(command -> done.countDown());
+            return null;
+        }).when(streamService).applyIvsBatch(anyList());
+
+        // When
+        ingestionService.init();
+
+        // Then
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("END s1", "VOD s1"), appliedFor("arn-a"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (ingestionService.getCommittedOffset() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, ingestionService.getCommittedOffset());
+    }
+
+    /**
+     * Test: thumbnails go through the deferred task service and are only applied when the task runs
+     */
+    @Test
+    void submit_Thumbnail_ShouldBeDeferredThenApplied() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(ingestionService, "thumbnailDelayMs", 30_000L);
+        CountDownLatch done = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            applied.add(List.copyOf(invocation.<List<IvsCommand>>getArgument(0)));
+            done.countDown();
+            return null;
+        }).when(streamService).applyIvsBatch(anyList());
+        ingestionService.init();
+        ArgumentCaptor<Consumer<byte[]>> handler = ArgumentCaptor.captor();
+        verify(deferredTaskService).register(eq("ivs-command"), handler.capture());
+        IvsCommand thumbnail = new IvsCommand(IvsCommand.Type.THUMBNAIL, "arn-a", "s1", "https://thumb");
+
+        // When
+        assertTrue(ingestionService.submit(List.of(thumbnail)));
+
+        // Then - scheduled, not applied
+        ArgumentCaptor<byte[]> payload = ArgumentCaptor.forClass(byte[].class);
+        verify(deferredTaskService).schedule(eq("ivs-command"), payload.capture(), eq(Duration.ofSeconds(30)));
+        verify(streamService, never()).applyIvsBatch(anyList());
+
+        // When - the deferred task fires
+        handler.getValue().accept(payload.getValue());
+
+        // Then
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("THUMBNAIL s1"), appliedFor("arn-a"));
+    }
+
+    private List<String> appliedFor(String arn) {
+        List<String> commands = new ArrayList<>();
+        synchronized (applied) {
+            for (List<IvsCommand> batch : applied) {
+                for (IvsCommand command : batch) {
+                    if (command.getChannelArn().equals(arn)) {
+                        commands.add(command.getType() + " " + command.getAwsStreamId());
+                    }
+                }
+            }
+        }
+        return commands;
+    }
+
+    private static IvsCommand start(String arn, String awsStreamId) {
+        return new IvsCommand(IvsCommand.Type.START, arn, awsStreamId, null);
+    }
+
+    private static IvsCommand end(String arn, String awsStreamId) {
+        return new IvsCommand(IvsCommand.Type.END, arn, awsStreamId, null);
+    }
+
+    private static IvsCommand vod(String arn, String awsStreamId) {
+        return new IvsCommand(IvsCommand.Type.VOD, arn, awsStreamId, "https://vod");
+    }
+}
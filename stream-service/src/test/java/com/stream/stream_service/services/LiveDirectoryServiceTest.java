@@ -0,0 +1,261 @@
+package com.stream.stream_service.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stream.stream_service.DTO.ChannelDto;
+import com.stream.stream_service.DTO.LiveCategoryDto;
+import com.stream.stream_service.DTO.LiveDirectorySnapshot;
+import com.stream.stream_service.DTO.StreamCardDto;
+import com.stream.stream_service.DTO.StreamCardWithChannelDto;
+import com.stream.stream_service.entities.Stream;
+import com.stream.stream_service.enums.StreamCategory;
+import com.stream.stream_service.events.StreamLifecycleEvent;
+import com.stream.stream_service.gRPC.ChannelGrpcClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LiveDirectoryServiceTest {
+
+    @Mock
+    private StreamQueryService streamQueryService;
+
+    @Mock
+    private ChannelGrpcClient channelGrpcClient;
+
+    @Mock
+    private ViewerCounterService viewerCounterService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @InjectMocks
+    private LiveDirectoryService liveDirectoryService;
+
+    private Stream liveStream;
+    private ChannelDto channel;
+
+    @BeforeEach
+    void setUp() {
+        liveStream = stream("stream-1", "channel-1");
+        channel = new ChannelDto("channel-1", "Channel 1", "rtmp://one", "avatar1.jpg");
+        ReflectionTestUtils.setField(liveDirectoryService, "categoryTopN", 2);
+    }
+
+    /**
+     * Test: the full rebuild enriches live streams once and pre-serializes them
+     */
+    @Test
+    void rebuild_ShouldPublishSerializedSnapshot() throws Exception {
+        // Given
+        when(streamQueryService.getLiveStreams()).thenReturn(List.of(new StreamCardWithChannelDto(StreamCardDto.from(liveStream), channel)));
+
+        // When
+        LiveDirectorySnapshot snapshot = liveDirectoryService.rebuild();
+
+        // Then
+        assertEquals(1, snapshot.getVersion());
+        assertEquals(1, snapshot.getEntries().size());
+        assertEquals("stream-1", snapshot.getEntries().get(0).getStream().getId());
+        assertEquals(1, objectMapper.readTree(snapshot.getJson()).size());
+        assertFalse(objectMapper.readTree(snapshot.getJson()).get(0).get("stream").has("description"));
+        assertSame(snapshot, liveDirectoryService.getSnapshot());
+    }
+
+    /**
+     * Test: the full rebuild queries and enriches without holding the write lock
+     */
+    @Test
+    void rebuild_ShouldLoadOutsideWriteLock() {
+        // Given
+        ReentrantLock writeLock = (ReentrantLock) ReflectionTestUtils.getField(liveDirectoryService, "writeLock");
+        when(streamQueryService.getLiveStreams()).thenAnswer(invocation -> {
+            assertFalse(writeLock.isHeldByCurrentThread(), "live streams loaded under the write lock");
+            return List.of(new StreamCardWithChannelDto(StreamCardDto.from(liveStream), channel));
+        });
+
+        // When
+        LiveDirectorySnapshot snapshot = liveDirectoryService.rebuild();
+
+        // Then
+        assertEquals(1, snapshot.getEntries().size());
+    }
+
+    /**
+     * Test: a rebuild whose load overlapped a lifecycle patch does not undo the patch
+     *
+     * Expected behavior:
+     * - Every load sees the stream still live while an END is patched in meanwhile
+     * - The rebuild gives up after its attempts and the ended stream stays out of the directory
+     */
+    @Test
+    void rebuild_WhenPatchedDuringLoad_ShouldKeepPatch() {
+        // Given
+        when(streamQueryService.getLiveStreams()).thenReturn(List.of(new StreamCardWithChannelDto(StreamCardDto.from(liveStream), channel)));
+        liveDirectoryService.rebuild();
+        Stream ended = stream("stream-1", "channel-1");
+        ended.setIsLive(false);
+        when(streamQueryService.getLiveStreams()).thenAnswer(invocation -> {
+            liveDirectoryService.onStreamLifecycle(new StreamLifecycleEvent(StreamLifecycleEvent.Type.ENDED, ended));
+            return List.of(new StreamCardWithChannelDto(StreamCardDto.from(liveStream), channel));
+        });
+
+        // When
+        LiveDirectorySnapshot snapshot = liveDirectoryService.rebuild();
+
+        // Then
+        assertTrue(snapshot.getEntries().isEmpty());
+        verify(streamQueryService, times(4)).getLiveStreams();
+    }
+
+    /**
+     * Test: the channel of a started stream is looked up before the write lock is taken
+     */
+    @Test
+    void onStreamLifecycle_Started_ShouldLookUpChannelOutsideWriteLock() {
+        // Given
+        when(streamQueryService.getLiveStreams()).thenReturn(List.of());
+        liveDirectoryService.rebuild();
+        ReentrantLock writeLock = (ReentrantLock) ReflectionTestUtils.getField(liveDirectoryService, "writeLock");
+        when(channelGrpcClient.getChannelPreviewsByIds(List.of("channel-1"))).thenAnswer(invocation -> {
+            assertFalse(writeLock.isHeldByCurrentThread(), "channel looked up under the write lock");
+            return List.of(channel);
+        });
+
+        // When
+        liveDirectoryService.onStreamLifecycle(new StreamLifecycleEvent(StreamLifecycleEvent.Type.STARTED, liveStream));
+
+        // Then
+        assertSame(channel, liveDirectoryService.getSnapshot().getEntries().get(0).getChannel());
+    }
+
+    /**
+     * Test: a started stream is added to the snapshot with one channel lookup and a new version
+     */
+    @Test
+    void onStreamLifecycle_Started_ShouldAddEntry() {
+        // Given
+        when(streamQueryService.getLiveStreams()).thenReturn(List.of(new StreamCardWithChannelDto(StreamCardDto.from(liveStream), channel)));
+        LiveDirectorySnapshot before = liveDirectoryService.rebuild();
+        Stream started = stream("stream-2", "channel-2");
+        ChannelDto channel2 = new ChannelDto("channel-2", "Channel 2", "rtmp://two", "avatar2.jpg");
+        when(channelGrpcClient.getChannelPreviewsByIds(List.of("channel-2"))).thenReturn(List.of(channel2));
+
+        // When
+        liveDirectoryService.onStreamLifecycle(new StreamLifecycleEvent(StreamLifecycleEvent.Type.STARTED, started));
+
+        // Then
+        LiveDirectorySnapshot after = liveDirectoryService.getSnapshot();
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertNotEquals(before.getEtag(), after.getEtag());
+        assertEquals(2, after.getEntries().size());
+        assertEquals(channel2, after.getEntries().get(1).getChannel());
+        assertEquals(1, before.getEntries().size()); // previous snapshot is untouched
+    }
+
+    /**
+     * Test: an ended stream is removed without any channel lookup
+     */
+    @Test
+    void onStreamLifecycle_Ended_ShouldRemoveEntry() {
+        // Given
+        when(streamQueryService.getLiveStreams()).thenReturn(List.of(new StreamCardWithChannelDto(StreamCardDto.from(liveStream), channel)));
+        liveDirectoryService.rebuild();
+        liveStream.setIsLive(false);
+
+        // When
+        liveDirectoryService.onStreamLifecycle(new StreamLifecycleEvent(StreamLifecycleEvent.Type.ENDED, liveStream));
+
+        // Then
+        assertTrue(liveDirectoryService.getSnapshot().getEntries().isEmpty());
+        verify(channelGrpcClient, never()).getChannelPreviewsByIds(any());
+    }
+
+    /**
+     * Test: viewer counts are refreshed from the in-memory counter, and nothing is republished when unchanged
+     */
+    @Test
+    void refreshViewerCounts_ShouldOnlyPublishOnChange() {
+        // Given
+        when(streamQueryService.getLiveStreams()).thenReturn(List.of(new StreamCardWithChannelDto(StreamCardDto.from(liveStream), channel)));
+        liveDirectoryService.rebuild();
+        when(viewerCounterService.peekCount("stream-1")).thenReturn(42L);
+
+        // When
+        liveDirectoryService.refreshViewerCounts();
+        LiveDirectorySnapshot refreshed = liveDirectoryService.getSnapshot();
+        liveDirectoryService.refreshViewerCounts();
+
+        // Then
+        assertEquals(2, refreshed.getVersion());
+        assertEquals(42L, refreshed.getEntries().get(0).getStream().getViewers());
+        assertSame(refreshed, liveDirectoryService.getSnapshot());
+    }
+
+    /**
+     * Test: category facets and per-category top N follow starts, viewer changes and ends
+     *
+     * Expected behavior:
+     * - Each category lists its live streams by viewers, capped at N (2 here)
+     * - Facets count every live stream and sum their viewers, empty categories included
+     */
+    @Test
+    void categoryIndex_ShouldFollowStartsViewerChangesAndEnds() {
+        // Given - three gaming streams and one podcast
+        Stream gaming2 = stream("stream-2", "channel-1");
+        Stream gaming3 = stream("stream-3", "channel-1");
+        Stream podcast = stream("stream-4", "channel-1");
+        liveStream.setCategory(StreamCategory.GAMING);
+        gaming2.setCategory(StreamCategory.GAMING);
+        gaming3.setCategory(StreamCategory.GAMING);
+        podcast.setCategory(StreamCategory.PODCAST);
+        liveStream.setViewers(10L);
+        gaming2.setViewers(20L);
+        gaming3.setViewers(5L);
+        when(streamQueryService.getLiveStreams()).thenReturn(List.of(
+                new StreamCardWithChannelDto(StreamCardDto.from(liveStream), channel),
+                new StreamCardWithChannelDto(StreamCardDto.from(gaming2), channel),
+                new StreamCardWithChannelDto(StreamCardDto.from(podcast), channel)));
+        liveDirectoryService.rebuild();
+        when(channelGrpcClient.getChannelPreviewsByIds(List.of("channel-1"))).thenReturn(List.of(channel));
+        when(viewerCounterService.peekCount(anyString())).thenReturn(-1L);
+        when(viewerCounterService.peekCount("stream-1")).thenReturn(50L);
+
+        // When
+        liveDirectoryService.onStreamLifecycle(new StreamLifecycleEvent(StreamLifecycleEvent.Type.STARTED, gaming3));
+        liveDirectoryService.refreshViewerCounts();
+        podcast.setIsLive(false);
+        liveDirectoryService.onStreamLifecycle(new StreamLifecycleEvent(StreamLifecycleEvent.Type.ENDED, podcast));
+
+        // Then
+        assertEquals(List.of("stream-1", "stream-2"), liveDirectoryService.getLiveStreamsByCategory(StreamCategory.GAMING)
+                .stream().map(entry -> entry.getStream().getId()).toList());
+        assertTrue(liveDirectoryService.getLiveStreamsByCategory(StreamCategory.PODCAST).isEmpty());
+        LiveCategoryDto gaming = liveDirectoryService.getCategoryFacets().get(StreamCategory.GAMING.ordinal());
+        assertEquals(3, gaming.getLiveCount());
+        assertEquals(75L, gaming.getViewers());
+        assertEquals(StreamCategory.values().length, liveDirectoryService.getCategoryFacets().size());
+    }
+
+    private static Stream stream(String id, String channelId) {
+        Stream stream = new Stream();
+        stream.setId(id);
+        stream.setChannelId(channelId);
+        stream.setTitle("Title " + id);
+        stream.setIsLive(true);
+        stream.setViewers(0L);
+        return stream;
+    }
+}
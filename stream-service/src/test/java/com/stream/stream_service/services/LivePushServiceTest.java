@@ -0,0 +1,368 @@
+package com.stream.stream_service.services;
+
+import com.stream.stream_service.DTO.ChannelDto;
+import com.stream.stream_service.entities.Stream;
+import com.stream.stream_service.events.StreamLifecycleEvent;
+import com.stream.stream_service.gRPC.ChannelGrpcClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LivePushServiceTest {
+
+    @Mock
+    private ViewerCounterService viewerCounterService;
+
+    @Mock
+    private ChannelGrpcClient channelGrpcClient;
+
+    @InjectMocks
+    private LivePushService livePushService;
+
+    private ManualExecutor senders;
+    private ManualExecutor deltaBuilder;
+
+    @BeforeEach
+    void setUp() {
+        senders = new ManualExecutor();
+        deltaBuilder = new ManualExecutor();
+        ReflectionTestUtils.setField(livePushService, "senders", senders);
+        ReflectionTestUtils.setField(livePushService, "deltaBuilder", deltaBuilder);
+        ReflectionTestUtils.setField(livePushService, "maxPendingDeltas", 2);
+    }
+
+    /**
+     * Test: viewer counts are coalesced for a subscriber that has not been drained yet
+     *
+     * Expected behavior:
+     * - Two ticks with different counts schedule a single drain
+     * - Only the latest count is sent
+     */
+    @Test
+    void publishViewerCounts_ShouldCoalesceForSlowSubscriber() {
+        // Given
+        RecordingEmitter emitter = new RecordingEmitter();
+        livePushService.register(emitter, List.of("stream-1"), false);
+        when(viewerCounterService.peekCount("stream-1")).thenReturn(10L, 12L);
+
+        // When
+        livePushService.publishViewerCounts();
+        livePushService.publishViewerCounts();
+        senders.runAll();
+
+        // Then
+        assertEquals(1, emitter.events.size());
+        assertTrue(emitter.events.get(0).contains("event:viewers"));
+        assertTrue(emitter.events.get(0).contains("\"viewers\":12"));
+    }
+
+    /**
+     * Test: unchanged counts are not pushed again
+     */
+    @Test
+    void publishViewerCounts_WithUnchangedCount_ShouldNotResend() {
+        // Given
+        RecordingEmitter emitter = new RecordingEmitter();
+        livePushService.register(emitter, List.of("stream-1"), false);
+        when(viewerCounterService.peekCount("stream-1")).thenReturn(10L);
+
+        // When
+        livePushService.publishViewerCounts();
+        senders.runAll();
+        livePushService.publishViewerCounts();
+        senders.runAll();
+
+        // Then
+        assertEquals(1, emitter.events.size());
+    }
+
+    /**
+     * Test: a subscriber that falls too far behind on directory deltas gets a single resync event
+     */
+    @Test
+    void broadcastDelta_WhenBacklogOverflows_ShouldSendResync() {
+        // Given
+        RecordingEmitter emitter = new RecordingEmitter();
+        livePushService.register(emitter, List.of(), true);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            livePushService.broadcastDelta(LivePushService.EVENT_STREAM_ENDED, "stream-" + i);
+        }
+        senders.runAll();
+
+        // Then
+        assertEquals(1, emitter.events.size());
+        assertTrue(emitter.events.get(0).contains("event:resync"));
+    }
+
+    /**
+     * Test: lifecycle deltas are built off the committing thread, in commit order
+     *
+     * Expected behavior:
+     * - The listener returns without calling channel-service
+     * - Once the delta thread runs, the started delta (with its channel) goes out before the ended one
+     */
+    @Test
+    void onStreamLifecycle_ShouldLookUpChannelOffTheCommittingThread() {
+        // Given
+        RecordingEmitter emitter = new RecordingEmitter();
+        livePushService.register(emitter, List.of(), true);
+        Stream stream = new Stream();
+        stream.setId("stream-1");
+        stream.setChannelId("channel-1");
+        stream.setIsLive(true);
+        when(channelGrpcClient.getChannelPreviewsByIds(List.of("channel-1")))
+                .thenReturn(List.of(new ChannelDto("channel-1", "Channel", "rtmp://test", "avatar.jpg")));
+
+        // When
+        livePushService.onStreamLifecycle(new StreamLifecycleEvent(StreamLifecycleEvent.Type.STARTED, stream));
+        livePushService.onStreamLifecycle(new StreamLifecycleEvent(StreamLifecycleEvent.Type.ENDED, stream));
+
+        // Then
+        verifyNoInteractions(channelGrpcClient);
+        deltaBuilder.runAll();
+        senders.runAll();
+        assertEquals(2, emitter.events.size());
+        assertTrue(emitter.events.get(0).contains("event:stream-started"));
+        assertTrue(emitter.events.get(0).contains("\"channelId\":\"channel-1\""));
+        assertTrue(emitter.events.get(1).contains("event:stream-ended"));
+    }
+
+    /**
+     * Test: completed connections are unregistered
+     */
+    @Test
+    void register_OnCompletion_ShouldUnregister() {
+        // Given
+        RecordingEmitter emitter = new RecordingEmitter();
+        livePushService.register(emitter, List.of("stream-1"), true);
+        assertEquals(1, livePushService.getSubscriberCount());
+
+        // When
+        emitter.fireCompletion();
+
+        // Then
+        assertEquals(0, livePushService.getSubscriberCount());
+    }
+
+    /**
+     * Test: a client whose write blocks past write-timeout-ms is evicted and no longer holds back the others
+     *
+     * Expected behavior:
+     * - With a single sender thread stuck on the stalled client, the healthy client still gets the next count
+     * - The extra sender thread is given back once the stalled write returns
+     */
+    @Test
+    void evictStalledSubscribers_ShouldKeepFanOutGoing() throws Exception {
+        // Given - one sender thread, one client that blocks on every write
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 5, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        ReflectionTestUtils.setField(livePushService, "senders", pool);
+        ReflectionTestUtils.setField(livePushService, "writeTimeoutMs", 50L);
+        ReflectionTestUtils.setField(livePushService, "maxStalledSenders", 4);
+        CountDownLatch unblock = new CountDownLatch(1);
+        BlockingEmitter stalled = new BlockingEmitter(unblock);
+        RecordingEmitter healthy = new RecordingEmitter();
+        livePushService.register(stalled, List.of("stream-1"), false);
+        livePushService.register(healthy, List.of("stream-1"), false);
+        when(viewerCounterService.peekCount("stream-1")).thenReturn(10L, 12L);
+
+        // When - the stalled client holds the only sender thread
+        livePushService.publishViewerCounts();
+        await(() -> stalled.blocked.getCount() == 0);
+        livePushService.publishViewerCounts();
+        Thread.sleep(100);
+        livePushService.evictStalledSubscribers();
+
+        // Then
+        await(() -> healthy.events.stream().anyMatch(event -> event.contains("\"viewers\":12")));
+        assertEquals(1, livePushService.getSubscriberCount());
+        assertEquals(2, pool.getCorePoolSize());
+        unblock.countDown();
+        await(() -> pool.getCorePoolSize() == 1);
+        pool.shutdownNow();
+    }
+
+    /**
+     * Test: a client evicted while its last queued frame is being written is disconnected once that write returns
+     *
+     * Expected behavior:
+     * - Nothing else is queued, so no later send can notice the eviction
+     * - The emitter is completed with an error when the drain ends, so the client reconnects
+     */
+    @Test
+    void evictStalledSubscribers_WhenLastWriteReturns_ShouldCompleteEmitter() throws Exception {
+        // Given
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 5, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        ReflectionTestUtils.setField(livePushService, "senders", pool);
+        ReflectionTestUtils.setField(livePushService, "writeTimeoutMs", 50L);
+        ReflectionTestUtils.setField(livePushService, "maxStalledSenders", 4);
+        CountDownLatch unblock = new CountDownLatch(1);
+        BlockingEmitter stalled = new BlockingEmitter(unblock);
+        livePushService.register(stalled, List.of("stream-1"), false);
+        when(viewerCounterService.peekCount("stream-1")).thenReturn(10L);
+        livePushService.publishViewerCounts();
+        await(() -> stalled.blocked.getCount() == 0);
+        Thread.sleep(100);
+
+        // When
+        livePushService.evictStalledSubscribers();
+        assertNull(stalled.completedWith, "completed while the write is still blocked");
+        unblock.countDown();
+
+        // Then
+        await(() -> stalled.completedWith != null);
+        assertEquals(0, livePushService.getSubscriberCount());
+        pool.shutdownNow();
+    }
+
+    /**
+     * Test: the last published count of a stream nobody subscribes to any more is dropped on the next tick
+     */
+    @Test
+    void publishViewerCounts_ShouldForgetUnsubscribedStreams() {
+        // Given
+        RecordingEmitter emitter = new RecordingEmitter();
+        livePushService.register(emitter, List.of("stream-1"), false);
+        when(viewerCounterService.peekCount("stream-1")).thenReturn(10L);
+        livePushService.publishViewerCounts();
+        assertEquals(1, livePushService.getLastPublishedCount());
+
+        // When
+        emitter.fireCompletion();
+        livePushService.publishViewerCounts();
+
+        // Then
+        assertEquals(0, livePushService.getLastPublishedCount());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5s");
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Emitter whose writes block until released, like a client that stopped reading
+     */
+    private static class BlockingEmitter extends SseEmitter {
+        private final CountDownLatch unblock;
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private volatile Throwable completedWith;
+
+        private BlockingEmitter(CountDownLatch unblock) {
+            this.unblock = unblock;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            blocked.countDown();
+            try {
+                unblock.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            completedWith = ex;
+        }
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private Runnable completionCallback;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            Set<ResponseBodyEmitter.DataWithMediaType> parts = builder.build();
+            events.add(parts.stream()
+                    .map(part -> part.getData() instanceof String text ? text : toJson(part.getData()))
+                    .collect(Collectors.joining()));
+        }
+
+        @Override
+        public synchronized void onCompletion(Runnable callback) {
+            this.completionCallback = callback;
+        }
+
+        void fireCompletion() {
+            completionCallback.run();
+        }
+
+        private static String toJson(Object data) {
+            try {
+                return new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(data);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Executor that only runs tasks when asked, so drains are deterministic
+     */
+    private static class ManualExecutor extends AbstractExecutorService {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
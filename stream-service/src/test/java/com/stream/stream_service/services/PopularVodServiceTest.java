@@ -0,0 +1,180 @@
+package com.stream.stream_service.services;
+
+import com.stream.stream_service.DTO.StreamCardDto;
+import com.stream.stream_service.entities.Stream;
+import com.stream.stream_service.events.StreamLifecycleEvent;
+import com.stream.stream_service.events.ViewerCountsFlushedEvent;
+import com.stream.stream_service.repositories.StreamRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PopularVodServiceTest {
+
+    @Mock
+    private StreamRepository streamRepository;
+
+    @InjectMocks
+    private PopularVodService popularVodService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(popularVodService, "topK", 3);
+        popularVodService.init();
+    }
+
+    /**
+     * Test: pages inside the top K are served from memory, deeper pages are left to the database
+     */
+    @Test
+    void getPage_ShouldServeTopKFromMemory() {
+        // Given
+        when(streamRepository.findFinishedCardsByViewers(PageRequest.of(0, 3)))
+                .thenReturn(List.of(card("a", 30), card("b", 20), card("c", 10)));
+        when(streamRepository.countByIsLiveFalse()).thenReturn(10L);
+        popularVodService.rebuild();
+
+        // When
+        Optional<List<StreamCardDto>> first = popularVodService.getPage(0, 2);
+        Optional<List<StreamCardDto>> second = popularVodService.getPage(1, 2);
+
+        // Then
+        assertEquals(List.of("a", "b"), ids(first.orElseThrow()));
+        assertTrue(second.isEmpty());
+        assertEquals(10L, popularVodService.getFinishedCount());
+        verify(streamRepository, times(1)).findFinishedCardsByViewers(any());
+    }
+
+    /**
+     * Test: flushed counts reorder indexed streams and admit a stream that overtakes the K-th one
+     */
+    @Test
+    void onViewerCountsFlushed_ShouldReorderAndAdmit() {
+        // Given
+        when(streamRepository.findFinishedCardsByViewers(PageRequest.of(0, 3)))
+                .thenReturn(List.of(card("a", 30), card("b", 20), card("c", 10)));
+        when(streamRepository.countByIsLiveFalse()).thenReturn(4L);
+        when(streamRepository.findById("d")).thenReturn(Optional.of(vod("d", 5)));
+        popularVodService.rebuild();
+
+        // When
+        popularVodService.onViewerCountsFlushed(new ViewerCountsFlushedEvent(Map.of("c", 40L, "d", 25L)));
+
+        // Then
+        assertEquals(List.of("c", "a", "d"), ids(popularVodService.getPage(0, 3).orElseThrow()));
+        assertEquals(25L, popularVodService.getPage(0, 3).orElseThrow().get(2).getViewers());
+    }
+
+    /**
+     * Test: an ended stream enters the index, and live streams seen in flushes are not looked up again
+     */
+    @Test
+    void lifecycleEvents_ShouldKeepIndexCurrent() {
+        // Given
+        when(streamRepository.findFinishedCardsByViewers(PageRequest.of(0, 3))).thenReturn(List.of(card("a", 30)));
+        when(streamRepository.countByIsLiveFalse()).thenReturn(1L);
+        popularVodService.rebuild();
+        Stream live = vod("live", 0);
+        live.setIsLive(true);
+
+        // When
+        popularVodService.onStreamLifecycle(new StreamLifecycleEvent(StreamLifecycleEvent.Type.STARTED, live));
+        popularVodService.onViewerCountsFlushed(new ViewerCountsFlushedEvent(Map.of("live", 100L)));
+        popularVodService.onStreamLifecycle(new StreamLifecycleEvent(StreamLifecycleEvent.Type.ENDED, vod("live", 100)));
+
+        // Then
+        assertEquals(List.of("live", "a"), ids(popularVodService.getPage(0, 10).orElseThrow()));
+        assertEquals(2L, popularVodService.getFinishedCount());
+        verify(streamRepository, never()).findById(any());
+    }
+
+    /**
+     * Test: deleting an indexed stream refills the K-th slot from the database
+     *
+     * Expected behavior:
+     * - The index is rebuilt right away, so the next stream by views takes the free slot
+     * - If that rebuild fails, an outsider still has to beat the old K-th stream to be admitted
+     */
+    @Test
+    void onStreamLifecycle_Deleted_ShouldRefillFromDatabase() {
+        // Given
+        when(streamRepository.findFinishedCardsByViewers(PageRequest.of(0, 3)))
+                .thenReturn(List.of(card("a", 30), card("b", 20), card("c", 10)))
+                .thenReturn(List.of(card("a", 30), card("c", 10), card("d", 8)))
+                .thenThrow(new RuntimeException("database down"));
+        when(streamRepository.countByIsLiveFalse()).thenReturn(10L, 9L);
+        popularVodService.rebuild();
+
+        // When
+        popularVodService.onStreamLifecycle(new StreamLifecycleEvent(StreamLifecycleEvent.Type.DELETED, vod("b", 20)));
+
+        // Then
+        assertEquals(List.of("a", "c", "d"), ids(popularVodService.getPage(0, 3).orElseThrow()));
+
+        // When - the next refill fails
+        popularVodService.onStreamLifecycle(new StreamLifecycleEvent(StreamLifecycleEvent.Type.DELETED, vod("a", 30)));
+        popularVodService.onViewerCountsFlushed(new ViewerCountsFlushedEvent(Map.of("e", 7L)));
+
+        // Then
+        assertEquals(List.of("c", "d"), ids(popularVodService.getPage(0, 2).orElseThrow()));
+        verify(streamRepository, never()).findById(any());
+    }
+
+    /**
+     * Test: a stream that ended on another replica is no longer treated as live after a rebuild
+     *
+     * Expected behavior:
+     * - While the rebuild lists it as live, its flushed count is ignored without a lookup
+     * - Once the rebuild no longer lists it as live, its next flushed count admits it
+     */
+    @Test
+    void rebuild_ShouldForgetStreamsEndedElsewhere() {
+        // Given
+        when(streamRepository.findFinishedCardsByViewers(PageRequest.of(0, 3))).thenReturn(List.of(card("a", 30)));
+        when(streamRepository.countByIsLiveFalse()).thenReturn(1L, 2L);
+        when(streamRepository.findLiveIds()).thenReturn(List.of("x"), List.of());
+        when(streamRepository.findById("x")).thenReturn(Optional.of(vod("x", 40)));
+        popularVodService.rebuild();
+        popularVodService.onViewerCountsFlushed(new ViewerCountsFlushedEvent(Map.of("x", 40L)));
+        verify(streamRepository, never()).findById(any());
+
+        // When - x ended on another replica
+        popularVodService.rebuild();
+        popularVodService.onViewerCountsFlushed(new ViewerCountsFlushedEvent(Map.of("x", 45L)));
+
+        // Then
+        assertEquals(List.of("x", "a"), ids(popularVodService.getPage(0, 3).orElseThrow()));
+    }
+
+    private static List<String> ids(List<StreamCardDto> streams) {
+        return streams.stream().map(StreamCardDto::getId).toList();
+    }
+
+    private static StreamCardDto card(String id, long viewers) {
+        return StreamCardDto.from(vod(id, viewers));
+    }
+
+    private static Stream vod(String id, long viewers) {
+        Stream stream = new Stream();
+        stream.setId(id);
+        stream.setChannelId("channel-" + id);
+        stream.setTitle("VOD " + id);
+        stream.setIsLive(false);
+        stream.setViewers(viewers);
+        return stream;
+    }
+}
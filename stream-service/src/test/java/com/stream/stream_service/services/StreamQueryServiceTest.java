@@ -0,0 +1,181 @@
+package com.stream.stream_service.services;
+
+import com.stream.stream_service.DTO.ChannelDto;
+import com.stream.stream_service.DTO.CursorStreamResponse;
+import com.stream.stream_service.DTO.StreamBatchEntryDto;
+import com.stream.stream_service.DTO.StreamCardDto;
+import com.stream.stream_service.entities.Stream;
+import com.stream.stream_service.events.StreamLifecycleEvent;
+import com.stream.stream_service.exceptions.ApiException;
+import com.stream.stream_service.gRPC.ChannelGrpcClient;
+import com.stream.stream_service.repositories.StreamRepository;
+import com.stream.stream_service.utils.StreamCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StreamQueryServiceTest {
+
+    @Mock
+    private StreamRepository streamRepository;
+
+    @Mock
+    private ChannelGrpcClient channelGrpcClient;
+
+    @InjectMocks
+    private StreamQueryService streamQueryService;
+
+    private final LocalDateTime base = LocalDateTime.of(2024, 5, 1, 20, 0);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(streamQueryService, "vodCountCacheTtlMs", 60_000L);
+        streamQueryService.init();
+    }
+
+    /**
+     * Test: a full page fetches one extra row and returns a cursor pointing at the last returned stream
+     */
+    @Test
+    void getFinishedStreamsByCursor_FirstPage_ShouldReturnNextCursor() {
+        // Given
+        List<StreamCardDto> rows = List.of(card("c", base.minusHours(1)), card("b", base.minusHours(2)), card("a", base.minusHours(3)));
+        when(streamRepository.findFinishedCardsByChannelKeyset("channel-1", PageRequest.of(0, 3))).thenReturn(rows);
+
+        // When
+        CursorStreamResponse<StreamCardDto> response = streamQueryService.getFinishedStreamsByCursor("channel-1", null, 2);
+
+        // Then
+        assertEquals(List.of("c", "b"), response.getContent().stream().map(StreamCardDto::getId).toList());
+        StreamCursor next = StreamCursor.decode(response.getNextCursor());
+        assertEquals(base.minusHours(2), next.getStartedAt());
+        assertEquals("b", next.getId());
+    }
+
+    /**
+     * Test: the cursor is turned into a seek on (startedAt, id), and the last page has no next cursor
+     */
+    @Test
+    void getFinishedStreamsByCursor_LastPage_ShouldSeekAndEnd() {
+        // Given
+        String cursor = new StreamCursor(base.minusHours(2), "b").encode();
+        when(streamRepository.findFinishedCardsByChannelBefore("channel-1", base.minusHours(2), "b", PageRequest.of(0, 3)))
+                .thenReturn(List.of(card("a", base.minusHours(3))));
+
+        // When
+        CursorStreamResponse<StreamCardDto> response = streamQueryService.getFinishedStreamsByCursor("channel-1", cursor, 2);
+
+        // Then
+        assertEquals(1, response.getContent().size());
+        assertNull(response.getNextCursor());
+        verify(streamRepository, never()).findFinishedCardsByChannelKeyset(any(), any());
+    }
+
+    @Test
+    void getFinishedStreamsByCursor_WithGarbageCursor_ShouldThrowBadRequest() {
+        assertThrows(ApiException.class,
+                () -> streamQueryService.getFinishedStreamsByCursor("channel-1", "not-a-cursor", 10));
+    }
+
+    /**
+     * Test: the count is cached until one of the channel's streams ends
+     */
+    @Test
+    void countFinishedStreams_ShouldBeCachedUntilStreamEnds() {
+        // Given
+        when(streamRepository.countByChannelIdAndIsLiveFalse("channel-1")).thenReturn(42L, 43L);
+
+        // When
+        long first = streamQueryService.countFinishedStreams("channel-1");
+        long cached = streamQueryService.countFinishedStreams("channel-1");
+        streamQueryService.onStreamLifecycle(new StreamLifecycleEvent(StreamLifecycleEvent.Type.ENDED, vod("d", base)));
+        long afterEnd = streamQueryService.countFinishedStreams("channel-1");
+
+        // Then
+        assertEquals(42L, first);
+        assertEquals(42L, cached);
+        assertEquals(43L, afterEnd);
+        verify(streamRepository, times(2)).countByChannelIdAndIsLiveFalse("channel-1");
+    }
+
+    /**
+     * Test: a batch lookup loads the distinct streams and channels once each and answers in request order
+     *
+     * Expected behavior:
+     * - One findAllById with the distinct ids, one channel preview call with the distinct channel ids
+     * - Repeated ids are answered at each of their positions, unknown ids are marked not found
+     */
+    @Test
+    void getStreamsWithChannelByIds_ShouldBatchLookupsAndKeepRequestOrder() {
+        // Given
+        Stream first = vod("a", base);
+        Stream second = vod("b", base);
+        Stream other = vod("c", base);
+        other.setChannelId("channel-2");
+        ChannelDto channel1 = new ChannelDto("channel-1", "Channel 1", "rtmp://one", "avatar1.jpg");
+        ChannelDto channel2 = new ChannelDto("channel-2", "Channel 2", "rtmp://two", "avatar2.jpg");
+        when(streamRepository.findAllById(new LinkedHashSet<>(List.of("c", "missing", "a", "b"))))
+                .thenReturn(List.of(first, second, other));
+        when(channelGrpcClient.getChannelPreviewsByIds(anyList())).thenReturn(List.of(channel1, channel2));
+
+        // When
+        List<StreamBatchEntryDto> entries = streamQueryService.getStreamsWithChannelByIds(List.of("c", "missing", "a", "c", "b"));
+
+        // Then
+        assertEquals(List.of("c", "missing", "a", "c", "b"), entries.stream().map(StreamBatchEntryDto::getId).toList());
+        assertEquals(List.of(true, false, true, true, true), entries.stream().map(StreamBatchEntryDto::isFound).toList());
+        assertNull(entries.get(1).getStream());
+        assertSame(other, entries.get(0).getStream());
+        assertEquals(channel2, entries.get(0).getChannel());
+        assertEquals(channel1, entries.get(4).getChannel());
+        verify(streamRepository, times(1)).findAllById(any());
+        verify(channelGrpcClient, times(1)).getChannelPreviewsByIds(argThat(ids -> ids.size() == 2
+                && ids.containsAll(List.of("channel-1", "channel-2"))));
+    }
+
+    /**
+     * Test: when no requested stream exists, channel-service is not called
+     */
+    @Test
+    void getStreamsWithChannelByIds_NoneFound_ShouldSkipChannelLookup() {
+        // Given
+        when(streamRepository.findAllById(any())).thenReturn(List.of());
+
+        // When
+        List<StreamBatchEntryDto> entries = streamQueryService.getStreamsWithChannelByIds(List.of("x", "y"));
+
+        // Then
+        assertEquals(2, entries.size());
+        assertFalse(entries.get(0).isFound());
+        assertFalse(entries.get(1).isFound());
+        verify(channelGrpcClient, never()).getChannelPreviewsByIds(any());
+    }
+
+    private static StreamCardDto card(String id, LocalDateTime startedAt) {
+        return StreamCardDto.from(vod(id, startedAt));
+    }
+
+    private static Stream vod(String id, LocalDateTime startedAt) {
+        Stream stream = new Stream();
+        stream.setId(id);
+        stream.setChannelId("channel-1");
+        stream.setTitle("VOD " + id);
+        stream.setIsLive(false);
+        stream.setStartedAt(startedAt);
+        return stream;
+    }
+}
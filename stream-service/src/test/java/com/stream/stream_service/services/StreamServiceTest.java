@@ -1,27 +1,38 @@
 package com.stream.stream_service.services;
 
+import com.stream.stream_service.DTO.ChannelArnLookup;
 import com.stream.stream_service.DTO.ChannelDto;
+import com.stream.stream_service.DTO.IvsCommand;
 import com.stream.stream_service.DTO.PaginatedStreamResponse;
+import com.stream.stream_service.DTO.StreamCardDto;
+import com.stream.stream_service.DTO.StreamCardWithChannelDto;
 import com.stream.stream_service.DTO.StreamWithChannelDto;
 import com.stream.stream_service.entities.DefaultStreamInfo;
+import com.stream.stream_service.entities.IvsStreamTombstone;
 import com.stream.stream_service.entities.Stream;
 import com.stream.stream_service.enums.StreamCategory;
+import com.stream.stream_service.events.StreamLifecycleEvent;
 import com.stream.stream_service.exceptions.ApiException;
 import com.stream.stream_service.gRPC.ChannelGrpcClient;
+import com.stream.stream_service.repositories.IvsStreamTombstoneRepository;
 import com.stream.stream_service.repositories.StreamRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -33,12 +44,30 @@ class StreamServiceTest {
     @Mock
     private StreamRepository streamRepository;
 
+    @Mock
+    private IvsStreamTombstoneRepository tombstoneRepository;
+
     @Mock
     private DefaultStreamInfoService defaultStreamInfoService;
 
     @Mock
     private ChannelGrpcClient channelGrpcClient;
 
+    @Mock
+    private ViewerCounterService viewerCounterService;
+
+    @Mock
+    private UniqueViewerService uniqueViewerService;
+
+    @Mock
+    private ViewerSeriesService viewerSeriesService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PopularVodService popularVodService;
+
     @InjectMocks
     private StreamService streamService; 
 
@@ -122,6 +151,9 @@ class StreamServiceTest {
         verify(channelGrpcClient).getChannelByArn(arn);
         verify(defaultStreamInfoService).findByChannelId("channel-123");
         verify(streamRepository).save(any(Stream.class));
+        verify(uniqueViewerService).start("stream-123");
+        verify(viewerSeriesService).start("stream-123");
+        verify(eventPublisher).publishEvent(any(StreamLifecycleEvent.class));
     }
 
     /**
@@ -185,6 +217,99 @@ class StreamServiceTest {
         assertEquals(StreamCategory.OTHER, result.getCategory());
     }
 
+    /**
+     * Test: applyIvsBatch applies a whole batch with one lookup per dependency
+     *
+     * Expected behavior:
+     * - Channel ARNs are resolved with one batched call, default infos and streams with one query each
+     * - A stream started in the batch can be ended later in the same batch
+     * - A redelivered start for a known AWS stream ID is ignored
+     * - One lifecycle event is published per applied change
+     */
+    @Test
+    void applyIvsBatch_ShouldApplyCommandsInOrderWithBatchedLookups() {
+        // Given
+        when(channelGrpcClient.getChannelsByArns(Set.of("arn-1", "arn-2"))).thenReturn(ChannelArnLookup.of(Map.of("arn-1", testChannel)));
+        when(defaultStreamInfoService.findByChannelIds(Set.of("channel-123"))).thenReturn(Map.of("channel-123", testDefaultInfo));
+        when(streamRepository.findByAwsStreamIdIn(Set.of("aws-stream-123", "aws-new", "aws-other")))
+                .thenReturn(List.of(testStream));
+        when(streamRepository.save(any(Stream.class))).thenAnswer(invocation -> {
+            Stream stream = invocation.getArgument(0);
+            if (stream.getId() == null) {
+                stream.setId("stream-new");
+            }
+            return stream;
+        });
+        when(viewerCounterService.flush("stream-new")).thenReturn(7L);
+
+        List<IvsCommand> commands = List.of(
+                new IvsCommand(IvsCommand.Type.START, "arn-1", "aws-stream-123", null),
+                new IvsCommand(IvsCommand.Type.START, "arn-1", "aws-new", null),
+                new IvsCommand(IvsCommand.Type.START, "arn-2", "aws-other", null),
+                new IvsCommand(IvsCommand.Type.END, "arn-1", "aws-new", null));
+
+        // When
+        streamService.applyIvsBatch(commands);
+
+        // Then
+        verify(channelGrpcClient, times(1)).getChannelsByArns(anyCollection());
+        verify(streamRepository, times(1)).findByAwsStreamIdIn(anyCollection());
+        verify(streamRepository, times(2)).save(any(Stream.class));
+        verify(uniqueViewerService).start("stream-new");
+
+        ArgumentCaptor<StreamLifecycleEvent> events = ArgumentCaptor.forClass(StreamLifecycleEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(StreamLifecycleEvent.Type.STARTED, events.getAllValues().get(0).getType());
+        assertEquals(StreamLifecycleEvent.Type.ENDED, events.getAllValues().get(1).getType());
+        Stream ended = events.getAllValues().get(1).getStream();
+        assertEquals("Default Title", ended.getTitle());
+        assertFalse(ended.getIsLive());
+        assertEquals(7L, ended.getViewers());
+    }
+
+    /**
+     * Test: an end that arrives before its start is not lost, and a late start never makes a stream live
+     *
+     * Expected behavior:
+     * - The early end leaves a tombstone; its start then records the stream as already ended
+     * - A start redelivered after the stream was deleted is ignored
+     */
+    @Test
+    void applyIvsBatch_WithEndBeforeStart_ShouldRecordStreamAsEnded() {
+        // Given
+        when(channelGrpcClient.getChannelsByArns(Set.of("arn-1"))).thenReturn(ChannelArnLookup.of(Map.of("arn-1", testChannel)));
+        when(streamRepository.save(any(Stream.class))).thenAnswer(invocation -> {
+            Stream stream = invocation.getArgument(0);
+            if (stream.getId() == null) {
+                stream.setId("stream-new");
+            }
+            return stream;
+        });
+        ArgumentCaptor<Iterable<IvsStreamTombstone>> saved = ArgumentCaptor.captor();
+
+        // When - the end, then its start in a later batch
+        streamService.applyIvsBatch(List.of(new IvsCommand(IvsCommand.Type.END, "arn-1", "aws-early", null)));
+        verify(tombstoneRepository).saveAll(saved.capture());
+        IvsStreamTombstone tombstone = saved.getValue().iterator().next();
+        when(tombstoneRepository.findByAwsStreamIdIn(Set.of("aws-early"))).thenReturn(List.of(tombstone));
+        streamService.applyIvsBatch(List.of(new IvsCommand(IvsCommand.Type.START, "arn-1", "aws-early", null)));
+
+        // Then
+        ArgumentCaptor<StreamLifecycleEvent> events = ArgumentCaptor.forClass(StreamLifecycleEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(events.capture());
+        assertEquals(StreamLifecycleEvent.Type.ENDED, events.getValue().getType());
+        assertFalse(events.getValue().getStream().getIsLive());
+        assertNotNull(events.getValue().getStream().getEndedAt());
+        assertTrue(tombstone.getStartSeen());
+
+        // When - the stream was deleted, then the start is redelivered
+        streamService.applyIvsBatch(List.of(new IvsCommand(IvsCommand.Type.START, "arn-1", "aws-early", null)));
+
+        // Then
+        verify(eventPublisher, times(1)).publishEvent(any(StreamLifecycleEvent.class));
+        verify(uniqueViewerService, times(1)).start("stream-new");
+    }
+
     /**
      * Test: getLiveStreamByChannelId with existing live stream
      * 
@@ -250,7 +375,7 @@ class StreamServiceTest {
      * - Queries database for all streams where isLive = true
      * - Extracts unique channel IDs from the live streams
      * - Fetches channel preview data for all channels in a single gRPC call
-     * - Maps channel data to streams and returns enriched StreamWithChannelDto list
+     * - Maps channel data to streams and returns enriched StreamCardWithChannelDto list
      * - Maintains correct stream-to-channel relationships
      * - Returns all live streams with their associated channel information
      */
@@ -260,21 +385,23 @@ class StreamServiceTest {
         Stream stream2 = new Stream();
         stream2.setId("stream-456");
         stream2.setChannelId("channel-456");
+        StreamCardDto card1 = StreamCardDto.from(testStream);
+        StreamCardDto card2 = StreamCardDto.from(stream2);
         
         ChannelDto channel2 = new ChannelDto("channel-456", "Channel 2", "rtmp://test2", "avatar2.jpg");
         
-        when(streamRepository.findByIsLive(true)).thenReturn(List.of(testStream, stream2));
+        when(streamRepository.findLiveCards()).thenReturn(List.of(card1, card2));
         when(channelGrpcClient.getChannelPreviewsByIds(List.of("channel-123", "channel-456")))
             .thenReturn(List.of(testChannel, channel2));
 
         // When
-        List<StreamWithChannelDto> result = streamQueryService.getLiveStreams();
+        List<StreamCardWithChannelDto> result = streamQueryService.getLiveStreams();
 
         // Then
         assertEquals(2, result.size());
-        assertEquals(testStream, result.get(0).getStream());
+        assertEquals(card1, result.get(0).getStream());
         assertEquals(testChannel, result.get(0).getChannel());
-        assertEquals(stream2, result.get(1).getStream());
+        assertEquals(card2, result.get(1).getStream());
         assertEquals(channel2, result.get(1).getChannel());
     }
 
@@ -294,10 +421,10 @@ class StreamServiceTest {
     @Test
     void getLiveStreams_WithNoStreams_ShouldReturnEmptyList() {
         // Given
-        when(streamRepository.findByIsLive(true)).thenReturn(List.of());
+        when(streamRepository.findLiveCards()).thenReturn(List.of());
 
         // When
-        List<StreamWithChannelDto> result = streamQueryService.getLiveStreams();
+        List<StreamCardWithChannelDto> result = streamQueryService.getLiveStreams();
 
         // Then
         assertTrue(result.isEmpty());
@@ -373,32 +500,28 @@ class StreamServiceTest {
      * 
      * This test verifies the viewer tracking functionality when:
      * - A valid stream ID is provided
-     * - The stream exists in the database
+     * - The stream has an in-memory viewer counter
      * - A viewer joins the stream
      * 
      * Expected behavior:
-     * - Finds the stream by ID
-     * - Increments the current viewer count by exactly 1
-     * - Saves the updated viewer count to the database
-     * - Returns the updated stream entity
-     * - Maintains accurate real-time viewer statistics
+     * - Delegates the increment to the write-behind viewer counter
+     * - Returns the updated viewer count
+     * - Does not load or save the stream entity (no row lock on the hot path)
      */
     @Test
     void incrementViewers_WithValidStreamId_ShouldIncrementCount() {
         // Given
         String streamId = "stream-123";
-        testStream.setViewers(50L);
-        
-        when(streamRepository.findById(streamId)).thenReturn(Optional.of(testStream));
-        when(streamRepository.save(any(Stream.class))).thenReturn(testStream);
+        when(viewerCounterService.increment(streamId)).thenReturn(Optional.of(51L));
 
         // When
-        Optional<Stream> result = streamService.incrementViewers(streamId);
+        Optional<Long> result = streamService.incrementViewers(streamId);
 
         // Then
         assertTrue(result.isPresent());
-        assertEquals(51L, testStream.getViewers());
-        verify(streamRepository).save(testStream);
+        assertEquals(51L, result.get());
+        verify(streamRepository, never()).findById(any());
+        verify(streamRepository, never()).save(any());
     }
 
     /**
@@ -406,49 +529,64 @@ class StreamServiceTest {
      * 
      * This test verifies error handling when:
      * - An invalid or non-existent stream ID is provided
-     * - No stream exists in the database with that ID
+     * - The viewer counter finds no stream with that ID
      * 
      * Expected behavior:
-     * - Attempts to find stream but gets empty result
      * - Returns empty Optional indicating operation failed
      * - No database save operation is performed
      * - Gracefully handles invalid stream ID without throwing exceptions
-     * - Prevents data corruption from invalid viewer increment attempts
      */
     @Test
     void incrementViewers_WithInvalidStreamId_ShouldReturnEmpty() {
         // Given
         String streamId = "invalid-id";
-        when(streamRepository.findById(streamId)).thenReturn(Optional.empty());
+        when(viewerCounterService.increment(streamId)).thenReturn(Optional.empty());
 
         // When
-        Optional<Stream> result = streamService.incrementViewers(streamId);
+        Optional<Long> result = streamService.incrementViewers(streamId);
 
         // Then
         assertFalse(result.isPresent());
         verify(streamRepository, never()).save(any());
     }
 
+    /**
+     * Test: incrementViewers with a viewer key should record the viewer for unique counting
+     * 
+     * Expected behavior:
+     * - Increments the raw viewer counter
+     * - Offers the viewer key to the stream's unique-viewer sketch
+     */
+    @Test
+    void incrementViewers_WithViewerKey_ShouldOfferToUniqueSketch() {
+        // Given
+        when(viewerCounterService.increment("stream-123")).thenReturn(Optional.of(1L));
+
+        // When
+        Optional<Long> result = streamService.incrementViewers("stream-123", "user:42");
+
+        // Then
+        assertEquals(Optional.of(1L), result);
+        verify(uniqueViewerService).offer("stream-123", "user:42");
+    }
+
     /**
      * Test: getViewersCount with valid stream ID should return current count
      * 
      * This test verifies the viewer count retrieval functionality when:
      * - A valid stream ID is provided
-     * - The stream exists and has viewer data
+     * - The stream has persisted and pending viewer increments
      * 
      * Expected behavior:
-     * - Finds the stream by ID in the database  
-     * - Extracts and returns the current viewer count
+     * - Returns the count from the viewer counter (persisted value plus pending delta)
      * - Returns the count wrapped in Optional
-     * - Provides read-only access to viewer statistics
      * - Used for displaying live viewer counts in UI
      */
     @Test
     void getViewersCount_WithValidStreamId_ShouldReturnCount() {
         // Given
         String streamId = "stream-123";
-        testStream.setViewers(150L);
-        when(streamRepository.findById(streamId)).thenReturn(Optional.of(testStream));
+        when(viewerCounterService.getCount(streamId)).thenReturn(Optional.of(150L));
 
         // When
         Optional<Long> result = streamService.getViewersCount(streamId);
@@ -492,6 +630,37 @@ class StreamServiceTest {
         assertNotNull(result.get().getEndedAt());
     }
 
+    /**
+     * Test: endStreamByAwsStreamId should flush pending viewer increments
+     * 
+     * This test verifies that buffered viewer counts are not lost when a stream ends:
+     * - The stream has increments that the background flusher has not written yet
+     * 
+     * Expected behavior:
+     * - Forces a flush of the stream's pending delta
+     * - The returned stream reflects the final viewer count
+     */
+    @Test
+    void endStreamByAwsStreamId_ShouldFlushPendingViewers() {
+        // Given
+        String awsStreamId = "aws-stream-123";
+        testStream.setViewers(100L);
+
+        when(streamRepository.findByAwsStreamId(awsStreamId)).thenReturn(Optional.of(testStream));
+        when(viewerCounterService.flush("stream-123")).thenReturn(25L);
+        when(streamRepository.save(any(Stream.class))).thenReturn(testStream);
+
+        // When
+        Optional<Stream> result = streamService.endStreamByAwsStreamId(awsStreamId);
+
+        // Then
+        assertTrue(result.isPresent());
+        assertEquals(125L, result.get().getViewers());
+        verify(viewerCounterService).flush("stream-123");
+        verify(uniqueViewerService).complete(testStream);
+        verify(viewerSeriesService).stop("stream-123");
+    }
+
     /**
      * Test: getFinishedStreamsWithMetadata should return paginated VOD history
      * 
@@ -519,12 +688,12 @@ class StreamServiceTest {
         Stream finishedStream = new Stream();
         finishedStream.setIsLive(false);
         
-        when(streamRepository.findByChannelIdAndIsLiveFalseOrderByStartedAtDesc(eq(channelId), any(Pageable.class)))
-            .thenReturn(List.of(finishedStream));
+        when(streamRepository.findFinishedCardsByChannel(eq(channelId), any(Pageable.class)))
+            .thenReturn(List.of(StreamCardDto.from(finishedStream)));
         when(streamRepository.countByChannelIdAndIsLiveFalse(channelId)).thenReturn(1L);
 
         // When
-        PaginatedStreamResponse<Stream> result = streamQueryService.getFinishedStreamsWithMetadata(channelId, page, size);
+        PaginatedStreamResponse<StreamCardDto> result = streamQueryService.getFinishedStreamsWithMetadata(channelId, page, size);
 
         // Then
         assertNotNull(result);
@@ -534,7 +703,7 @@ class StreamServiceTest {
         assertEquals(1L, result.getTotalElements());
         assertEquals(1, result.getTotalPages());
         
-        verify(streamRepository).findByChannelIdAndIsLiveFalseOrderByStartedAtDesc(eq(channelId), eq(PageRequest.of(page, size)));
+        verify(streamRepository).findFinishedCardsByChannel(eq(channelId), eq(PageRequest.of(page, size)));
     }
 
     /**
@@ -551,7 +720,7 @@ class StreamServiceTest {
      * - Applies pagination to limit results per page
      * - Extracts unique channel IDs from the stream results
      * - Fetches channel preview data via gRPC for all unique channels
-     * - Maps channel data to streams creating StreamWithChannelDto objects
+     * - Maps channel data to streams creating StreamCardWithChannelDto objects
      * - Returns paginated response with enriched stream-channel data
      * - Powers "Popular VODs" or "Trending Past Streams" features
      */
@@ -564,20 +733,22 @@ class StreamServiceTest {
         Stream finishedStream = new Stream();
         finishedStream.setChannelId("channel-123");
         finishedStream.setIsLive(false);
+        StreamCardDto finishedCard = StreamCardDto.from(finishedStream);
         
-        when(streamRepository.findByIsLiveFalseOrderByViewersDesc(any(Pageable.class)))
-            .thenReturn(List.of(finishedStream));
+        when(popularVodService.getPage(page, size)).thenReturn(Optional.empty()); // past the in-memory top K
+        when(streamRepository.findFinishedCardsByViewers(any(Pageable.class)))
+            .thenReturn(List.of(finishedCard));
         when(streamRepository.countByIsLiveFalse()).thenReturn(1L);
         when(channelGrpcClient.getChannelPreviewsByIds(List.of("channel-123")))
             .thenReturn(List.of(testChannel));
 
         // When
-        PaginatedStreamResponse<StreamWithChannelDto> result = streamQueryService.getFinishedStreamsWithChannelInfo(page, size);
+        PaginatedStreamResponse<StreamCardWithChannelDto> result = streamQueryService.getFinishedStreamsWithChannelInfo(page, size);
 
         // Then
         assertNotNull(result);
         assertEquals(1, result.getContent().size());
-        assertEquals(finishedStream, result.getContent().get(0).getStream());
+        assertEquals(finishedCard, result.getContent().get(0).getStream());
         assertEquals(testChannel, result.getContent().get(0).getChannel());
     }
 
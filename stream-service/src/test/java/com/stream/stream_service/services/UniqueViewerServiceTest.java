@@ -0,0 +1,70 @@
+package com.stream.stream_service.services;
+
+import com.stream.stream_service.entities.Stream;
+import com.stream.stream_service.repositories.StreamRepository;
+import com.stream.stream_service.utils.HyperLogLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UniqueViewerServiceTest {
+
+    @Mock
+    private StreamRepository streamRepository;
+
+    @InjectMocks
+    private UniqueViewerService uniqueViewerService;
+
+    /**
+     * Test: a stream ended on another replica has this replica's keys merged into the stored sketch, then dropped
+     */
+    @Test
+    void sweepEnded_ShouldMergeAndDropSketchesOfEndedStreams() {
+        // Given - this replica never saw either stream start
+        uniqueViewerService.offer("ended", "user:1");
+        uniqueViewerService.offer("ended", "user:2");
+        uniqueViewerService.offer("live", "user:3");
+        HyperLogLog stored = new HyperLogLog();
+        stored.add("user:1");
+        stored.add("user:9");
+        Stream ended = new Stream();
+        ended.setId("ended");
+        ended.setIsLive(false);
+        ended.setViewerSketch(stored.toBytes());
+        when(streamRepository.findLiveIdsByIdIn(Set.of("ended", "live"))).thenReturn(List.of("live"));
+        when(streamRepository.findForUpdateById("ended")).thenReturn(Optional.of(ended));
+
+        // When
+        uniqueViewerService.sweepEnded();
+
+        // Then
+        assertEquals(3L, ended.getUniqueViewers());
+        verify(streamRepository).save(ended);
+        verify(streamRepository, never()).findForUpdateById("live");
+        assertTrue(uniqueViewerService.estimate("ended").isEmpty());
+        assertEquals(1L, uniqueViewerService.estimate("live").orElseThrow());
+    }
+
+    /**
+     * Test: nothing is queried while no sketch is held
+     */
+    @Test
+    void sweepEnded_WithNoSketches_ShouldNotQuery() {
+        // When
+        uniqueViewerService.sweepEnded();
+
+        // Then
+        verifyNoInteractions(streamRepository);
+    }
+}
@@ -0,0 +1,199 @@
+package com.stream.stream_service.services;
+
+import com.stream.stream_service.events.ViewerCountsFlushedEvent;
+import com.stream.stream_service.repositories.StreamRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ViewerCounterServiceTest {
+
+    @Mock
+    private StreamRepository streamRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private ViewerCounterService viewerCounterService;
+
+    /**
+     * Test: increments are buffered in memory after the first lookup
+     *
+     * Expected behavior:
+     * - The persisted count is read once, when the stream is first seen
+     * - Following increments do not query the database
+     * - The returned count is persisted value plus pending delta
+     */
+    @Test
+    void increment_ShouldLoadOnceAndBufferInMemory() {
+        // Given
+        when(streamRepository.findViewersById("stream-123")).thenReturn(Optional.of(10L));
+
+        // When
+        viewerCounterService.increment("stream-123");
+        viewerCounterService.increment("stream-123");
+        Optional<Long> result = viewerCounterService.increment("stream-123");
+
+        // Then
+        assertEquals(Optional.of(13L), result);
+        assertEquals(3L, viewerCounterService.getPendingDelta("stream-123"));
+        verify(streamRepository, times(1)).findViewersById("stream-123");
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    /**
+     * Test: increment for an unknown stream returns empty and creates no counter
+     */
+    @Test
+    void increment_WithUnknownStream_ShouldReturnEmpty() {
+        // Given
+        when(streamRepository.findViewersById("missing")).thenReturn(Optional.empty());
+
+        // When
+        Optional<Long> result = viewerCounterService.increment("missing");
+
+        // Then
+        assertTrue(result.isEmpty());
+        assertEquals(0L, viewerCounterService.getPendingDelta("missing"));
+    }
+
+    /**
+     * Test: flush writes every pending delta in one batch of atomic increments
+     *
+     * Expected behavior:
+     * - One batchUpdate call with "viewers = viewers + ?" per stream that has a delta
+     * - Pending deltas are cleared while the visible count stays the same
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldWriteDeltasInSingleBatch() {
+        // Given
+        when(streamRepository.findViewersById("stream-1")).thenReturn(Optional.of(0L));
+        when(streamRepository.findViewersById("stream-2")).thenReturn(Optional.of(5L));
+        viewerCounterService.increment("stream-1");
+        viewerCounterService.increment("stream-1");
+        viewerCounterService.increment("stream-2");
+
+        // When
+        viewerCounterService.flush();
+
+        // Then
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(ViewerCounterService.FLUSH_SQL), captor.capture());
+        assertEquals(2, captor.getValue().size());
+        assertEquals(0L, viewerCounterService.getPendingDelta("stream-1"));
+        assertEquals(Optional.of(2L), viewerCounterService.getCount("stream-1"));
+        assertEquals(Optional.of(6L), viewerCounterService.getCount("stream-2"));
+        assertEquals(1, meterRegistry.get("stream.viewers.flush").tag("result", "success").timer().count());
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof ViewerCountsFlushedEvent flushed
+                && flushed.getCounts().equals(Map.of("stream-1", 2L, "stream-2", 6L))));
+    }
+
+    /**
+     * Test: a failed flush keeps the deltas pending so the next flush retries them
+     */
+    @Test
+    void flush_WhenDatabaseFails_ShouldKeepDeltasPending() {
+        // Given
+        when(streamRepository.findViewersById("stream-1")).thenReturn(Optional.of(0L));
+        viewerCounterService.increment("stream-1");
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("db down"));
+
+        // When & Then
+        assertThrows(RuntimeException.class, () -> viewerCounterService.flush());
+        assertEquals(1L, viewerCounterService.getPendingDelta("stream-1"));
+        assertEquals(Optional.of(1L), viewerCounterService.getCount("stream-1"));
+        assertEquals(1, meterRegistry.get("stream.viewers.flush").tag("result", "failure").timer().count());
+    }
+
+    /**
+     * Test: flushing a single stream writes only that stream's delta
+     */
+    @Test
+    void flushStream_ShouldReturnWrittenDelta() {
+        // Given
+        when(streamRepository.findViewersById("stream-1")).thenReturn(Optional.of(0L));
+        viewerCounterService.increment("stream-1");
+        viewerCounterService.increment("stream-1");
+
+        // When
+        long flushed = viewerCounterService.flush("stream-1");
+
+        // Then
+        assertEquals(2L, flushed);
+        assertEquals(0L, viewerCounterService.flush("stream-1"));
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(ViewerCounterService.FLUSH_SQL), anyList());
+    }
+
+    /**
+     * Test: idle cells retired while increments keep arriving lose no increment
+     *
+     * Expected behavior:
+     * - With cells retired after every empty flush, the deltas written add up to every increment
+     */
+    @Test
+    void retiringIdleCells_UnderLoad_ShouldNotLoseIncrements() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(viewerCounterService, "maxIdleFlushes", 1);
+        when(streamRepository.findViewersById("stream-1")).thenReturn(Optional.of(0L));
+        AtomicLong written = new AtomicLong();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> batch = invocation.getArgument(1);
+            batch.forEach(row -> written.addAndGet((Long) row[0]));
+            return new int[batch.size()];
+        });
+        int threads = 4;
+        int perThread = 20_000;
+        ExecutorService viewers = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        // When - bursts of increments with idle gaps, so cells keep being retired under load
+        for (int t = 0; t < threads; t++) {
+            viewers.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    viewerCounterService.increment("stream-1");
+                    if (i % 500 == 0) {
+                        Thread.yield();
+                    }
+                }
+                done.countDown();
+            });
+        }
+        while (done.getCount() > 0) {
+            viewerCounterService.flush();
+        }
+        viewerCounterService.flush();
+        viewers.shutdown();
+
+        // Then
+        assertEquals((long) threads * perThread, written.get());
+    }
+}
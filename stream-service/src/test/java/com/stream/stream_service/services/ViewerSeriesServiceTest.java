@@ -0,0 +1,81 @@
+package com.stream.stream_service.services;
+
+import com.stream.stream_service.DTO.ViewerSeriesDto;
+import com.stream.stream_service.repositories.StreamRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ViewerSeriesServiceTest {
+
+    @Mock
+    private StreamRepository streamRepository;
+
+    @Mock
+    private ViewerCounterService viewerCounterService;
+
+    @InjectMocks
+    private ViewerSeriesService viewerSeriesService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(viewerSeriesService, "capacity", 4);
+        ReflectionTestUtils.setField(viewerSeriesService, "sampleIntervalMs", 1000L);
+    }
+
+    /**
+     * Test: samples are bucketed for the chart; a stream without a counter repeats its last sample
+     *
+     * Expected behavior:
+     * - With 4 samples kept and 2 buckets requested, each bucket covers 2 samples (2 seconds)
+     * - Only the samples still in the ring are charted
+     */
+    @Test
+    void getSeries_ShouldReturnMinAvgMaxBuckets() {
+        // Given - counts 10, 30, (no counter), 20, 40: the ring keeps 30, 30, 20, 40
+        viewerSeriesService.start("stream-1");
+        when(viewerCounterService.peekCount("stream-1")).thenReturn(10L, 30L, -1L, 20L, 40L);
+        for (int i = 0; i < 5; i++) {
+            viewerSeriesService.sample();
+        }
+
+        // When
+        ViewerSeriesDto series = viewerSeriesService.getSeries("stream-1", 2).orElseThrow();
+
+        // Then
+        assertEquals(2000L, series.getBucketMs());
+        assertArrayEquals(new long[]{30, 20}, series.getMin());
+        assertArrayEquals(new double[]{30.0, 30.0}, series.getAvg());
+        assertArrayEquals(new long[]{30, 40}, series.getMax());
+        assertTrue(viewerSeriesService.getSeries("unknown", 2).isEmpty());
+    }
+
+    /**
+     * Test: ending a stream stops sampling it and drops its series
+     */
+    @Test
+    void stop_ShouldDropSeries() {
+        // Given
+        viewerSeriesService.start("stream-1");
+        when(viewerCounterService.peekCount("stream-1")).thenReturn(10L, 50L, 60L);
+        for (int i = 0; i < 3; i++) {
+            viewerSeriesService.sample();
+        }
+
+        // When
+        viewerSeriesService.stop("stream-1");
+        viewerSeriesService.sample();
+
+        // Then
+        assertTrue(viewerSeriesService.getSeries("stream-1", 10).isEmpty());
+        verify(viewerCounterService, times(3)).peekCount("stream-1");
+    }
+}
@@ -0,0 +1,75 @@
+package com.stream.stream_service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 2, 1000, now::get);
+
+    /**
+     * Test: the breaker opens after the threshold, rejects while open and lets a single probe through afterwards
+     */
+    @Test
+    void shouldOpenThenProbeOnce() {
+        // Given
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        // When
+        now.set(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        // Then
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    /**
+     * Test: a failure reported after the breaker opened (a call that was already in flight) does not move the window
+     */
+    @Test
+    void lateFailure_ShouldNotExtendOpenWindow() {
+        // Given
+        breaker.onFailure();
+        breaker.onFailure();
+
+        // When
+        now.set(TimeUnit.MILLISECONDS.toNanos(900));
+        breaker.onFailure();
+        now.set(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        // Then
+        assertTrue(breaker.tryAcquire());
+    }
+
+    /**
+     * Test: a failed probe re-opens the breaker from the time of the probe
+     */
+    @Test
+    void failedProbe_ShouldReopen() {
+        // Given
+        breaker.onFailure();
+        breaker.onFailure();
+        now.set(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertTrue(breaker.tryAcquire());
+
+        // When
+        breaker.onFailure();
+
+        // Then
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        now.set(TimeUnit.MILLISECONDS.toNanos(1999));
+        assertFalse(breaker.tryAcquire());
+        now.set(TimeUnit.MILLISECONDS.toNanos(2000));
+        assertTrue(breaker.tryAcquire());
+    }
+}
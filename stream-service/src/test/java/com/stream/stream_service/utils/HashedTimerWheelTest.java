@@ -0,0 +1,87 @@
+package com.stream.stream_service.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimerWheelTest {
+
+    // 8 buckets of 10ms: anything beyond 80ms needs more than one turn
+    private final HashedTimerWheel wheel = new HashedTimerWheel("test-wheel", 10, 5, Runnable::run);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        wheel.stop();
+    }
+
+    /**
+     * Test: tasks run in deadline order, including those more than one wheel turn away
+     */
+    @Test
+    void schedule_ShouldRunTasksInDeadlineOrder() throws InterruptedException {
+        // Given
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+
+        // When
+        wheel.schedule(() -> { ran.add("250ms"); done.countDown(); }, 250, TimeUnit.MILLISECONDS);
+        wheel.schedule(() -> { ran.add("0ms"); done.countDown(); }, 0, TimeUnit.MILLISECONDS);
+        wheel.schedule(() -> { ran.add("50ms"); done.countDown(); }, 50, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of("0ms", "50ms", "250ms"), ran);
+        assertEquals(0, wheel.pending());
+    }
+
+    /**
+     * Test: a task never fires before its delay, and a cancelled one never fires
+     */
+    @Test
+    void cancel_ShouldPreventTheTask() throws InterruptedException {
+        // Given
+        long start = System.nanoTime();
+        CountDownLatch fired = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        long[] elapsedMs = new long[1];
+        wheel.schedule(() -> {
+            elapsedMs[0] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            fired.countDown();
+        }, 100, TimeUnit.MILLISECONDS);
+        HashedTimerWheel.Timeout timeout = wheel.schedule(cancelled::countDown, 50, TimeUnit.MILLISECONDS);
+
+        // When
+        assertTrue(timeout.cancel());
+
+        // Then
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(elapsedMs[0] >= 100, "fired after " + elapsedMs[0] + "ms");
+        assertEquals(1, cancelled.getCount());
+        assertFalse(timeout.cancel());
+    }
+
+    /**
+     * Test: stopping the wheel hands back the tasks that did not run
+     */
+    @Test
+    void stop_ShouldReturnTasksNotRun() throws InterruptedException {
+        // Given
+        Runnable later = () -> { };
+        wheel.schedule(later, 1, TimeUnit.HOURS);
+        wheel.schedule(() -> { }, 1, TimeUnit.HOURS).cancel();
+
+        // When
+        List<Runnable> unprocessed = wheel.stop();
+
+        // Then
+        assertEquals(List.of(later), unprocessed);
+        assertThrows(IllegalStateException.class, () -> wheel.schedule(later, 1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,73 @@
+package com.stream.stream_service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    /**
+     * Test: estimate stays within a few standard errors of the true cardinality
+     * and repeated keys are not counted twice
+     */
+    @Test
+    void estimate_ShouldBeCloseToDistinctCount() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add("user-" + i);
+            sketch.add("user-" + i); // refresh by the same viewer
+        }
+
+        long estimate = sketch.estimate();
+        assertEquals(100_000, estimate, 100_000 * 0.05);
+    }
+
+    @Test
+    void estimate_WithFewKeys_ShouldBeExact() {
+        HyperLogLog sketch = new HyperLogLog();
+        sketch.add("a");
+        sketch.add("b");
+        sketch.add("c");
+        sketch.add("a");
+
+        assertEquals(3, sketch.estimate());
+    }
+
+    /**
+     * Test: merging sketches from two replicas gives the estimate of the union
+     */
+    @Test
+    void merge_ShouldEstimateUnion() {
+        HyperLogLog replicaA = new HyperLogLog();
+        HyperLogLog replicaB = new HyperLogLog();
+        for (int i = 0; i < 20_000; i++) {
+            replicaA.add("user-" + i);
+        }
+        for (int i = 10_000; i < 30_000; i++) {
+            replicaB.add("user-" + i);
+        }
+
+        replicaA.merge(replicaB);
+
+        assertEquals(30_000, replicaA.estimate(), 30_000 * 0.05);
+    }
+
+    @Test
+    void toBytes_ShouldRoundTrip() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 5_000; i++) {
+            sketch.add("user-" + i);
+        }
+
+        byte[] bytes = sketch.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+        assertEquals(4096 + 2, bytes.length);
+        assertEquals(sketch.estimate(), restored.estimate());
+    }
+
+    @Test
+    void fromBytes_WithBadInput_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[] { 9, 12 }));
+    }
+}
@@ -0,0 +1,60 @@
+package com.stream.stream_service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongRingBufferTest {
+
+    /**
+     * Test: once full, new samples overwrite the oldest
+     */
+    @Test
+    void add_WhenFull_ShouldKeepLatestWindow() {
+        // Given
+        LongRingBuffer buffer = new LongRingBuffer(3);
+
+        // When
+        for (long sample : new long[]{5, 9, 1, 2, 3}) {
+            buffer.add(sample);
+        }
+
+        // Then - window is 1, 2, 3
+        assertEquals(3, buffer.size());
+        assertEquals(1, buffer.get(0));
+        assertEquals(3, buffer.get(2));
+        assertEquals(3, buffer.last());
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(3));
+    }
+
+    /**
+     * Test: downsampling walks the window oldest first, across the wrap point, with a smaller last bucket
+     */
+    @Test
+    void downsample_ShouldSummarizeBucketsAcrossWrap() {
+        // Given - capacity 5, samples 0..6: window is 2, 3, 4, 5, 6 and starts mid-array
+        LongRingBuffer buffer = new LongRingBuffer(5);
+        for (long i = 0; i <= 6; i++) {
+            buffer.add(i);
+        }
+        long[] min = new long[3];
+        double[] avg = new double[3];
+        long[] max = new long[3];
+
+        // When
+        int buckets = buffer.downsample(2, min, avg, max);
+
+        // Then
+        assertEquals(3, buckets);
+        assertArrayEquals(new long[]{2, 4, 6}, min);
+        assertArrayEquals(new double[]{2.5, 4.5, 6.0}, avg);
+        assertArrayEquals(new long[]{3, 5, 6}, max);
+    }
+
+    @Test
+    void emptyBuffer_ShouldReportZeros() {
+        LongRingBuffer buffer = new LongRingBuffer(4);
+        assertEquals(0, buffer.last());
+        assertEquals(0, buffer.downsample(1, new long[0], new double[0], new long[0]));
+    }
+}
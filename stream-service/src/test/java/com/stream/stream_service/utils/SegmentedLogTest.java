@@ -0,0 +1,110 @@
+package com.stream.stream_service.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedLogTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Test: records survive a reopen, across segment rolls, and offsets keep increasing
+     */
+    @Test
+    void reopen_ShouldReadBackRecordsAcrossSegments() throws IOException {
+        // Given - 64-byte segments hold two 24-byte records each
+        try (SegmentedLog log = SegmentedLog.open(dir, 64, false)) {
+            for (int i = 1; i <= 5; i++) {
+                assertEquals(i, log.append(payload("record-" + i)));
+            }
+            assertEquals(3, log.getSegmentCount());
+        }
+
+        // When
+        try (SegmentedLog log = SegmentedLog.open(dir, 64, false)) {
+            List<String> read = readAll(log, 1);
+
+            // Then
+            assertEquals(List.of("1:record-1", "2:record-2", "3:record-3", "4:record-4", "5:record-5"), read);
+            assertEquals(6, log.append(payload("record-6")));
+        }
+    }
+
+    /**
+     * Test: a torn record at the tail is discarded on reopen and its offset reused
+     */
+    @Test
+    void reopen_WithTornTail_ShouldCutAtLastValidRecord() throws IOException {
+        // Given
+        try (SegmentedLog log = SegmentedLog.open(dir, 1024, false)) {
+            log.append(payload("first"));
+            log.append(payload("second"));
+        }
+        // Corrupt the payload of the second record (header 16 bytes + "first" 5 bytes, then its header)
+        Path segment = segmentFiles().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(16 + 5 + 16);
+            file.write('X');
+        }
+
+        // When
+        try (SegmentedLog log = SegmentedLog.open(dir, 1024, false)) {
+            // Then
+            assertEquals(List.of("1:first"), readAll(log, 1));
+            assertEquals(2, log.append(payload("again")));
+            assertEquals(List.of("1:first", "2:again"), readAll(log, 1));
+        }
+    }
+
+    /**
+     * Test: committing deletes the fully applied segments and is kept across a reopen
+     */
+    @Test
+    void commit_ShouldDeleteAppliedSegmentsAndPersistOffset() throws IOException {
+        // Given
+        try (SegmentedLog log = SegmentedLog.open(dir, 64, false)) {
+            for (int i = 1; i <= 5; i++) {
+                log.append(payload("record-" + i));
+            }
+
+            // When - records 1-2 (first segment) and 3 (half of the second) are applied
+            log.commit(3);
+
+            // Then
+            assertEquals(2, log.getSegmentCount());
+            assertEquals(2, segmentFiles().size());
+        }
+        try (SegmentedLog log = SegmentedLog.open(dir, 64, false)) {
+            assertEquals(3, log.getCommittedOffset());
+            assertEquals(List.of("4:record-4", "5:record-5"), readAll(log, log.getCommittedOffset() + 1));
+        }
+    }
+
+    private List<String> readAll(SegmentedLog log, long from) {
+        List<String> read = new ArrayList<>();
+        log.read(from, (offset, payload) -> read.add(offset + ":" + new String(payload, StandardCharsets.UTF_8)));
+        return read;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static byte[] payload(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,62 @@
+package com.stream.stream_service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringPackerTest {
+
+    /**
+     * Test: values come back unchanged, including empty, null, non-ASCII and long ones
+     */
+    @Test
+    void pack_ShouldRoundTrip() {
+        // Given
+        StringPacker packer = new StringPacker(16);
+        String longTail = "x".repeat(300);
+
+        // When
+        byte[] record = packer.pack("Café / Gaming 🎮", "https://abc.eu-west-1.playback.live-video.net/api/video/v1/channel.m3u8", "", null, "https://cdn/" + longTail);
+
+        // Then
+        assertArrayEquals(new String[] {"Café / Gaming 🎮", "https://abc.eu-west-1.playback.live-video.net/api/video/v1/channel.m3u8", "", "", "https://cdn/" + longTail},
+                packer.unpack(record));
+    }
+
+    /**
+     * Test: URLs that only differ in their last segment store their prefix once
+     */
+    @Test
+    void pack_ShouldSharePrefixes() {
+        // Given
+        StringPacker packer = new StringPacker(16);
+        String prefix = "https://bucket.s3.eu-west-1.amazonaws.com/avatars/";
+
+        // When
+        byte[] first = packer.pack(prefix + "user-1.jpg");
+        byte[] second = packer.pack(prefix + "user-2.jpg");
+
+        // Then - the empty prefix and the avatar folder
+        assertEquals(2, packer.getPrefixCount());
+        assertTrue(second.length < prefix.length());
+        assertEquals(prefix + "user-1.jpg", packer.unpack(first)[0]);
+        assertEquals(prefix + "user-2.jpg", packer.unpack(second)[0]);
+    }
+
+    /**
+     * Test: once the dictionary is full, new prefixes are kept inline and still round-trip
+     */
+    @Test
+    void pack_WhenDictionaryFull_ShouldStoreInline() {
+        // Given
+        StringPacker packer = new StringPacker(2);
+        packer.pack("https://one/a");
+
+        // When
+        byte[] record = packer.pack("https://two/b", "https://one/c");
+
+        // Then
+        assertEquals(2, packer.getPrefixCount());
+        assertArrayEquals(new String[] {"https://two/b", "https://one/c"}, packer.unpack(record));
+    }
+}
@@ -0,0 +1,85 @@
+package com.stream.stream_service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKHeapTest {
+
+    /**
+     * Test: only entries beating the current minimum are admitted once the heap is full
+     */
+    @Test
+    void offer_WhenFull_ShouldKeepHighestScores() {
+        TopKHeap<String> heap = new TopKHeap<>(3);
+        heap.offer("a", 10, "a");
+        heap.offer("b", 50, "b");
+        heap.offer("c", 30, "c");
+
+        assertFalse(heap.offer("d", 5, "d"));
+        assertTrue(heap.offer("e", 40, "e"));
+
+        assertEquals(List.of("b", "e", "c"), heap.sortedDescending());
+        assertEquals(30, heap.minScore());
+        assertFalse(heap.contains("a"));
+    }
+
+    /**
+     * Test: updating the score of an entry moves it through the position map
+     */
+    @Test
+    void offer_ExistingId_ShouldReorder() {
+        TopKHeap<String> heap = new TopKHeap<>(3);
+        heap.offer("a", 10, "a");
+        heap.offer("b", 20, "b");
+        heap.offer("c", 30, "c");
+
+        heap.offer("a", 100, "a2");
+
+        assertEquals(List.of("a2", "c", "b"), heap.sortedDescending());
+        assertEquals(20, heap.minScore());
+        assertEquals("a2", heap.get("a"));
+    }
+
+    @Test
+    void remove_ShouldFreeSlot() {
+        TopKHeap<String> heap = new TopKHeap<>(2);
+        heap.offer("a", 10, "a");
+        heap.offer("b", 20, "b");
+
+        assertTrue(heap.remove("b"));
+
+        assertEquals(Long.MIN_VALUE, heap.minScore());
+        assertTrue(heap.offer("c", 1, "c"));
+        assertEquals(List.of("a", "c"), heap.sortedDescending());
+    }
+
+    /**
+     * Test: after random increments the heap holds exactly the K best scores, in order
+     */
+    @Test
+    void randomUpdates_ShouldMatchFullSort() {
+        Random random = new Random(42);
+        long[] scores = new long[500];
+        TopKHeap<String> heap = new TopKHeap<>(20);
+        for (int step = 0; step < 20_000; step++) {
+            int id = random.nextInt(scores.length);
+            scores[id] += random.nextInt(10);
+            heap.offer("s" + id, scores[id], "s" + id);
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < scores.length; i++) {
+            ids.add(i);
+        }
+        ids.sort(Comparator.<Integer>comparingLong(i -> scores[i]).reversed());
+        List<Long> expected = ids.subList(0, 20).stream().map(i -> scores[i]).toList();
+        List<Long> actual = heap.sortedDescending().stream().map(id -> scores[Integer.parseInt(id.substring(1))]).toList();
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,109 @@
+package com.stream.stream_service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TtlCacheTest {
+
+    private static final long MS = 1_000_000L;
+
+    /**
+     * Test: an entry goes FRESH -> STALE -> EXPIRED as the clock advances
+     */
+    @Test
+    void stateOf_ShouldFollowTtlAndStaleWindow() {
+        AtomicLong clock = new AtomicLong();
+        TtlCache<String, String> cache = new TtlCache<>("test", 100, 1000, 10, clock::get);
+        cache.put("k", "v");
+
+        assertEquals(TtlCache.State.FRESH, cache.stateOf(cache.get("k")));
+
+        clock.set(500 * MS);
+        assertEquals(TtlCache.State.STALE, cache.stateOf(cache.get("k")));
+
+        clock.set(2000 * MS);
+        TtlCache.Entry<String> expired = cache.get("k");
+        assertEquals(TtlCache.State.EXPIRED, cache.stateOf(expired));
+        assertEquals("v", expired.getValue()); // still usable as a fallback
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getStaleHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    /**
+     * Test: exceeding the size limit evicts the least recently accessed entries
+     */
+    @Test
+    void put_OverLimit_ShouldEvictLeastRecentlyAccessed() {
+        AtomicLong clock = new AtomicLong();
+        TtlCache<String, Integer> cache = new TtlCache<>("test", 1000, 1000, 10, clock::get);
+        for (int i = 0; i < 10; i++) {
+            clock.incrementAndGet();
+            cache.put("k" + i, i);
+        }
+        clock.incrementAndGet();
+        cache.get("k0"); // k0 becomes the most recently used
+
+        clock.incrementAndGet();
+        cache.put("k10", 10);
+
+        assertEquals(9, cache.size());
+        assertEquals(2, cache.getEvictions());
+        assertNotNull(cache.get("k0"));
+        assertNull(cache.get("k1"));
+        assertNull(cache.get("k2"));
+        assertNotNull(cache.get("k10"));
+    }
+
+    /**
+     * Test: eviction keeps working while readers update the access times it sorts on
+     */
+    @Test
+    void put_OverLimit_WithConcurrentReads_ShouldNotFail() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        TtlCache<Integer, Integer> cache = new TtlCache<>("test", 1000, 1000, 500, clock::incrementAndGet);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            Thread reader = new Thread(() -> {
+                while (running.get()) {
+                    cache.get(ThreadLocalRandom.current().nextInt(2000));
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        try {
+            for (int i = 0; i < 200_000; i++) {
+                cache.put(i % 2000, i);
+            }
+        } finally {
+            running.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+
+        assertTrue(cache.size() <= 500);
+        assertTrue(cache.getEvictions() > 0);
+    }
+
+    @Test
+    void tryStartRefresh_ShouldAllowOneRefreshPerKey() {
+        TtlCache<String, String> cache = new TtlCache<>("test", 100, 100, 10);
+
+        assertTrue(cache.tryStartRefresh("k"));
+        assertFalse(cache.tryStartRefresh("k"));
+        cache.refreshDone("k");
+        assertTrue(cache.tryStartRefresh("k"));
+    }
+}